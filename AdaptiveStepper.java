@@ -0,0 +1,251 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Chooses the time step of every step from how far particles moved and how hard they were pushed in the step
+ * before, within fixed bounds. Calm colonies run at long steps, while crowded division bursts and tumbling
+ * bacteria shrink the step before a particle can jump further than the allowed displacement.
+ * <p>
+ * The stepper wraps the run's {@link Integrator}: the {@link SimEngine} hands particles to it, and it records
+ * the largest displacement and force of the step before passing them on. The step is chosen as the shortest of
+ * <ul>
+ *     <li>the allowed displacement over the fastest particle speed of the last step,</li>
+ *     <li>the step at which the largest force of the last step moves a particle by the allowed displacement,</li>
+ *     <li>the last step grown by at most {@link #MAX_GROWTH},</li>
+ * </ul>
+ * clamped to the bounds. Every step can be written to a CSV history.
+ *
+ * @author Brian Mbawa, Seth McNevin, Gladwin Ngobeni
+ */
+public class AdaptiveStepper implements Integrator {
+
+    /**
+     * Largest factor by which the step grows from one step to the next
+     */
+    public static final double MAX_GROWTH = 1.2;
+
+    /**
+     * Particle displacement allowed per step unless another is given, about a seventh of the particle spacing
+     */
+    public static final double DEFAULT_MAX_DISPLACEMENT = 0.5;
+
+    private final double minStep;
+    private final double maxStep;
+    private final double maxDisplacement;
+
+    /**
+     * Integrator moving the particles, set at the start of every step
+     */
+    private Integrator integrator = new VerletIntegrator();
+
+    /*
+    Largest displacement and force of the step in progress and of the last complete step
+     */
+    private double stepDisplacement;
+    private double stepForce;
+    private double lastDisplacement;
+    private double lastForce;
+    private double lastStep;
+
+    /**
+     * Which bound limited the step in progress -- "displacement", "force", "growth", "min" or "max"
+     */
+    private String limit = "max";
+
+    /*
+    Summary of the history
+     */
+    private long steps;
+    private double totalTime;
+    private double shortest = Double.POSITIVE_INFINITY;
+    private double longest;
+    private long atMin;
+    private long atMax;
+
+    /**
+     * CSV history, null when not logging
+     */
+    private Writer log;
+
+    /**
+     * @param minStep shortest step in seconds
+     * @param maxStep longest step in seconds
+     * @param maxDisplacement distance a particle may move in one step
+     */
+    public AdaptiveStepper(double minStep, double maxStep, double maxDisplacement) {
+        if (!(minStep > 0) || maxStep < minStep || !(maxDisplacement > 0)) {
+            throw new IllegalArgumentException("Step bounds must be positive and ordered, and the displacement positive");
+        }
+        this.minStep = minStep;
+        this.maxStep = maxStep;
+        this.maxDisplacement = maxDisplacement;
+    }
+
+    /**
+     * @return a stepper configured by -Dbiofilm.adaptiveStep=min,max and -Dbiofilm.maxDisplacement, or null
+     * if adaptive stepping is not asked for
+     */
+    static AdaptiveStepper fromProperties() {
+        String bounds = System.getProperty("biofilm.adaptiveStep");
+        if (bounds == null) {
+            return null;
+        }
+        String[] parts = bounds.split(",");
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("biofilm.adaptiveStep must be given as min,max");
+        }
+        double displacement = Double.parseDouble(System.getProperty("biofilm.maxDisplacement",
+                String.valueOf(DEFAULT_MAX_DISPLACEMENT)));
+        return new AdaptiveStepper(Double.parseDouble(parts[0].trim()), Double.parseDouble(parts[1].trim()), displacement);
+    }
+
+    /**
+     * Writes every following step to a CSV file of time, step, largest displacement, largest force and limit
+     *
+     * @param file the history file
+     * @throws IOException if the file cannot be created
+     */
+    public void setLog(File file) throws IOException {
+        closeLog();
+        log = new BufferedWriter(new FileWriter(file));
+        log.write("time,dt,max_displacement,max_force,limit\n");
+    }
+
+    /**
+     * Chooses the step about to be taken
+     *
+     * @param integrator the run's integrator
+     * @param previousStep the step taken last, used before the stepper has measured one
+     * @return the step in seconds
+     */
+    double beginStep(Integrator integrator, double previousStep) {
+        this.integrator = integrator;
+        stepDisplacement = 0;
+        stepForce = 0;
+        if (steps == 0) {
+            lastStep = Math.max(minStep, Math.min(maxStep, previousStep));
+            limit = "initial";
+            return lastStep;
+        }
+
+        double step = maxStep;
+        limit = "max";
+        if (lastDisplacement > 0) {
+            double byDisplacement = maxDisplacement * lastStep / lastDisplacement;
+            if (byDisplacement < step) {
+                step = byDisplacement;
+                limit = "displacement";
+            }
+        }
+        double byForce = integrator.stepForDisplacement(lastForce, maxDisplacement);
+        if (byForce < step) {
+            step = byForce;
+            limit = "force";
+        }
+        if (lastStep * MAX_GROWTH < step) {
+            step = lastStep * MAX_GROWTH;
+            limit = "growth";
+        }
+        if (step <= minStep) {
+            step = minStep;
+            limit = "min";
+        }
+        return step;
+    }
+
+    /**
+     * Records the step just taken
+     *
+     * @param currentTime simulation time at the start of the step
+     * @param step the step taken
+     */
+    void endStep(double currentTime, double step) {
+        lastStep = step;
+        lastDisplacement = stepDisplacement;
+        lastForce = stepForce;
+        steps++;
+        totalTime += step;
+        shortest = Math.min(shortest, step);
+        longest = Math.max(longest, step);
+        if (step <= minStep) {
+            atMin++;
+        } else if (step >= maxStep) {
+            atMax++;
+        }
+        if (log != null) {
+            try {
+                log.write(String.format("%.6f,%.6g,%.6g,%.6g,%s%n", currentTime, step, stepDisplacement, stepForce, limit));
+            } catch (IOException e) {
+                System.err.println("Time step history stopped: " + e.getMessage());
+                log = null;
+            }
+        }
+    }
+
+    /**
+     * Moves a particle with the run's integrator, recording its force and displacement
+     */
+    @Override
+    public void advance(Particle particle, double dt) {
+        PVector force = particle.getNetForce();
+        stepForce = Math.max(stepForce, force.magnitude());
+        PVector position = particle.getPosition();
+        double x = position.getX();
+        double y = position.getY();
+        double z = position.getZ();
+        integrator.advance(particle, dt);
+        double dx = position.getX() - x;
+        double dy = position.getY() - y;
+        double dz = position.getZ() - z;
+        stepDisplacement = Math.max(stepDisplacement, Math.sqrt(dx * dx + dy * dy + dz * dz));
+    }
+
+    @Override
+    public double stepForDisplacement(double force, double displacement) {
+        return integrator.stepForDisplacement(force, displacement);
+    }
+
+    @Override
+    public double defaultTimeStep() {
+        return integrator.defaultTimeStep();
+    }
+
+    @Override
+    public String name() {
+        return "adaptive " + integrator.name();
+    }
+
+    /**
+     * Flushes and closes the history file
+     */
+    public void closeLog() throws IOException {
+        if (log != null) {
+            log.close();
+            log = null;
+        }
+    }
+
+    public long getSteps() {
+        return steps;
+    }
+
+    /**
+     * @return mean step in seconds
+     */
+    public double getMeanStep() {
+        return steps == 0 ? 0 : totalTime / steps;
+    }
+
+    @Override
+    public String toString() {
+        if (steps == 0) {
+            return "no adaptive steps taken";
+        }
+        return String.format("%d adaptive steps over %.2f s: mean dt %.4g s, shortest %.4g s, longest %.4g s, "
+                + "%.1f%% at the lower bound, %.1f%% at the upper bound", steps, totalTime, getMeanStep(), shortest,
+                longest, 100.0 * atMin / steps, 100.0 * atMax / steps);
+    }
+}
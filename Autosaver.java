@@ -0,0 +1,304 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Periodic checkpointing on a background thread. At a step boundary the simulation state is copied
+ * into a {@link SimSnapshot}, which only copies primitive columns, and the writer thread then turns it
+ * into either a full {@link SnapshotFile} or a {@link CheckpointDelta} holding what changed since the
+ * previous checkpoint. The simulation keeps stepping while the checkpoint is written.
+ * <p>
+ * Only the first checkpoint of a chain copies the whole state on the simulation thread. After it the
+ * {@link Grid} and the {@link LineageStore} note which PSL cells and lineage entries change, and each checkpoint
+ * copies the bacteria and EPS particles, which nearly all move between checkpoints, and only the changed cells and
+ * entries. The writer lays those over the state it last wrote.
+ *
+ * @author Brian Mbawa, Seth McNevin, Gladwin Ngobeni
+ */
+public class Autosaver {
+
+    /**
+     * Checkpoint file names -- checkpoint-000012.snap for full checkpoints, checkpoint-000013.delta for deltas
+     */
+    private static final Pattern CHECKPOINT_NAME = Pattern.compile("checkpoint-(\\d+)\\.(snap|delta)");
+
+    /**
+     * Directory the checkpoints are written to
+     */
+    private final File directory;
+
+    /**
+     * Simulated seconds between checkpoints
+     */
+    private final double interval;
+
+    /**
+     * Every fullEvery-th checkpoint is a full checkpoint, the rest are deltas
+     */
+    private final int fullEvery;
+
+    /**
+     * Single writer thread -- checkpoints are written in the order they were taken
+     */
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "autosave");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * True while a checkpoint is being written -- boundaries reached in the meantime are skipped
+     */
+    private final AtomicBoolean writing = new AtomicBoolean(false);
+
+    private boolean enabled = false;
+    private double nextCheckpointTime = 0.0;
+    private long sequence;
+    private int sinceFull = 0;
+
+    /**
+     * Set when the chain is broken (reset, load or a failed write) so the next checkpoint is a full one
+     */
+    private volatile boolean needsFull = true;
+
+    /**
+     * Grid noting its changes for the chain, null when none is
+     */
+    private Grid trackedGrid;
+
+    /**
+     * State written by the last checkpoint -- only touched by the writer thread
+     */
+    private SimSnapshot lastWritten;
+
+    /**
+     * Creates an autosaver
+     *
+     * @param directory directory the checkpoints are written to
+     * @param interval simulated seconds between checkpoints
+     * @param fullEvery number of checkpoints per full checkpoint
+     */
+    public Autosaver(File directory, double interval, int fullEvery) {
+        this.directory = directory;
+        this.interval = interval;
+        this.fullEvery = fullEvery;
+        this.sequence = latestSequence(directory) + 1;
+    }
+
+    /**
+     * Called after every simulation step. Takes a checkpoint if one is due and the writer is idle.
+     *
+     * @param bacteria {@link Bacterium}s in the simulation
+     * @param eps {@link EPS} particles in the simulation
+     * @param grid PSL {@link Grid}
+     * @param currentTime simulation time at the end of the step
+     */
+    public void onStepBoundary(List<Bacterium> bacteria, List<EPS> eps, Grid grid, double currentTime) {
+        if (!enabled) {
+            stopTracking();
+            return;
+        }
+        if (currentTime < nextCheckpointTime || bacteria.isEmpty()) {
+            return;
+        }
+        if (!writing.compareAndSet(false, true)) {
+            return;
+        }
+        nextCheckpointTime = currentTime + interval;
+
+        /*
+        Copy the state on the simulation thread, everything else happens on the writer. A new chain, or a new
+        grid, starts from a copy of everything, and the changes noted until then are dropped.
+         */
+        boolean rebase = needsFull || grid != trackedGrid;
+        SimSnapshot captured;
+        if (rebase) {
+            stopTracking();
+            trackedGrid = grid;
+            grid.trackChanges(true);
+            Bacterium.getLineage().trackChanges(true);
+            captured = new SimSnapshot(bacteria, eps, grid, currentTime);
+        } else {
+            captured = SimSnapshot.changes(bacteria, eps, grid, currentTime);
+        }
+        boolean full = rebase || sinceFull >= fullEvery - 1;
+        sinceFull = full ? 0 : sinceFull + 1;
+        needsFull = false;
+        long checkpoint = sequence++;
+
+        writer.execute(() -> {
+            try {
+                SimSnapshot snapshot = rebase ? captured : lastWritten.update(captured);
+                if (full) {
+                    SnapshotFile.write(snapshot, checkpointFile(checkpoint, true));
+                } else {
+                    CheckpointDelta.write(lastWritten, snapshot, checkpoint, checkpointFile(checkpoint, false));
+                }
+                lastWritten = snapshot;
+            } catch (IOException e) {
+                System.err.println("Autosave failed: " + e.getMessage());
+                needsFull = true;
+            } finally {
+                writing.set(false);
+            }
+        });
+    }
+
+    /**
+     * Starts a new checkpoint chain, used after the simulation is reset or loaded
+     *
+     * @param currentTime simulation time the new chain starts at
+     */
+    public void restart(double currentTime) {
+        needsFull = true;
+        nextCheckpointTime = currentTime;
+    }
+
+    /**
+     * Stops the grid and the lineage noting their changes, called on the simulation thread
+     */
+    private void stopTracking() {
+        if (trackedGrid != null) {
+            trackedGrid.trackChanges(false);
+            Bacterium.getLineage().trackChanges(false);
+            trackedGrid = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        if (enabled && !this.enabled) {
+            needsFull = true;
+        }
+        this.enabled = enabled;
+    }
+
+    private File checkpointFile(long checkpoint, boolean full) {
+        directory.mkdirs();
+        return new File(directory, String.format("checkpoint-%06d.%s", checkpoint, full ? "snap" : "delta"));
+    }
+
+    /**
+     * Finds the highest checkpoint sequence already present in a directory
+     */
+    private static long latestSequence(File directory) {
+        long latest = -1;
+        for (long checkpoint : listCheckpoints(directory).keySet()) {
+            latest = Math.max(latest, checkpoint);
+        }
+        return latest;
+    }
+
+    /**
+     * Lists the checkpoints of a directory by sequence number
+     */
+    private static TreeMap<Long, File> listCheckpoints(File directory) {
+        TreeMap<Long, File> checkpoints = new TreeMap<>();
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                Matcher matcher = CHECKPOINT_NAME.matcher(file.getName());
+                if (matcher.matches()) {
+                    checkpoints.put(Long.parseLong(matcher.group(1)), file);
+                }
+            }
+        }
+        return checkpoints;
+    }
+
+    /**
+     * Restores the state recorded by a checkpoint by loading the full checkpoint it descends from
+     * and applying every delta up to and including it
+     *
+     * @param checkpoint a full or delta checkpoint file
+     * @return the restored state
+     * @throws IOException if the chain is incomplete or cannot be read
+     */
+    public static RestoredState restore(File checkpoint) throws IOException {
+        Matcher matcher = CHECKPOINT_NAME.matcher(checkpoint.getName());
+        if (!matcher.matches()) {
+            throw new IOException("Not a checkpoint file: " + checkpoint.getName());
+        }
+        long target = Long.parseLong(matcher.group(1));
+        TreeMap<Long, File> chain = listCheckpoints(checkpoint.getAbsoluteFile().getParentFile());
+
+        /*
+        Find the full checkpoint the target descends from
+         */
+        Long base = null;
+        for (Map.Entry<Long, File> entry : chain.headMap(target, true).descendingMap().entrySet()) {
+            if (entry.getValue().getName().endsWith(".snap")) {
+                base = entry.getKey();
+                break;
+            }
+        }
+        if (base == null) {
+            throw new IOException("No full checkpoint precedes " + checkpoint.getName());
+        }
+
+        MappedSnapshot snapshot = SnapshotFile.open(chain.get(base));
+        snapshot.restoreLineage();
+        RestoredState state = new RestoredState();
+        for (Bacterium bacterium : snapshot.bacteria()) {
+            state.bacteria.put(bacterium.getId(), bacterium);
+        }
+        for (EPS epsParticle : snapshot.eps()) {
+            state.eps.put(epsParticle.getId(), epsParticle);
+        }
+        state.grid = snapshot.grid();
+        state.time = snapshot.getTime();
+        state.bondCheckTime = snapshot.getBondCheckTime();
+
+        for (long next = base + 1; next <= target; next++) {
+            File delta = chain.get(next);
+            if (delta == null || !delta.getName().endsWith(".delta")) {
+                throw new IOException("Checkpoint chain is broken at " + next);
+            }
+            CheckpointDelta.apply(delta, state);
+        }
+        return state;
+    }
+
+    /**
+     * Simulation state rebuilt from a checkpoint chain
+     */
+    public static class RestoredState {
+        final Map<Integer, Bacterium> bacteria = new LinkedHashMap<>();
+        final Map<Integer, EPS> eps = new LinkedHashMap<>();
+        Grid grid;
+        double time;
+        double bondCheckTime;
+
+        public ArrayList<Bacterium> getBacteria() {
+            return new ArrayList<>(bacteria.values());
+        }
+
+        public ArrayList<EPS> getEPS() {
+            return new ArrayList<>(eps.values());
+        }
+
+        public Grid getGrid() {
+            return grid;
+        }
+
+        public double getTime() {
+            return time;
+        }
+
+        public double getBondCheckTime() {
+            return bondCheckTime;
+        }
+    }
+}
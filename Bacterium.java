@@ -1,4 +1,6 @@
 import java.awt.*;
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.*;
 import java.util.List;
@@ -12,6 +14,25 @@ import java.util.List;
 
 public class Bacterium implements Serializable {
 
+    private static final long serialVersionUID = 7665344431561650292L;
+
+    /**
+     * Identifier of this bacterium, stable for the whole run -- 0 only for bacteria read from old saves
+     */
+    private int id;
+
+    /**
+     * Identifier handed to the next bacterium created, and the step between identifiers handed out -- above 1 in
+     * a distributed run, whose regions hand out interleaved identifiers
+     */
+    private static int nextId = 1;
+    private static int idStride = 1;
+
+    /**
+     * Parent ids, birth and division times of every bacterium of the run
+     */
+    private static final LineageStore LINEAGE = new LineageStore();
+
     /**
      * The strain or type of this bacterium -- not currently a feature, but may add
      */
@@ -49,24 +70,31 @@ public class Bacterium implements Serializable {
     /**
      * The rest length of a bacterium
      */
-    private static final double LO = 3.333333;
+    static final double LO = 3.333333;
 
     /**
      * Spring Harmonic parameters
      */
     private static final double EPSILON = 1;
-    private static final double STIFFNESS = (250 * EPSILON / Math.pow(TRANSVERSE_WIDTH,2));
+    static final double STIFFNESS = (250 * EPSILON / Math.pow(TRANSVERSE_WIDTH,2));
 
     /**
      * Angular harmonic interactions parameters
      */
-    private static final double BENDING_STIFFNESS = 20 * EPSILON;
-    private static final double REST_ANGLE = Math.PI;
+    static final double BENDING_STIFFNESS = 20 * EPSILON;
+    static final double REST_ANGLE = Math.PI;
+
+    /**
+     * Bend of three particles away from a straight line, pi - acos(c), against w = sqrt((1 + c) / 2) for the
+     * cosine c of their angle. As 2 asin(w) the law is smooth near the rest angle where acos(c) is not.
+     * Bends beyond about 106 degrees are evaluated analytically.
+     */
+    private static final ForceTable BENDING_TABLE = new ForceTable("bending angle", w -> 2 * Math.asin(w), 0, 0.8, 1e-6);
 
     /**
      * Run parameters
      */
-    private static final double V_RUN = 4;
+    static final double V_RUN = 4;
     private boolean isRunning = false;
     private double runEndTime = 0.0;
     /*
@@ -98,21 +126,67 @@ public class Bacterium implements Serializable {
      * WCA potential parameters
      */
     protected static final double SIGMA = TRANSVERSE_WIDTH;
-    private static final double CUT_OFF = Math.pow(2, 1.0/6.0) * SIGMA;
+    static final double CUT_OFF = Math.pow(2, 1.0/6.0) * SIGMA;
+
+    /**
+     * Magnitude of the WCA repulsion between two particles closer than the cut-off
+     */
+    static final double WCA_REPULSION = 2000;
+
+    /**
+     * WCA repulsion between the particles of two bacteria. Every pair closer than the cut-off pushes the
+     * whole of the first bacterium with a constant force and the whole of the second back ten times as hard;
+     * the field hands each pair over from both sides.
+     */
+    static final ForceField.PairTerm WCA_TERM = new ForceField.PairTerm() {
+        @Override
+        public double range() {
+            return CUT_OFF;
+        }
+
+        @Override
+        public void apply(ForceField.Pair pair) {
+            if (pair.distance < CUT_OFF && pair.distance > 0) {
+                double fx = pair.dx / pair.distance * -WCA_REPULSION;
+                double fy = pair.dy / pair.distance * -WCA_REPULSION;
+                double fz = pair.dz / pair.distance * -WCA_REPULSION;
+                pair.addToFirstBody(fx, fy, fz);
+                pair.addToSecondBody(fx * -10, fy * -10, fz * -10);
+            }
+        }
+
+        /**
+         * Constant force up to the cut-off, half counted from each side of the pair
+         */
+        @Override
+        public double energy(ForceField.Pair pair) {
+            return pair.distance < CUT_OFF ? WCA_REPULSION * (CUT_OFF - pair.distance) / 2 : 0;
+        }
+    };
+
+    /**
+     * Minimum distance between the particles of a newly placed bacterium and those of any other bacterium
+     */
+    protected static final double MIN_SPAWN_DISTANCE = 10;
+
+    /**
+     * Distance between the centres of two bacteria that keeps them MIN_SPAWN_DISTANCE apart in any direction
+     */
+    protected static final double SPAWN_SPACING = 6 * LO + MIN_SPAWN_DISTANCE;
 
     /**
      * Growth parameters
      */
-    private static final double MAX_REST_LENGTH = 2 * LO;
-    private static final double MEAN_TR = 3600;
-    private final double birthTime;
-    private final double growthRate;
+    static final double MAX_REST_LENGTH = 2 * LO;
+    static final double MEAN_TR = 3600;
+    private double birthTime;
+    private double growthRate;
 
     /**
      * Reproduction parameters
      */
     private boolean reproduced = false;
-    private Bacterium father;
+    private int fatherId = LineageStore.NO_PARENT;
 
     /**
      * PSL torque parameters
@@ -132,6 +206,16 @@ public class Bacterium implements Serializable {
 
     private static boolean canReproduce = true;
 
+    /**
+     * Stamp of the events an {@link EventScheduler} holds for this bacterium -- bumped to cancel them all
+     */
+    private transient int eventStamp;
+
+    /**
+     * True while an EPS insertion event is queued for this bacterium
+     */
+    private transient boolean insertionScheduled;
+
     /**
      * Motility parameters
      */
@@ -145,7 +229,7 @@ public class Bacterium implements Serializable {
      * @param x the first entry of this bacterium's position vector
      * @param y the second entry of this bacterium's position vector
      */
-    public Bacterium(String strain, Color color,boolean motile, double x, double y, double currentTime, List<Bacterium> otherBacteria) {
+    public Bacterium(String strain, Color color,boolean motile, double x, double y, double currentTime) {
         this.color = color;
         this.strain = strain;
         particles = new ArrayList<>();
@@ -168,11 +252,13 @@ public class Bacterium implements Serializable {
         bacteriaVelocity =  direction.multiply(MIN_VELOCITY_MAGNITUDE);
         bacteriaDirection = bacteriaVelocity.normalize();
 
+        this.id = newId();
         this.birthTime = currentTime;
         this.growthRate = generateGrowthRate();
         this.insertionRate = (1.0/60.0) * growthRate;
+        LINEAGE.recordBirth(id, LineageStore.NO_PARENT, currentTime);
 
-        initialiseParticles(x, y, currentTime, true, otherBacteria);
+        initialiseParticles(x, y, currentTime, true);
 
         /*
         Set time based parameters
@@ -183,13 +269,34 @@ public class Bacterium implements Serializable {
     /**
      * Secondary constructor for daughter bacteria
      */
-    public Bacterium(String strain, Color color, boolean motile, double x, double y, double currentTime, PVector bacteriaVelocity, List<Bacterium> otherBacteria, Bacterium father) {
-        this.color = color;
-        this.strain = strain;
+    public Bacterium(String strain, Color color, boolean motile, double x, double y, double currentTime, PVector bacteriaVelocity, Bacterium father) {
         particles = new ArrayList<>();
         daughters = new ArrayList<>();
+        initialiseDaughter(strain, color, motile, x, y, currentTime, bacteriaVelocity, father);
+    }
+
+    /**
+     * Obtains a daughter bacterium, re-initialising a pooled bacterium when one is idle
+     *
+     * @see ObjectPool
+     */
+    static Bacterium daughter(String strain, Color color, boolean motile, double x, double y, double currentTime, PVector bacteriaVelocity, Bacterium father) {
+        Bacterium bacterium = ObjectPool.obtainBacterium();
+        if (bacterium == null) {
+            return new Bacterium(strain, color, motile, x, y, currentTime, bacteriaVelocity, father);
+        }
+        bacterium.initialiseDaughter(strain, color, motile, x, y, currentTime, bacteriaVelocity, father);
+        return bacterium;
+    }
+
+    /**
+     * Sets up a daughter bacterium -- every field is assigned so that a pooled bacterium keeps nothing of its previous life
+     */
+    private void initialiseDaughter(String strain, Color color, boolean motile, double x, double y, double currentTime, PVector bacteriaVelocity, Bacterium father) {
+        this.color = color;
+        this.strain = strain;
         this.frictionCoffecient = 0.1;
-        this.father = father;
+        this.fatherId = father.getId();
         // ####################### Change back
         this.motile = motile;
 
@@ -199,11 +306,28 @@ public class Bacterium implements Serializable {
         this.bacteriaVelocity = bacteriaVelocity;
         this.bacteriaDirection = bacteriaVelocity.normalize(); // Ensure bacteriaDirection is normalized
 
+        this.id = newId();
         this.birthTime = currentTime;
         this.growthRate = generateGrowthRate();
         this.insertionRate = (1.0 / 60.0) * growthRate;
+        LINEAGE.recordBirth(id, fatherId, currentTime);
 
-        initialiseParticles(x, y, currentTime, true, otherBacteria);
+        /*
+         Clear the state left by a previous life
+         */
+        isRunning = false;
+        runEndTime = 0.0;
+        isTumbling = false;
+        tumbleEndTime = 0.0;
+        clockwise = true;
+        reproduced = false;
+        PslClockwise = true;
+        nextInsertionTime = 0.0;
+        this.currentTime = 0.0;
+        particles.clear();
+        daughters.clear();
+
+        initialiseParticles(x, y, currentTime, true);
 
         /*
          Set time based parameters
@@ -228,6 +352,7 @@ public class Bacterium implements Serializable {
         this.bacteriaVelocity = otherBacterium.bacteriaVelocity;
         this.bacteriaDirection = otherBacterium.bacteriaDirection;
         this.clockwise = otherBacterium.clockwise;
+        this.id = otherBacterium.id;
         this.birthTime = otherBacterium.birthTime;
         this.growthRate = otherBacterium.growthRate;
         this.reproduced = otherBacterium.reproduced;
@@ -236,7 +361,52 @@ public class Bacterium implements Serializable {
         this.nextInsertionTime = otherBacterium.nextInsertionTime;
         this.frictionCoffecient = otherBacterium.frictionCoffecient;
         this.currentTime = otherBacterium.currentTime;
-        this.father = otherBacterium.father;
+        this.fatherId = otherBacterium.fatherId;
+    }
+
+    /**
+     * Restore constructor used when rebuilding a bacterium from a {@link SnapshotFile}
+     *
+     * @param id identifier of the saved bacterium
+     * @param strain type of bacteria
+     * @param color color of this bacterium
+     * @param particles the seven restored particles of this bacterium
+     * @param birthTime time at which this bacterium was born
+     * @param growthRate growth rate drawn at birth
+     */
+    Bacterium(int id, String strain, Color color, List<Particle> particles, double birthTime, double growthRate) {
+        this.id = id;
+        reserveId(id);
+        this.fatherId = LINEAGE.getParent(id);
+        if (id >= LINEAGE.size()) {
+            LINEAGE.recordBirth(id, LineageStore.NO_PARENT, birthTime);
+        }
+        this.strain = strain;
+        this.color = color;
+        this.particles = particles;
+        this.daughters = new ArrayList<>();
+        this.birthTime = birthTime;
+        this.growthRate = growthRate;
+    }
+
+    /**
+     * Restores the run/tumble, growth and EPS state of a bacterium read from a {@link SnapshotFile}
+     */
+    void restoreState(boolean isRunning, double runEndTime, boolean isTumbling, double tumbleEndTime,
+                      boolean clockwise, boolean pslClockwise, boolean reproduced, double insertionRate,
+                      double nextInsertionTime, double frictionCoffecient, PVector bacteriaVelocity, PVector bacteriaDirection) {
+        this.isRunning = isRunning;
+        this.runEndTime = runEndTime;
+        this.isTumbling = isTumbling;
+        this.tumbleEndTime = tumbleEndTime;
+        this.clockwise = clockwise;
+        this.PslClockwise = pslClockwise;
+        this.reproduced = reproduced;
+        this.insertionRate = insertionRate;
+        this.nextInsertionTime = nextInsertionTime;
+        this.frictionCoffecient = frictionCoffecient;
+        this.bacteriaVelocity = bacteriaVelocity;
+        this.bacteriaDirection = bacteriaDirection;
     }
 
     /**
@@ -245,7 +415,7 @@ public class Bacterium implements Serializable {
      * @param startX The x coordinate of the head particle
      * @param startY The y coordinate of the head particle
      */
-    public void initialiseParticles(double startX, double startY, double currentTime, boolean useLO, List<Bacterium> otherBacteria) {
+    private void initialiseParticles(double startX, double startY, double currentTime, boolean useLO) {
         double restLength = useLO ? LO : getCurrentRestLength(currentTime);
         /*
         The change in the position of particles as per angle
@@ -261,7 +431,7 @@ public class Bacterium implements Serializable {
             double x = startX + i * dx;
             double y = startY + i * dy;
             if (particles.size() < 7) {
-                Particle particle = new Particle(x, y, bacteriaVelocity, bacteriaVelocity);
+                Particle particle = ObjectPool.obtainParticle(x, y, bacteriaVelocity, bacteriaVelocity);
                 particles.add(particle);
             } else {
                 particles.get(i).getPosition().setX(x);
@@ -271,29 +441,15 @@ public class Bacterium implements Serializable {
     }
 
     /**
-     * Check if the spawn area of this bacterium is valid
+     * Moves the particles of this bacterium so that its middle particle sits on a point, keeping its direction
      *
-     * @param positions The positions of this bacterium's particles
-     * @param otherBacteria Other bacteria in the simulation
-     * @return if this bacterium's initialization positions are valid
+     * @param x x coordinate of the centre
+     * @param y y coordinate of the centre
      */
-    private boolean areAllPositionsValid(List<PVector> positions, List<Bacterium> otherBacteria) {
-        for (PVector pos: positions) {
-            /*
-            Check against existing bacteria
-             */
-            for (Bacterium other : otherBacteria) {
-                if (other == father) {
-                    continue;
-                }
-                for (Particle particle : other.getParticles()) {
-                    if (pos.distance(particle.getPosition()) < 10) {
-                        return false;
-                    }
-                }
-            }
-        }
-        return true;
+    public void centreAt(double x, double y) {
+        double dx = LO * Math.cos(bacteriaDirection.direction());
+        double dy = LO * Math.sin(bacteriaDirection.direction());
+        initialiseParticles(x - 3 * dx, y - 3 * dy, birthTime, true);
     }
 
 
@@ -302,7 +458,7 @@ public class Bacterium implements Serializable {
      *
      * @param currentTime Time of the simulation
      */
-    public void startRunning(double currentTime) {
+    public final void startRunning(double currentTime) {
         isRunning = true;
         runEndTime = currentTime + -trun * Math.log(1.0 - RANDOM.nextDouble());
     }
@@ -319,6 +475,36 @@ public class Bacterium implements Serializable {
     }
 
 
+    /**
+     * Ends the run and starts a tumble
+     *
+     * @param currentTime Time of the simulation
+     */
+    void endRun(double currentTime) {
+        isRunning = false;
+        startTumbling(currentTime);
+    }
+
+
+    /**
+     * Ends the tumble and starts a run
+     *
+     * @param currentTime Time of the simulation
+     */
+    void endTumble(double currentTime) {
+        isTumbling = false;
+        startRunning(currentTime);
+    }
+
+
+    /**
+     * @return the time at which this bacterium reaches its division length, infinite if it never does
+     */
+    double getDivisionTime() {
+        return 1.2 * growthRate >= LO ? birthTime + LO : Double.POSITIVE_INFINITY;
+    }
+
+
     /**
      * Calculates the next time that bacteria will insert EPS into the environment
      *
@@ -343,14 +529,17 @@ public class Bacterium implements Serializable {
      * Applies net force on a single bacterium dictating how the bacterium moves
      *
      * @param currentTime {@link Simulation} time
+     * @param dt time step
+     * @param integrator moves the particles under the forces of the step
      * @param xMin Minimum environment x value
      * @param xMax Maximum environment x value
      * @param yMin Minimum environment y value
      * @param yMax Maximum environment y value
-     * @param otherBacteria Arraylist of bacteria between which forces occur
+     * @param box periodic boundaries of the environment, or null to move bacteria leaving it to the opposite edge
      * @param pslGrid Psl {@link Grid} keeping count of psl secreted in environment in a particular cell
+     * @see EventScheduler for the run/tumble switches, EPS insertion and division, which are not checked here
      */
-    public void move(double currentTime, double xMin, double xMax, double yMin, double yMax, List<Bacterium> otherBacteria, Grid pslGrid, List<EPS> EPS) {
+    public void move(double currentTime, double dt, Integrator integrator, double xMin, double xMax, double yMin, double yMax, PeriodicBox box, Grid pslGrid) {
 
         /*
         Applies force to particles of this bacterium
@@ -363,18 +552,10 @@ public class Bacterium implements Serializable {
         //pslAttractiveForce(pslGrid, otherBacteria, TRANSVERSE_WIDTH / 2);
 
         /*
-        Apply attractive and repulsive forces to particles as WCA potential
-         */
-        spatialApplyWCAForces(otherBacteria);
-
-        /*
-        Velocity verlet integration for each particle
+        Integrate each particle -- velocity Verlet unless the run chose another integrator
          */
         for (Particle curParticle : particles) {
-            /*
-            update positions of bacteria particle's with time step dt = 0.005
-             */
-            curParticle.update(0.005);
+            integrator.advance(curParticle, dt);
         }
 
         /*
@@ -382,22 +563,14 @@ public class Bacterium implements Serializable {
          */
         if (isRunning && motile) recordVisit(pslGrid);
 
-        /*
-        Insert EPS into simulation environment
-         */
-        if (isRunning && motile) insertEPS(currentTime, EPS);
-
-        /*
-        This bacterium attempts to reproduce
-         */
-        if(canReproduce) {
-            tryReproduce(currentTime, otherBacteria);
-        }
-
         /*
         Process the bacterium when crossing environment boundaries
          */
-        checkBoundaries(xMin, xMax, yMin, yMax, currentTime, otherBacteria);
+        if (box != null) {
+            wrap(box);
+        } else {
+            checkBoundaries(xMin, xMax, yMin, yMax, currentTime);
+        }
     }
 
     /**
@@ -406,34 +579,28 @@ public class Bacterium implements Serializable {
      * @param currentTime The time of the simulation
      * @return rest length factoring in growth rate
      */
-    private double getCurrentRestLength(double currentTime) {
+    final double getCurrentRestLength(double currentTime) {
         double elapsedTime =  currentTime - birthTime;
         double growth = Math.min(elapsedTime, 1.2 * growthRate);
         return Math.min(LO + growth, MAX_REST_LENGTH);
     }
 
+    /**
+     * Applies the run, tumble, damping and PSL alignment forces of this bacterium. Springs and bending are
+     * computed for all bacteria by {@link BondedForces}, repulsion by the simulation's {@link ForceField}.
+     *
+     * @param currentTime time of the simulation
+     * @param grid Psl {@link Grid} keeping count of psl secreted in environment in a particular cell
+     */
     public void applyForces(double currentTime, Grid grid) {
         /*
-        Harmonic Spring
-         */
-        PVector harmonicForce;
-        PVector harmonicDisplacement;
-        PVector harmonicDirection;
-        double harmonicDistance;
-        double currentRestLength = getCurrentRestLength(currentTime);
-
-        /*
-        Angular Harmonic
-         */
-        PVector angHarmForce;
-        PVector angHarmDirection1, angHarmDirection2;
-        double angHarmAngle, angularDisplacement;
-
-        /*
-        Determine if the torque should be clockwise or counterclockwise
+        Determine if the torque should be clockwise or counterclockwise -- only drawn while it is used
          */
-        boolean isClockwise = RANDOM.nextBoolean();
-        setClockwise(isClockwise);
+        boolean isClockwise = clockwise;
+        if (isTumbling) {
+            isClockwise = RANDOM.nextBoolean();
+            setClockwise(isClockwise);
+        }
         /*
         Select the pivot particle at which torque is applied
          */
@@ -443,47 +610,16 @@ public class Bacterium implements Serializable {
          */
         PVector pivotPosition = pivotParticle.getPosition();
 
-        if (isRunning) {
-            if (currentTime > runEndTime) { // if it should stop running
-                /*
-                End running state
-                 */
-                isRunning = false;
-                /*
-                Start tumbling state
-                 */
-                startTumbling(currentTime);
-            }
-        }
-
-        if (isTumbling) {
-            if (currentTime > tumbleEndTime) { // if it should stop tumbling
-                /*
-                End tumbling state
-                 */
-                isTumbling = false;
-                /*
-                Start running state
-                 */
-                startRunning(currentTime);
-            }
-        }
-
         /*
         Applies torque on bacterium to align with psl trails
          */
-        boolean torqueClockwise = RANDOM.nextBoolean();
-        setPslClockwise(torqueClockwise);
-        boolean pslAlign = grid.getVisitCount().containsKey(new PVector((int) particles.get(0).getPosition().getX(), (int) particles.get(0).getPosition().getY())) && isRunning;
-        double forceMagnitude;
-        double dotProduct;
-        Particle p1; 
-        Particle p2;
-        Particle p3;
-        double magProduct;
-        double cosTheta;
-        double torqueMagnitude;
-        PVector perpendicular;
+        boolean pslAlign = isRunning && grid.getPslParticle(particles.get(0).getPosition().getX(), particles.get(0).getPosition().getY()) != null;
+        boolean torqueClockwise = PslClockwise;
+        if (pslAlign) {
+            torqueClockwise = RANDOM.nextBoolean();
+            setPslClockwise(torqueClockwise);
+        }
+        Particle p1;
         Psl PslParticle;
         PVector dampingForce;
         PVector r;
@@ -491,71 +627,6 @@ public class Bacterium implements Serializable {
 
         for (int i = 0; i < particles.size(); i++) {
              p1 = particles.get(i);
-            /*
-            Harmonic Spring -- Applies elastic restoration force returning length between particles to rest(lO)
-            */
-            if (i < particles.size() - 1) {
-                p2 = particles.get(i + 1);
-
-                harmonicDisplacement =  PVector.sub(p2.getPosition(),p1.getPosition());
-                harmonicDistance = harmonicDisplacement.magnitude();
-                forceMagnitude = STIFFNESS * (harmonicDistance - currentRestLength);
-                harmonicDirection = harmonicDisplacement.normalize();
-                harmonicForce = harmonicDirection.multiply(-1 * forceMagnitude);
-
-                p1.getNetForce().add(harmonicForce.multiply(-1));
-                p2.getNetForce().add(harmonicForce.multiply(2100));
-            }
-
-            /*
-            Applies angular restoration force returning angle between particles to rest(pi radians)
-             */
-            if (i < particles.size() - 2) {
-                p1 = particles.get(i);
-                p2 = particles.get(i + 1);
-                p3 = particles.get(i + 2);
-
-                /*
-                Compute vector differences between particles
-                */
-                angHarmDirection1 = PVector.sub(p1.getPosition(), p2.getPosition());
-                angHarmDirection2 = PVector.sub(p3.getPosition(), p2.getPosition());
-
-                /*
-                Compute the angle between the two vectors in radians
-                 */
-                dotProduct = angHarmDirection1.dot(angHarmDirection2);
-                magProduct = (angHarmDirection1.magnitude() * angHarmDirection2.magnitude());
-
-                cosTheta = dotProduct / magProduct;
-                cosTheta = Math.max(-1.0, Math.min(1.0, cosTheta));
-                angHarmAngle = Math.acos(cosTheta);
-
-                angularDisplacement = angHarmAngle - REST_ANGLE;
-
-                /*
-                Calculate the intermolecular torque (force) to apply
-                */
-                torqueMagnitude = BENDING_STIFFNESS * angularDisplacement;
-
-                /*
-                Compute the perpendicular vector to apply the torque
-                 */
-                perpendicular = (angHarmDirection1.cross(angHarmDirection2)).normalize();
-
-                /*
-                Apply torque force to the particles to restore rest angle
-                 */
-                angHarmForce = perpendicular.multiply(torqueMagnitude);
-
-                /*
-                Apply the torque force to the particles to restore rest angle
-                 */
-                p1.getNetForce().add(angHarmForce.multiply(-1f)); // Apply force equally but opposite
-                p2.getNetForce().add(angHarmForce.multiply(1f));  // Apply force to the center particle
-                p3.getNetForce().add(angHarmForce.multiply(-1f)); // Apply force equally but opposite
-            }
-
             /*
             Fixes rotational velocity (Torque) force to the particles making up the bacterium
              */
@@ -625,112 +696,10 @@ public class Bacterium implements Serializable {
 
 
     /**
-     * Computes the force between the {@link Particle}s of different bacteria
-     * -- negative gradient of the WCA potential
-     *
-     * @param p1 Particle 1 exerting force
-     * @param p2 Particle 2 exerting force
-     * @return force vector computed between particles
+     * @return the tabulated bending law
      */
-    private PVector calculateWCAForce(Particle p1, Particle p2) {
-        /*
-        Calculate the distance between particles
-         */
-        PVector r = PVector.sub(p2.getPosition(), p1.getPosition());
-        double distance = r.magnitude();
-
-        /*
-        Compute the force between particles as a factor of distance
-        return a 0 force if this distance is larger than the finite distance
-         */
-        if (distance < CUT_OFF) {
-            double inverseDist = SIGMA / distance;
-            double inverseDist6 = Math.pow(inverseDist, 6);
-            double inverseDist12 = inverseDist6 * inverseDist6;
-            double forceMagnitude = 24 * EPSILON * (2 * inverseDist12 - inverseDist6) / distance;
-            return r.normalize().multiply(-2000);
-        } else {
-            return new PVector(0,0,0);
-        }
-    }
-
-    /**
-     *
-     * @param otherBacteria other bacteria in the simulation
-     */
-    public void spatialApplyWCAForces(List<Bacterium> otherBacteria) {
-        // Create a spatial grid of grid size 5
-        SpatialGrid grid = new SpatialGrid(20, this.particles);
-
-        // Process each bacterium in parallel, excluding the current one
-        otherBacteria.parallelStream()
-                // Ensures the WCA forces are not applied to itself
-                .filter(otherBacterium -> !this.equals(otherBacterium))
-                .forEach(otherBacterium -> {
-                    // For each particle in the other bacterium
-                    otherBacterium.getParticles().forEach(p2 -> {
-                        // Get nearby particles from the spatial grid
-                        List<Particle> nearbyParticles = grid.getNearbyParticles(p2);
-                        // Calculate and apply WCA forces between particles
-                        nearbyParticles.forEach(p1 -> {
-                            PVector force = calculateWCAForce(p1, p2);
-                            for (int i = 0; i < this.particles.size(); i++) {
-                                this.particles.get(i).getNetForce().add(force.multiply(1));
-                                otherBacterium.getParticles().get(i).getNetForce().add(force.multiply(-10));
-                            }
-                        });
-                    });
-                });
-    }
-
-    /**
-     * Spatial grid class to manage particles in a grid structure
-     */
-    static class SpatialGrid {
-        private final int gridSize;
-        private final Map<Point, List<Particle>> grid;
-
-        // Constructor to initialize the grid with particles
-        public SpatialGrid(int gridSize, List<Particle> particles) {
-            this.gridSize = gridSize;
-            this.grid = new HashMap<>();
-            Point gridPoint;
-            for (Particle p : particles) {
-                gridPoint = getGridPoint(p);
-                grid.computeIfAbsent(gridPoint, k -> new ArrayList<>()).add(p);
-            }
-        }
-
-        /**
-         * Get nearby particles within the neighbouring grid cells
-         *
-         * @param p The particle for which to compute the nearby {@link Particle}s
-         * @return collection of nearby particles
-         */
-        public List<Particle> getNearbyParticles(Particle p) {
-            Point gridPoint = getGridPoint(p);
-            List<Particle> nearbyParticles = new ArrayList<>();
-            Point neighbourPoint;
-            // Check the current grid cell and its neighbours
-            for (int dx = -1; dx <= 1; dx++) {
-                for (int dy = -1; dy <= 1; dy++) {
-                    neighbourPoint = new Point(gridPoint.x + dx, gridPoint.y + dy);
-                    nearbyParticles.addAll(grid.getOrDefault(neighbourPoint, Collections.emptyList()));
-                }
-            }
-            return nearbyParticles;
-        }
-
-        /**
-         * Convert particle position to grid point
-         * @param p The particle to convert into a grid point
-         * @return Particle's position as a grid point
-         */
-        private Point getGridPoint(Particle p) {
-            int x = (int) (p.getPosition().getX() / gridSize);
-            int y = (int) (p.getPosition().getY() / gridSize);
-            return new Point(x, y);
-        }
+    static ForceTable getBendingTable() {
+        return BENDING_TABLE;
     }
 
     /**
@@ -739,7 +708,7 @@ public class Bacterium implements Serializable {
      *
      * @param currentTime time of reproduction
      */
-    public void tryReproduce (double currentTime, List<Bacterium> otherBacteria) {
+    public void tryReproduce (double currentTime) {
         /*
         Check if the bacterium has reached the reproduction length
          */
@@ -749,6 +718,7 @@ public class Bacterium implements Serializable {
             Set reproduce to true
              */
             setReproduced(true);
+            LINEAGE.recordDivision(id, currentTime);
 
             // Get the current position of the head particle
             double parentX = getHeadParticleXPos();
@@ -771,8 +741,8 @@ public class Bacterium implements Serializable {
             double d2x = parentX - perp.getX() * offset / 2;
             double d2y = parentY - perp.getY() * offset / 2;
 
-            Bacterium daughter1 = new Bacterium(this.getStrain(), this.getColor(), Bacterium.motile, d1x, d1y, currentTime, direction, otherBacteria, this);
-            Bacterium daughter2 = new Bacterium(this.getStrain(), this.getColor(), Bacterium.motile, d2x, d2y, currentTime, direction, otherBacteria, this);
+            Bacterium daughter1 = daughter(this.getStrain(), this.getColor(), Bacterium.motile, d1x, d1y, currentTime, direction, this);
+            Bacterium daughter2 = daughter(this.getStrain(), this.getColor(), Bacterium.motile, d2x, d2y, currentTime, direction, this);
 
             /*
             Add the daughter bacteria to the list
@@ -846,12 +816,16 @@ public class Bacterium implements Serializable {
      *
      * @param currentTime the time of the simulation
      * @param EPS EPS particle inserted into environment
+     * @return the inserted particle, or null if none was due or its place is taken
      */
-    private void insertEPS(double currentTime, List<EPS> EPS) {
-        Particle centreParticle = particles.get(3);
-        PVector ZERO = new PVector(0,0,0);
-        EPS eps = new EPS(centreParticle.getPosition().getX(), centreParticle.getPosition().getY(),ZERO,ZERO);
-        if (currentTime > nextInsertionTime && currentTime > 1 && !EPS.contains(eps)) {
+    EPS insertEPS(double currentTime, List<EPS> EPS) {
+        if (currentTime > nextInsertionTime && currentTime > 1) {
+            Particle centreParticle = particles.get(3);
+            EPS eps = ObjectPool.obtainEPS(centreParticle.getPosition().getX(), centreParticle.getPosition().getY());
+            if (EPS.contains(eps)) {
+                ObjectPool.release(eps);
+                return null;
+            }
             /*
             Insert EPS Particle into environment
              */
@@ -860,7 +834,9 @@ public class Bacterium implements Serializable {
             Compute next EPS insertion rate
              */
             nextInsertionTimeEPS(currentTime);
+            return eps;
         }
+        return null;
     }
 
 
@@ -872,20 +848,38 @@ public class Bacterium implements Serializable {
      * @param yMin Minimum environment y value
      * @param yMax Maximum environment y value
      */
-    private void checkBoundaries(double xMin, double xMax, double yMin, double yMax, double currentTime, List<Bacterium> otherBacteria) {
+    private void checkBoundaries(double xMin, double xMax, double yMin, double yMax, double currentTime) {
         /*
          Check for bacterium leaving simulation boundaries
          */
         if (getHeadParticleXPos() > xMax) {
-            initialiseParticles(xMin, getHeadParticleYPos(), currentTime, false, otherBacteria);
+            initialiseParticles(xMin, getHeadParticleYPos(), currentTime, false);
         } else if (getHeadParticleXPos() < xMin) {
-            initialiseParticles(xMax, getHeadParticleYPos(), currentTime, false, otherBacteria);
+            initialiseParticles(xMax, getHeadParticleYPos(), currentTime, false);
         }
 
         if (getHeadParticleYPos() > yMax) {
-            initialiseParticles(getHeadParticleXPos(), yMin, currentTime, false, otherBacteria);
+            initialiseParticles(getHeadParticleXPos(), yMin, currentTime, false);
         } else if (getHeadParticleYPos() < yMin) {
-            initialiseParticles(getHeadParticleXPos(), yMax, currentTime, false, otherBacteria);
+            initialiseParticles(getHeadParticleXPos(), yMax, currentTime, false);
+        }
+    }
+
+
+    /**
+     * Moves the whole bacterium to the opposite edge of a periodic box once its centre particle has left the box,
+     * keeping its shape
+     *
+     * @param box periodic boundaries of the environment
+     */
+    private void wrap(PeriodicBox box) {
+        PVector centre = particles.get(3).getPosition();
+        double shiftX = box.wrapX(centre.getX()) - centre.getX();
+        double shiftY = box.wrapY(centre.getY()) - centre.getY();
+        if (shiftX != 0 || shiftY != 0) {
+            for (Particle particle : particles) {
+                particle.getPosition().add(shiftX, shiftY, 0);
+            }
         }
     }
 
@@ -1043,10 +1037,120 @@ public class Bacterium implements Serializable {
         this.insertionRate = secretionRate;
     }
 
+    public int getId() {
+        return id;
+    }
+
+    public int getFatherId() {
+        return fatherId;
+    }
+
+    public static LineageStore getLineage() {
+        return LINEAGE;
+    }
+
+    /**
+     * Hands out identifiers first, first + stride, first + 2 * stride, ... from here on, skipping those already
+     * handed out, so that the processes of a distributed run never give two bacteria the same identifier
+     *
+     * @param first identifier of this process, from 1 to stride
+     * @param stride number of processes handing out identifiers
+     */
+    static void strideIds(int first, int stride) {
+        int used = nextId - 1;
+        nextId = first;
+        idStride = stride;
+        reserveId(used);
+    }
+
+    /**
+     * @return the next free identifier
+     */
+    private static int newId() {
+        int id = nextId;
+        nextId += idStride;
+        return id;
+    }
+
+    /**
+     * Keeps an identifier restored or received from elsewhere from being handed out again
+     */
+    private static void reserveId(int id) {
+        if (nextId <= id) {
+            nextId += ((id - nextId) / idStride + 1) * idStride;
+        }
+    }
+
+    /**
+     * Gives bacteria read from saves that predate ids a fresh id and records them as founders; bacteria that
+     * already have an id are recorded with their father
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        if (id == 0) {
+            id = newId();
+            fatherId = LineageStore.NO_PARENT;
+            LINEAGE.recordBirth(id, LineageStore.NO_PARENT, birthTime);
+        } else {
+            reserveId(id);
+            if (Double.isNaN(LINEAGE.getBirthTime(id))) {
+                LINEAGE.recordBirth(id, fatherId, birthTime);
+            }
+        }
+    }
+
     public double getTime(){
         return currentTime;
     }
 
+    public boolean isRunning() {
+        return isRunning;
+    }
+
+    public double getRunEndTime() {
+        return runEndTime;
+    }
+
+    public boolean isTumbling() {
+        return isTumbling;
+    }
+
+    public double getTumbleEndTime() {
+        return tumbleEndTime;
+    }
+
+    public double getBirthTime() {
+        return birthTime;
+    }
+
+    public double getGrowthRate() {
+        return growthRate;
+    }
+
+    public double getNextInsertionTime() {
+        return nextInsertionTime;
+    }
+
+    int getEventStamp() {
+        return eventStamp;
+    }
+
+    /**
+     * Cancels every event queued for this bacterium, as when it leaves the simulation
+     */
+    void cancelEvents() {
+        eventStamp++;
+        insertionScheduled = false;
+    }
+
+    boolean isInsertionScheduled() {
+        return insertionScheduled;
+    }
+
+    void setInsertionScheduled(boolean insertionScheduled) {
+        this.insertionScheduled = insertionScheduled;
+    }
+
     public static void setTumbleTime(double newTumbleTime) {
         tumble = newTumbleTime;
     }
@@ -1055,6 +1159,20 @@ public class Bacterium implements Serializable {
         trun = newRunTime;
     }
 
+    /**
+     * @return mean run time in seconds
+     */
+    static double getRunTime() {
+        return trun;
+    }
+
+    /**
+     * @return mean tumble time in seconds
+     */
+    static double getTumbleTime() {
+        return tumble;
+    }
+
     public static boolean getReproduction() {
         return canReproduce;
     }
@@ -1098,4 +1216,4 @@ public class Bacterium implements Serializable {
         this.color = Color.getHSBColor(hue, 1.0f, 1.0f);
     }
 
-}
\ No newline at end of file
+}
\ No newline at end of file
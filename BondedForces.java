@@ -0,0 +1,236 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * The springs and bending of every {@link Bacterium}, evaluated for many bacteria at once. Bacteria are taken in
+ * chunks: the positions of a chunk are copied into contiguous columns, the springs of the whole chunk go to the
+ * {@link ForceKernel} in one call, the bending angles are computed in one loop over the columns, and the summed
+ * forces are added to the particles at the end. Chunks are independent, so large colonies are split over the
+ * common fork/join pool unless started with {@code -Dbiofilm.parallelForces=false}.
+ * <p>
+ * Every bacterium is a chain of seven particles: particle i is joined to particle i + 1 by a spring, and the
+ * angle at every inner particle bends back towards a straight line.
+ *
+ * @author Brian Mbawa, Seth McNevin, Gladwin Ngobeni
+ */
+public class BondedForces implements ForceField.BondedTerm {
+
+    /**
+     * Particles, springs and bending angles of one bacterium
+     */
+    static final int PARTICLES = 7;
+    static final int SPRINGS = PARTICLES - 1;
+    static final int ANGLES = PARTICLES - 2;
+
+    /**
+     * Bacteria evaluated together, small enough for a chunk's columns to stay in cache
+     */
+    static final int CHUNK_SIZE = 256;
+
+    /**
+     * True if chunks are evaluated in parallel, switched off with -Dbiofilm.parallelForces=false
+     */
+    public static final boolean PARALLEL = !"false".equalsIgnoreCase(System.getProperty("biofilm.parallelForces"));
+
+    private static final ForceKernel KERNEL = ForceKernel.get();
+
+    private static final ThreadLocal<Chunk> CHUNKS = ThreadLocal.withInitial(Chunk::new);
+
+    /**
+     * Columns of one chunk of bacteria
+     */
+    private static final class Chunk {
+        final ForcePairs springs = new ForcePairs(SPRINGS * CHUNK_SIZE);
+        final double[] x = new double[PARTICLES * CHUNK_SIZE];
+        final double[] y = new double[PARTICLES * CHUNK_SIZE];
+        final double[] z = new double[PARTICLES * CHUNK_SIZE];
+        final double[] fx = new double[PARTICLES * CHUNK_SIZE];
+        final double[] fy = new double[PARTICLES * CHUNK_SIZE];
+        final double[] fz = new double[PARTICLES * CHUNK_SIZE];
+    }
+
+    @Override
+    public void apply(Bacterium bacterium, double currentTime) {
+        applyAll(List.of(bacterium), currentTime);
+    }
+
+    /**
+     * Harmonic energies of the springs and bending angles of one bacterium
+     */
+    @Override
+    public double energy(Bacterium bacterium, double currentTime) {
+        List<Particle> particles = bacterium.getParticles();
+        double restLength = bacterium.getCurrentRestLength(currentTime);
+        double energy = 0;
+        for (int i = 0; i < SPRINGS; i++) {
+            double stretch = PVector.sub(particles.get(i + 1).getPosition(), particles.get(i).getPosition()).magnitude() - restLength;
+            energy += 0.5 * Bacterium.STIFFNESS * stretch * stretch;
+        }
+        for (int i = 0; i < ANGLES; i++) {
+            PVector centre = particles.get(i + 1).getPosition();
+            PVector a = PVector.sub(particles.get(i).getPosition(), centre);
+            PVector b = PVector.sub(particles.get(i + 2).getPosition(), centre);
+            double cosTheta = Math.max(-1.0, Math.min(1.0, a.dot(b) / (a.magnitude() * b.magnitude())));
+            double bend = Math.acos(cosTheta) - Bacterium.REST_ANGLE;
+            energy += 0.5 * Bacterium.BENDING_STIFFNESS * bend * bend;
+        }
+        return energy;
+    }
+
+    @Override
+    public void applyAll(List<Bacterium> bacteria, double currentTime) {
+        int chunks = (bacteria.size() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        if (PARALLEL && chunks > 1) {
+            IntStream.range(0, chunks).parallel().forEach(c -> applyChunk(bacteria, c * CHUNK_SIZE, currentTime));
+        } else {
+            for (int c = 0; c < chunks; c++) {
+                applyChunk(bacteria, c * CHUNK_SIZE, currentTime);
+            }
+        }
+    }
+
+    /**
+     * Evaluates the bacteria of one chunk
+     *
+     * @param bacteria all bacteria
+     * @param start index of the first bacterium of the chunk
+     * @param currentTime simulation time, which sets the rest length of growing bacteria
+     */
+    private static void applyChunk(List<Bacterium> bacteria, int start, double currentTime) {
+        Chunk chunk = CHUNKS.get();
+        int count = Math.min(CHUNK_SIZE, bacteria.size() - start);
+        double[] x = chunk.x;
+        double[] y = chunk.y;
+        double[] z = chunk.z;
+        double[] fx = chunk.fx;
+        double[] fy = chunk.fy;
+        double[] fz = chunk.fz;
+        ForcePairs springs = chunk.springs;
+
+        /*
+        Gather positions and spring rest lengths
+         */
+        for (int b = 0; b < count; b++) {
+            Bacterium bacterium = bacteria.get(start + b);
+            List<Particle> particles = bacterium.getParticles();
+            for (int i = 0; i < PARTICLES; i++) {
+                PVector position = particles.get(i).getPosition();
+                int p = b * PARTICLES + i;
+                x[p] = position.getX();
+                y[p] = position.getY();
+                z[p] = position.getZ();
+            }
+            double restLength = bacterium.getCurrentRestLength(currentTime);
+            for (int i = 0; i < SPRINGS; i++) {
+                springs.restLength[b * SPRINGS + i] = restLength;
+            }
+        }
+        int particleCount = count * PARTICLES;
+        Arrays.fill(fx, 0, particleCount, 0);
+        Arrays.fill(fy, 0, particleCount, 0);
+        Arrays.fill(fz, 0, particleCount, 0);
+
+        /*
+        Harmonic springs -- separation r = p(i + 1) - p(i) of every spring of the chunk, one kernel call
+         */
+        springs.count = count * SPRINGS;
+        for (int b = 0; b < count; b++) {
+            for (int i = 0; i < SPRINGS; i++) {
+                int s = b * SPRINGS + i;
+                int p = b * PARTICLES + i;
+                springs.dx[s] = x[p + 1] - x[p];
+                springs.dy[s] = y[p + 1] - y[p];
+                springs.dz[s] = z[p + 1] - z[p];
+            }
+        }
+        KERNEL.springForces(springs.dx, springs.dy, springs.dz, springs.count, springs.restLength,
+                Bacterium.STIFFNESS, springs.fx, springs.fy, springs.fz);
+        for (int b = 0; b < count; b++) {
+            for (int i = 0; i < SPRINGS; i++) {
+                int s = b * SPRINGS + i;
+                int p = b * PARTICLES + i;
+                fx[p] += springs.fx[s] * -1;
+                fy[p] += springs.fy[s] * -1;
+                fz[p] += springs.fz[s] * -1;
+                fx[p + 1] += springs.fx[s] * 2100;
+                fy[p + 1] += springs.fy[s] * 2100;
+                fz[p + 1] += springs.fz[s] * 2100;
+            }
+        }
+
+        /*
+        Angular harmonic -- restores the angle at every inner particle to rest (pi radians)
+         */
+        ForceTable bendingTable = Bacterium.getBendingTable();
+        boolean tabulated = bendingTable.inUse();
+        for (int b = 0; b < count; b++) {
+            for (int i = 0; i < ANGLES; i++) {
+                int p1 = b * PARTICLES + i;
+                int p2 = p1 + 1;
+                int p3 = p1 + 2;
+
+                /*
+                Vector differences from the centre particle and the angle between them
+                 */
+                double ax = x[p1] - x[p2];
+                double ay = y[p1] - y[p2];
+                double az = z[p1] - z[p2];
+                double bx = x[p3] - x[p2];
+                double by = y[p3] - y[p2];
+                double bz = z[p3] - z[p2];
+                double dotProduct = ax * bx + ay * by + az * bz;
+                double magProduct = Math.sqrt(ax * ax + ay * ay + az * az) * Math.sqrt(bx * bx + by * by + bz * bz);
+                double cosTheta = Math.max(-1.0, Math.min(1.0, dotProduct / magProduct));
+                double angle = tabulated
+                        ? Bacterium.REST_ANGLE - bendingTable.valueAt(Math.sqrt((1 + cosTheta) / 2))
+                        : Math.acos(cosTheta);
+                double torqueMagnitude = Bacterium.BENDING_STIFFNESS * (angle - Bacterium.REST_ANGLE);
+
+                /*
+                Torque along the unit normal of the two vectors -- none if they are parallel
+                 */
+                double nx = ay * bz - az * by;
+                double ny = az * bx - ax * bz;
+                double nz = ax * by - ay * bx;
+                double normal = Math.sqrt(nx * nx + ny * ny + nz * nz);
+                if (normal == 0) {
+                    nx = 0;
+                    ny = 0;
+                    nz = 0;
+                } else {
+                    nx /= normal;
+                    ny /= normal;
+                    nz /= normal;
+                }
+                double forceX = nx * torqueMagnitude;
+                double forceY = ny * torqueMagnitude;
+                double forceZ = nz * torqueMagnitude;
+
+                /*
+                Equal and opposite forces on the outer particles, the centre particle pushed the other way
+                 */
+                fx[p1] -= forceX;
+                fy[p1] -= forceY;
+                fz[p1] -= forceZ;
+                fx[p2] += forceX;
+                fy[p2] += forceY;
+                fz[p2] += forceZ;
+                fx[p3] -= forceX;
+                fy[p3] -= forceY;
+                fz[p3] -= forceZ;
+            }
+        }
+
+        /*
+        Scatter the summed forces back to the particles
+         */
+        for (int b = 0; b < count; b++) {
+            List<Particle> particles = bacteria.get(start + b).getParticles();
+            for (int i = 0; i < PARTICLES; i++) {
+                int p = b * PARTICLES + i;
+                particles.get(i).getNetForce().add(fx[p], fy[p], fz[p]);
+            }
+        }
+    }
+}
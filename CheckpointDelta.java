@@ -0,0 +1,451 @@
+import java.awt.*;
+import java.io.*;
+import java.util.*;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Incremental checkpoint holding only the entities that changed since the previous checkpoint.
+ * A delta is the difference between two {@link SimSnapshot}s, matched by {@link Bacterium} and
+ * {@link EPS} ids, and is applied on top of the full {@link SnapshotFile} it descends from.
+ *
+ * <pre>
+ * header   magic, version (uncompressed)
+ * body     gzip: sequence, time, bond check time, new and changed lineage entries,
+ *          removed and changed bacteria, removed and changed EPS, removed and changed PSL cells
+ * </pre>
+ *
+ * EPS bonds are written as stable keys rather than particle indices: {@code id << 3 | k} for
+ * particle k of a bacterium and {@code id << 3 | 7} for an EPS particle.
+ *
+ * @author Brian Mbawa, Seth McNevin, Gladwin Ngobeni
+ */
+public final class CheckpointDelta {
+
+    /**
+     * Identifies a delta checkpoint -- "BDLT"
+     */
+    static final int MAGIC = 0x42444C54;
+    static final int VERSION = 2;
+
+    private static final int N = SimSnapshot.PARTICLES_PER_BACTERIUM;
+
+    /**
+     * Bond key slot used for EPS partners
+     */
+    private static final int EPS_SLOT = 7;
+
+    private CheckpointDelta() {
+    }
+
+    /**
+     * Writes the entities of current that differ from previous
+     *
+     * @param previous state at the last checkpoint
+     * @param current state at this checkpoint
+     * @param sequence sequence number of this checkpoint
+     * @param file destination file
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(SimSnapshot previous, SimSnapshot current, long sequence, File file) throws IOException {
+        Map<Integer, Integer> previousBacteria = indexById(previous.bacteriumId);
+        Map<Integer, Integer> previousEps = indexById(previous.epsId);
+
+        try (FileOutputStream fos = new FileOutputStream(file)) {
+            DataOutputStream header = new DataOutputStream(fos);
+            header.writeInt(MAGIC);
+            header.writeInt(VERSION);
+            header.flush();
+
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(fos), 1 << 16));
+            out.writeLong(sequence);
+            out.writeDouble(current.time);
+            out.writeDouble(current.bondCheckTime);
+
+            /*
+            Lineage entries that are new or whose bacterium has divided since
+             */
+            List<Integer> changed = new ArrayList<>();
+            for (int id = 0; id < current.lineageCount; id++) {
+                if (id >= previous.lineageCount
+                        || Double.compare(previous.lineageDivisionTime[id], current.lineageDivisionTime[id]) != 0) {
+                    changed.add(id);
+                }
+            }
+            out.writeInt(changed.size());
+            for (int id : changed) {
+                out.writeInt(id);
+                out.writeInt(current.lineageParent[id]);
+                out.writeDouble(current.lineageBirthTime[id]);
+                out.writeDouble(current.lineageDivisionTime[id]);
+            }
+
+            /*
+            Bacteria
+             */
+            writeRemoved(out, previous.bacteriumId, current.bacteriumId);
+            changed.clear();
+            for (int b = 0; b < current.bacteriaCount; b++) {
+                Integer old = previousBacteria.get(current.bacteriumId[b]);
+                if (old == null || !sameBacterium(previous, old, current, b)) {
+                    changed.add(b);
+                }
+            }
+            out.writeInt(changed.size());
+            for (int b : changed) {
+                writeBacterium(out, current, b);
+            }
+
+            /*
+            EPS
+             */
+            writeRemoved(out, previous.epsId, current.epsId);
+            changed.clear();
+            for (int e = 0; e < current.epsCount; e++) {
+                Integer old = previousEps.get(current.epsId[e]);
+                if (old == null || !sameEps(previous, old, current, e)) {
+                    changed.add(e);
+                }
+            }
+            out.writeInt(changed.size());
+            for (int e : changed) {
+                writeEps(out, current, e);
+            }
+
+            /*
+            PSL cells cleared since, and those whose visit count changed
+             */
+            Map<Long, Integer> previousVisits = new HashMap<>();
+            for (int i = 0; i < previous.pslCount; i++) {
+                previousVisits.put(cellKey(previous.pslX[i], previous.pslY[i]), previous.pslVisits[i]);
+            }
+            changed.clear();
+            for (int i = 0; i < current.pslCount; i++) {
+                Integer visits = previousVisits.remove(cellKey(current.pslX[i], current.pslY[i]));
+                if (visits == null || visits != current.pslVisits[i]) {
+                    changed.add(i);
+                }
+            }
+            out.writeInt(previousVisits.size());
+            for (long key : previousVisits.keySet()) {
+                out.writeLong(key);
+            }
+            out.writeInt(changed.size());
+            for (int i : changed) {
+                out.writeInt(current.pslX[i]);
+                out.writeInt(current.pslY[i]);
+                out.writeInt(current.pslVisits[i]);
+                out.writeDouble(current.pslDirectionX[i]);
+                out.writeDouble(current.pslDirectionY[i]);
+            }
+            out.flush();
+            out.close();
+        }
+    }
+
+    /**
+     * Checks whether a file starts with the delta header
+     *
+     * @param file the file to check
+     * @return true if the file is a delta checkpoint
+     */
+    public static boolean isDelta(File file) {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            return in.readInt() == MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Applies a delta on top of a restored state. Existing entities are updated in place so that
+     * bonds held by unchanged EPS particles keep pointing at live particles.
+     *
+     * @param file the delta checkpoint
+     * @param state state restored from the preceding checkpoints
+     * @throws IOException if the file cannot be read
+     */
+    public static void apply(File file, Autosaver.RestoredState state) throws IOException {
+        try (FileInputStream fis = new FileInputStream(file)) {
+            DataInputStream header = new DataInputStream(fis);
+            if (header.readInt() != MAGIC || header.readInt() != VERSION) {
+                throw new IOException("Not a delta checkpoint: " + file.getName());
+            }
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(fis), 1 << 16));
+            in.readLong();
+            state.time = in.readDouble();
+            state.bondCheckTime = in.readDouble();
+
+            /*
+            Lineage -- applied first so that new bacteria pick up their fathers
+             */
+            LineageStore lineage = Bacterium.getLineage();
+            int changed = in.readInt();
+            for (int i = 0; i < changed; i++) {
+                int id = in.readInt();
+                lineage.recordBirth(id, in.readInt(), in.readDouble());
+                lineage.recordDivision(id, in.readDouble());
+            }
+
+            /*
+            Bacteria
+             */
+            int removed = in.readInt();
+            for (int i = 0; i < removed; i++) {
+                state.bacteria.remove(in.readInt());
+            }
+            changed = in.readInt();
+            for (int i = 0; i < changed; i++) {
+                readBacterium(in, state.bacteria);
+            }
+
+            /*
+            EPS -- bonds are resolved once every changed entity is in place
+             */
+            removed = in.readInt();
+            for (int i = 0; i < removed; i++) {
+                state.eps.remove(in.readInt());
+            }
+            changed = in.readInt();
+            Map<EPS, long[]> bonds = new HashMap<>();
+            for (int i = 0; i < changed; i++) {
+                int id = in.readInt();
+                EPS epsParticle = state.eps.get(id);
+                if (epsParticle == null) {
+                    epsParticle = new EPS(0, 0, PVector.ZERO, PVector.ZERO);
+                    epsParticle.restoreId(id);
+                    state.eps.put(id, epsParticle);
+                }
+                readParticle(in, epsParticle);
+                long[] keys = new long[in.readInt()];
+                for (int k = 0; k < keys.length; k++) {
+                    keys[k] = in.readLong();
+                }
+                bonds.put(epsParticle, keys);
+            }
+            for (Map.Entry<EPS, long[]> entry : bonds.entrySet()) {
+                EPS epsParticle = entry.getKey();
+                epsParticle.clearBonds();
+                for (long key : entry.getValue()) {
+                    Particle partner = resolve(key, state);
+                    if (partner != null) {
+                        epsParticle.bond(partner);
+                    }
+                }
+            }
+
+            /*
+            PSL cells
+             */
+            removed = in.readInt();
+            for (int i = 0; i < removed; i++) {
+                long key = in.readLong();
+                state.grid.getVisitCount().remove(new PVector((int) (key >> 32), (int) key));
+            }
+            changed = in.readInt();
+            for (int i = 0; i < changed; i++) {
+                int x = in.readInt();
+                int y = in.readInt();
+                int visits = in.readInt();
+                Psl psl = new Psl(x, y, new PVector(in.readDouble(), in.readDouble()));
+                psl.setCount(visits);
+                state.grid.getVisitCount().put(new PVector(x, y), psl);
+            }
+        }
+    }
+
+    /**
+     * Maps each id to its column index
+     */
+    private static Map<Integer, Integer> indexById(int[] ids) {
+        Map<Integer, Integer> index = new HashMap<>(ids.length * 2);
+        for (int i = 0; i < ids.length; i++) {
+            index.put(ids[i], i);
+        }
+        return index;
+    }
+
+    static long cellKey(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Writes the ids present in previous but missing from current
+     */
+    private static void writeRemoved(DataOutputStream out, int[] previous, int[] current) throws IOException {
+        Set<Integer> live = new HashSet<>(current.length * 2);
+        for (int id : current) {
+            live.add(id);
+        }
+        List<Integer> removed = new ArrayList<>();
+        for (int id : previous) {
+            if (!live.contains(id)) {
+                removed.add(id);
+            }
+        }
+        out.writeInt(removed.size());
+        for (int id : removed) {
+            out.writeInt(id);
+        }
+    }
+
+    private static boolean sameBacterium(SimSnapshot a, int i, SimSnapshot b, int j) {
+        if (a.flags[i] != b.flags[j]
+                || a.runEndTime[i] != b.runEndTime[j]
+                || a.tumbleEndTime[i] != b.tumbleEndTime[j]
+                || a.nextInsertionTime[i] != b.nextInsertionTime[j]
+                || a.insertionRate[i] != b.insertionRate[j]
+                || a.friction[i] != b.friction[j]
+                || a.velocityX[i] != b.velocityX[j]
+                || a.velocityY[i] != b.velocityY[j]
+                || a.velocityZ[i] != b.velocityZ[j]
+                || a.directionX[i] != b.directionX[j]
+                || a.directionY[i] != b.directionY[j]
+                || a.directionZ[i] != b.directionZ[j]) {
+            return false;
+        }
+        for (int k = 0; k < N; k++) {
+            if (!sameParticle(a, i * N + k, b, j * N + k)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean sameEps(SimSnapshot a, int i, SimSnapshot b, int j) {
+        if (!sameParticle(a, a.bacteriaCount * N + i, b, b.bacteriaCount * N + j)) {
+            return false;
+        }
+        int countA = a.bondStart[i + 1] - a.bondStart[i];
+        int countB = b.bondStart[j + 1] - b.bondStart[j];
+        if (countA != countB) {
+            return false;
+        }
+        for (int k = 0; k < countA; k++) {
+            if (bondKey(a, a.bondTarget[a.bondStart[i] + k]) != bondKey(b, b.bondTarget[b.bondStart[j] + k])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean sameParticle(SimSnapshot a, int p, SimSnapshot b, int q) {
+        return a.px[p] == b.px[q] && a.py[p] == b.py[q] && a.pz[p] == b.pz[q]
+                && a.vx[p] == b.vx[q] && a.vy[p] == b.vy[q] && a.vz[p] == b.vz[q]
+                && a.ax[p] == b.ax[q] && a.ay[p] == b.ay[q] && a.az[p] == b.az[q];
+    }
+
+    /**
+     * Converts a particle index of a snapshot into a stable bond key
+     */
+    private static long bondKey(SimSnapshot snapshot, int particle) {
+        int bacteriumParticles = snapshot.bacteriaCount * N;
+        if (particle < bacteriumParticles) {
+            return ((long) snapshot.bacteriumId[particle / N] << 3) | (particle % N);
+        }
+        return ((long) snapshot.epsId[particle - bacteriumParticles] << 3) | EPS_SLOT;
+    }
+
+    /**
+     * Converts a stable bond key back into the particle it refers to
+     */
+    private static Particle resolve(long key, Autosaver.RestoredState state) {
+        int id = (int) (key >>> 3);
+        int slot = (int) (key & 7);
+        if (slot == EPS_SLOT) {
+            return state.eps.get(id);
+        }
+        Bacterium bacterium = state.bacteria.get(id);
+        return bacterium != null ? bacterium.getParticles().get(slot) : null;
+    }
+
+    private static void writeBacterium(DataOutputStream out, SimSnapshot s, int b) throws IOException {
+        out.writeInt(s.bacteriumId[b]);
+        out.writeInt(s.color[b]);
+        out.writeUTF(s.strains.get(s.strain[b]));
+        out.writeInt(s.flags[b]);
+        out.writeDouble(s.runEndTime[b]);
+        out.writeDouble(s.tumbleEndTime[b]);
+        out.writeDouble(s.birthTime[b]);
+        out.writeDouble(s.growthRate[b]);
+        out.writeDouble(s.insertionRate[b]);
+        out.writeDouble(s.nextInsertionTime[b]);
+        out.writeDouble(s.friction[b]);
+        out.writeDouble(s.velocityX[b]);
+        out.writeDouble(s.velocityY[b]);
+        out.writeDouble(s.velocityZ[b]);
+        out.writeDouble(s.directionX[b]);
+        out.writeDouble(s.directionY[b]);
+        out.writeDouble(s.directionZ[b]);
+        for (int k = 0; k < N; k++) {
+            writeParticle(out, s, b * N + k);
+        }
+    }
+
+    private static void writeEps(DataOutputStream out, SimSnapshot s, int e) throws IOException {
+        out.writeInt(s.epsId[e]);
+        writeParticle(out, s, s.bacteriaCount * N + e);
+        out.writeInt(s.bondStart[e + 1] - s.bondStart[e]);
+        for (int i = s.bondStart[e]; i < s.bondStart[e + 1]; i++) {
+            out.writeLong(bondKey(s, s.bondTarget[i]));
+        }
+    }
+
+    private static void writeParticle(DataOutputStream out, SimSnapshot s, int p) throws IOException {
+        out.writeDouble(s.px[p]);
+        out.writeDouble(s.py[p]);
+        out.writeDouble(s.pz[p]);
+        out.writeDouble(s.vx[p]);
+        out.writeDouble(s.vy[p]);
+        out.writeDouble(s.vz[p]);
+        out.writeDouble(s.ax[p]);
+        out.writeDouble(s.ay[p]);
+        out.writeDouble(s.az[p]);
+    }
+
+    /**
+     * Reads a bacterium record, updating the bacterium in place if it already exists
+     */
+    private static void readBacterium(DataInputStream in, Map<Integer, Bacterium> bacteria) throws IOException {
+        int id = in.readInt();
+        Color color = new Color(in.readInt());
+        String strain = in.readUTF();
+        int flags = in.readInt();
+        double runEndTime = in.readDouble();
+        double tumbleEndTime = in.readDouble();
+        double birthTime = in.readDouble();
+        double growthRate = in.readDouble();
+        double insertionRate = in.readDouble();
+        double nextInsertionTime = in.readDouble();
+        double friction = in.readDouble();
+        PVector velocity = new PVector(in.readDouble(), in.readDouble(), in.readDouble());
+        PVector direction = new PVector(in.readDouble(), in.readDouble(), in.readDouble());
+
+        Bacterium bacterium = bacteria.get(id);
+        if (bacterium == null) {
+            List<Particle> particles = new ArrayList<>(N);
+            for (int k = 0; k < N; k++) {
+                particles.add(new Particle(0, 0, PVector.ZERO, PVector.ZERO));
+            }
+            bacterium = new Bacterium(id, strain, color, particles, birthTime, growthRate);
+            bacteria.put(id, bacterium);
+        }
+        for (Particle particle : bacterium.getParticles()) {
+            readParticle(in, particle);
+        }
+        bacterium.restoreState(
+                (flags & SimSnapshot.FLAG_RUNNING) != 0, runEndTime,
+                (flags & SimSnapshot.FLAG_TUMBLING) != 0, tumbleEndTime,
+                (flags & SimSnapshot.FLAG_CLOCKWISE) != 0,
+                (flags & SimSnapshot.FLAG_PSL_CLOCKWISE) != 0,
+                (flags & SimSnapshot.FLAG_REPRODUCED) != 0,
+                insertionRate, nextInsertionTime, friction, velocity, direction);
+    }
+
+    private static void readParticle(DataInputStream in, Particle particle) throws IOException {
+        particle.setPosition(new PVector(in.readDouble(), in.readDouble(), in.readDouble()));
+        particle.setVelocity(new PVector(in.readDouble(), in.readDouble(), in.readDouble()));
+        particle.setAcceleration(new PVector(in.readDouble(), in.readDouble(), in.readDouble()));
+    }
+}
@@ -0,0 +1,61 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks that a {@link RigidClusters} cluster that holds together is still rigid after the clusters are found
+ * again. A pair of {@link EPS} particles bonded both ways collapses on its own, becomes a cluster at the first
+ * check, and must stay one through the checks after it. Exits with status 1 if it does not.
+ *
+ * <pre>
+ * java ClusterCheck [checks]
+ * </pre>
+ *
+ * @author Brian Mbawa, Seth McNevin, Gladwin Ngobeni
+ */
+public class ClusterCheck {
+
+    public static void main(String[] args) {
+        int checks = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+
+        /*
+        A bonded pair, alone and far from any edge
+         */
+        List<EPS> eps = new ArrayList<>();
+        eps.add(new EPS(100, 100, new PVector(0, 0, 0), new PVector(0, 0, 0)));
+        eps.add(new EPS(100.5, 100, new PVector(0, 0, 0), new PVector(0, 0, 0)));
+        eps.get(0).bond(eps.get(1));
+        eps.get(1).bond(eps.get(0));
+
+        ForceField field = ForceField.standard();
+        RigidClusters clusters = new RigidClusters();
+        Integrator integrator = new VerletIntegrator();
+        double dt = integrator.defaultTimeStep();
+        List<Bacterium> bacteria = new ArrayList<>();
+
+        /*
+        Bonds only form after the first two seconds, so the time is held at zero
+         */
+        boolean failed = false;
+        for (int check = 1; check <= checks; check++) {
+            for (int evaluation = 0; evaluation < RigidClusters.CHECK_EVALUATIONS; evaluation++) {
+                clusters.beforePairs(eps, field);
+                field.evaluatePairs(bacteria, eps, 0, dt);
+                clusters.advance(integrator, dt);
+                for (EPS particle : eps) {
+                    if (!particle.isRigid()) {
+                        particle.move(integrator, dt);
+                    }
+                }
+            }
+            System.out.printf("check %d: %d rigid clusters holding %d EPS, %d split%n", check,
+                    clusters.getClusterCount(), clusters.getRigidCount(), clusters.getSplits());
+            if (clusters.getRigidCount() != eps.size()) {
+                failed = true;
+            }
+        }
+        System.out.println(failed ? "FAILED: the pair did not stay one cluster" : "ok");
+        if (failed) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,268 @@
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+/**
+ * Places the initial bacteria of a colony. Positions are drawn with parallel Poisson-disk sampling:
+ * the environment is covered by cells small enough to hold one sample each, and darts are thrown into
+ * every empty cell in rounds. Cells are split into 25 phases so that cells of the same phase are at
+ * least five cells apart and can be filled concurrently without seeing each other's samples.
+ * A {@link DensityMap} thins the darts so colonies can start as a lawn, a spot or any other shape.
+ * No two samples are closer than the spacing, so bacteria centred on them never overlap.
+ * Only the sampling runs in parallel: the bacteria are then built one after another, as each takes the next id
+ * and enters the lineage, and for large colonies building them takes several times as long as the sampling.
+ *
+ * @author Brian Mbawa, Seth McNevin, Gladwin Ngobeni
+ */
+public class ColonySeeder {
+
+    /**
+     * Dart rounds thrown over every cell before sampling gives up on reaching the requested count
+     */
+    private static final int MAX_ROUNDS = 32;
+
+    /**
+     * Phase period in cells -- samples reach two cells, so cells five apart never interact
+     */
+    private static final int PHASE_PERIOD = 5;
+
+    /**
+     * Area to seed
+     */
+    private final double minX;
+    private final double minY;
+    private final double maxX;
+    private final double maxY;
+
+    /**
+     * Minimum distance between samples
+     */
+    private final double spacing;
+
+    private DensityMap densityMap = DensityMap.uniform();
+    private long seed = System.nanoTime();
+
+    /**
+     * Existing particles new samples keep clear of -- null for none
+     */
+    private SpatialIndex avoidIndex;
+    private double avoidDistance;
+
+    /**
+     * Creates a seeder for bacteria, spaced so that no two seeded bacteria overlap whatever their direction
+     *
+     * @param minX minimum x coordinate
+     * @param minY minimum y coordinate
+     * @param maxX maximum x coordinate
+     * @param maxY maximum y coordinate
+     */
+    public ColonySeeder(double minX, double minY, double maxX, double maxY) {
+        this(minX, minY, maxX, maxY, Bacterium.SPAWN_SPACING);
+    }
+
+    /**
+     * Creates a seeder with a custom spacing
+     *
+     * @param minX minimum x coordinate
+     * @param minY minimum y coordinate
+     * @param maxX maximum x coordinate
+     * @param maxY maximum y coordinate
+     * @param spacing minimum distance between samples
+     */
+    public ColonySeeder(double minX, double minY, double maxX, double maxY, double spacing) {
+        if (maxX <= minX || maxY <= minY || spacing <= 0) {
+            throw new IllegalArgumentException("Seeding area and spacing must be positive");
+        }
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.spacing = spacing;
+    }
+
+    /**
+     * @param densityMap relative density of the colony over the area
+     */
+    public void setDensityMap(DensityMap densityMap) {
+        this.densityMap = densityMap;
+    }
+
+    /**
+     * @param seed seed of the random sampling -- equal seeds give equal samples
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Keeps new bacteria clear of bacteria already in the simulation
+     *
+     * @param existing bacteria already placed
+     */
+    public void avoid(List<Bacterium> existing) {
+        avoidIndex = existing.isEmpty() ? null : SpatialIndex.of(existing, Bacterium.MIN_SPAWN_DISTANCE);
+        avoidDistance = (spacing - Bacterium.MIN_SPAWN_DISTANCE) / 2 + Bacterium.MIN_SPAWN_DISTANCE;
+    }
+
+    /**
+     * Draws up to count positions at least the spacing apart. Fewer are returned when the area
+     * weighted by the density map cannot hold count samples.
+     *
+     * @param count number of positions wanted
+     * @return the positions, in random order
+     */
+    public List<PVector> sample(int count) {
+        double cellSize = spacing / Math.sqrt(2);
+        int columns = (int) Math.ceil((maxX - minX) / cellSize);
+        int rows = (int) Math.ceil((maxY - minY) / cellSize);
+        double[] sampleX = new double[columns * rows];
+        double[] sampleY = new double[columns * rows];
+        Arrays.fill(sampleX, Double.NaN);
+
+        int filled = 0;
+        for (int round = 0; round < MAX_ROUNDS && filled < count; round++) {
+            final int dartRound = round;
+            for (int phase = 0; phase < PHASE_PERIOD * PHASE_PERIOD; phase++) {
+                final int phaseColumn = phase % PHASE_PERIOD;
+                final int phaseRow = phase / PHASE_PERIOD;
+                int phaseRows = (rows - phaseRow + PHASE_PERIOD - 1) / PHASE_PERIOD;
+                filled += IntStream.range(0, phaseRows).parallel().map(r -> {
+                    int row = phaseRow + r * PHASE_PERIOD;
+                    int accepted = 0;
+                    for (int column = phaseColumn; column < columns; column += PHASE_PERIOD) {
+                        if (throwDart(column, row, columns, rows, cellSize, dartRound, sampleX, sampleY)) {
+                            accepted++;
+                        }
+                    }
+                    return accepted;
+                }).sum();
+            }
+        }
+
+        /*
+        Collect the samples and keep a random subset when there are more than requested
+         */
+        List<PVector> samples = new ArrayList<>(filled);
+        for (int cell = 0; cell < sampleX.length; cell++) {
+            if (!Double.isNaN(sampleX[cell])) {
+                samples.add(new PVector(sampleX[cell], sampleY[cell]));
+            }
+        }
+        Random random = new Random(seed);
+        int kept = Math.min(count, samples.size());
+        for (int i = 0; i < kept; i++) {
+            int j = i + random.nextInt(samples.size() - i);
+            PVector swap = samples.get(i);
+            samples.set(i, samples.get(j));
+            samples.set(j, swap);
+        }
+        return new ArrayList<>(samples.subList(0, kept));
+    }
+
+    /**
+     * Seeds bacteria centred on Poisson-disk samples and adds them to the simulation. The samples are drawn in
+     * parallel, the bacteria are built on the calling thread.
+     *
+     * @param count number of bacteria wanted
+     * @param strain strain of the new bacteria
+     * @param motile if the new bacteria are motile
+     * @param currentTime simulation time of birth
+     * @param bacteria list the new bacteria are added to
+     * @return number of bacteria seeded
+     */
+    public int seed(int count, String strain, boolean motile, double currentTime, List<Bacterium> bacteria) {
+        return seed(count, strain, motile, currentTime, bacteria, centre -> true);
+    }
+
+    /**
+     * Seeds the bacteria centred on those Poisson-disk samples that a filter keeps. Every process of a distributed
+     * run draws the same samples and keeps the ones in its own region.
+     *
+     * @param count number of bacteria wanted over the whole area
+     * @param strain strain of the new bacteria
+     * @param motile if the new bacteria are motile
+     * @param currentTime simulation time of birth
+     * @param bacteria list the new bacteria are added to
+     * @param keep true for the centres to seed bacteria on
+     * @return number of bacteria seeded
+     */
+    public int seed(int count, String strain, boolean motile, double currentTime, List<Bacterium> bacteria,
+                    Predicate<PVector> keep) {
+        List<PVector> centres = sample(count);
+        Random colours = new Random(seed);
+        int seeded = 0;
+        for (PVector centre : centres) {
+            Color color = new Color(colours.nextInt(255), colours.nextInt(255), colours.nextInt(255));
+            if (!keep.test(centre)) {
+                continue;
+            }
+            seeded++;
+            Bacterium bacterium = new Bacterium(strain, color, motile, centre.getX(), centre.getY(), currentTime);
+            bacterium.centreAt(centre.getX(), centre.getY());
+            bacteria.add(bacterium);
+        }
+        return seeded;
+    }
+
+    /**
+     * Throws one dart into an empty cell, keeping it if the density map accepts it and no sample
+     * within two cells is closer than the spacing
+     *
+     * @return true if a sample was added
+     */
+    private boolean throwDart(int column, int row, int columns, int rows, double cellSize, int round,
+                           double[] sampleX, double[] sampleY) {
+        int cell = row * columns + column;
+        if (!Double.isNaN(sampleX[cell])) {
+            return false;
+        }
+        long hash = mix(seed ^ mix(cell * 0x9E3779B97F4A7C15L + round));
+        double x = minX + (column + unit(hash)) * cellSize;
+        hash = mix(hash);
+        double y = minY + (row + unit(hash)) * cellSize;
+        hash = mix(hash);
+        if (x > maxX || y > maxY || unit(hash) >= densityMap.density(x, y)) {
+            return false;
+        }
+
+        double spacingSquared = spacing * spacing;
+        for (int r = Math.max(0, row - 2); r <= Math.min(rows - 1, row + 2); r++) {
+            for (int c = Math.max(0, column - 2); c <= Math.min(columns - 1, column + 2); c++) {
+                double otherX = sampleX[r * columns + c];
+                if (!Double.isNaN(otherX)) {
+                    double dx = otherX - x;
+                    double dy = sampleY[r * columns + c] - y;
+                    if (dx * dx + dy * dy < spacingSquared) {
+                        return false;
+                    }
+                }
+            }
+        }
+        if (avoidIndex != null && !avoidIndex.isClear(x, y, avoidDistance, SpatialIndex.NO_OWNER)) {
+            return false;
+        }
+        sampleY[cell] = y;
+        sampleX[cell] = x;
+        return true;
+    }
+
+    /**
+     * SplitMix64 finaliser -- gives every cell and round its own random stream without shared state
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * @return a uniform value in [0, 1) from the top 53 bits of a hash
+     */
+    private static double unit(long hash) {
+        return (hash >>> 11) * 0x1.0p-53;
+    }
+}
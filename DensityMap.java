@@ -0,0 +1,58 @@
+/**
+ * Relative density of bacteria wanted at each point of the environment when a colony is seeded
+ * by a {@link ColonySeeder}. Densities lie between 0 (never seeded) and 1 (seeded as densely as the
+ * minimum spacing allows).
+ *
+ * @author Brian Mbawa, Seth McNevin, Gladwin Ngobeni
+ */
+@FunctionalInterface
+public interface DensityMap {
+
+    /**
+     * @param x x coordinate
+     * @param y y coordinate
+     * @return relative density at the point, between 0 and 1
+     */
+    double density(double x, double y);
+
+    /**
+     * @return a uniform lawn covering the whole environment
+     */
+    static DensityMap uniform() {
+        return (x, y) -> 1.0;
+    }
+
+    /**
+     * An inoculation spot -- full density at the centre, falling off as a Gaussian
+     *
+     * @param centreX x coordinate of the centre of the spot
+     * @param centreY y coordinate of the centre of the spot
+     * @param radius distance from the centre at which the density has dropped to about 14%
+     * @return the spot
+     */
+    static DensityMap spot(double centreX, double centreY, double radius) {
+        double scale = 2.0 / (radius * radius);
+        return (x, y) -> {
+            double dx = x - centreX;
+            double dy = y - centreY;
+            return Math.exp(-(dx * dx + dy * dy) * scale);
+        };
+    }
+
+    /**
+     * A disc of uniform density with nothing outside it
+     *
+     * @param centreX x coordinate of the centre of the disc
+     * @param centreY y coordinate of the centre of the disc
+     * @param radius radius of the disc
+     * @return the disc
+     */
+    static DensityMap disc(double centreX, double centreY, double radius) {
+        double radiusSquared = radius * radius;
+        return (x, y) -> {
+            double dx = x - centreX;
+            double dy = y - centreY;
+            return dx * dx + dy * dy <= radiusSquared ? 1.0 : 0.0;
+        };
+    }
+}
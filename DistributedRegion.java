@@ -0,0 +1,947 @@
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * One process of a simulation spread over several JVMs. The environment is cut into as many strips across x as
+ * there are processes, and each process steps the bacteria and EPS particles of its own strip in a
+ * {@link SimEngine}: a bacterium belongs to the strip of its centre particle, an EPS particle to the strip it lies
+ * in. The processes talk over a {@link RegionNetwork} of NIO sockets to the strips on either side -- a ring, so
+ * that bacteria leaving one edge of the environment reach the strip at the other -- and to region 0, which
+ * coordinates them.
+ * <p>
+ * Every step starts with two exchanges:
+ * <ul>
+ * <li>Each region sends region 0 the time it is at and the step it proposes, and region 0 answers all of them
+ * with the shortest step, its bond check clock and whether a checkpoint is due, so every region takes the same
+ * step at the same time and forms bonds at the same moments.</li>
+ * <li>Each region sends each neighbour the bodies that moved into the neighbour's strip, the ghosts of its
+ * halo -- its own bodies with a particle within reach of the neighbour's strip -- and the PSL visits its
+ * bacteria recorded within reach of it. Ghosts are evaluated as the ghosts of a {@link DomainDecomposition}
+ * tile: the forces on them are dropped, and their owner computes its own.</li>
+ * </ul>
+ * Every body a region has met, owned or ghost, is kept by its id, and a body received again updates the same
+ * object, so bonds to it hold while it moves between strips. EPS bonds are sent as the particle keys of a
+ * {@link CheckpointDelta} and resolved on arrival, so a ghost EPS particle pulls on the particles of its
+ * receiver it has bonded with. Bonds are formed only by the region owning the EPS particle. Bodies no longer
+ * seen and no longer bonded to are forgotten after a while.
+ * <p>
+ * Checkpoints are taken at a step boundary chosen by region 0: every region writes its own bodies as a
+ * {@link SnapshotFile}, {@code checkpoint-000012-region-3.snap}, together with the bonds reaching into other
+ * regions, {@code checkpoint-000012-region-3.bonds}. Once every region has written its part, region 0 writes
+ * {@code checkpoint-000012.regions}. A run is restored from that manifest by any number of regions, each reading
+ * every part and keeping the bodies in its strip, so the directory must be shared between hosts.
+ * <p>
+ * Island sleeping, rigid clusters and tiles are not used in a region; they would reach across its edges.
+ *
+ * @author Brian Mbawa, Seth McNevin, Gladwin Ngobeni
+ */
+public class DistributedRegion implements Closeable {
+
+    /**
+     * Distance beyond the range of the pair terms within which a body counts as in the halo of a strip: twice
+     * the reach of the end particles of a full-length bacterium from its centre, allowing for stretched springs
+     */
+    static final double BODY_REACH = 6 * Bacterium.MAX_REST_LENGTH;
+
+    /**
+     * Steps between sweeps for bodies to forget, and steps a body must have gone unseen to be forgotten
+     */
+    private static final int PRUNE_EVERY = 100;
+    private static final int PRUNE_AFTER = 200;
+
+    /**
+     * Checkpoint manifests -- checkpoint-000012.regions
+     */
+    private static final Pattern MANIFEST_NAME = Pattern.compile("checkpoint-(\\d+)\\.regions");
+
+    private final int rank;
+    private final int ranks;
+    private final RegionNetwork network;
+
+    /**
+     * Regions exchanging bodies with this one, to the left and the right, without repeats
+     */
+    private final int[] neighbours;
+
+    /**
+     * Boundaries of the environment and the width of each strip
+     */
+    private final double xMin;
+    private final double xMax;
+    private final double stripWidth;
+
+    /**
+     * Set by the engine stepping the region
+     */
+    private PeriodicBox box;
+    private double reach;
+    private Grid grid;
+
+    /**
+     * PSL visits recorded by the bacteria of this region since the last exchange
+     */
+    private final List<double[]> journal = new ArrayList<>();
+
+    /**
+     * Every body met, owned or ghost, by id, with the step it was last owned or received
+     */
+    private final Map<Integer, Bacterium> knownBacteria = new HashMap<>();
+    private final Map<Integer, EPS> knownEps = new HashMap<>();
+    private final Map<Integer, Long> bacteriumSeen = new HashMap<>();
+    private final Map<Integer, Long> epsSeen = new HashMap<>();
+
+    /**
+     * Key of every particle of the known bacteria
+     */
+    private final Map<Particle, Long> keys = new IdentityHashMap<>();
+
+    /**
+     * Particles of bacteria gone back to the {@link ObjectPool} that EPS particles are still bonded with. Their
+     * bonds are left out of the halos, as nothing steps them any more.
+     */
+    private final Set<Particle> retired = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * Ids owned at the last exchange
+     */
+    private final Set<Integer> ownedBacteria = new HashSet<>();
+    private final Set<Integer> ownedEps = new HashSet<>();
+
+    /**
+     * Bodies owned followed by the ghosts of the halo, as handed to the force field
+     */
+    private final ArrayList<Bacterium> localBacteria = new ArrayList<>();
+    private final ArrayList<EPS> localEps = new ArrayList<>();
+    private int ghostBacteria;
+    private int ghostEps;
+
+    private long step;
+
+    /**
+     * Counts since the region was started
+     */
+    private long migrationsIn;
+    private long migrationsOut;
+    private long visitsShared;
+
+    /**
+     * Checkpoint directory -- null for no checkpoints -- and the last checkpoint this region wrote
+     */
+    private File checkpointDirectory;
+    private long checkpointWritten = -1;
+
+    /**
+     * Coordination, kept by region 0: when the next checkpoint is due, its sequence number, the checkpoint written
+     * but not yet confirmed by every region, and the sizes of the whole simulation at the last step
+     */
+    private double checkpointInterval = Double.POSITIVE_INFINITY;
+    private double nextCheckpointTime;
+    private long nextSequence;
+    private long pendingCheckpoint = -1;
+    private int totalBacteria;
+    private int totalEps;
+
+    /**
+     * Connects this process to the regions it talks to
+     *
+     * @param rank region of this process, from 0
+     * @param addresses address of every region's process by rank
+     * @param xMin minimum environment x value
+     * @param xMax maximum environment x value
+     * @throws IOException if a region cannot be reached
+     */
+    public DistributedRegion(int rank, List<InetSocketAddress> addresses, double xMin, double xMax) throws IOException {
+        this.rank = rank;
+        this.ranks = addresses.size();
+        if (rank < 0 || rank >= ranks) {
+            throw new IllegalArgumentException("Region " + rank + " of " + ranks + " does not exist");
+        }
+        this.xMin = xMin;
+        this.xMax = xMax;
+        this.stripWidth = (xMax - xMin) / ranks;
+        Set<Integer> around = new TreeSet<>();
+        if (ranks > 1) {
+            around.add((rank + ranks - 1) % ranks);
+            around.add((rank + 1) % ranks);
+        }
+        this.neighbours = around.stream().mapToInt(Integer::intValue).toArray();
+        Set<Integer> peers = new TreeSet<>(around);
+        for (int other = 0; other < ranks; other++) {
+            if (other != rank && (rank == 0 || other == 0)) {
+                peers.add(other);
+            }
+        }
+        this.network = new RegionNetwork(rank, addresses, peers);
+    }
+
+    /**
+     * Takes the force field, boundaries and PSL grid of the engine stepping this region
+     *
+     * @throws IllegalArgumentException if the strips are too narrow for their halos to stay with their neighbours
+     */
+    void configure(ForceField field, PeriodicBox box, Grid grid) {
+        this.box = box;
+        this.reach = field.getRange() + BODY_REACH;
+        if (ranks > 1 && stripWidth < 2 * reach) {
+            throw new IllegalArgumentException(String.format(
+                    "Strips of %.0f are too narrow for halos of %.0f; use at most %d regions", stripWidth, reach,
+                    Math.max(1, (int) ((xMax - xMin) / (2 * reach)))));
+        }
+        if (this.grid != null && this.grid != grid) {
+            this.grid.setJournal(null);
+        }
+        this.grid = grid;
+        grid.setJournal(journal);
+    }
+
+    /**
+     * @param x an x coordinate
+     * @return the region whose strip holds it
+     */
+    public int regionOf(double x) {
+        double offset = (box != null ? box.wrapX(x) : x) - xMin;
+        return Math.max(0, Math.min(ranks - 1, (int) Math.floor(offset / stripWidth)));
+    }
+
+    /**
+     * @return true if a point lies in this region's strip
+     */
+    public boolean owns(double x) {
+        return regionOf(x) == rank;
+    }
+
+    /**
+     * Agrees on the step with the other regions, writes a checkpoint if one is due, and trades the bodies crossing
+     * into the neighbouring strips, the ghosts of the halos and the PSL visits near the edges
+     *
+     * @param currentTime simulation time at the start of the step
+     * @param proposedStep step this region would take
+     * @param bacteria bacteria of this region, to which arriving bacteria are added
+     * @param eps EPS particles of this region, to which arriving particles are added
+     * @return the step every region takes
+     * @throws UncheckedIOException if a region cannot be reached or a checkpoint cannot be written
+     */
+    double beginStep(double currentTime, double proposedStep, Population<Bacterium> bacteria, List<EPS> eps) {
+        step++;
+        try {
+            noteOwned(bacteria, eps);
+            Decision decision = coordinate(currentTime, proposedStep, bacteria.size(), eps.size(), false);
+            if (decision.checkpoint >= 0) {
+                writeCheckpoint(decision.checkpoint, currentTime, bacteria, eps);
+            }
+            exchange(bacteria, eps);
+            if (step % PRUNE_EVERY == 0) {
+                prune();
+            }
+            return decision.timeStep;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Tells region 0 this region has finished, so the last checkpoint is confirmed, and closes the connections
+     *
+     * @param currentTime simulation time at the end of the run
+     * @param bacteria bacteria of this region
+     * @param eps EPS particles of this region
+     * @throws IOException if a region cannot be reached
+     */
+    public void finish(double currentTime, List<Bacterium> bacteria, List<EPS> eps) throws IOException {
+        coordinate(currentTime, Double.POSITIVE_INFINITY, bacteria.size(), eps.size(), true);
+        close();
+    }
+
+    /**
+     * Registers the bodies born in this region since the last step and forgets those that died
+     */
+    private void noteOwned(List<Bacterium> bacteria, List<EPS> eps) {
+        Set<Integer> current = new HashSet<>(bacteria.size() * 2);
+        for (Bacterium bacterium : bacteria) {
+            current.add(bacterium.getId());
+        }
+        for (int id : ownedBacteria) {
+            if (!current.contains(id)) {
+                forgetBacterium(id);
+            }
+        }
+        for (Bacterium bacterium : bacteria) {
+            if (knownBacteria.get(bacterium.getId()) != bacterium) {
+                knownBacteria.put(bacterium.getId(), bacterium);
+                registerKeys(bacterium);
+            }
+            bacteriumSeen.put(bacterium.getId(), step);
+        }
+        ownedBacteria.clear();
+        ownedBacteria.addAll(current);
+
+        current = new HashSet<>(eps.size() * 2);
+        for (EPS epsParticle : eps) {
+            current.add(epsParticle.getId());
+        }
+        for (int id : ownedEps) {
+            if (!current.contains(id)) {
+                knownEps.remove(id);
+                epsSeen.remove(id);
+            }
+        }
+        for (EPS epsParticle : eps) {
+            knownEps.put(epsParticle.getId(), epsParticle);
+            epsSeen.put(epsParticle.getId(), step);
+        }
+        ownedEps.clear();
+        ownedEps.addAll(current);
+    }
+
+    /**
+     * The answer of region 0 to every region at the start of a step
+     */
+    private record Decision(double timeStep, double bondCheckTime, long checkpoint) {
+    }
+
+    /**
+     * Sends region 0 where this region stands and receives its decision; region 0 collects every region's report
+     * and answers them all
+     */
+    private Decision coordinate(double currentTime, double proposedStep, int bacteria, int eps, boolean finished)
+            throws IOException {
+        if (rank != 0) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeDouble(currentTime);
+            out.writeDouble(proposedStep);
+            out.writeInt(bacteria);
+            out.writeInt(eps);
+            out.writeLong(checkpointWritten);
+            out.writeBoolean(finished);
+            Map<Integer, byte[]> received = new HashMap<>();
+            network.exchange(Map.of(0, bytes.toByteArray()), List.of(0), received);
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(received.get(0)));
+            Decision decision = new Decision(in.readDouble(), in.readDouble(), in.readLong());
+            EPS.BOND_CHECK_TIME = decision.bondCheckTime;
+            return decision;
+        }
+
+        /*
+        Collect the reports of the other regions
+         */
+        List<Integer> others = new ArrayList<>();
+        for (int other = 1; other < ranks; other++) {
+            others.add(other);
+        }
+        Map<Integer, byte[]> received = new HashMap<>();
+        network.exchange(Map.of(), others, received);
+        double timeStep = proposedStep;
+        totalBacteria = bacteria;
+        totalEps = eps;
+        boolean confirmed = checkpointWritten == pendingCheckpoint;
+        for (int other : others) {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(received.get(other)));
+            double time = in.readDouble();
+            if (Math.abs(time - currentTime) > 1e-9 * Math.max(1, Math.abs(currentTime))) {
+                throw new IllegalStateException(String.format("Region %d is at t=%.9f while region 0 is at t=%.9f",
+                        other, time, currentTime));
+            }
+            timeStep = Math.min(timeStep, in.readDouble());
+            totalBacteria += in.readInt();
+            totalEps += in.readInt();
+            confirmed &= in.readLong() == pendingCheckpoint;
+            in.readBoolean();
+        }
+
+        /*
+        Seal the checkpoint every region has written, and call the next one when it is due
+         */
+        if (pendingCheckpoint >= 0 && confirmed) {
+            writeManifest(pendingCheckpoint, currentTime);
+            pendingCheckpoint = -1;
+        }
+        long checkpoint = -1;
+        if (!finished && checkpointDirectory != null && pendingCheckpoint < 0
+                && currentTime >= nextCheckpointTime - timeStep / 2) {
+            checkpoint = nextSequence++;
+            pendingCheckpoint = checkpoint;
+            nextCheckpointTime = currentTime + checkpointInterval;
+        }
+        Decision decision = new Decision(timeStep, EPS.BOND_CHECK_TIME, checkpoint);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeDouble(decision.timeStep);
+        out.writeDouble(decision.bondCheckTime);
+        out.writeLong(decision.checkpoint);
+        byte[] answer = bytes.toByteArray();
+        Map<Integer, byte[]> outgoing = new HashMap<>();
+        for (int other : others) {
+            outgoing.put(other, answer);
+        }
+        network.exchange(outgoing, List.of(), received);
+        return decision;
+    }
+
+    /**
+     * Sends every neighbour the bodies moving into its strip, the ghosts of its halo and the PSL visits near it,
+     * and takes in theirs
+     */
+    private void exchange(Population<Bacterium> bacteria, List<EPS> eps) throws IOException {
+        if (neighbours.length == 0) {
+            journal.clear();
+            localBacteria.clear();
+            localBacteria.addAll(bacteria);
+            localEps.clear();
+            localEps.addAll(eps);
+            return;
+        }
+
+        /*
+        Bodies leaving the strip, to the neighbour towards their new region
+         */
+        Map<Integer, List<Bacterium>> leavingBacteria = new HashMap<>();
+        Map<Integer, List<EPS>> leavingEps = new HashMap<>();
+        for (int i = bacteria.size() - 1; i >= 0; i--) {
+            Bacterium bacterium = bacteria.get(i);
+            int region = regionOf(bacterium.getParticles().get(3).getPosition().getX());
+            if (region != rank) {
+                leavingBacteria.computeIfAbsent(towards(region), key -> new ArrayList<>()).add(bacterium);
+                bacteria.swapRemove(i);
+                bacterium.cancelEvents();
+                ownedBacteria.remove(bacterium.getId());
+                migrationsOut++;
+            }
+        }
+        for (int i = eps.size() - 1; i >= 0; i--) {
+            EPS epsParticle = eps.get(i);
+            int region = regionOf(epsParticle.getPosition().getX());
+            if (region != rank) {
+                leavingEps.computeIfAbsent(towards(region), key -> new ArrayList<>()).add(epsParticle);
+                EPS last = eps.remove(eps.size() - 1);
+                if (i < eps.size()) {
+                    eps.set(i, last);
+                }
+                ownedEps.remove(epsParticle.getId());
+                migrationsOut++;
+            }
+        }
+
+        /*
+        One frame per neighbour: migrants, ghosts, then PSL visits
+         */
+        Map<Integer, byte[]> outgoing = new HashMap<>();
+        for (int neighbour : neighbours) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(1 << 14);
+            DataOutputStream out = new DataOutputStream(bytes);
+            List<Bacterium> migrants = leavingBacteria.getOrDefault(neighbour, List.of());
+            out.writeInt(migrants.size());
+            for (Bacterium bacterium : migrants) {
+                RegionCodec.writeBacterium(out, bacterium);
+            }
+            List<EPS> epsMigrants = leavingEps.getOrDefault(neighbour, List.of());
+            out.writeInt(epsMigrants.size());
+            for (EPS epsParticle : epsMigrants) {
+                RegionCodec.writeEps(out, epsParticle, bondKeys(epsParticle));
+            }
+
+            List<Bacterium> ghosts = new ArrayList<>();
+            for (Bacterium bacterium : bacteria) {
+                for (Particle particle : bacterium.getParticles()) {
+                    if (nearStrip(particle.getPosition().getX(), neighbour)) {
+                        ghosts.add(bacterium);
+                        break;
+                    }
+                }
+            }
+            out.writeInt(ghosts.size());
+            for (Bacterium bacterium : ghosts) {
+                RegionCodec.writeBacterium(out, bacterium);
+            }
+            List<EPS> epsGhosts = new ArrayList<>();
+            for (EPS epsParticle : eps) {
+                if (nearStrip(epsParticle.getPosition().getX(), neighbour)) {
+                    epsGhosts.add(epsParticle);
+                }
+            }
+            out.writeInt(epsGhosts.size());
+            for (EPS epsParticle : epsGhosts) {
+                RegionCodec.writeEps(out, epsParticle, bondKeys(epsParticle));
+            }
+
+            List<double[]> visits = new ArrayList<>();
+            for (double[] visit : journal) {
+                if (nearStrip(visit[0], neighbour)) {
+                    visits.add(visit);
+                }
+            }
+            out.writeInt(visits.size());
+            for (double[] visit : visits) {
+                for (double value : visit) {
+                    out.writeDouble(value);
+                }
+            }
+            visitsShared += visits.size();
+            outgoing.put(neighbour, bytes.toByteArray());
+        }
+        journal.clear();
+
+        Map<Integer, byte[]> received = new HashMap<>();
+        network.exchange(outgoing, Arrays.stream(neighbours).boxed().toList(), received);
+
+        /*
+        Take in the frames in region order, so every run reads them alike
+         */
+        List<Bacterium> ghostList = new ArrayList<>();
+        List<EPS> ghostEpsList = new ArrayList<>();
+        Map<EPS, long[]> bonds = new IdentityHashMap<>();
+        for (int neighbour : neighbours) {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(received.get(neighbour)));
+            for (int count = in.readInt(); count > 0; count--) {
+                Bacterium bacterium = RegionCodec.readBacterium(in, knownBacteria);
+                if (ownedBacteria.add(bacterium.getId())) {
+                    bacteria.add(bacterium);
+                    registerKeys(bacterium);
+                    bacteriumSeen.put(bacterium.getId(), step);
+                    migrationsIn++;
+                }
+            }
+            for (int count = in.readInt(); count > 0; count--) {
+                EPS epsParticle = RegionCodec.readEps(in, knownEps, bonds);
+                if (ownedEps.add(epsParticle.getId())) {
+                    eps.add(epsParticle);
+                    epsSeen.put(epsParticle.getId(), step);
+                    migrationsIn++;
+                }
+            }
+            for (int count = in.readInt(); count > 0; count--) {
+                Bacterium bacterium = RegionCodec.readBacterium(in, knownBacteria);
+                if (!ownedBacteria.contains(bacterium.getId())) {
+                    ghostList.add(bacterium);
+                    registerKeys(bacterium);
+                    bacteriumSeen.put(bacterium.getId(), step);
+                }
+            }
+            for (int count = in.readInt(); count > 0; count--) {
+                EPS epsParticle = RegionCodec.readEps(in, knownEps, bonds);
+                if (!ownedEps.contains(epsParticle.getId())) {
+                    ghostEpsList.add(epsParticle);
+                    epsSeen.put(epsParticle.getId(), step);
+                }
+            }
+            for (int count = in.readInt(); count > 0; count--) {
+                grid.recordSharedVisit(in.readDouble(), in.readDouble(), new PVector(in.readDouble(), in.readDouble()));
+            }
+        }
+
+        /*
+        Bonds are resolved once every body of the step is in place
+         */
+        for (Map.Entry<EPS, long[]> entry : bonds.entrySet()) {
+            EPS epsParticle = entry.getKey();
+            epsParticle.clearBonds();
+            for (long key : entry.getValue()) {
+                Particle partner = resolve(key);
+                if (partner != null) {
+                    epsParticle.bond(partner);
+                }
+            }
+        }
+
+        localBacteria.clear();
+        localBacteria.addAll(bacteria);
+        localBacteria.addAll(ghostList);
+        localEps.clear();
+        localEps.addAll(eps);
+        localEps.addAll(ghostEpsList);
+        ghostBacteria = ghostList.size();
+        ghostEps = ghostEpsList.size();
+    }
+
+    /**
+     * @return the neighbour a body bound for a region is handed to -- the region itself if it is a neighbour,
+     * otherwise the neighbour on the shorter way round, which passes it on
+     */
+    private int towards(int region) {
+        for (int neighbour : neighbours) {
+            if (neighbour == region) {
+                return region;
+            }
+        }
+        int ahead = (region - rank + ranks) % ranks;
+        return ahead <= ranks / 2 ? (rank + 1) % ranks : (rank + ranks - 1) % ranks;
+    }
+
+    /**
+     * @return true if an x coordinate is within reach of a region's strip, across periodic boundaries the nearest
+     * image
+     */
+    private boolean nearStrip(double x, int region) {
+        double delta = x - (xMin + (region + 0.5) * stripWidth);
+        if (box != null) {
+            delta = box.imageX(delta);
+        }
+        return Math.abs(delta) <= stripWidth / 2 + reach;
+    }
+
+    /**
+     * @return keys of the particles an EPS particle has bonded with, leaving out those no longer known
+     */
+    private long[] bondKeys(EPS epsParticle) {
+        List<Particle> bonded = epsParticle.getBondedParticles();
+        long[] bondKeys = new long[bonded.size()];
+        int count = 0;
+        for (Particle partner : bonded) {
+            long key = keyOf(partner);
+            if (key >= 0) {
+                bondKeys[count++] = key;
+            }
+        }
+        return count == bondKeys.length ? bondKeys : Arrays.copyOf(bondKeys, count);
+    }
+
+    /**
+     * @return the key of a particle, or -1 if it belongs to no known body
+     */
+    private long keyOf(Particle particle) {
+        if (particle instanceof EPS epsParticle) {
+            return RegionCodec.key(epsParticle);
+        }
+        Long key = keys.get(particle);
+        if (key == null && !retired.contains(particle)) {
+            /*
+            Bacteria moved to the opposite edge are given new particles, so look again over every known bacterium
+             */
+            keys.clear();
+            for (Bacterium bacterium : knownBacteria.values()) {
+                registerKeys(bacterium);
+            }
+            key = keys.get(particle);
+        }
+        return key != null ? key : -1;
+    }
+
+    /**
+     * @return the known particle a key names, or null if it is not known here
+     */
+    private Particle resolve(long key) {
+        if (RegionCodec.slot(key) == RegionCodec.EPS_SLOT) {
+            return knownEps.get(RegionCodec.id(key));
+        }
+        Bacterium bacterium = knownBacteria.get(RegionCodec.id(key));
+        return bacterium != null && bacterium.getParticles().size() == SimSnapshot.PARTICLES_PER_BACTERIUM
+                ? bacterium.getParticles().get(RegionCodec.slot(key)) : null;
+    }
+
+    private void registerKeys(Bacterium bacterium) {
+        List<Particle> particles = bacterium.getParticles();
+        for (int k = 0; k < particles.size(); k++) {
+            keys.put(particles.get(k), RegionCodec.key(bacterium, k));
+        }
+    }
+
+    /**
+     * Forgets the keys of a bacterium about to go back to the {@link ObjectPool}, while it still holds its
+     * particles
+     *
+     * @param bacterium a divided father, or a bacterium cleared from the simulation
+     */
+    void release(Bacterium bacterium) {
+        for (Particle particle : bacterium.getParticles()) {
+            if (keys.remove(particle) != null && particle.isBonded()) {
+                retired.add(particle);
+            }
+        }
+    }
+
+    /**
+     * Forgets a bacterium, which may already be back in the {@link ObjectPool} as a daughter with another id
+     */
+    private void forgetBacterium(int id) {
+        Bacterium bacterium = knownBacteria.remove(id);
+        bacteriumSeen.remove(id);
+        if (bacterium != null) {
+            for (Particle particle : bacterium.getParticles()) {
+                Long key = keys.get(particle);
+                if (key != null && RegionCodec.id(key) == id) {
+                    keys.remove(particle);
+                }
+            }
+        }
+    }
+
+    /**
+     * Forgets the bodies of other regions that have not been seen for {@link #PRUNE_AFTER} steps and that no
+     * particle here is bonded with, and the retired particles no longer bonded
+     */
+    private void prune() {
+        retired.removeIf(particle -> !particle.isBonded());
+        long before = step - PRUNE_AFTER;
+        for (Iterator<Map.Entry<Integer, EPS>> it = knownEps.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Integer, EPS> entry = it.next();
+            EPS epsParticle = entry.getValue();
+            if (!ownedEps.contains(entry.getKey()) && epsSeen.getOrDefault(entry.getKey(), 0L) < before
+                    && !epsParticle.isBonded()) {
+                epsParticle.clearBonds();
+                epsSeen.remove(entry.getKey());
+                it.remove();
+            }
+        }
+        List<Integer> forgotten = new ArrayList<>();
+        for (Map.Entry<Integer, Bacterium> entry : knownBacteria.entrySet()) {
+            if (!ownedBacteria.contains(entry.getKey()) && bacteriumSeen.getOrDefault(entry.getKey(), 0L) < before
+                    && entry.getValue().getParticles().stream().noneMatch(Particle::isBonded)) {
+                forgotten.add(entry.getKey());
+            }
+        }
+        for (int id : forgotten) {
+            forgetBacterium(id);
+        }
+    }
+
+    /**
+     * Sets where checkpoints go and, on region 0, how often they are taken
+     *
+     * @param directory directory shared by every region
+     * @param interval simulated seconds between checkpoints
+     * @param currentTime simulation time the first checkpoint is due at
+     */
+    public void setCheckpoints(File directory, double interval, double currentTime) {
+        this.checkpointDirectory = directory;
+        this.checkpointInterval = interval;
+        this.nextCheckpointTime = currentTime;
+        long latest = -1;
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                Matcher matcher = MANIFEST_NAME.matcher(file.getName());
+                if (matcher.matches()) {
+                    latest = Math.max(latest, Long.parseLong(matcher.group(1)));
+                }
+            }
+        }
+        this.nextSequence = latest + 1;
+    }
+
+    private File checkpointPart(long checkpoint, int region, String extension) {
+        return new File(checkpointDirectory, String.format("checkpoint-%06d-region-%d.%s", checkpoint, region,
+                extension));
+    }
+
+    /**
+     * Writes the bodies of this region and the bonds its EPS particles hold with bodies of other regions
+     */
+    private void writeCheckpoint(long checkpoint, double currentTime, List<Bacterium> bacteria, List<EPS> eps)
+            throws IOException {
+        checkpointDirectory.mkdirs();
+        SnapshotFile.write(new SimSnapshot(bacteria, eps, grid, currentTime),
+                checkpointPart(checkpoint, rank, "snap"));
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(checkpointPart(checkpoint, rank, "bonds"))))) {
+            List<long[]> crossing = new ArrayList<>();
+            for (EPS epsParticle : eps) {
+                for (long key : bondKeys(epsParticle)) {
+                    int id = RegionCodec.id(key);
+                    boolean own = RegionCodec.slot(key) == RegionCodec.EPS_SLOT ? ownedEps.contains(id)
+                            : ownedBacteria.contains(id);
+                    if (!own) {
+                        crossing.add(new long[]{epsParticle.getId(), key});
+                    }
+                }
+            }
+            out.writeInt(crossing.size());
+            for (long[] bond : crossing) {
+                out.writeInt((int) bond[0]);
+                out.writeLong(bond[1]);
+            }
+        }
+        checkpointWritten = checkpoint;
+    }
+
+    /**
+     * Marks a checkpoint complete once every region has written its part
+     */
+    private void writeManifest(long checkpoint, double time) throws IOException {
+        File manifest = new File(checkpointDirectory, String.format("checkpoint-%06d.regions", checkpoint));
+        try (PrintWriter out = new PrintWriter(new FileWriter(manifest))) {
+            out.println("regions " + ranks);
+            out.println("time " + time);
+        }
+    }
+
+    /**
+     * Restores the bodies of this region's strip from a checkpoint of a run over any number of regions. Every
+     * part of the checkpoint is read, so bonds between bodies of different parts are rebuilt, and the bodies of
+     * other strips are kept as known bodies until they are seen or forgotten.
+     *
+     * @param manifest the checkpoint-NNNNNN.regions file
+     * @param bacteria list this region's bacteria are added to
+     * @param eps list this region's EPS particles are added to
+     * @return simulation time of the checkpoint
+     * @throws IOException if a part of the checkpoint is missing or cannot be read
+     */
+    public double restore(File manifest, List<Bacterium> bacteria, List<EPS> eps) throws IOException {
+        Matcher matcher = MANIFEST_NAME.matcher(manifest.getName());
+        if (!matcher.matches()) {
+            throw new IOException("Not a checkpoint manifest: " + manifest.getName());
+        }
+        long checkpoint = Long.parseLong(matcher.group(1));
+        int parts = -1;
+        double time = Double.NaN;
+        try (BufferedReader in = new BufferedReader(new FileReader(manifest))) {
+            for (String line = in.readLine(); line != null; line = in.readLine()) {
+                String[] fields = line.trim().split("\\s+");
+                if (fields[0].equals("regions")) {
+                    parts = Integer.parseInt(fields[1]);
+                } else if (fields[0].equals("time")) {
+                    time = Double.parseDouble(fields[1]);
+                }
+            }
+        }
+        if (parts < 1 || Double.isNaN(time)) {
+            throw new IOException("Incomplete checkpoint manifest: " + manifest.getName());
+        }
+        File directory = manifest.getAbsoluteFile().getParentFile();
+        File previous = checkpointDirectory;
+        checkpointDirectory = directory;
+
+        /*
+        Lineage first, so restored bacteria pick up their fathers
+         */
+        List<MappedSnapshot> snapshots = new ArrayList<>();
+        for (int part = 0; part < parts; part++) {
+            MappedSnapshot snapshot = SnapshotFile.open(checkpointPart(checkpoint, part, "snap"));
+            snapshot.mergeLineage();
+            snapshots.add(snapshot);
+        }
+        for (MappedSnapshot snapshot : snapshots) {
+            for (Bacterium bacterium : snapshot.bacteria()) {
+                knownBacteria.put(bacterium.getId(), bacterium);
+                registerKeys(bacterium);
+            }
+            for (EPS epsParticle : snapshot.eps()) {
+                knownEps.put(epsParticle.getId(), epsParticle);
+            }
+            for (Psl psl : snapshot.grid().getVisitCount().values()) {
+                PVector cell = new PVector((int) psl.getPosition().getX(), (int) psl.getPosition().getY());
+                Psl held = grid.getVisitCount().get(cell);
+                if (held == null || held.getCount() < psl.getCount()) {
+                    grid.getVisitCount().put(cell, psl);
+                }
+            }
+        }
+        EPS.BOND_CHECK_TIME = snapshots.get(0).getBondCheckTime();
+
+        /*
+        Bonds reaching from one part into another
+         */
+        for (int part = 0; part < parts; part++) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                    new FileInputStream(checkpointPart(checkpoint, part, "bonds"))))) {
+                for (int count = in.readInt(); count > 0; count--) {
+                    EPS epsParticle = knownEps.get(in.readInt());
+                    Particle partner = resolve(in.readLong());
+                    if (epsParticle != null && partner != null) {
+                        epsParticle.bond(partner);
+                    }
+                }
+            }
+        }
+        checkpointDirectory = previous;
+
+        for (Bacterium bacterium : knownBacteria.values()) {
+            if (owns(bacterium.getParticles().get(3).getPosition().getX())) {
+                bacteria.add(bacterium);
+            }
+        }
+        for (EPS epsParticle : knownEps.values()) {
+            if (owns(epsParticle.getPosition().getX())) {
+                eps.add(epsParticle);
+            }
+        }
+        return time;
+    }
+
+    /**
+     * @return bacteria of this region followed by the ghosts of its halo, as of the last exchange
+     */
+    List<Bacterium> getLocalBacteria() {
+        return localBacteria;
+    }
+
+    /**
+     * @return EPS particles of this region followed by the ghosts of its halo, as of the last exchange
+     */
+    List<EPS> getLocalEps() {
+        return localEps;
+    }
+
+    public int getRank() {
+        return rank;
+    }
+
+    public int getRegionCount() {
+        return ranks;
+    }
+
+    /**
+     * @return left edge of this region's strip
+     */
+    public double getStripStart() {
+        return xMin + rank * stripWidth;
+    }
+
+    /**
+     * @return right edge of this region's strip
+     */
+    public double getStripEnd() {
+        return xMin + (rank + 1) * stripWidth;
+    }
+
+    /**
+     * @return ghost bacteria and EPS particles in the halo at the last exchange
+     */
+    public int getGhostCount() {
+        return ghostBacteria + ghostEps;
+    }
+
+    public long getMigrationsIn() {
+        return migrationsIn;
+    }
+
+    public long getMigrationsOut() {
+        return migrationsOut;
+    }
+
+    /**
+     * @return PSL visits sent to the neighbouring regions
+     */
+    public long getVisitsShared() {
+        return visitsShared;
+    }
+
+    /**
+     * @return bacteria in every region at the start of the last step, as counted by region 0
+     */
+    public int getTotalBacteria() {
+        return totalBacteria;
+    }
+
+    /**
+     * @return EPS particles in every region at the start of the last step, as counted by region 0
+     */
+    public int getTotalEps() {
+        return totalEps;
+    }
+
+    public RegionNetwork getNetwork() {
+        return network;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (grid != null) {
+            grid.setJournal(null);
+        }
+        network.close();
+    }
+}
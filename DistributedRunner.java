@@ -0,0 +1,219 @@
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs the simulation without a display spread over several processes, each stepping one
+ * {@link DistributedRegion} of the environment.
+ *
+ * <pre>
+ * java DistributedRunner --ranks N [--rank K] [--hosts HOST:PORT,...] [--port P]
+ *                        [--bacteria N] [--seconds T] [--width W] [--height H] [--spot] [--periodic] [--seed S]
+ *                        [--checkpoint DIR] [--checkpoint-interval T] [--restore DIR/checkpoint-NNNNNN.regions]
+ * </pre>
+ *
+ * Without {@code --rank} the runner starts N processes of itself on this machine, talking over the loopback
+ * interface from port P, 47000 by default, and waits for them. With {@code --rank K} it runs region K only; the
+ * addresses of all N regions are then given in rank order by {@code --hosts}, or are the loopback ports from P.
+ * Every region seeds the same colony from the same seed, 42 by default, and keeps the bacteria of its own strip.
+ * <p>
+ * {@code --checkpoint DIR} writes a checkpoint every {@code --checkpoint-interval} simulated seconds, 10 by
+ * default, to a directory every region can reach; {@code --restore} picks a run up from one, with any number of
+ * regions.
+ *
+ * @author Brian Mbawa, Seth McNevin, Gladwin Ngobeni
+ */
+public class DistributedRunner {
+
+    /**
+     * Steps between progress lines
+     */
+    private static final int REPORT_EVERY = 1000;
+
+    public static void main(String[] args) {
+        int ranks = 0;
+        Integer rank = null;
+        String hosts = null;
+        int port = 47000;
+        int bacteriaCount = 100;
+        double seconds = 60;
+        double width = 1600;
+        double height = 900;
+        boolean spot = false;
+        boolean periodic = PeriodicBox.ENABLED;
+        long seed = 42;
+        File checkpoints = null;
+        double checkpointInterval = 10;
+        File restore = null;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--ranks" -> ranks = Integer.parseInt(args[++i]);
+                    case "--rank" -> rank = Integer.parseInt(args[++i]);
+                    case "--hosts" -> hosts = args[++i];
+                    case "--port" -> port = Integer.parseInt(args[++i]);
+                    case "--bacteria" -> bacteriaCount = Integer.parseInt(args[++i]);
+                    case "--seconds" -> seconds = Double.parseDouble(args[++i]);
+                    case "--width" -> width = Double.parseDouble(args[++i]);
+                    case "--height" -> height = Double.parseDouble(args[++i]);
+                    case "--spot" -> spot = true;
+                    case "--periodic" -> periodic = true;
+                    case "--seed" -> seed = Long.parseLong(args[++i]);
+                    case "--checkpoint" -> checkpoints = new File(args[++i]);
+                    case "--checkpoint-interval" -> checkpointInterval = Double.parseDouble(args[++i]);
+                    case "--restore" -> restore = new File(args[++i]);
+                    default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+                }
+            }
+            if (ranks < 1) {
+                throw new IllegalArgumentException("--ranks must be at least 1");
+            }
+            if (rank != null && (rank < 0 || rank >= ranks)) {
+                throw new IllegalArgumentException("--rank must be below --ranks");
+            }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            System.err.println("Invalid arguments: " + e.getMessage());
+            System.exit(2);
+        }
+
+        if (rank == null) {
+            System.exit(launch(ranks, args));
+        }
+
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        if (hosts != null) {
+            for (String host : hosts.split(",")) {
+                int colon = host.lastIndexOf(':');
+                addresses.add(new InetSocketAddress(host.substring(0, colon),
+                        Integer.parseInt(host.substring(colon + 1))));
+            }
+            if (addresses.size() != ranks) {
+                System.err.println("Invalid arguments: --hosts must give " + ranks + " addresses");
+                System.exit(2);
+            }
+        } else {
+            for (int k = 0; k < ranks; k++) {
+                addresses.add(new InetSocketAddress("127.0.0.1", port + k));
+            }
+        }
+
+        /*
+        Every region hands out its own ids, so ids never clash between regions
+         */
+        Bacterium.strideIds(rank + 1, ranks);
+        EPS.strideIds(rank + 1, ranks);
+
+        SimEngine engine = new SimEngine(0, width, 0, height);
+        engine.setPeriodic(periodic);
+        try (DistributedRegion region = new DistributedRegion(rank, addresses, 0, width)) {
+            engine.setRegion(region);
+
+            /*
+            Seed the colony, or pick it up from a checkpoint
+             */
+            long start = System.nanoTime();
+            double time = 0.0;
+            if (restore != null) {
+                time = region.restore(restore, engine.getBacteria(), engine.getEPS());
+                System.out.printf("Region %d restored %d bacteria and %d EPS at t=%.2f s from %s%n", rank,
+                        engine.getBacteria().size(), engine.getEPS().size(), time, restore);
+            } else {
+                ColonySeeder seeder = new ColonySeeder(0, 0, width, height);
+                seeder.setSeed(seed);
+                if (spot) {
+                    seeder.setDensityMap(DensityMap.spot(width / 2, height / 2, Math.min(width, height) / 6));
+                }
+                int seeded = seeder.seed(bacteriaCount, "StrainA", Bacterium.getMotility(), 0.0,
+                        engine.getBacteria(), centre -> region.owns(centre.getX()));
+                System.out.printf("Region %d seeded %d bacteria in %.1f ms%n", rank, seeded,
+                        (System.nanoTime() - start) / 1e6);
+            }
+            if (checkpoints != null) {
+                region.setCheckpoints(checkpoints, checkpointInterval, time + checkpointInterval);
+            }
+
+            /*
+            Run
+             */
+            if (rank == 0) {
+                System.out.printf("%d regions of %.0f across, dt=%.4g s%n", ranks, width / ranks,
+                        engine.getTimeStep());
+            }
+            start = System.nanoTime();
+            long step = 0;
+            while (time < seconds - engine.getTimeStep() / 2) {
+                engine.step(time);
+                time += engine.getTimeStep();
+                step++;
+                if (rank == 0 && step % REPORT_EVERY == 0) {
+                    double elapsed = (System.nanoTime() - start) / 1e9;
+                    System.out.printf("t=%.2f s  bacteria=%d  eps=%d  %.0f steps/s%n", time,
+                            region.getTotalBacteria(), region.getTotalEps(), step / elapsed);
+                }
+            }
+            region.finish(time, engine.getBacteria(), engine.getEPS());
+            report(region, engine, time, step, start);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid arguments: " + e.getMessage());
+            System.exit(2);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Region " + rank + " failed: " + e);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Starts one process of this runner per region, with the same arguments and JVM options, and waits for them
+     *
+     * @return 0 if every region finished, 1 otherwise
+     */
+    private static int launch(int ranks, String[] args) {
+        String java = ProcessHandle.current().info().command().orElse("java");
+        List<Process> processes = new ArrayList<>();
+        try {
+            for (int k = 0; k < ranks; k++) {
+                List<String> command = new ArrayList<>();
+                command.add(java);
+                command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+                command.add("-cp");
+                command.add(System.getProperty("java.class.path"));
+                command.add(DistributedRunner.class.getName());
+                command.addAll(List.of(args));
+                command.add("--rank");
+                command.add(String.valueOf(k));
+                processes.add(new ProcessBuilder(command).inheritIO().start());
+            }
+            int status = 0;
+            for (int k = 0; k < ranks; k++) {
+                if (processes.get(k).waitFor() != 0) {
+                    System.err.println("Region " + k + " exited with status " + processes.get(k).exitValue());
+                    status = 1;
+                }
+            }
+            return status;
+        } catch (IOException | InterruptedException e) {
+            System.err.println("Could not run the regions: " + e.getMessage());
+            processes.forEach(Process::destroy);
+            return 1;
+        }
+    }
+
+    private static void report(DistributedRegion region, SimEngine engine, double time, long step, long start) {
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        RegionNetwork network = region.getNetwork();
+        if (region.getRank() == 0) {
+            System.out.printf("t=%.2f s  bacteria=%d  eps=%d  %.0f steps/s%n", time, region.getTotalBacteria(),
+                    region.getTotalEps(), step / elapsed);
+        }
+        System.out.printf("region %d [%.0f, %.0f): bacteria=%d  eps=%d  %d ghosts, %d in, %d out, "
+                        + "%d PSL visits shared, %.1f kB sent, %.1f kB received, %.0f%% waiting%n",
+                region.getRank(), region.getStripStart(), region.getStripEnd(), engine.getBacteria().size(),
+                engine.getEPS().size(), region.getGhostCount(), region.getMigrationsIn(),
+                region.getMigrationsOut(), region.getVisitsShared(), network.getBytesSent() / 1e3,
+                network.getBytesReceived() / 1e3, 100 * network.getWaitNanos() / 1e9 / elapsed);
+    }
+}
@@ -0,0 +1,88 @@
+/**
+ * Times the same seeded film stepped on one thread and as a {@link DomainDecomposition} on 1, 2, 4, ... threads
+ * up to the number of processors, with the tiles kept as a fixed grid and with them rebalanced:
+ *
+ * <pre>
+ * java DomainBenchmark [bacteria] [seconds] [CxR] [spot]
+ * </pre>
+ *
+ * Division is switched off so the film keeps its size and every step costs the same. The bacteria are spread
+ * evenly over the environment, the homogeneous film the tiles share out best, or with {@code spot} packed into a
+ * spot at its centre, the clustered film a fixed grid shares out worst. The cost of a step is printed for every
+ * run together with its speedup over the single thread, the efficiency per thread, the imbalance of the tiles'
+ * work and how busy every thread was.
+ *
+ * @author Brian Mbawa, Seth McNevin, Gladwin Ngobeni
+ */
+public class DomainBenchmark {
+
+    public static void main(String[] args) {
+        int bacteria = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        double seconds = args.length > 1 ? Double.parseDouble(args[1]) : 5;
+        String tiles = args.length > 2 ? args[2] : "4x4";
+        boolean spot = args.length > 3 && args[3].equals("spot");
+        double side = Math.sqrt(bacteria) * 2 * Bacterium.SPAWN_SPACING * (spot ? 2 : 1);
+        Bacterium.setReproduction(false);
+
+        /*
+        Warm up the JIT so no run is timed cold
+         */
+        run(Math.min(bacteria, 200), 1, side, spot, null, 1, false);
+        run(Math.min(bacteria, 200), 1, side, spot, tiles, 1, true);
+
+        System.out.printf("%d bacteria %s on %.0f x %.0f, %.1f simulated seconds, %s tiles%n", bacteria,
+                spot ? "in a spot" : "spread evenly", side, side, seconds, tiles);
+        double serial = run(bacteria, seconds, side, spot, null, 1, false);
+        int processors = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads <= processors; threads *= 2) {
+            for (boolean balancing : new boolean[]{false, true}) {
+                double tiled = run(bacteria, seconds, side, spot, tiles, threads, balancing);
+                System.out.printf("  speedup %.2fx, efficiency %.0f%%%n", serial / tiled,
+                        100 * serial / tiled / threads);
+            }
+        }
+    }
+
+    /**
+     * @return wall seconds of the run
+     */
+    private static double run(int count, double seconds, double side, boolean spot, String tiles, int threads,
+                              boolean balancing) {
+        SimEngine engine = new SimEngine(0, side, 0, side);
+        DomainDecomposition domains = null;
+        if (tiles != null) {
+            domains = DomainDecomposition.parse(tiles, threads, 0, side, 0, side);
+            domains.setBalancing(balancing);
+            engine.setDomains(domains);
+        }
+        ColonySeeder seeder = new ColonySeeder(0, 0, side, side);
+        seeder.setSeed(42);
+        if (spot) {
+            seeder.setDensityMap(DensityMap.spot(side / 2, side / 2, side / 6));
+        }
+        int seeded = seeder.seed(count, "StrainA", Bacterium.getMotility(), 0.0, engine.getBacteria());
+        EPS.BOND_CHECK_TIME = 0;
+        long steps = Math.round(seconds / engine.getTimeStep());
+        double time = 0;
+        long start = System.nanoTime();
+        for (long step = 0; step < steps; step++) {
+            engine.step(time);
+            time += engine.getTimeStep();
+        }
+        double wall = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-34s %6d steps %8.2f s %9.3f ms per step %7d EPS%n",
+                tiles == null ? "one thread" : tiles + " tiles" + (balancing ? " rebalanced, " : ", ") + threads
+                        + " threads", steps, wall, wall * 1e3 / steps, engine.getEPS().size());
+        if (domains != null) {
+            StringBuilder utilization = new StringBuilder();
+            for (double busy : domains.getUtilization()) {
+                utilization.append(String.format(" %.0f%%", 100 * busy));
+            }
+            System.out.printf("  imbalance %.2f, %d rebalances, threads busy%s%n", domains.getImbalance(),
+                    domains.getRebalances(), utilization);
+        }
+        engine.setDomains(null);
+        engine.clear();
+        return wall;
+    }
+}
@@ -0,0 +1,906 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Splits the environment into a grid of rectangular tiles and steps the tiles on a fork/join pool. Every
+ * {@link Bacterium} belongs to the tile holding its centre particle and every {@link EPS} particle to the tile
+ * holding it; a tile moves the bodies it owns, and bodies that have crossed into another tile after a move
+ * migrate to it.
+ * <p>
+ * The pair forces of a tile are evaluated by a {@link ForceField} of its own over the bodies it owns and the
+ * ghosts of its halo: the bodies of other tiles with a particle within the range of the pair terms of the
+ * bounding box of its own particles. A field drops the forces on its ghosts, so every pair across a tile border
+ * is evaluated by both tiles, each keeping the force on its own particle, and no two threads write to the same
+ * particle. Sleeping particles found in range of awake ones are woken once all tiles are done.
+ * <p>
+ * Bond formation, sleep checks and rigid cluster checks change particles of several tiles at once, so on the
+ * steps they happen the simulation evaluates its pair forces with its own field instead. Moves run on the tiles
+ * unless an {@link AdaptiveStepper} is watching them.
+ * <p>
+ * The tiles are the leaves of a bisection tree, which starts out as a grid of equal tiles. A colony is far from
+ * even -- dense microcolonies next to empty space -- so the work of every tile is counted every step, as the
+ * particles it moves, the particles it collects for its field and the pairs its field finds. Every
+ * {@link #BALANCE_STEPS} steps, if the busiest tile did more than {@link #MAX_IMBALANCE} times the mean work, the
+ * tree is built afresh by recursive bisection: the bodies are split across the longer side of a node so that each
+ * side gets the share of their work that matches its share of the tiles, each body weighing its particles at the
+ * work per particle its tile was counted at. Work is counted rather than timed, since a tile takes well under a
+ * millisecond and a pause of the JVM would make any tile look slow. The pool meanwhile steals tiles from busy
+ * threads for idle ones, and the time each thread spends on tiles is kept, so its utilization can be reported.
+ * <p>
+ * Tiles are switched on with {@code -Dbiofilm.tiles=COLUMNSxROWS} and run on {@code -Dbiofilm.threads} threads,
+ * by default one per processor. Balancing is switched off with {@code -Dbiofilm.balance=false}.
+ *
+ * @author Brian Mbawa, Seth McNevin, Gladwin Ngobeni
+ */
+public class DomainDecomposition {
+
+    /**
+     * Threads stepping the tiles, set with -Dbiofilm.threads
+     */
+    static final int THREADS = Integer.getInteger("biofilm.threads", Runtime.getRuntime().availableProcessors());
+
+    /**
+     * True if the tiles are rebalanced, switched off with -Dbiofilm.balance=false
+     */
+    static final boolean BALANCE = !"false".equalsIgnoreCase(System.getProperty("biofilm.balance"));
+
+    /**
+     * Steps between balance checks
+     */
+    static final int BALANCE_STEPS = 50;
+
+    /**
+     * Ratio of the busiest tile's work to the mean tile's beyond which the tiles are rebalanced
+     */
+    static final double MAX_IMBALANCE = 1.25;
+
+    /**
+     * Particles of a bacterium
+     */
+    private static final int BACTERIUM_PARTICLES = 7;
+
+    /**
+     * A rectangle of the environment, the bodies it owns and the halo of ghosts around them
+     */
+    static final class Tile {
+        /*
+        Rectangle of the environment the tile covers
+         */
+        double xMin;
+        double xMax;
+        double yMin;
+        double yMax;
+
+        /**
+         * Bodies owned by the tile
+         */
+        final List<Bacterium> bacteria = new ArrayList<>();
+        final List<EPS> eps = new ArrayList<>();
+
+        /*
+        Owned bodies followed by the ghosts of the halo, for the force field of the tile
+         */
+        private final List<Bacterium> localBacteria = new ArrayList<>();
+        private final List<EPS> localEps = new ArrayList<>();
+
+        /*
+        Bounding box of the particles owned by the tile, as a centre and half sizes -- negative when it owns none
+         */
+        private double centreX;
+        private double centreY;
+        private double halfWidth = -1;
+        private double halfHeight = -1;
+
+        /*
+        Bodies found outside the tile after a move
+         */
+        private final List<Bacterium> leavingBacteria = new ArrayList<>();
+        private final List<EPS> leavingEps = new ArrayList<>();
+
+        private ForceField field;
+
+        /*
+        Integrator of the tile's thread, and the integrator of the simulation it was taken from
+         */
+        private Integrator integrator;
+        private Integrator integratorSource;
+
+        /*
+        Work counted on the tile and particles it owned, summed over the steps since the last balance check
+         */
+        private long work;
+        private long load;
+
+        /**
+         * @return particles of the bodies the tile owns
+         */
+        int getParticleCount() {
+            return BACTERIUM_PARTICLES * bacteria.size() + eps.size();
+        }
+
+        /**
+         * @return number of ghosts in the halo of the last evaluation
+         */
+        int getGhostCount() {
+            return localBacteria.size() - bacteria.size() + localEps.size() - eps.size();
+        }
+    }
+
+    /**
+     * Applies an action to a range of tiles, splitting the range in halves until one tile is left
+     */
+    private final class TileTask extends RecursiveAction {
+
+        /**
+         * Fork/join tasks are serializable, though tile tasks are never serialised
+         */
+        private static final long serialVersionUID = 1L;
+
+        private final transient Consumer<Tile> action;
+        private final int from;
+        private final int to;
+
+        private TileTask(Consumer<Tile> action, int from, int to) {
+            this.action = action;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                long start = System.nanoTime();
+                action.accept(tiles[from]);
+                busy.computeIfAbsent(Thread.currentThread(), thread -> new long[1])[0] += System.nanoTime() - start;
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new TileTask(action, from, middle), new TileTask(action, middle, to));
+            }
+        }
+    }
+
+    private final int columns;
+    private final int rows;
+    private final double xMin;
+    private final double xMax;
+    private final double yMin;
+    private final double yMax;
+    private final Tile[] tiles;
+    private final ForkJoinPool pool;
+
+    /*
+    Bisection tree of the tiles -- node n splits at cut[n] across x if acrossX[n], otherwise across y, and its
+    children are below[n] and above[n], a child -1 - t being tile t
+     */
+    private final int[] below;
+    private final int[] above;
+    private final double[] cut;
+    private final boolean[] acrossX;
+    private int nodeCount;
+
+    /*
+    Bodies of a rebalance in the order the bisection splits them, and their positions and weights
+     */
+    private Object[] bodies = new Object[256];
+    private double[] bodyX = new double[256];
+    private double[] bodyY = new double[256];
+    private double[] weight = new double[256];
+
+    private boolean balancing = BALANCE;
+    private int stepsSinceBalance;
+    private int rebalances;
+    private double imbalance = 1;
+
+    /**
+     * Nanoseconds each thread spent on tiles, written only by that thread
+     */
+    private final Map<Thread, long[]> busy = new ConcurrentHashMap<>();
+
+    /**
+     * Nanoseconds the pool spent on tiles, from handing them out until the last was done
+     */
+    private long wall;
+
+    /**
+     * Periodic boundaries of the environment, null for none
+     */
+    private PeriodicBox box;
+
+    /**
+     * Range of the pair terms -- how far a halo reaches beyond the particles of its tile
+     */
+    private double range;
+
+    /*
+    EPS particles assigned to tiles so far, and whether the assignment must be made afresh
+     */
+    private int assignedEps;
+    private boolean stale = true;
+
+    private long migrations;
+
+    /**
+     * @param columns tiles across the environment
+     * @param rows tiles down the environment
+     * @param xMin minimum environment x value
+     * @param xMax maximum environment x value
+     * @param yMin minimum environment y value
+     * @param yMax maximum environment y value
+     * @param threads threads stepping the tiles
+     */
+    public DomainDecomposition(int columns, int rows, double xMin, double xMax, double yMin, double yMax, int threads) {
+        if (columns < 1 || rows < 1 || threads < 1) {
+            throw new IllegalArgumentException("Tiles and threads must be at least 1");
+        }
+        this.columns = columns;
+        this.rows = rows;
+        this.xMin = xMin;
+        this.xMax = xMax;
+        this.yMin = yMin;
+        this.yMax = yMax;
+        tiles = new Tile[columns * rows];
+        for (int t = 0; t < tiles.length; t++) {
+            tiles[t] = new Tile();
+        }
+        below = new int[tiles.length];
+        above = new int[tiles.length];
+        cut = new double[tiles.length];
+        acrossX = new boolean[tiles.length];
+        splitGrid(0, columns, 0, rows, 0);
+        pool = new ForkJoinPool(threads);
+    }
+
+    /**
+     * Lays out the tiles from a range of grid columns and rows, halving the longer range first
+     *
+     * @param tile first tile of the range
+     * @return the node splitting the range, or -1 - t for a range of the single tile t
+     */
+    private int splitGrid(int column0, int column1, int row0, int row1, int tile) {
+        double width = (xMax - xMin) / columns;
+        double height = (yMax - yMin) / rows;
+        if (column1 - column0 == 1 && row1 - row0 == 1) {
+            Tile leaf = tiles[tile];
+            leaf.xMin = xMin + column0 * width;
+            leaf.xMax = xMin + column1 * width;
+            leaf.yMin = yMin + row0 * height;
+            leaf.yMax = yMin + row1 * height;
+            return -1 - tile;
+        }
+        int node = nodeCount++;
+        boolean wider = (column1 - column0) * width >= (row1 - row0) * height;
+        acrossX[node] = row1 - row0 == 1 || column1 - column0 > 1 && wider;
+        if (acrossX[node]) {
+            int middle = (column0 + column1) / 2;
+            cut[node] = xMin + middle * width;
+            below[node] = splitGrid(column0, middle, row0, row1, tile);
+            above[node] = splitGrid(middle, column1, row0, row1, tile + (middle - column0) * (row1 - row0));
+        } else {
+            int middle = (row0 + row1) / 2;
+            cut[node] = yMin + middle * height;
+            below[node] = splitGrid(column0, column1, row0, middle, tile);
+            above[node] = splitGrid(column0, column1, middle, row1, tile + (column1 - column0) * (middle - row0));
+        }
+        return node;
+    }
+
+    /**
+     * @param tiles tiles as COLUMNSxROWS
+     * @param threads threads stepping the tiles
+     * @param xMin minimum environment x value
+     * @param xMax maximum environment x value
+     * @param yMin minimum environment y value
+     * @param yMax maximum environment y value
+     * @return a decomposition of the environment into those tiles
+     * @throws IllegalArgumentException if the tiles are not given as COLUMNSxROWS
+     */
+    static DomainDecomposition parse(String tiles, int threads, double xMin, double xMax, double yMin, double yMax) {
+        String[] parts = tiles.toLowerCase().split("x");
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("Tiles must be given as COLUMNSxROWS");
+        }
+        return new DomainDecomposition(Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim()),
+                xMin, xMax, yMin, yMax, threads);
+    }
+
+    /**
+     * @return a decomposition configured by -Dbiofilm.tiles=COLUMNSxROWS, or null if tiles are not asked for
+     */
+    static DomainDecomposition fromProperties(double xMin, double xMax, double yMin, double yMax) {
+        String tiles = System.getProperty("biofilm.tiles");
+        return tiles == null ? null : parse(tiles, THREADS, xMin, xMax, yMin, yMax);
+    }
+
+    /**
+     * Gives every tile a field with the pair terms of the simulation's own
+     *
+     * @param field the force field of the simulation
+     * @param box periodic boundaries of the environment, null for none
+     */
+    public void configure(ForceField field, PeriodicBox box) {
+        this.box = box;
+        this.range = field.getRange();
+        for (Tile tile : tiles) {
+            tile.field = field.tileCopy();
+        }
+    }
+
+    /**
+     * Brings the tiles up to date with the bodies of the simulation: EPS particles added at the end of the list
+     * are admitted to their tiles, and every body is assigned afresh if the bacteria changed in a way the tiles
+     * were not told of or EPS particles were removed
+     *
+     * @param bacteria {@link Bacterium}s in the simulation
+     * @param bacteriaChanged true if bacteria were added or removed other than by {@link #replace}
+     * @param eps {@link EPS} particles in the simulation
+     */
+    public void sync(List<Bacterium> bacteria, boolean bacteriaChanged, List<EPS> eps) {
+        if (stale || bacteriaChanged || eps.size() < assignedEps) {
+            for (Tile tile : tiles) {
+                tile.bacteria.clear();
+                tile.eps.clear();
+            }
+            for (Bacterium bacterium : bacteria) {
+                tileOf(bacterium).bacteria.add(bacterium);
+            }
+            assignedEps = 0;
+            stale = false;
+        }
+        for (int i = assignedEps; i < eps.size(); i++) {
+            tileOf(eps.get(i)).eps.add(eps.get(i));
+        }
+        assignedEps = eps.size();
+    }
+
+    /**
+     * Forgets every body, so that they are all assigned afresh at the next {@link #sync}
+     */
+    public void invalidate() {
+        stale = true;
+    }
+
+    /**
+     * Replaces a divided bacterium with its daughters in the tiles
+     *
+     * @param father the dividing bacterium
+     * @param daughters its daughters
+     */
+    public void replace(Bacterium father, List<Bacterium> daughters) {
+        if (!removeFrom(tileOf(father).bacteria, father)) {
+            for (Tile tile : tiles) {
+                if (removeFrom(tile.bacteria, father)) {
+                    break;
+                }
+            }
+        }
+        for (Bacterium daughter : daughters) {
+            tileOf(daughter).bacteria.add(daughter);
+        }
+    }
+
+    /**
+     * Adds the forces of the pair terms to every particle, each tile evaluating its own bodies and its halo on
+     * a thread of the pool
+     *
+     * @param currentTime simulation time
+     * @param timeStep length of time the forces act for
+     */
+    public void evaluatePairs(double currentTime, double timeStep) {
+        forEachTile(this::measure);
+        forEachTile(tile -> {
+            gatherHalo(tile);
+            tile.field.evaluatePairs(tile.localBacteria, tile.bacteria.size(), tile.localEps, tile.eps.size(),
+                    currentTime, timeStep);
+            tile.work += tile.field.getParticleCount() + tile.field.getPairCount();
+        });
+
+        /*
+        Wake the islands the tiles found disturbed
+         */
+        for (Tile tile : tiles) {
+            for (EPS sleeping : tile.field.getWakes()) {
+                sleeping.wake();
+            }
+            tile.field.getWakes().clear();
+        }
+    }
+
+    /**
+     * Moves the bodies of every tile on a thread of the pool, then migrates the bodies that left their tiles
+     *
+     * @param integrator integrator of the simulation, of which each tile takes a copy for its thread
+     * @param moveBacterium moves a bacterium with an integrator
+     * @param moveEps moves an EPS particle with an integrator
+     */
+    public void move(Integrator integrator, BiConsumer<Bacterium, Integrator> moveBacterium,
+                     BiConsumer<EPS, Integrator> moveEps) {
+        for (Tile tile : tiles) {
+            if (tile.integratorSource != integrator) {
+                tile.integrator = integrator.forThread();
+                tile.integratorSource = integrator;
+            }
+        }
+        forEachTile(tile -> {
+            for (Bacterium bacterium : tile.bacteria) {
+                moveBacterium.accept(bacterium, tile.integrator);
+            }
+            for (EPS epsParticle : tile.eps) {
+                moveEps.accept(epsParticle, tile.integrator);
+            }
+            findLeaving(tile);
+        });
+        handOver();
+        balance();
+    }
+
+    /**
+     * Migrates the bodies moved out of their tiles other than by {@link #move} to the tiles they are in now
+     */
+    public void migrate() {
+        forEachTile(this::findLeaving);
+        handOver();
+        balance();
+    }
+
+    /**
+     * Counts a step, and every {@link #BALANCE_STEPS} steps rebalances the tiles if the busiest did more than
+     * {@link #MAX_IMBALANCE} times the mean work
+     */
+    private void balance() {
+        for (Tile tile : tiles) {
+            int particles = tile.getParticleCount();
+            tile.load += particles;
+            tile.work += particles;
+        }
+        if (++stepsSinceBalance < BALANCE_STEPS) {
+            return;
+        }
+        stepsSinceBalance = 0;
+        long total = 0;
+        long busiest = 0;
+        for (Tile tile : tiles) {
+            total += tile.work;
+            busiest = Math.max(busiest, tile.work);
+        }
+        imbalance = total > 0 ? (double) busiest * tiles.length / total : 1;
+        if (balancing && busiest > MAX_IMBALANCE * total / tiles.length) {
+            rebalance();
+            rebalances++;
+        }
+        for (Tile tile : tiles) {
+            tile.work = 0;
+            tile.load = 0;
+        }
+    }
+
+    /**
+     * Builds the bisection tree afresh so that every tile gets an equal share of the counted work, and hands
+     * every body to its new tile
+     */
+    private void rebalance() {
+        /*
+        Work per particle of every tile, the mean one for tiles that owned none
+         */
+        long totalWork = 0;
+        long totalLoad = 0;
+        for (Tile tile : tiles) {
+            totalWork += tile.work;
+            totalLoad += tile.load;
+        }
+        double meanCost = totalLoad > 0 ? (double) totalWork / totalLoad : 1;
+
+        /*
+        Every body with its owner point and its weight
+         */
+        int count = 0;
+        for (Tile tile : tiles) {
+            count += tile.bacteria.size() + tile.eps.size();
+        }
+        if (bodies.length < count) {
+            int capacity = Math.max(count, bodies.length * 2);
+            bodies = new Object[capacity];
+            bodyX = new double[capacity];
+            bodyY = new double[capacity];
+            weight = new double[capacity];
+        }
+        int n = 0;
+        for (Tile tile : tiles) {
+            double cost = tile.load > 0 ? (double) tile.work / tile.load : meanCost;
+            for (Bacterium bacterium : tile.bacteria) {
+                PVector centre = bacterium.getParticles().get(3).getPosition();
+                bodies[n] = bacterium;
+                bodyX[n] = centre.getX();
+                bodyY[n] = centre.getY();
+                weight[n++] = BACTERIUM_PARTICLES * cost;
+            }
+            for (EPS epsParticle : tile.eps) {
+                bodies[n] = epsParticle;
+                bodyX[n] = epsParticle.getPosition().getX();
+                bodyY[n] = epsParticle.getPosition().getY();
+                weight[n++] = cost;
+            }
+            tile.bacteria.clear();
+            tile.eps.clear();
+        }
+
+        nodeCount = 0;
+        bisect(0, n, 0, tiles.length, xMin, xMax, yMin, yMax);
+    }
+
+    /**
+     * Splits a range of bodies between a range of tiles, across the longer side of their rectangle at the point
+     * that gives each side the share of the weight matching its share of the tiles
+     *
+     * @return the node splitting the range, or -1 - t for a range of the single tile t
+     */
+    private int bisect(int from, int to, int tile0, int tile1, double x0, double x1, double y0, double y1) {
+        if (tile1 - tile0 == 1) {
+            Tile leaf = tiles[tile0];
+            leaf.xMin = x0;
+            leaf.xMax = x1;
+            leaf.yMin = y0;
+            leaf.yMax = y1;
+            for (int i = from; i < to; i++) {
+                if (bodies[i] instanceof Bacterium bacterium) {
+                    leaf.bacteria.add(bacterium);
+                } else {
+                    leaf.eps.add((EPS) bodies[i]);
+                }
+            }
+            return -1 - tile0;
+        }
+
+        /*
+        Order the bodies across the longer side and find where the lower tiles' share of the weight ends
+         */
+        boolean alongX = x1 - x0 >= y1 - y0;
+        double[] coordinate = alongX ? bodyX : bodyY;
+        sortBodies(from, to, coordinate);
+        int lowerTiles = (tile1 - tile0) / 2;
+        double total = 0;
+        for (int i = from; i < to; i++) {
+            total += weight[i];
+        }
+        double share = total * lowerTiles / (tile1 - tile0);
+        int split = from;
+        double sum = 0;
+        while (split < to && sum + weight[split] / 2 < share) {
+            sum += weight[split++];
+        }
+        double low = alongX ? x0 : y0;
+        double high = alongX ? x1 : y1;
+        double at;
+        if (split == from || split == to) {
+            at = low + (high - low) * lowerTiles / (tile1 - tile0);
+        } else {
+            at = (coordinate[split - 1] + coordinate[split]) / 2;
+        }
+
+        int node = nodeCount++;
+        acrossX[node] = alongX;
+        cut[node] = at;
+        if (alongX) {
+            below[node] = bisect(from, split, tile0, tile0 + lowerTiles, x0, at, y0, y1);
+            above[node] = bisect(split, to, tile0 + lowerTiles, tile1, at, x1, y0, y1);
+        } else {
+            below[node] = bisect(from, split, tile0, tile0 + lowerTiles, x0, x1, y0, at);
+            above[node] = bisect(split, to, tile0 + lowerTiles, tile1, x0, x1, at, y1);
+        }
+        return node;
+    }
+
+    /**
+     * Sorts a range of the bodies, with their positions and weights, by one coordinate
+     */
+    private void sortBodies(int from, int to, double[] coordinate) {
+        Integer[] order = new Integer[to - from];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = from + i;
+        }
+        Arrays.sort(order, Comparator.comparingDouble(i -> coordinate[i]));
+        Object[] sortedBodies = new Object[order.length];
+        double[] sortedX = new double[order.length];
+        double[] sortedY = new double[order.length];
+        double[] sortedWeight = new double[order.length];
+        for (int i = 0; i < order.length; i++) {
+            sortedBodies[i] = bodies[order[i]];
+            sortedX[i] = bodyX[order[i]];
+            sortedY[i] = bodyY[order[i]];
+            sortedWeight[i] = weight[order[i]];
+        }
+        System.arraycopy(sortedBodies, 0, bodies, from, order.length);
+        System.arraycopy(sortedX, 0, bodyX, from, order.length);
+        System.arraycopy(sortedY, 0, bodyY, from, order.length);
+        System.arraycopy(sortedWeight, 0, weight, from, order.length);
+    }
+
+    /**
+     * Hands the bodies that left a tile to the tiles they are in now
+     */
+    private void handOver() {
+        for (Tile tile : tiles) {
+            for (Bacterium bacterium : tile.leavingBacteria) {
+                tileOf(bacterium).bacteria.add(bacterium);
+            }
+            for (EPS epsParticle : tile.leavingEps) {
+                tileOf(epsParticle).eps.add(epsParticle);
+            }
+            migrations += tile.leavingBacteria.size() + tile.leavingEps.size();
+            tile.leavingBacteria.clear();
+            tile.leavingEps.clear();
+        }
+    }
+
+    /**
+     * Finds the bounding box of the particles a tile owns
+     */
+    private void measure(Tile tile) {
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (Bacterium bacterium : tile.bacteria) {
+            for (Particle particle : bacterium.getParticles()) {
+                PVector position = particle.getPosition();
+                minX = Math.min(minX, position.getX());
+                minY = Math.min(minY, position.getY());
+                maxX = Math.max(maxX, position.getX());
+                maxY = Math.max(maxY, position.getY());
+            }
+        }
+        for (EPS epsParticle : tile.eps) {
+            PVector position = epsParticle.getPosition();
+            minX = Math.min(minX, position.getX());
+            minY = Math.min(minY, position.getY());
+            maxX = Math.max(maxX, position.getX());
+            maxY = Math.max(maxY, position.getY());
+        }
+        if (minX > maxX) {
+            tile.halfWidth = -1;
+            tile.halfHeight = -1;
+            return;
+        }
+        tile.centreX = (minX + maxX) / 2;
+        tile.centreY = (minY + maxY) / 2;
+        tile.halfWidth = (maxX - minX) / 2;
+        tile.halfHeight = (maxY - minY) / 2;
+    }
+
+    /**
+     * Lists the bodies a tile owns followed by the ghosts of its halo, taken from every tile whose particles come
+     * within range of its own
+     */
+    private void gatherHalo(Tile tile) {
+        tile.localBacteria.clear();
+        tile.localEps.clear();
+        if (tile.halfWidth < 0) {
+            return;
+        }
+        tile.localBacteria.addAll(tile.bacteria);
+        tile.localEps.addAll(tile.eps);
+        double reachX = tile.halfWidth + range;
+        double reachY = tile.halfHeight + range;
+        for (Tile other : tiles) {
+            if (other == tile || other.halfWidth < 0
+                    || !within(other.centreX - tile.centreX, reachX + other.halfWidth, true)
+                    || !within(other.centreY - tile.centreY, reachY + other.halfHeight, false)) {
+                continue;
+            }
+            for (Bacterium bacterium : other.bacteria) {
+                for (Particle particle : bacterium.getParticles()) {
+                    if (inHalo(tile, particle.getPosition(), reachX, reachY)) {
+                        tile.localBacteria.add(bacterium);
+                        break;
+                    }
+                }
+            }
+            for (EPS epsParticle : other.eps) {
+                if (inHalo(tile, epsParticle.getPosition(), reachX, reachY)) {
+                    tile.localEps.add(epsParticle);
+                }
+            }
+        }
+    }
+
+    private boolean inHalo(Tile tile, PVector position, double reachX, double reachY) {
+        return within(position.getX() - tile.centreX, reachX, true)
+                && within(position.getY() - tile.centreY, reachY, false);
+    }
+
+    /**
+     * @param delta difference of two coordinates
+     * @param reach largest difference allowed
+     * @param alongX true for x coordinates, false for y coordinates
+     * @return true if the coordinates are no further apart than the reach, across periodic boundaries the
+     * nearest images
+     */
+    private boolean within(double delta, double reach, boolean alongX) {
+        if (box == null) {
+            return Math.abs(delta) <= reach;
+        }
+        double length = alongX ? box.getWidth() : box.getHeight();
+        return reach >= length / 2 || Math.abs(alongX ? box.imageX(delta) : box.imageY(delta)) <= reach;
+    }
+
+    /**
+     * Moves the bodies a tile no longer holds to its leaving lists
+     */
+    private void findLeaving(Tile tile) {
+        for (int i = tile.bacteria.size() - 1; i >= 0; i--) {
+            Bacterium bacterium = tile.bacteria.get(i);
+            if (tileOf(bacterium) != tile) {
+                tile.leavingBacteria.add(bacterium);
+                swapRemove(tile.bacteria, i);
+            }
+        }
+        for (int i = tile.eps.size() - 1; i >= 0; i--) {
+            EPS epsParticle = tile.eps.get(i);
+            if (tileOf(epsParticle) != tile) {
+                tile.leavingEps.add(epsParticle);
+                swapRemove(tile.eps, i);
+            }
+        }
+    }
+
+    private Tile tileOf(Bacterium bacterium) {
+        return tileAt(bacterium.getParticles().get(3).getPosition());
+    }
+
+    private Tile tileOf(EPS epsParticle) {
+        return tileAt(epsParticle.getPosition());
+    }
+
+    /**
+     * @return the tile holding a position, the nearest edge tile for positions outside the environment
+     */
+    private Tile tileAt(PVector position) {
+        if (tiles.length == 1) {
+            return tiles[0];
+        }
+        int node = 0;
+        while (true) {
+            double coordinate = acrossX[node] ? position.getX() : position.getY();
+            int child = coordinate < cut[node] ? below[node] : above[node];
+            if (child < 0) {
+                return tiles[-1 - child];
+            }
+            node = child;
+        }
+    }
+
+    private void forEachTile(Consumer<Tile> action) {
+        long start = System.nanoTime();
+        pool.invoke(new TileTask(action, 0, tiles.length));
+        wall += System.nanoTime() - start;
+    }
+
+    private static <T> boolean removeFrom(List<T> list, T member) {
+        for (int i = 0; i < list.size(); i++) {
+            if (list.get(i) == member) {
+                swapRemove(list, i);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static <T> void swapRemove(List<T> list, int index) {
+        int last = list.size() - 1;
+        list.set(index, list.get(last));
+        list.remove(last);
+    }
+
+    /**
+     * @return number of tiles
+     */
+    public int getTileCount() {
+        return tiles.length;
+    }
+
+    /**
+     * @return tiles across the environment
+     */
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * @return tiles down the environment
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * @return threads stepping the tiles
+     */
+    public int getThreads() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * @return ghosts in the halos of the last evaluation, summed over the tiles
+     */
+    public int getGhostCount() {
+        int ghosts = 0;
+        for (Tile tile : tiles) {
+            ghosts += tile.getGhostCount();
+        }
+        return ghosts;
+    }
+
+    /**
+     * @return bodies that moved from one tile to another since the simulation started
+     */
+    public long getMigrations() {
+        return migrations;
+    }
+
+    /**
+     * @return times the tiles were rebalanced since the simulation started
+     */
+    public int getRebalances() {
+        return rebalances;
+    }
+
+    /**
+     * @return ratio of the busiest tile's work to the mean tile's over the last {@link #BALANCE_STEPS} steps,
+     * counted before any rebalance -- the factor by which a step on as many threads as tiles is longer than it
+     * would be on perfectly balanced tiles
+     */
+    public double getImbalance() {
+        return imbalance;
+    }
+
+    /**
+     * @param balancing true to rebalance the tiles as their costs drift apart
+     */
+    public void setBalancing(boolean balancing) {
+        this.balancing = balancing;
+    }
+
+    /**
+     * @return for every thread that stepped tiles, busiest first, the fraction of the pool's time on tiles it spent
+     * working
+     */
+    public double[] getUtilization() {
+        double[] utilization = new double[busy.size()];
+        int i = 0;
+        for (long[] nanos : busy.values()) {
+            utilization[i++] = wall > 0 ? (double) nanos[0] / wall : 0;
+        }
+        Arrays.sort(utilization);
+        for (int j = 0; j < utilization.length / 2; j++) {
+            double swap = utilization[j];
+            utilization[j] = utilization[utilization.length - 1 - j];
+            utilization[utilization.length - 1 - j] = swap;
+        }
+        return utilization;
+    }
+
+    /**
+     * @return rectangles of the tiles as xMin, xMax, yMin, yMax
+     */
+    public double[][] getTileBounds() {
+        double[][] bounds = new double[tiles.length][];
+        for (int t = 0; t < tiles.length; t++) {
+            bounds[t] = new double[]{tiles[t].xMin, tiles[t].xMax, tiles[t].yMin, tiles[t].yMax};
+        }
+        return bounds;
+    }
+
+    /**
+     * Stops the threads of the pool
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+}
@@ -1,3 +1,5 @@
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.*;
 
@@ -9,6 +11,8 @@ import java.util.*;
  */
 public class EPS extends Particle implements Serializable {
 
+    private static final long serialVersionUID = 3656481642521042460L;
+
     /**
      * EPS bonding parameters and bonds
      */
@@ -19,11 +23,56 @@ public class EPS extends Particle implements Serializable {
     private static final double MEAN_BOND = 0.3;
     protected static double BOND_CHECK_TIME = 0.0;
 
+    /**
+     * Chance that one attempt to bond with a particle inside the cut-off succeeds
+     */
+    private static final double BOND_PROBABILITY = 0.1;
+
+    /**
+     * Attempts left until the next successful one. Independent attempts that each succeed with
+     * {@link #BOND_PROBABILITY} are a geometric number of attempts apart, so the gap to the next success is
+     * drawn once per bond instead of drawing once per attempt.
+     */
+    private static long attemptsToNextBond = nextBondGap();
+
+    /**
+     * Identifier of this EPS particle, stable for the whole run -- 0 only for particles read from old saves
+     */
+    private int id;
+
+    /**
+     * Identifier handed to the next EPS particle created, and the step between identifiers handed out -- above 1
+     * in a distributed run, whose regions hand out interleaved identifiers
+     */
+    private static int nextId = 1;
+    private static int idStride = 1;
+
     /**
      * The particles {@link Bacterium}s and EPS, that this particle has bonded with
      */
     private final List<Particle> bondedParticles;
 
+    /**
+     * Island this particle sleeps in with its neighbours, null while it is awake
+     */
+    private transient IslandSleeper.Island island;
+
+    /**
+     * Rigid cluster this particle is held in, null while it moves on its own
+     */
+    private transient RigidClusters.Cluster cluster;
+
+    /**
+     * Position at the last sleep check
+     */
+    private transient double anchorX = Double.NaN;
+    private transient double anchorY = Double.NaN;
+
+    /**
+     * Index of this particle during a sleep check
+     */
+    transient int sleepIndex;
+
 
     /**
      * WCA potential parameters
@@ -32,6 +81,27 @@ public class EPS extends Particle implements Serializable {
     private static final double CUT_OFF = Math.pow(2, 1.0/6.0) * SIGMA;
     private static final double EPSILON = 0.5;
 
+    /**
+     * Rest length and stiffness of the bonds between EPS particles
+     */
+    static final double BOND_LENGTH = SIGMA;
+    static final double BOND_STIFFNESS = 200 * EPSILON;
+
+    /**
+     * Bonds act only between particles closer than the cut-off, below this distance their laws are evaluated analytically
+     */
+    private static final double MIN_TABULATED_DISTANCE = 1;
+
+    /**
+     * Bond laws as force per unit separation against the squared distance, so a bond force is r * law(r²)
+     */
+    private static final ForceTable EPS_BOND_TABLE = new ForceTable("EPS bond",
+            distanceSquared -> distanceSquared == 0 ? 0 : -BOND_STIFFNESS * (1 - BOND_LENGTH / Math.sqrt(distanceSquared)),
+            MIN_TABULATED_DISTANCE * MIN_TABULATED_DISTANCE, CUT_OFF * CUT_OFF, 1e-4);
+    private static final ForceTable EPS_BACTERIUM_BOND_TABLE = new ForceTable("EPS-bacterium bond",
+            distanceSquared -> distanceSquared == 0 ? 0 : -100 * EPSILON * (2 - (SIGMA + Bacterium.SIGMA) / Math.sqrt(distanceSquared)),
+            MIN_TABULATED_DISTANCE * MIN_TABULATED_DISTANCE, CUT_OFF * CUT_OFF, 1e-4);
+
     /**
      * Creates an EPS particle at this position if the screen
      *
@@ -42,39 +112,104 @@ public class EPS extends Particle implements Serializable {
     public EPS (double x, double y, PVector velocity, PVector direction) {
         super(x,y,velocity,direction);
         bondedParticles = new ArrayList<>();
+        id = newId();
     }
 
     /**
-     * Applies forces onto this EPS particle
-     *
-     * @param currentTime Simulation Time
-     * @param otherEPS other EPS {@link Particle}s in the simulation
-     * @param bacteria {@link Bacterium}s in the simulation
+     * Bonds between EPS particles, as a {@link ForceField} term. A particle may bond with another closer
+     * than the cut-off whenever bonds are checked, and pulls on every particle it has bonded with. Only a particle
+     * owned by the evaluation forms bonds; the bonds of a ghost are those of its owner.
      */
-    public void move(double currentTime, List<EPS> otherEPS, List<Bacterium> bacteria) {
+    static final ForceField.PairTerm EPS_BOND_TERM = new ForceField.PairTerm() {
+        @Override
+        public double range() {
+            return CUT_OFF;
+        }
 
-        /*
-        The thermal velocity of this particle -- almost negligible
-         */
-        thermalVelocity();
+        @Override
+        public void apply(ForceField.Pair pair) {
+            EPS eps = (EPS) pair.first;
+            if (!pair.firstGhost) {
+                eps.tryBond(pair.second, pair.distance, pair.currentTime);
+            }
+            if (pair.distance < CUT_OFF && eps.bondedParticles.contains(pair.second)) {
+                PVector force = eps.calculateEpsBondForce(new PVector(pair.dx, pair.dy, pair.dz));
 
+                if (!pair.firstGhost) {
+                    eps.getNetForce().add(force.multiply(1));
+                }
+                if (!pair.secondGhost) {
+                    pair.second.getNetForce().add(force.multiply(-1));
+                }
+            }
+        }
 
-        /*
-        Applies WCA force between this eps and other eps within CUT_OFF distance
-         */
-        applyWCAForces(otherEPS);
+        @Override
+        public double energy(ForceField.Pair pair) {
+            if (pair.distance < CUT_OFF && ((EPS) pair.first).bondedParticles.contains(pair.second)) {
+                return -BOND_STIFFNESS / 2 * (pair.distance - BOND_LENGTH) * (pair.distance - BOND_LENGTH);
+            }
+            return 0;
+        }
+    };
+
+    /**
+     * Bonds between EPS particles and the particles of {@link Bacterium}s, as a {@link ForceField} term.
+     * A bond pulls on the whole bacterium and slows it down, by the same amount per second whatever the time step.
+     */
+    static final ForceField.PairTerm BACTERIUM_BOND_TERM = new ForceField.PairTerm() {
+        @Override
+        public double range() {
+            return CUT_OFF;
+        }
 
+        @Override
+        public void apply(ForceField.Pair pair) {
+            EPS eps = (EPS) pair.first;
+            if (!pair.firstGhost) {
+                eps.tryBond(pair.second, pair.distance, pair.currentTime);
+            }
+            if (pair.distance < CUT_OFF && eps.bondedParticles.contains(pair.second)) {
+                PVector force = eps.calculateEpsBacteriumBondForce(new PVector(pair.dx, pair.dy, pair.dz));
+
+                if (!pair.firstGhost) {
+                    eps.getNetForce().add(force.multiply(1));
+                }
+                pair.addToSecondBody(-force.getX(), -force.getY(), -force.getZ());
+                if (!pair.secondGhost) {
+                    Bacterium bacterium = pair.secondBacterium;
+                    bacterium.setFrictionCoeffecient(bacterium.getFrictionCoeffecient() + 0.00001 * (pair.timeStep / SimEngine.TIME_STEP));
+                }
+            }
+        }
+
+        @Override
+        public double energy(ForceField.Pair pair) {
+            if (pair.distance < CUT_OFF && ((EPS) pair.first).bondedParticles.contains(pair.second)) {
+                double stretch = 2 * pair.distance - SIGMA - Bacterium.SIGMA;
+                return -25 * EPSILON * stretch * stretch;
+            }
+            return 0;
+        }
+    };
+
+    /**
+     * Moves this EPS particle under the forces applied to it by the simulation's {@link ForceField}
+     *
+     * @param integrator moves the particle under the forces of the step
+     * @param dt time step
+     */
+    public void move(Integrator integrator, double dt) {
 
         /*
-        Checks and applies a bond between EPS particles and bacteria
+        The thermal velocity of this particle -- almost negligible
          */
-        bacteriumEpsFormBond(currentTime, bacteria);
-        epsFormBond(currentTime, otherEPS);
+        thermalVelocity();
 
         /*
-        Velocity verlet integration for particle
+        Integrate the particle -- velocity Verlet unless the run chose another integrator
          */
-        this.update(0.005);
+        integrator.advance(this, dt);
     }
 
     /**
@@ -93,82 +228,34 @@ public class EPS extends Particle implements Serializable {
         this.setVelocity(new PVector(0,0,0));
     }
 
-    /**
-     * Computes the force between the {@link Particle}s of different bacteria
-     * -- negative gradient of the WCA potential
-     *
-     * @param p1 Particle 1 exerting force
-     * @param p2 Particle 2 exerting force
-     * @return force vector computed between particles
-     */
-    private PVector calculateWCAForce(Particle p1, Particle p2) {
-
-        /*
-        Calculate the distance between particles
-         */
-        PVector r = PVector.sub(p2.getPosition(), p1.getPosition());
-        double distance = 20;
-
-        /*
-        Compute the force between particles as a factor of distance
-        return a 0 force if this distance is larger than the finite distance
-         */
-        if (distance < CUT_OFF) {
-            double inverseDist = SIGMA / distance;
-            double inverseDist6 = Math.pow(inverseDist, 6);
-            double inverseDist12 = inverseDist6 * inverseDist6;
-            double forceMagnitude = (24 * EPSILON * (2 * inverseDist12 - inverseDist6)) / distance;
-            return r.normalize().multiply(-forceMagnitude);
-        } else {
-            return new PVector(0,0,0);
-        }
-    }
-
-    /**
-     * Applies WCA force between EPS particles
-     *
-     * @param otherEps EPS particles in the simulation
-     */
-    public void applyWCAForces (List<EPS> otherEps) {
-        for (EPS eps: otherEps) {
-            if (this != eps) {
-                PVector force = calculateWCAForce(this, eps);
-                this.getNetForce().add(force.multiply(1));
-                eps.getNetForce().add(force.multiply(-1));
-            }
-        }
-    }
-
     /**
      *  Generates force to be applied between interacting EPS particles
      *
-     * @param p1 first particle in bond
-     * @param p2 second particle in bond
+     * @param r separation of the second particle in the bond from the first, across periodic boundaries the
+     *          nearest image
      * @return harmonic force to be applied
      */
-    private PVector calculateEpsBondForce(Particle p1, Particle p2) {
-        /*
-        Calculate the distance between particles
-         */
-        PVector r = PVector.sub(p2.getPosition(), p1.getPosition());
+    private PVector calculateEpsBondForce(PVector r) {
+        if (EPS_BOND_TABLE.inUse()) {
+            return r.multiply(EPS_BOND_TABLE.valueAt(r.dot(r)));
+        }
         double distance = r.magnitude();
 
-        double forceMagnitude = 200 * EPSILON * (distance - SIGMA);
+        double forceMagnitude = BOND_STIFFNESS * (distance - BOND_LENGTH);
         return r.normalize().multiply(-forceMagnitude);
     }
 
     /**
      * Generates force to be applied between interacting {@link Bacterium} particle and EPS particle
      *
-     * @param p1 first particle in bond
-     * @param p2 second particle in bond
+     * @param r separation of the bacterium particle from this EPS particle, across periodic boundaries the
+     *          nearest image
      * @return harmonic force to be applied
      */
-    private PVector calculateEpsBacteriumBondForce(Particle p1, Particle p2) {
-        /*
-        Calculate the distance between this EPS particle and another eps particle
-         */
-        PVector r = PVector.sub(p2.getPosition(), p1.getPosition());
+    private PVector calculateEpsBacteriumBondForce(PVector r) {
+        if (EPS_BACTERIUM_BOND_TABLE.inUse()) {
+            return r.multiply(EPS_BACTERIUM_BOND_TABLE.valueAt(r.dot(r)));
+        }
         double distance = r.magnitude();
 
         double forceMagnitude = 100 * EPSILON * (2 * distance - SIGMA - Bacterium.SIGMA);
@@ -176,67 +263,84 @@ public class EPS extends Particle implements Serializable {
     }
 
     /**
-     * Forms bonds between eps particles
+     * @return the tabulated bond laws
+     */
+    static List<ForceTable> getForceTables() {
+        return List.of(EPS_BOND_TABLE, EPS_BACTERIUM_BOND_TABLE);
+    }
+
+    /**
+     * Bonds this EPS particle with a nearby particle with probability {@link #BOND_PROBABILITY} while bonds are
+     * being checked, counting the attempt off the gap to the next success
      *
+     * @param particle the {@link Bacterium} or EPS particle to bond with
+     * @param distance distance to the particle
      * @param currentTime Simulation time
-     * @param otherEPS other eps particles in the simulation
      */
-    public void epsFormBond(double currentTime, List<EPS> otherEPS) {
-        double distance;
-        for (EPS epsParticle: otherEPS) {
-            if (this != epsParticle) {
-
-                PVector r = PVector.sub(this.getPosition(), epsParticle.getPosition());
-                distance = r.magnitude();
-
-                if (currentTime > BOND_CHECK_TIME && currentTime > 2) {
-                    if (distance < CUT_OFF && getProbability(0.1) && !bondedParticles.contains(epsParticle)) {
-                        bondedParticles.add(epsParticle);
-                    }
-                }
-
-                if(distance < CUT_OFF && bondedParticles.contains(epsParticle)) {
-                    PVector force = calculateEpsBondForce(this, epsParticle);
-
-                    this.getNetForce().add(force.multiply(1));
-                    epsParticle.getNetForce().add(force.multiply(-1));
+    private void tryBond(Particle particle, double distance, double currentTime) {
+        if (bondsForm(currentTime)) {
+            if (distance < CUT_OFF && --attemptsToNextBond == 0) {
+                attemptsToNextBond = nextBondGap();
+                if (!bondedParticles.contains(particle)) {
+                    bond(particle);
                 }
             }
         }
     }
 
     /**
-     * Forms bonds between eps particles and {@link Bacterium}s
-     *
-     * @param currentTime Simulation time
-     * @param bacteria {@link Bacterium}s in the simulation
+     * @param currentTime simulation time
+     * @return true if bonds are being checked, so that evaluating the bond terms may form new bonds
      */
-    public void bacteriumEpsFormBond(double currentTime, List<Bacterium> bacteria) {
-        double distance;
-        for (Bacterium bacterium: bacteria) {
-            for (Particle particle: bacterium.getParticles()) {
-
-                PVector r = PVector.sub(this.getPosition(), particle.getPosition());
-                distance = r.magnitude();
-
-                if (currentTime > BOND_CHECK_TIME && currentTime > 2) {
-                    if (distance < CUT_OFF && getProbability(0.1) && !bondedParticles.contains(particle)) {
-                        bondedParticles.add(particle);
-                    }
-                }
+    static boolean bondsForm(double currentTime) {
+        return currentTime > BOND_CHECK_TIME && currentTime > 2;
+    }
 
-                if(distance < CUT_OFF && bondedParticles.contains(particle)) {
-                    PVector force = calculateEpsBacteriumBondForce(this, particle);
+    /**
+     * Draws the number of attempts up to and including the next successful one, from the geometric distribution
+     * P(k) = (1 - p)^(k - 1) p
+     *
+     * @return attempts until the next bond, at least 1
+     */
+    private static long nextBondGap() {
+        return 1 + (long) Math.floor(Math.log(1.0 - RANDOM.nextDouble()) / Math.log(1.0 - BOND_PROBABILITY));
+    }
 
-                    this.getNetForce().add(force.multiply(1));
+    /**
+     * Bonds this EPS particle with another particle
+     *
+     * @param particle the {@link Bacterium} or EPS particle to bond with
+     */
+    void bond(Particle particle) {
+        bondedParticles.add(particle);
+        particle.addBond();
+    }
 
-                    for (Particle particle1 : bacterium.getParticles()) {
-                        particle1.getNetForce().add(force.multiply(-1));
-                    }
-                    bacterium.setFrictionCoeffecient(bacterium.getFrictionCoeffecient() + 0.00001);
-                }
-            }
+    /**
+     * Drops every bond of this EPS particle
+     */
+    void clearBonds() {
+        for (Particle particle : bondedParticles) {
+            particle.removeBond();
         }
+        bondedParticles.clear();
+    }
+
+    /**
+     * Prepares a pooled EPS particle for insertion as a new particle with a fresh identifier
+     *
+     * @param x The x coordinate of this EPS particle
+     * @param y The y coordinate of this EPS particle
+     */
+    void recycle(double x, double y) {
+        PVector zero = new PVector(0, 0, 0);
+        reset(x, y, zero, zero);
+        clearBonds();
+        island = null;
+        cluster = null;
+        anchorX = Double.NaN;
+        anchorY = Double.NaN;
+        id = newId();
     }
 
     /**
@@ -252,6 +356,121 @@ public class EPS extends Particle implements Serializable {
         return RANDOM.nextDouble() < p;
     }
 
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Gives this particle the identifier it was saved with
+     *
+     * @param id identifier of the saved particle
+     */
+    void restoreId(int id) {
+        this.id = id;
+        reserveId(id);
+    }
+
+    /**
+     * Hands out identifiers first, first + stride, first + 2 * stride, ... from here on, skipping those already
+     * handed out, so that the processes of a distributed run never give two EPS particles the same identifier
+     *
+     * @param first identifier of this process, from 1 to stride
+     * @param stride number of processes handing out identifiers
+     */
+    static void strideIds(int first, int stride) {
+        int used = nextId - 1;
+        nextId = first;
+        idStride = stride;
+        reserveId(used);
+    }
+
+    /**
+     * @return the next free identifier
+     */
+    private static int newId() {
+        int id = nextId;
+        nextId += idStride;
+        return id;
+    }
+
+    /**
+     * Keeps an identifier restored or received from elsewhere from being handed out again
+     */
+    private static void reserveId(int id) {
+        if (nextId <= id) {
+            nextId += ((id - nextId) / idStride + 1) * idStride;
+        }
+    }
+
+    /**
+     * Gives particles read from saves that predate ids a fresh id and recounts the bonds of its partners
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        for (Particle particle : bondedParticles) {
+            particle.addBond();
+        }
+        if (id == 0) {
+            id = newId();
+        } else {
+            reserveId(id);
+        }
+    }
+
+    public List<Particle> getBondedParticles() {
+        return bondedParticles;
+    }
+
+    /**
+     * @return true if this particle is asleep in an {@link IslandSleeper.Island}, neither moved nor feeling
+     * the forces of its island
+     */
+    public boolean isAsleep() {
+        return island != null && island.isAsleep();
+    }
+
+    /**
+     * Wakes this particle and the rest of its island
+     */
+    void wake() {
+        if (island != null) {
+            island.wake();
+        }
+    }
+
+    void setIsland(IslandSleeper.Island island) {
+        this.island = island;
+    }
+
+    /**
+     * @return true if this particle is moved with a {@link RigidClusters.Cluster} rather than on its own
+     */
+    public boolean isRigid() {
+        return cluster != null;
+    }
+
+    RigidClusters.Cluster getCluster() {
+        return cluster;
+    }
+
+    void setCluster(RigidClusters.Cluster cluster) {
+        this.cluster = cluster;
+    }
+
+    /**
+     * Moves the sleep check anchor to the current position
+     *
+     * @return how far this particle moved since the last sleep check, infinite at the first
+     */
+    double reanchor() {
+        double dx = getPosition().getX() - anchorX;
+        double dy = getPosition().getY() - anchorY;
+        anchorX = getPosition().getX();
+        anchorY = getPosition().getY();
+        double drift = Math.sqrt(dx * dx + dy * dy);
+        return Double.isNaN(drift) ? Double.POSITIVE_INFINITY : drift;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -0,0 +1,292 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Holds the upcoming discrete events of the {@link Bacterium}s -- the end of a run, the end of a tumble, the next
+ * EPS insertion and division -- and dispatches each at the first step after it is due, so that the step loop
+ * only does physics instead of checking the clocks of every bacterium.
+ * <p>
+ * Events are kept in a calendar queue: a ring of buckets each covering {@link #BUCKET_WIDTH} seconds, where an
+ * event goes to the bucket of its time modulo the length of the ring. A step only looks at the buckets between
+ * the last step and this one, and takes out the events in them that are due; events a whole ring or more ahead
+ * stay in their bucket until their turn comes. Scheduling and dispatching are O(1) per event.
+ * <p>
+ * Every event carries the stamp its bacterium had when it was queued. {@link Bacterium#cancelEvents()} bumps the
+ * stamp when a bacterium leaves the simulation, so its events are dropped instead of being looked for and
+ * removed.
+ *
+ * @author Brian Mbawa, Seth McNevin, Gladwin Ngobeni
+ */
+public class EventScheduler {
+
+    /**
+     * Seconds covered by one bucket, a step of the velocity Verlet integration
+     */
+    public static final double BUCKET_WIDTH = SimEngine.TIME_STEP;
+
+    /**
+     * Buckets in the ring, covering about 41 seconds -- longer than most run, tumble and division times
+     */
+    public static final int BUCKETS = 8192;
+
+    /**
+     * Kinds of event
+     */
+    enum Kind {
+        RUN_END, TUMBLE_END, EPS_INSERTION, DIVISION
+    }
+
+    /**
+     * An event due at a time for one bacterium
+     */
+    record Event(double time, Kind kind, Bacterium bacterium, int stamp) {
+    }
+
+    private static final Comparator<Event> BY_TIME = Comparator.comparingDouble(Event::time);
+
+    private final List<List<Event>> buckets = new ArrayList<>(BUCKETS);
+
+    /**
+     * Every event before this time has been dispatched
+     */
+    private double dispatchedUntil;
+
+    private int size;
+
+    /**
+     * Divisions waiting for reproduction to be switched back on, and insertions waiting for motility
+     */
+    private final List<Event> heldDivisions = new ArrayList<>();
+    private final List<Event> heldInsertions = new ArrayList<>();
+
+    /**
+     * Events taken out of the buckets by one dispatch
+     */
+    private final List<Event> due = new ArrayList<>();
+
+    private long dispatched;
+
+    public EventScheduler() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.add(new ArrayList<>());
+        }
+    }
+
+    /**
+     * Drops every event and queues those of the given bacteria afresh, as after bacteria are added or removed
+     * outside the step loop
+     *
+     * @param bacteria every bacterium of the simulation
+     * @param currentTime simulation time, from which on events are dispatched
+     */
+    public void rebuild(List<Bacterium> bacteria, double currentTime) {
+        for (List<Event> bucket : buckets) {
+            bucket.clear();
+        }
+        heldDivisions.clear();
+        heldInsertions.clear();
+        size = 0;
+        dispatchedUntil = currentTime;
+        for (Bacterium bacterium : bacteria) {
+            bacterium.cancelEvents();
+            admit(bacterium);
+        }
+    }
+
+    /**
+     * Queues every event of a bacterium entering the simulation
+     *
+     * @param bacterium a newly born, seeded or loaded bacterium
+     */
+    public void admit(Bacterium bacterium) {
+        if (bacterium.isRunning()) {
+            schedule(bacterium.getRunEndTime(), Kind.RUN_END, bacterium);
+            scheduleInsertion(bacterium);
+        }
+        if (bacterium.isTumbling()) {
+            schedule(bacterium.getTumbleEndTime(), Kind.TUMBLE_END, bacterium);
+        }
+        /*
+        Just before the division time, so rounding cannot delay a division by a step -- it is checked on firing
+         */
+        double divisionTime = bacterium.getDivisionTime();
+        if (!bacterium.isReproduced() && Double.isFinite(divisionTime)) {
+            schedule(Math.nextDown(divisionTime), Kind.DIVISION, bacterium);
+        }
+    }
+
+    /**
+     * Dispatches every event due before a step, in time order
+     *
+     * @param currentTime simulation time at the start of the step
+     * @param eps EPS particles of the simulation, to which insertions are added
+     * @param recorder trajectory recording to note insertions in, or null
+     */
+    public void dispatch(double currentTime, List<EPS> eps, TrajectoryRecorder recorder) {
+        requeueHeld();
+
+        /*
+        Take the due events out of the buckets passed since the last step -- all of them after a long jump
+         */
+        if (size > 0) {
+            long first = (long) Math.floor(dispatchedUntil / BUCKET_WIDTH);
+            long last = (long) Math.floor(currentTime / BUCKET_WIDTH);
+            if (last - first >= BUCKETS) {
+                first = 0;
+                last = BUCKETS - 1;
+            }
+            for (long b = first; b <= last; b++) {
+                takeDue(buckets.get(Math.floorMod(b, BUCKETS)), currentTime);
+            }
+        }
+        dispatchedUntil = Math.max(dispatchedUntil, currentTime);
+        if (due.isEmpty()) {
+            return;
+        }
+        due.sort(BY_TIME);
+
+        /*
+        Fire them -- the events they lead to are queued for later steps
+         */
+        for (Event event : due) {
+            Bacterium bacterium = event.bacterium();
+            if (event.stamp() != bacterium.getEventStamp()) {
+                continue;
+            }
+            dispatched++;
+            switch (event.kind()) {
+                case RUN_END -> {
+                    bacterium.endRun(currentTime);
+                    schedule(bacterium.getTumbleEndTime(), Kind.TUMBLE_END, bacterium);
+                }
+                case TUMBLE_END -> {
+                    bacterium.endTumble(currentTime);
+                    schedule(bacterium.getRunEndTime(), Kind.RUN_END, bacterium);
+                    scheduleInsertion(bacterium);
+                }
+                case EPS_INSERTION -> insert(event, currentTime, eps, recorder);
+                case DIVISION -> divide(event, currentTime);
+            }
+        }
+        due.clear();
+    }
+
+    /**
+     * Inserts EPS while running, as long as bacteria are motile. A tumbling bacterium's insertion is queued
+     * again when its next run starts.
+     */
+    private void insert(Event event, double currentTime, List<EPS> eps, TrajectoryRecorder recorder) {
+        Bacterium bacterium = event.bacterium();
+        if (!bacterium.isRunning()) {
+            bacterium.setInsertionScheduled(false);
+            return;
+        }
+        if (!Bacterium.getMotility()) {
+            heldInsertions.add(event);
+            return;
+        }
+        EPS inserted = bacterium.insertEPS(currentTime, eps);
+        if (inserted == null) {
+            /*
+            The place is taken -- try again next step
+             */
+            requeue(event);
+            return;
+        }
+        if (recorder != null) {
+            recorder.recordInsertion(inserted, bacterium);
+        }
+        bacterium.setInsertionScheduled(false);
+        scheduleInsertion(bacterium);
+    }
+
+    /**
+     * Divides a bacterium that has reached its division length. Friction from EPS bonds only grows, so a
+     * bacterium held back by it never divides.
+     */
+    private void divide(Event event, double currentTime) {
+        Bacterium bacterium = event.bacterium();
+        if (bacterium.getFrictionCoeffecient() >= 1) {
+            return;
+        }
+        if (!Bacterium.getReproduction()) {
+            heldDivisions.add(event);
+            return;
+        }
+        bacterium.tryReproduce(currentTime);
+        if (!bacterium.isReproduced()) {
+            requeue(event);
+        }
+    }
+
+    private void scheduleInsertion(Bacterium bacterium) {
+        if (!bacterium.isInsertionScheduled()) {
+            bacterium.setInsertionScheduled(true);
+            schedule(Math.max(bacterium.getNextInsertionTime(), 1.0), Kind.EPS_INSERTION, bacterium);
+        }
+    }
+
+    /**
+     * Queues an event, dispatched at the first step whose time is after it. Events already past go to the
+     * bucket dispatched next.
+     */
+    private void schedule(double time, Kind kind, Bacterium bacterium) {
+        if (Double.isFinite(time)) {
+            add(new Event(time, kind, bacterium, bacterium.getEventStamp()));
+        }
+    }
+
+    private void requeue(Event event) {
+        add(event);
+    }
+
+    private void add(Event event) {
+        double bucketTime = Math.max(event.time(), dispatchedUntil);
+        buckets.get(Math.floorMod((long) Math.floor(bucketTime / BUCKET_WIDTH), BUCKETS)).add(event);
+        size++;
+    }
+
+    /**
+     * Moves the held events back into the queue once what held them is switched back on
+     */
+    private void requeueHeld() {
+        if (!heldDivisions.isEmpty() && Bacterium.getReproduction()) {
+            heldDivisions.forEach(this::requeue);
+            heldDivisions.clear();
+        }
+        if (!heldInsertions.isEmpty() && Bacterium.getMotility()) {
+            heldInsertions.forEach(this::requeue);
+            heldInsertions.clear();
+        }
+    }
+
+    /**
+     * Moves the events of a bucket due before a time to the due list, swapping the last event into each gap
+     */
+    private void takeDue(List<Event> bucket, double currentTime) {
+        for (int i = bucket.size() - 1; i >= 0; i--) {
+            Event event = bucket.get(i);
+            if (event.time() < currentTime) {
+                due.add(event);
+                bucket.set(i, bucket.get(bucket.size() - 1));
+                bucket.remove(bucket.size() - 1);
+                size--;
+            }
+        }
+    }
+
+    /**
+     * @return events queued, including cancelled events not yet reached
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return events fired so far
+     */
+    public long getDispatched() {
+        return dispatched;
+    }
+}
@@ -0,0 +1,710 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * The interactions of the simulation, registered as terms rather than written into each kind of particle.
+ * Bonded terms act within a {@link Bacterium}; pair terms act between two particles and are registered for a
+ * pair of {@link Species}. Every step the field finds all particle pairs within the longest range of its pair
+ * terms once, computes their separations and distances in one {@link ForceKernel} call, and then evaluates
+ * every term registered for the pair's species in a single pass over that list.
+ * <p>
+ * Pairs of the same species are handed to their terms from both sides, as the per-particle loops the
+ * terms replace did. Pairs of particles of the same bacterium are left to the bonded terms. Pairs of two
+ * sleeping {@link EPS} particles or of two particles of one {@link RigidClusters.Cluster} are skipped, and a
+ * sleeping particle found in range of an awake one wakes its {@link IslandSleeper.Island}.
+ * <p>
+ * In a {@link PeriodicBox} the cells tile the box exactly, the cells along one edge are neighbours of those
+ * along the opposite edge, and every separation is the minimum image.
+ * <p>
+ * A field can also evaluate one tile of a {@link DomainDecomposition}: the bacteria and EPS particles the tile
+ * owns come first in the lists it is given and the ghosts of its halo after them. Pairs of two ghosts are
+ * skipped, forces on ghosts are dropped, and the sleeping particles to wake are collected for the caller
+ * instead of woken, so tiles can be evaluated on several threads at once.
+ *
+ * @author Brian Mbawa, Seth McNevin, Gladwin Ngobeni
+ */
+public class ForceField {
+
+    /**
+     * Kinds of particle a pair term can be registered for
+     */
+    public enum Species {
+        /**
+         * One of the seven particles of a {@link Bacterium}
+         */
+        BACTERIUM,
+        /**
+         * An {@link EPS} particle
+         */
+        EPS
+    }
+
+    /**
+     * An interaction within one bacterium
+     */
+    @FunctionalInterface
+    public interface BondedTerm {
+        /**
+         * Adds the forces of this term to the particles of a bacterium
+         *
+         * @param bacterium the bacterium
+         * @param currentTime simulation time
+         */
+        void apply(Bacterium bacterium, double currentTime);
+
+        /**
+         * Adds the forces of this term to the particles of every bacterium. Terms that can evaluate many
+         * bacteria together override this.
+         *
+         * @param bacteria the bacteria
+         * @param currentTime simulation time
+         */
+        default void applyAll(List<Bacterium> bacteria, double currentTime) {
+            for (Bacterium bacterium : bacteria) {
+                apply(bacterium, currentTime);
+            }
+        }
+
+        /**
+         * @param bacterium the bacterium
+         * @param currentTime simulation time
+         * @return potential energy of this term in the bacterium, 0 for terms without one
+         */
+        default double energy(Bacterium bacterium, double currentTime) {
+            return 0;
+        }
+    }
+
+    /**
+     * An interaction between two particles
+     */
+    public interface PairTerm {
+        /**
+         * @return distance beyond which the term never acts
+         */
+        double range();
+
+        /**
+         * Adds the forces of this term to a pair of particles
+         *
+         * @param pair the pair, ordered as the species the term was registered for
+         */
+        void apply(Pair pair);
+
+        /**
+         * Potential energy of this term for a pair, without changing any particle or bond
+         *
+         * @param pair the pair, ordered as the species the term was registered for
+         * @return the energy, 0 for terms without one
+         */
+        default double energy(Pair pair) {
+            return 0;
+        }
+    }
+
+    /**
+     * A pair of particles seen by a {@link PairTerm}. One instance is reused for every pair.
+     */
+    public static class Pair {
+        Particle first;
+        Particle second;
+
+        /**
+         * Bacteria the particles belong to, null for EPS particles
+         */
+        Bacterium firstBacterium;
+        Bacterium secondBacterium;
+
+        /**
+         * Separation r = second - first and its length
+         */
+        double dx;
+        double dy;
+        double dz;
+        double distance;
+
+        double currentTime;
+        double timeStep;
+
+        /**
+         * True for a particle of the halo of a tile, whose forces belong to another tile
+         */
+        boolean firstGhost;
+        boolean secondGhost;
+
+        private int firstIndex;
+        private int secondIndex;
+        private ForceField field;
+
+        /**
+         * Adds a force to every particle of the first particle's bacterium
+         */
+        void addToFirstBody(double fx, double fy, double fz) {
+            if (!firstGhost) {
+                field.addBodyForce(firstIndex, fx, fy, fz);
+            }
+        }
+
+        /**
+         * Adds a force to every particle of the second particle's bacterium
+         */
+        void addToSecondBody(double fx, double fy, double fz) {
+            if (!secondGhost) {
+                field.addBodyForce(secondIndex, fx, fy, fz);
+            }
+        }
+    }
+
+    /**
+     * A pair term together with the order its species were registered in
+     */
+    private record Registration(PairTerm term, boolean swapped) {
+    }
+
+    /**
+     * Cells searched from each cell -- itself first, then half of its neighbours
+     */
+    private static final int[] NEIGHBOUR_X = {0, 1, 1, 1, 0};
+    private static final int[] NEIGHBOUR_Y = {0, -1, 0, 1, 1};
+
+    private final List<BondedTerm> bondedTerms = new ArrayList<>();
+
+    private static final int SPECIES = Species.values().length;
+
+    /**
+     * Pair terms of every ordered pair of species, at first * SPECIES + second
+     */
+    private final List<List<Registration>> pairTerms = new ArrayList<>(SPECIES * SPECIES);
+
+    /**
+     * Longest range of the registered pair terms
+     */
+    private double range = 0;
+
+    /*
+    Particle columns of the current step -- owner is the index of the bacterium, or -1 - index of the EPS particle
+     */
+    private Particle[] particles = new Particle[256];
+    private double[] px = new double[256];
+    private double[] py = new double[256];
+    private double[] pz = new double[256];
+    private int[] owner = new int[256];
+    private int[] cellX = new int[256];
+    private int[] cellY = new int[256];
+    private boolean[] asleep = new boolean[256];
+    private int[] cluster = new int[256];
+    private boolean[] ghost = new boolean[256];
+    private int particleCount;
+
+    /*
+    Bacteria and EPS particles at the front of the lists of the current evaluation that are not ghosts
+     */
+    private int ownedBacteria;
+    private int ownedEps;
+
+    /**
+     * Sleeping particles found in range of awake ones, collected here instead of woken -- null to wake them at once
+     */
+    private List<EPS> wakes;
+
+    /**
+     * Periodic boundaries the separations are taken across, null for none
+     */
+    private PeriodicBox box;
+
+    /*
+    Cells of the current step in a periodic box -- how many fit across and down, and their size
+     */
+    private int cellsAcross;
+    private int cellsDown;
+    private double cellWidth;
+    private double cellHeight;
+
+    /*
+    Particles sorted by hashed cell, and where each hash bucket starts
+     */
+    private int[] sorted = new int[256];
+    private int[] bucketStart = new int[513];
+    private int bucketMask;
+
+    /*
+    Pairs within range -- particle indices, separation and distance
+     */
+    private int[] pairFirst = new int[1024];
+    private int[] pairSecond = new int[1024];
+    private double[] pairDx = new double[1024];
+    private double[] pairDy = new double[1024];
+    private double[] pairDz = new double[1024];
+    private double[] pairDistance = new double[1024];
+    private int pairCount;
+
+    /*
+    Forces applied to whole bacteria, indexed by bacterium
+     */
+    private double[] bodyX = new double[64];
+    private double[] bodyY = new double[64];
+    private double[] bodyZ = new double[64];
+    private boolean[] bodyTouched = new boolean[64];
+
+    private final Pair pair = new Pair();
+
+    public ForceField() {
+        for (int i = 0; i < SPECIES * SPECIES; i++) {
+            pairTerms.add(new ArrayList<>());
+        }
+        pair.field = this;
+    }
+
+    /**
+     * @return the interactions of the simulation -- springs, bending and WCA repulsion of bacteria, and the EPS bonds
+     */
+    public static ForceField standard() {
+        ForceField field = new ForceField();
+        field.registerBonded(new BondedForces());
+        field.register(Species.BACTERIUM, Species.BACTERIUM, Bacterium.WCA_TERM);
+        field.register(Species.EPS, Species.EPS, EPS.EPS_BOND_TERM);
+        field.register(Species.EPS, Species.BACTERIUM, EPS.BACTERIUM_BOND_TERM);
+        return field;
+    }
+
+    /**
+     * @param term interaction evaluated for every bacterium
+     */
+    public void registerBonded(BondedTerm term) {
+        bondedTerms.add(term);
+    }
+
+    /**
+     * Registers an interaction between two species. The term sees its pairs in the order of the species given.
+     *
+     * @param first species of the first particle of the pair
+     * @param second species of the second particle of the pair
+     * @param term the interaction
+     */
+    public void register(Species first, Species second, PairTerm term) {
+        termsOf(first.ordinal(), second.ordinal()).add(new Registration(term, false));
+        if (first != second) {
+            termsOf(second.ordinal(), first.ordinal()).add(new Registration(term, true));
+        }
+        range = Math.max(range, term.range());
+    }
+
+    /**
+     * Adds the forces of every term to the particles of the simulation
+     *
+     * @param bacteria {@link Bacterium}s in the simulation
+     * @param eps {@link EPS} particles in the simulation
+     * @param currentTime simulation time
+     * @param timeStep length of the step the forces act for
+     */
+    public void evaluate(List<Bacterium> bacteria, List<EPS> eps, double currentTime, double timeStep) {
+        evaluateBonded(bacteria, currentTime);
+        evaluatePairs(bacteria, eps, currentTime, timeStep);
+    }
+
+    /**
+     * Adds the forces of the bonded terms to the particles of every bacterium
+     *
+     * @param bacteria {@link Bacterium}s in the simulation
+     * @param currentTime simulation time
+     */
+    public void evaluateBonded(List<Bacterium> bacteria, double currentTime) {
+        for (BondedTerm term : bondedTerms) {
+            term.applyAll(bacteria, currentTime);
+        }
+    }
+
+    /**
+     * Adds the forces of the pair terms to the particles of the simulation
+     *
+     * @param bacteria {@link Bacterium}s in the simulation
+     * @param eps {@link EPS} particles in the simulation
+     * @param currentTime simulation time
+     * @param timeStep length of time the forces act for
+     */
+    public void evaluatePairs(List<Bacterium> bacteria, List<EPS> eps, double currentTime, double timeStep) {
+        evaluatePairs(bacteria, bacteria.size(), eps, eps.size(), currentTime, timeStep);
+    }
+
+    /**
+     * Adds the forces of the pair terms to the particles of one tile, leaving out the forces on its ghosts
+     *
+     * @param bacteria {@link Bacterium}s of the tile followed by the ghosts of its halo
+     * @param ownedBacteria number of bacteria owned by the tile
+     * @param eps {@link EPS} particles of the tile followed by the ghosts of its halo
+     * @param ownedEps number of EPS particles owned by the tile
+     * @param currentTime simulation time
+     * @param timeStep length of time the forces act for
+     */
+    public void evaluatePairs(List<Bacterium> bacteria, int ownedBacteria, List<EPS> eps, int ownedEps,
+                              double currentTime, double timeStep) {
+        if (range <= 0) {
+            return;
+        }
+
+        collectParticles(bacteria, ownedBacteria, eps, ownedEps);
+        findPairs(true);
+        ForceKernel.get().distances(pairDx, pairDy, pairDz, pairCount, pairDistance);
+
+        /*
+        One pass over the pairs evaluates every term registered for their species
+         */
+        ensureBodies(bacteria.size());
+        pair.currentTime = currentTime;
+        pair.timeStep = timeStep;
+        for (int k = 0; k < pairCount; k++) {
+            int i = pairFirst[k];
+            int j = pairSecond[k];
+            if (asleep[i] != asleep[j]) {
+                EPS sleeping = (EPS) particles[asleep[i] ? i : j];
+                if (wakes != null) {
+                    wakes.add(sleeping);
+                } else {
+                    sleeping.wake();
+                }
+            }
+            int si = species(i);
+            int sj = species(j);
+            pair.distance = pairDistance[k];
+            evaluatePair(bacteria, i, j, si, sj, pairDx[k], pairDy[k], pairDz[k]);
+            if (si == sj) {
+                evaluatePair(bacteria, j, i, sj, si, -pairDx[k], -pairDy[k], -pairDz[k]);
+            }
+        }
+
+        /*
+        Spread the forces on whole bacteria over their particles
+         */
+        for (int b = 0; b < bacteria.size(); b++) {
+            if (bodyTouched[b]) {
+                for (Particle particle : bacteria.get(b).getParticles()) {
+                    particle.getNetForce().add(bodyX[b], bodyY[b], bodyZ[b]);
+                }
+                bodyX[b] = 0;
+                bodyY[b] = 0;
+                bodyZ[b] = 0;
+                bodyTouched[b] = false;
+            }
+        }
+    }
+
+    /**
+     * @return the terms registered for an ordered pair of species, by ordinal
+     */
+    private List<Registration> termsOf(int first, int second) {
+        return pairTerms.get(first * SPECIES + second);
+    }
+
+    /**
+     * Hands one ordered pair to the terms registered for its species
+     */
+    private void evaluatePair(List<Bacterium> bacteria, int i, int j, int si, int sj, double dx, double dy, double dz) {
+        for (Registration registration : termsOf(si, sj)) {
+            orient(bacteria, registration, i, j, dx, dy, dz);
+            registration.term().apply(pair);
+        }
+    }
+
+    /**
+     * Fills the shared pair in the order of the species a term was registered for
+     */
+    private void orient(List<Bacterium> bacteria, Registration registration, int i, int j, double dx, double dy, double dz) {
+        int first = registration.swapped() ? j : i;
+        int second = registration.swapped() ? i : j;
+        double sign = registration.swapped() ? -1 : 1;
+        pair.first = particles[first];
+        pair.second = particles[second];
+        pair.firstIndex = owner[first];
+        pair.secondIndex = owner[second];
+        pair.firstGhost = ghost[first];
+        pair.secondGhost = ghost[second];
+        pair.firstBacterium = owner[first] >= 0 ? bacteria.get(owner[first]) : null;
+        pair.secondBacterium = owner[second] >= 0 ? bacteria.get(owner[second]) : null;
+        pair.dx = dx * sign;
+        pair.dy = dy * sign;
+        pair.dz = dz * sign;
+    }
+
+    /**
+     * Sums the potential energy of every term without changing any particle or bond
+     *
+     * @param bacteria {@link Bacterium}s in the simulation
+     * @param eps {@link EPS} particles in the simulation
+     * @param currentTime simulation time
+     * @return the potential energy
+     */
+    public double potentialEnergy(List<Bacterium> bacteria, List<EPS> eps, double currentTime) {
+        double energy = 0;
+        for (Bacterium bacterium : bacteria) {
+            for (BondedTerm term : bondedTerms) {
+                energy += term.energy(bacterium, currentTime);
+            }
+        }
+        if (range <= 0) {
+            return energy;
+        }
+
+        collectParticles(bacteria, bacteria.size(), eps, eps.size());
+        findPairs(false);
+        ForceKernel.get().distances(pairDx, pairDy, pairDz, pairCount, pairDistance);
+        pair.currentTime = currentTime;
+        for (int k = 0; k < pairCount; k++) {
+            int i = pairFirst[k];
+            int j = pairSecond[k];
+            int si = species(i);
+            int sj = species(j);
+            pair.distance = pairDistance[k];
+            energy += pairEnergy(bacteria, i, j, si, sj, pairDx[k], pairDy[k], pairDz[k]);
+            if (si == sj) {
+                energy += pairEnergy(bacteria, j, i, sj, si, -pairDx[k], -pairDy[k], -pairDz[k]);
+            }
+        }
+        return energy;
+    }
+
+    /**
+     * Sums the energies of the terms registered for one ordered pair
+     */
+    private double pairEnergy(List<Bacterium> bacteria, int i, int j, int si, int sj, double dx, double dy, double dz) {
+        double energy = 0;
+        for (Registration registration : termsOf(si, sj)) {
+            orient(bacteria, registration, i, j, dx, dy, dz);
+            energy += registration.term().energy(pair);
+        }
+        return energy;
+    }
+
+    /**
+     * Copies the positions of every particle into the particle columns
+     */
+    private void collectParticles(List<Bacterium> bacteria, int ownedBacteria, List<EPS> eps, int ownedEps) {
+        particleCount = 0;
+        this.ownedBacteria = ownedBacteria;
+        this.ownedEps = ownedEps;
+        if (box != null) {
+            cellsAcross = box.cellsAcross(range);
+            cellsDown = box.cellsDown(range);
+            cellWidth = box.getWidth() / cellsAcross;
+            cellHeight = box.getHeight() / cellsDown;
+        }
+        for (int b = 0; b < bacteria.size(); b++) {
+            for (Particle particle : bacteria.get(b).getParticles()) {
+                addParticle(particle, b);
+            }
+        }
+        for (int e = 0; e < eps.size(); e++) {
+            addParticle(eps.get(e), -1 - e);
+        }
+    }
+
+    private void addParticle(Particle particle, int ownerIndex) {
+        if (particleCount == particles.length) {
+            int capacity = particleCount * 2;
+            particles = Arrays.copyOf(particles, capacity);
+            px = Arrays.copyOf(px, capacity);
+            py = Arrays.copyOf(py, capacity);
+            pz = Arrays.copyOf(pz, capacity);
+            owner = Arrays.copyOf(owner, capacity);
+            cellX = Arrays.copyOf(cellX, capacity);
+            cellY = Arrays.copyOf(cellY, capacity);
+            asleep = Arrays.copyOf(asleep, capacity);
+            cluster = Arrays.copyOf(cluster, capacity);
+            ghost = Arrays.copyOf(ghost, capacity);
+            sorted = Arrays.copyOf(sorted, capacity);
+        }
+        PVector position = particle.getPosition();
+        particles[particleCount] = particle;
+        px[particleCount] = position.getX();
+        py[particleCount] = position.getY();
+        pz[particleCount] = position.getZ();
+        owner[particleCount] = ownerIndex;
+        asleep[particleCount] = ownerIndex < 0 && ((EPS) particle).isAsleep();
+        cluster[particleCount] = ownerIndex < 0 && ((EPS) particle).isRigid() ? ((EPS) particle).getCluster().id : 0;
+        ghost[particleCount] = ownerIndex >= 0 ? ownerIndex >= ownedBacteria : -1 - ownerIndex >= ownedEps;
+        if (box == null) {
+            cellX[particleCount] = (int) Math.floor(position.getX() / range);
+            cellY[particleCount] = (int) Math.floor(position.getY() / range);
+        } else {
+            cellX[particleCount] = Math.floorMod((int) Math.floor((position.getX() - box.getXMin()) / cellWidth), cellsAcross);
+            cellY[particleCount] = Math.floorMod((int) Math.floor((position.getY() - box.getYMin()) / cellHeight), cellsDown);
+        }
+        particleCount++;
+    }
+
+    /**
+     * Finds every pair of particles closer than the range with a cell list. Cells are as wide as the range and
+     * each particle looks at its own cell and four of its neighbours, so every pair is found once.
+     *
+     * @param skipResting true to leave out pairs of two sleeping particles and pairs inside a rigid cluster
+     */
+    private void findPairs(boolean skipResting) {
+        /*
+        Counting sort of the particles by hashed cell
+         */
+        int buckets = Integer.highestOneBit(Math.max(1, particleCount) * 2 - 1) << 1;
+        if (bucketStart.length < buckets + 1) {
+            bucketStart = new int[buckets + 1];
+        }
+        bucketMask = buckets - 1;
+        Arrays.fill(bucketStart, 0, buckets + 1, 0);
+        for (int i = 0; i < particleCount; i++) {
+            bucketStart[bucket(cellX[i], cellY[i]) + 1]++;
+        }
+        for (int h = 0; h < buckets; h++) {
+            bucketStart[h + 1] += bucketStart[h];
+        }
+        for (int i = 0; i < particleCount; i++) {
+            int h = bucket(cellX[i], cellY[i]);
+            sorted[bucketStart[h]++] = i;
+        }
+        for (int h = buckets; h > 0; h--) {
+            bucketStart[h] = bucketStart[h - 1];
+        }
+        bucketStart[0] = 0;
+
+        /*
+        Pairs within the particle's own cell and the cells to its right and above
+         */
+        pairCount = 0;
+        double rangeSquared = range * range;
+        for (int i = 0; i < particleCount; i++) {
+            for (int neighbour = 0; neighbour < NEIGHBOUR_X.length; neighbour++) {
+                int cx = cellX[i] + NEIGHBOUR_X[neighbour];
+                int cy = cellY[i] + NEIGHBOUR_Y[neighbour];
+                if (box != null) {
+                    cx = Math.floorMod(cx, cellsAcross);
+                    cy = Math.floorMod(cy, cellsDown);
+                }
+                int h = bucket(cx, cy);
+                for (int s = bucketStart[h]; s < bucketStart[h + 1]; s++) {
+                    int j = sorted[s];
+                    if (cellX[j] != cx || cellY[j] != cy || (neighbour == 0 && j <= i)) {
+                        continue;
+                    }
+                    if (owner[i] == owner[j] && owner[i] >= 0 || ghost[i] && ghost[j]) {
+                        continue;
+                    }
+                    if (skipResting && (asleep[i] && asleep[j] || cluster[i] != 0 && cluster[i] == cluster[j])) {
+                        continue;
+                    }
+                    double dx = px[j] - px[i];
+                    double dy = py[j] - py[i];
+                    double dz = pz[j] - pz[i];
+                    if (box != null) {
+                        dx = box.imageX(dx);
+                        dy = box.imageY(dy);
+                    }
+                    if (dx * dx + dy * dy + dz * dz < rangeSquared) {
+                        addPair(i, j, dx, dy, dz);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Hands every pair found by the last force evaluation to a visitor
+     *
+     * @param visitor receives the two particles of each pair
+     */
+    void visitPairs(BiConsumer<Particle, Particle> visitor) {
+        for (int k = 0; k < pairCount; k++) {
+            visitor.accept(particles[pairFirst[k]], particles[pairSecond[k]]);
+        }
+    }
+
+    private void addPair(int i, int j, double dx, double dy, double dz) {
+        if (pairCount == pairFirst.length) {
+            int capacity = pairCount * 2;
+            pairFirst = Arrays.copyOf(pairFirst, capacity);
+            pairSecond = Arrays.copyOf(pairSecond, capacity);
+            pairDx = Arrays.copyOf(pairDx, capacity);
+            pairDy = Arrays.copyOf(pairDy, capacity);
+            pairDz = Arrays.copyOf(pairDz, capacity);
+            pairDistance = Arrays.copyOf(pairDistance, capacity);
+        }
+        pairFirst[pairCount] = i;
+        pairSecond[pairCount] = j;
+        pairDx[pairCount] = dx;
+        pairDy[pairCount] = dy;
+        pairDz[pairCount] = dz;
+        pairCount++;
+    }
+
+    private int bucket(int cx, int cy) {
+        return (cx * 73856093 ^ cy * 19349663) & bucketMask;
+    }
+
+    private int species(int particle) {
+        return owner[particle] >= 0 ? Species.BACTERIUM.ordinal() : Species.EPS.ordinal();
+    }
+
+    private void ensureBodies(int count) {
+        if (bodyX.length < count) {
+            int capacity = Math.max(count, bodyX.length * 2);
+            bodyX = Arrays.copyOf(bodyX, capacity);
+            bodyY = Arrays.copyOf(bodyY, capacity);
+            bodyZ = Arrays.copyOf(bodyZ, capacity);
+            bodyTouched = Arrays.copyOf(bodyTouched, capacity);
+        }
+    }
+
+    private void addBodyForce(int bacterium, double fx, double fy, double fz) {
+        bodyX[bacterium] += fx;
+        bodyY[bacterium] += fy;
+        bodyZ[bacterium] += fz;
+        bodyTouched[bacterium] = true;
+    }
+
+    /**
+     * @return number of particles collected by the last evaluation
+     */
+    public int getParticleCount() {
+        return particleCount;
+    }
+
+    /**
+     * @return number of pairs within range found by the last evaluation
+     */
+    public int getPairCount() {
+        return pairCount;
+    }
+
+    /**
+     * @param box periodic boundaries to take separations across, null for none
+     */
+    public void setBox(PeriodicBox box) {
+        this.box = box;
+    }
+
+    /**
+     * @return a field with the same pair terms and periodic boundaries and no bonded terms, to evaluate a tile
+     * of a {@link DomainDecomposition} with, collecting the particles it would wake
+     */
+    ForceField tileCopy() {
+        ForceField copy = new ForceField();
+        for (int i = 0; i < pairTerms.size(); i++) {
+            copy.pairTerms.get(i).addAll(pairTerms.get(i));
+        }
+        copy.range = range;
+        copy.box = box;
+        copy.wakes = new ArrayList<>();
+        return copy;
+    }
+
+    /**
+     * @return the sleeping particles found in range of awake ones since last cleared, if this field collects them
+     */
+    List<EPS> getWakes() {
+        return wakes;
+    }
+
+    /**
+     * @return longest range of the registered pair terms
+     */
+    public double getRange() {
+        return range;
+    }
+}
@@ -0,0 +1,67 @@
+/**
+ * Pair force kernels working on primitive arrays of particle separations, so that many pairs are
+ * evaluated in one call. {@link ScalarForceKernel} is always available; the Vector API kernel in
+ * {@code vector/VectorForceKernel.java} is used instead when it has been compiled and the JVM runs
+ * with {@code --add-modules jdk.incubator.vector}.
+ *
+ * @author Brian Mbawa, Seth McNevin, Gladwin Ngobeni
+ */
+public interface ForceKernel {
+
+    /**
+     * Name of the optional Vector API kernel class
+     */
+    String VECTOR_KERNEL_CLASS = "VectorForceKernel";
+
+    /**
+     * Computes harmonic spring forces. For each bond the force is
+     * {@code -stiffness * (|r| - restLength[i]) * r / |r|}, and 0 for coincident particles.
+     *
+     * @param dx x components of the separations r = p2 - p1
+     * @param dy y components of the separations
+     * @param dz z components of the separations
+     * @param count number of bonds
+     * @param restLength rest length of every spring
+     * @param stiffness spring constant
+     * @param fx receives the x components of the forces
+     * @param fy receives the y components of the forces
+     * @param fz receives the z components of the forces
+     */
+    void springForces(double[] dx, double[] dy, double[] dz, int count, double[] restLength, double stiffness,
+                      double[] fx, double[] fy, double[] fz);
+
+    /**
+     * Computes the lengths of many separations
+     *
+     * @param dx x components of the separations
+     * @param dy y components of the separations
+     * @param dz z components of the separations
+     * @param count number of separations
+     * @param distance receives the lengths
+     */
+    void distances(double[] dx, double[] dy, double[] dz, int count, double[] distance);
+
+    /**
+     * @return a short name for reports
+     */
+    String name();
+
+    /**
+     * @return the kernel used by the simulation -- the Vector API kernel when available, unless
+     * {@code -Dbiofilm.kernel=scalar} is given
+     */
+    static ForceKernel get() {
+        return ScalarForceKernel.ACTIVE;
+    }
+
+    /**
+     * @return the Vector API kernel, or null if it is not compiled or the incubator module is not loaded
+     */
+    static ForceKernel vector() {
+        try {
+            return (ForceKernel) Class.forName(VECTOR_KERNEL_CLASS).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError | ClassCastException e) {
+            return null;
+        }
+    }
+}
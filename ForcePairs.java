@@ -0,0 +1,42 @@
+/**
+ * Separations of the particle pairs handed to a {@link ForceKernel} in one call, with room for the
+ * forces it computes.
+ *
+ * @author Brian Mbawa, Seth McNevin, Gladwin Ngobeni
+ */
+public class ForcePairs {
+
+    /**
+     * Separations r = p2 - p1 of the pairs
+     */
+    final double[] dx;
+    final double[] dy;
+    final double[] dz;
+
+    /**
+     * Forces computed for the pairs
+     */
+    final double[] fx;
+    final double[] fy;
+    final double[] fz;
+
+    /**
+     * Rest lengths of the pairs when they are springs
+     */
+    final double[] restLength;
+
+    int count = 0;
+
+    /**
+     * @param capacity most pairs held at once
+     */
+    public ForcePairs(int capacity) {
+        dx = new double[capacity];
+        dy = new double[capacity];
+        dz = new double[capacity];
+        restLength = new double[capacity];
+        fx = new double[capacity];
+        fy = new double[capacity];
+        fz = new double[capacity];
+    }
+}
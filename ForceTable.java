@@ -0,0 +1,233 @@
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * A force law sampled on a uniform grid and interpolated between the samples, so that evaluating it
+ * costs a few multiplications instead of square roots, powers or inverse trigonometric functions.
+ * Laws are usually tabulated against the squared distance r², which the caller has without a square root.
+ * <p>
+ * Every table is compared against the analytic law when it is built. Arguments outside the table, and
+ * every argument of a table whose error exceeds its bound, are evaluated analytically.
+ * <p>
+ * The simulation only uses its tables when started with {@code -Dbiofilm.forceTables=true}: on current JVMs
+ * square roots are single instructions and {@code Math.acos} is cheap, so the lookups do not pay for
+ * themselves everywhere. {@link KernelBenchmark} measures both on the machine at hand.
+ *
+ * @author Brian Mbawa, Seth McNevin, Gladwin Ngobeni
+ */
+public class ForceTable {
+
+    /**
+     * How values between two samples are obtained
+     */
+    public enum Interpolation {
+        /**
+         * Straight line between the two samples
+         */
+        LINEAR,
+        /**
+         * Cubic Hermite spline through the two samples and their slopes
+         */
+        CUBIC
+    }
+
+    /**
+     * True if the simulation evaluates its force laws from tables, set with -Dbiofilm.forceTables=true
+     */
+    public static final boolean ENABLED = Boolean.getBoolean("biofilm.forceTables");
+
+    /**
+     * Number of intervals of the simulation's tables, set with -Dbiofilm.tableResolution
+     */
+    public static final int RESOLUTION = Integer.getInteger("biofilm.tableResolution", 4096);
+
+    /**
+     * Interpolation of the simulation's tables, set with -Dbiofilm.tableInterpolation=linear
+     */
+    public static final Interpolation INTERPOLATION =
+            "linear".equalsIgnoreCase(System.getProperty("biofilm.tableInterpolation")) ? Interpolation.LINEAR : Interpolation.CUBIC;
+
+    /**
+     * Points checked against the analytic law between two samples
+     */
+    private static final int CHECKS_PER_INTERVAL = 8;
+
+    private final String name;
+    private final DoubleUnaryOperator analytic;
+    private final Interpolation interpolation;
+
+    /**
+     * Range covered by the table
+     */
+    private final double min;
+    private final double max;
+    private final double spacing;
+    private final double inverseSpacing;
+
+    /**
+     * Polynomial coefficients of every interval, lowest order first and interleaved so that a lookup
+     * reads one cache line -- two per interval for linear tables, four for cubic ones
+     */
+    private final double[] coefficients;
+    private final int order;
+    private final int resolution;
+
+    /**
+     * Largest relative difference from the analytic law found by the check
+     */
+    private final double maxError;
+
+    /**
+     * True if the error bound holds and the samples are used
+     */
+    private final boolean tabulated;
+
+    /**
+     * Samples a law with the simulation's resolution and interpolation and checks the result against it
+     *
+     * @param name name used in reports
+     * @param analytic the law
+     * @param min smallest argument covered
+     * @param max largest argument covered
+     * @param errorBound largest relative difference from the analytic law accepted, absolute where the law is below 1
+     */
+    public ForceTable(String name, DoubleUnaryOperator analytic, double min, double max, double errorBound) {
+        this(name, analytic, min, max, RESOLUTION, INTERPOLATION, errorBound);
+    }
+
+    /**
+     * Samples a law and checks the result against it
+     *
+     * @param name name used in reports
+     * @param analytic the law
+     * @param min smallest argument covered
+     * @param max largest argument covered
+     * @param resolution number of intervals
+     * @param interpolation interpolation between samples
+     * @param errorBound largest relative difference from the analytic law accepted, absolute where the law is below 1
+     */
+    public ForceTable(String name, DoubleUnaryOperator analytic, double min, double max, int resolution,
+                      Interpolation interpolation, double errorBound) {
+        if (!(max > min) || resolution < 2) {
+            throw new IllegalArgumentException("Table range must be positive and hold at least two intervals");
+        }
+        this.name = name;
+        this.analytic = analytic;
+        this.interpolation = interpolation;
+        this.min = min;
+        this.max = max;
+        this.spacing = (max - min) / resolution;
+        this.inverseSpacing = resolution / (max - min);
+
+        /*
+        Sample the law and, for the cubic spline, its slope by central differences
+         */
+        double[] values = new double[resolution + 1];
+        double[] slopes = new double[resolution + 1];
+        double h = spacing * 1e-3;
+        for (int i = 0; i <= resolution; i++) {
+            double x = min + i * spacing;
+            values[i] = analytic.applyAsDouble(x);
+            double below = i == 0 ? x : x - h;
+            double above = i == resolution ? x : x + h;
+            slopes[i] = (analytic.applyAsDouble(above) - analytic.applyAsDouble(below)) / (above - below) * spacing;
+        }
+
+        /*
+        Turn the samples into one polynomial in the position within the interval per interval
+         */
+        this.resolution = resolution;
+        order = interpolation == Interpolation.LINEAR ? 2 : 4;
+        coefficients = new double[resolution * order];
+        for (int i = 0; i < resolution; i++) {
+            int c = i * order;
+            coefficients[c] = values[i];
+            if (interpolation == Interpolation.LINEAR) {
+                coefficients[c + 1] = values[i + 1] - values[i];
+            } else {
+                coefficients[c + 1] = slopes[i];
+                coefficients[c + 2] = 3 * (values[i + 1] - values[i]) - 2 * slopes[i] - slopes[i + 1];
+                coefficients[c + 3] = 2 * (values[i] - values[i + 1]) + slopes[i] + slopes[i + 1];
+            }
+        }
+
+        /*
+        Compare with the analytic law between every pair of samples
+         */
+        double error = 0;
+        for (int i = 0; i < resolution; i++) {
+            for (int k = 1; k < CHECKS_PER_INTERVAL; k++) {
+                double x = min + (i + k / (double) CHECKS_PER_INTERVAL) * spacing;
+                double exact = analytic.applyAsDouble(x);
+                error = Math.max(error, Math.abs(interpolate(x) - exact) / Math.max(1, Math.abs(exact)));
+            }
+        }
+        maxError = error;
+        tabulated = error <= errorBound;
+    }
+
+    /**
+     * Evaluates the law
+     *
+     * @param x argument of the law
+     * @return the interpolated value, or the analytic value outside the table
+     */
+    public double valueAt(double x) {
+        if (!tabulated || !(x >= min && x < max)) {
+            return analytic.applyAsDouble(x);
+        }
+        return interpolate(x);
+    }
+
+    /**
+     * Interpolates between the samples around an argument inside the table
+     */
+    private double interpolate(double x) {
+        double t = (x - min) * inverseSpacing;
+        int i = Math.min((int) t, resolution - 1);
+        double f = t - i;
+        int c = i * order;
+        if (order == 2) {
+            return coefficients[c] + f * coefficients[c + 1];
+        }
+        return coefficients[c] + f * (coefficients[c + 1] + f * (coefficients[c + 2] + f * coefficients[c + 3]));
+    }
+
+    /**
+     * @param x argument of the law
+     * @return the analytic value
+     */
+    public double exactAt(double x) {
+        return analytic.applyAsDouble(x);
+    }
+
+    /**
+     * @return largest relative difference from the analytic law found when the table was built
+     */
+    public double getMaxError() {
+        return maxError;
+    }
+
+    /**
+     * @return true if the samples are used, false if the table fell back to the analytic law
+     */
+    public boolean isTabulated() {
+        return tabulated;
+    }
+
+    /**
+     * @return true if the simulation should evaluate this law from the table
+     */
+    public boolean inUse() {
+        return ENABLED && tabulated;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d %s intervals over [%.3g, %.3g), max error %.3g%s", name, resolution,
+                interpolation.name().toLowerCase(), min, max, maxError, tabulated ? "" : " (analytic)");
+    }
+}
@@ -1,15 +1,25 @@
 import java.io.Serializable;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * @author Brian Mbawa, Seth McNevin, Gladwin Ngobeni
  *
  * Grid class for tracking {@link Bacterium} cell visit counts.
- * Uses Vector to represent grid cells.
+ * Uses Vector to represent grid cells. In a {@link PeriodicBox} the positions visited and looked up are wrapped
+ * into the box first. Visits may be recorded from several threads at once, as the tiles of a
+ * {@link DomainDecomposition} move their bacteria. A {@link DistributedRegion} keeps a journal of the visits
+ * recorded by its bacteria, to share those near its edges with the regions next to it. The {@link Autosaver} has
+ * the grid note which cells change, so that a checkpoint copies only those.
  */
 public class Grid implements Serializable {
 
+    private static final long serialVersionUID = -1731246497048634579L;
+
     /*
     Size of each grid cell
      */
@@ -20,6 +30,26 @@ public class Grid implements Serializable {
      */
     private final Map<PVector, Psl> visitCount;
 
+    /*
+    Periodic boundaries positions are wrapped across, null for none
+     */
+    private transient PeriodicBox box;
+
+    /*
+    Visits recorded since the journal was last drained, as x, y and velocity x and y -- null for no journal
+     */
+    private transient List<double[]> journal;
+
+    /*
+    Cells created or visited since the changes were last drained, each at most once -- null when not tracked
+     */
+    private transient Queue<Psl> changes;
+
+    /*
+    Cells removed since the changes were last drained -- null when not tracked
+     */
+    private transient List<PVector> removed;
+
     /**
      * Constructor for the Grid class.
      *
@@ -27,7 +57,7 @@ public class Grid implements Serializable {
      */
     public Grid(int cellSize) {
         this.cellSize = cellSize;
-        this.visitCount = new HashMap<>();
+        this.visitCount = new ConcurrentHashMap<>();
     }
 
     /**
@@ -37,15 +67,102 @@ public class Grid implements Serializable {
      * @param y The y-coordinate of the position.
      */
     public void recordVisit(double x, double y, PVector velocity) {
+        if (box != null) {
+            x = box.wrapX(x);
+            y = box.wrapY(y);
+        }
+        if (journal != null) {
+            journal.add(new double[]{x, y, velocity.getX(), velocity.getY()});
+        }
+        recordSharedVisit(x, y, velocity);
+    }
+
+    /**
+     * Records a visit shared by another region of a distributed run, leaving it out of the journal
+     *
+     * @param x The x-coordinate of the position.
+     * @param y The y-coordinate of the position.
+     * @param velocity velocity of the visiting bacterium
+     */
+    void recordSharedVisit(double x, double y, PVector velocity) {
         PVector particlePosition = new PVector((int) x,(int) y);
-        Psl PslParticle;
-        if (this.visitCount.containsKey(particlePosition)) {
-            PslParticle = getPslParticle((int) x, (int) y);
-            PslParticle.incrementCount();
-        } else {
-            PslParticle = new Psl((int) x, (int) y, velocity);
+        Psl PslParticle = this.visitCount.get(particlePosition);
+        if (PslParticle == null) {
+            Psl created = new Psl((int) x, (int) y, velocity);
+            PslParticle = this.visitCount.putIfAbsent(particlePosition, created);
+            if (PslParticle == null) {
+                noteChange(created);
+                return;
+            }
+        }
+        PslParticle.incrementCount();
+        noteChange(PslParticle);
+    }
+
+    private void noteChange(Psl psl) {
+        Queue<Psl> changes = this.changes;
+        if (changes != null && psl.markChanged()) {
+            changes.add(psl);
+        }
+    }
+
+    /**
+     * Starts or stops noting which cells are created or visited. Must not be called while visits are recorded.
+     *
+     * @param track true to note the cells that change from now on
+     */
+    void trackChanges(boolean track) {
+        if (track && changes == null) {
+            changes = new ConcurrentLinkedQueue<>();
+            removed = new ArrayList<>();
+        } else if (!track && changes != null) {
+            drainChanges();
+            changes = null;
+            removed = null;
         }
-        this.visitCount.put(particlePosition, PslParticle);
+    }
+
+    /**
+     * Hands over the cells created or visited since the last call, and starts noting afresh. Must not be called
+     * while visits are recorded.
+     *
+     * @return the changed cells, empty when changes are not tracked
+     */
+    List<Psl> drainChanges() {
+        List<Psl> drained = new ArrayList<>();
+        if (changes != null) {
+            for (Psl psl; (psl = changes.poll()) != null; ) {
+                psl.clearChanged();
+                drained.add(psl);
+            }
+        }
+        return drained;
+    }
+
+    /**
+     * Hands over the cells removed since the last call. A cell removed and visited again is among the changes as
+     * well, which are laid over the removals.
+     *
+     * @return positions of the removed cells, empty when changes are not tracked
+     */
+    List<PVector> drainRemoved() {
+        if (removed == null || removed.isEmpty()) {
+            return List.of();
+        }
+        List<PVector> drained = removed;
+        removed = new ArrayList<>();
+        return drained;
+    }
+
+    /**
+     * Removes every cell. Must not be called while visits are recorded.
+     */
+    public void clear() {
+        if (changes != null) {
+            drainChanges();
+            removed.addAll(visitCount.keySet());
+        }
+        visitCount.clear();
     }
 
     /**
@@ -56,6 +173,10 @@ public class Grid implements Serializable {
      * @return The visit count for the cell.
      */
     public Psl getPslParticle(double x, double y) {
+        if (box != null) {
+            x = box.wrapX(x);
+            y = box.wrapY(y);
+        }
         PVector particlePosition = new PVector((int) x, (int) y);
         return visitCount.get(particlePosition);
     }
@@ -69,7 +190,33 @@ public class Grid implements Serializable {
         return cellSize;
     }
 
+    /**
+     * @param box periodic boundaries to wrap positions across, null for none
+     */
+    public void setBox(PeriodicBox box) {
+        this.box = box;
+    }
+
+    /**
+     * @param journal list every visit recorded from now on is added to, null for none
+     */
+    void setJournal(List<double[]> journal) {
+        this.journal = journal;
+    }
+
     public Map<PVector, Psl> getVisitCount() {
         return this.visitCount;
     }
+
+    /**
+     * Saves written by earlier versions hold their visits in a plain map, which is copied into a concurrent one
+     */
+    private Object readResolve() {
+        if (visitCount instanceof ConcurrentHashMap) {
+            return this;
+        }
+        Grid grid = new Grid(cellSize);
+        grid.visitCount.putAll(visitCount);
+        return grid;
+    }
 }
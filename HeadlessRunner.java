@@ -0,0 +1,274 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs the simulation without a display, for batch runs and large colonies.
+ *
+ * <pre>
+ * java HeadlessRunner [--bacteria N] [--seconds T] [--width W] [--height H] [--spot] [--immotile]
+ *                     [--seed S] [--integrator verlet|brownian] [--dt DT] [--respa K]
+ *                     [--adaptive MIN,MAX] [--max-displacement D] [--step-log steps.csv] [--record run.traj] [--out final.snap]
+ *                     [--model particles|rods] [--periodic] [--tiles CxR]
+ * </pre>
+ *
+ * {@code --periodic} (or {@code -Dbiofilm.periodic=true}) makes the environment a {@link PeriodicBox}.
+ * {@code --tiles CxR} (or {@code -Dbiofilm.tiles=CxR}) steps the particle model as a {@link DomainDecomposition}
+ * of C by R tiles on {@code -Dbiofilm.threads} threads.
+ *
+ * {@code --model rods} (or {@code -Dbiofilm.model=rods}) runs coarse-grained {@link Spherocylinder}s in a
+ * {@link RodEngine}; respa, adaptive steps, recording and saving need the particle model.
+ *
+ * @author Brian Mbawa, Seth McNevin, Gladwin Ngobeni
+ */
+public class HeadlessRunner {
+
+    /**
+     * Steps between progress lines
+     */
+    private static final int REPORT_EVERY = 1000;
+
+    public static void main(String[] args) {
+        int bacteriaCount = 100;
+        double seconds = 60;
+        double width = 1600;
+        double height = 900;
+        boolean spot = false;
+        boolean motile = true;
+        Long seed = null;
+        Integrator integrator = null;
+        Double timeStep = null;
+        int respa = 1;
+        String adaptive = null;
+        double maxDisplacement = AdaptiveStepper.DEFAULT_MAX_DISPLACEMENT;
+        File stepLog = null;
+        File record = null;
+        File out = null;
+        String model = System.getProperty("biofilm.model", "particles");
+        boolean periodic = PeriodicBox.ENABLED;
+        String tiles = System.getProperty("biofilm.tiles");
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--bacteria" -> bacteriaCount = Integer.parseInt(args[++i]);
+                    case "--seconds" -> seconds = Double.parseDouble(args[++i]);
+                    case "--width" -> width = Double.parseDouble(args[++i]);
+                    case "--height" -> height = Double.parseDouble(args[++i]);
+                    case "--spot" -> spot = true;
+                    case "--immotile" -> motile = false;
+                    case "--seed" -> seed = Long.parseLong(args[++i]);
+                    case "--integrator" -> integrator = Integrator.named(args[++i]);
+                    case "--dt" -> timeStep = Double.parseDouble(args[++i]);
+                    case "--respa" -> respa = Integer.parseInt(args[++i]);
+                    case "--adaptive" -> adaptive = args[++i];
+                    case "--max-displacement" -> maxDisplacement = Double.parseDouble(args[++i]);
+                    case "--step-log" -> stepLog = new File(args[++i]);
+                    case "--record" -> record = new File(args[++i]);
+                    case "--out" -> out = new File(args[++i]);
+                    case "--model" -> model = args[++i];
+                    case "--periodic" -> periodic = true;
+                    case "--tiles" -> tiles = args[++i];
+                    default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            System.err.println("Invalid arguments: " + e.getMessage());
+            System.exit(2);
+        }
+        if (model.equals("rods")) {
+            if (respa > 1 || adaptive != null || record != null || out != null || tiles != null) {
+                System.err.println("Invalid arguments: --respa, --adaptive, --record, --out and --tiles need --model particles");
+                System.exit(2);
+            }
+            runRods(bacteriaCount, seconds, width, height, spot, motile, periodic, seed, integrator, timeStep);
+            return;
+        } else if (!model.equals("particles")) {
+            System.err.println("Invalid arguments: unknown model " + model);
+            System.exit(2);
+        }
+
+        SimEngine engine = new SimEngine(0, width, 0, height);
+        engine.setPeriodic(periodic);
+        Bacterium.setMotility(motile);
+        if (integrator != null) {
+            engine.setIntegrator(integrator);
+        }
+        if (timeStep != null) {
+            engine.setTimeStep(timeStep);
+        }
+        if (tiles != null) {
+            try {
+                engine.setDomains(DomainDecomposition.parse(tiles, DomainDecomposition.THREADS, 0, width, 0, height));
+            } catch (IllegalArgumentException e) {
+                System.err.println("Invalid arguments: " + e.getMessage());
+                System.exit(2);
+            }
+        }
+        if (respa > 1) {
+            engine.setRespaFactor(respa);
+        }
+        if (adaptive != null) {
+            String[] bounds = adaptive.split(",");
+            if (bounds.length != 2) {
+                System.err.println("Invalid arguments: --adaptive takes MIN,MAX");
+                System.exit(2);
+            }
+            engine.setAdaptiveStepper(new AdaptiveStepper(Double.parseDouble(bounds[0]), Double.parseDouble(bounds[1]),
+                    maxDisplacement));
+        }
+
+        /*
+        Seed the colony
+         */
+        long start = System.nanoTime();
+        ColonySeeder seeder = new ColonySeeder(0, 0, width, height);
+        if (seed != null) {
+            seeder.setSeed(seed);
+        }
+        if (spot) {
+            seeder.setDensityMap(DensityMap.spot(width / 2, height / 2, Math.min(width, height) / 6));
+        }
+        int seeded = seeder.seed(bacteriaCount, "StrainA", motile, 0.0, engine.getBacteria());
+        System.out.printf("Seeded %d bacteria in %.1f ms%n", seeded, (System.nanoTime() - start) / 1e6);
+
+        /*
+        Run
+         */
+        TrajectoryRecorder recorder = null;
+        try {
+            if (record != null) {
+                recorder = new TrajectoryRecorder(record, 10, 64, 8);
+                engine.setRecorder(recorder);
+            }
+            AdaptiveStepper stepper = engine.getAdaptiveStepper();
+            if (stepper != null && stepLog != null) {
+                stepper.setLog(stepLog);
+            }
+            double time = 0.0;
+            System.out.printf("%s integration, %s, pair forces every %d steps%n", engine.getIntegrator().name(),
+                    stepper == null ? String.format("dt=%.4g s", engine.getTimeStep()) : "adaptive dt",
+                    engine.getRespaFactor());
+            DomainDecomposition domains = engine.getDomains();
+            if (domains != null) {
+                System.out.printf("%dx%d tiles on %d threads%n", domains.getColumns(), domains.getRows(),
+                        domains.getThreads());
+            }
+            if (ForceTable.ENABLED) {
+                List<ForceTable> tables = new ArrayList<>(EPS.getForceTables());
+                tables.add(Bacterium.getBendingTable());
+                for (ForceTable table : tables) {
+                    System.out.printf("force table %s: max error %.3g, %s%n", table.getName(), table.getMaxError(),
+                            table.inUse() ? "in use" : "over its bound, analytic law used");
+                }
+            }
+            start = System.nanoTime();
+            long step = 0;
+            /*
+            Stop within half a step of the end, so fixed steps land on it
+             */
+            while (time < seconds - engine.getTimeStep() / 2) {
+                engine.step(time);
+                time += engine.getTimeStep();
+                step++;
+                if (recorder != null) {
+                    recorder.onStep(step, time, engine.getBacteria(), engine.getEPS());
+                }
+                if (step % REPORT_EVERY == 0) {
+                    report(engine, time, step, start);
+                }
+            }
+            if (step % REPORT_EVERY != 0) {
+                report(engine, time, step, start);
+            }
+            if (recorder != null) {
+                recorder.close();
+            }
+            if (stepper != null) {
+                stepper.closeLog();
+                System.out.println(stepper);
+            }
+            if (out != null) {
+                SnapshotFile.write(new SimSnapshot(engine.getBacteria(), engine.getEPS(), engine.getGrid(), time), out);
+                System.out.println("Saved " + out);
+            }
+        } catch (IOException e) {
+            System.err.println("Error writing output: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Grows a colony of spherocylinders
+     */
+    private static void runRods(int count, double seconds, double width, double height, boolean spot, boolean motile,
+                                boolean periodic, Long seed, Integrator integrator, Double timeStep) {
+        RodEngine engine = new RodEngine(0, width, 0, height);
+        engine.setPeriodic(periodic);
+        Bacterium.setMotility(motile);
+        if (integrator != null) {
+            engine.setIntegrator(integrator);
+        }
+        if (timeStep != null) {
+            engine.setTimeStep(timeStep);
+        }
+
+        long start = System.nanoTime();
+        ColonySeeder seeder = new ColonySeeder(0, 0, width, height);
+        if (seed != null) {
+            seeder.setSeed(seed);
+        }
+        if (spot) {
+            seeder.setDensityMap(DensityMap.spot(width / 2, height / 2, Math.min(width, height) / 6));
+        }
+        int seeded = engine.seed(seeder, count, "StrainA", 0.0);
+        System.out.printf("Seeded %d spherocylinders in %.1f ms%n", seeded, (System.nanoTime() - start) / 1e6);
+
+        double time = 0.0;
+        System.out.printf("%s integration of spherocylinders, dt=%.4g s%n", engine.getIntegrator().name(),
+                engine.getTimeStep());
+        start = System.nanoTime();
+        long step = 0;
+        while (time < seconds - engine.getTimeStep() / 2) {
+            engine.step(time);
+            time += engine.getTimeStep();
+            step++;
+            if (step % REPORT_EVERY == 0) {
+                report(engine, time, step, start);
+            }
+        }
+        if (step % REPORT_EVERY != 0) {
+            report(engine, time, step, start);
+        }
+    }
+
+    private static void report(RodEngine engine, double time, long step, long start) {
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        System.out.printf("t=%.2f s  spherocylinders=%d  eps=%d  %d contacts  %.0f steps/s%n",
+                time, engine.getRods().size(), engine.getEPS().size(), engine.getContacts(), step / elapsed);
+    }
+
+    private static void report(SimEngine engine, double time, long step, long start) {
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        IslandSleeper sleeper = engine.getSleeper();
+        System.out.printf("t=%.2f s  bacteria=%d  eps=%d%s  %.0f steps/s%n",
+                time, engine.getBacteria().size(), engine.getEPS().size(),
+                sleeper == null ? "" : " (" + sleeper.getSleeping() + " asleep)", step / elapsed);
+        RigidClusters clusters = engine.getClusters();
+        if (clusters != null) {
+            System.out.printf("  %d rigid clusters holding %d EPS, %d split%n", clusters.getClusterCount(),
+                    clusters.getRigidCount(), clusters.getSplits());
+        }
+        DomainDecomposition domains = engine.getDomains();
+        if (domains != null) {
+            StringBuilder utilization = new StringBuilder();
+            for (double busy : domains.getUtilization()) {
+                utilization.append(String.format(" %.0f%%", 100 * busy));
+            }
+            System.out.printf("  %d ghosts in the halos, %d migrations, %d rebalances, imbalance %.2f, "
+                    + "threads busy%s%n", domains.getGhostCount(), domains.getMigrations(), domains.getRebalances(),
+                    domains.getImbalance(), utilization);
+        }
+    }
+}
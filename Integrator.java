@@ -0,0 +1,56 @@
+/**
+ * Moves a {@link Particle} through one time step under the net force applied to it. The {@link SimEngine}
+ * hands every particle to its integrator once per step, after the forces of the step have been applied.
+ *
+ * @author Brian Mbawa, Seth McNevin, Gladwin Ngobeni
+ */
+public interface Integrator {
+
+    /**
+     * Advances a particle and clears its net force
+     *
+     * @param particle the particle
+     * @param dt time step in seconds
+     */
+    void advance(Particle particle, double dt);
+
+    /**
+     * @param force magnitude of a force on a particle
+     * @param displacement distance the force may move the particle
+     * @return the longest step over which the force moves a particle no further than the displacement
+     */
+    double stepForDisplacement(double force, double displacement);
+
+    /**
+     * @return the time step this integrator is meant to run at
+     */
+    double defaultTimeStep();
+
+    /**
+     * @return a short name for reports
+     */
+    String name();
+
+    /**
+     * Integrators keeping no state between particles can move particles on several threads at once and return
+     * themselves; the others return a copy of their own for each thread.
+     *
+     * @return an integrator for one more thread moving particles at the same time as this one
+     */
+    default Integrator forThread() {
+        return this;
+    }
+
+    /**
+     * @param name "verlet" or "brownian"
+     * @return the integrator of that name
+     * @throws IllegalArgumentException if there is no such integrator
+     */
+    static Integrator named(String name) {
+        return switch (name.toLowerCase()) {
+            case "verlet" -> new VerletIntegrator();
+            case "brownian", "overdamped" -> new BrownianIntegrator();
+            default -> throw new IllegalArgumentException("Unknown integrator " + name);
+        };
+    }
+}
@@ -0,0 +1,212 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Grows the same seeded colonies with velocity Verlet at its original step, and with Verlet and the
+ * {@link BrownianIntegrator} at a range of larger steps, and compares colony statistics and run times:
+ *
+ * <pre>
+ * java IntegratorBenchmark [bacteria] [seconds] [repeats]
+ * </pre>
+ *
+ * Run and tumble times, divisions and bonding are random, so each configuration is repeated and the mean and
+ * standard deviation of every statistic printed. A larger step is usable when its statistics stay within the
+ * spread of the Verlet runs.
+ *
+ * @author Brian Mbawa, Seth McNevin, Gladwin Ngobeni
+ */
+public class IntegratorBenchmark {
+
+    private static final double WIDTH = 1200;
+    private static final double HEIGHT = 900;
+
+    /**
+     * Multiples of the original step each integrator is run at
+     */
+    private static final int[] STEP_MULTIPLES = {1, 2, 4, 8};
+
+    /**
+     * Statistics of one grown colony
+     */
+    private static final class ColonyStats {
+        double seconds;
+        long steps;
+        double bacteria;
+        double eps;
+        double bondedEps;
+        double meanLength;
+        double gyrationRadius;
+        double meanSpeed;
+        int unstable;
+    }
+
+    /**
+     * Mean and standard deviation of a statistic over the repeats of one configuration
+     */
+    private record Summary(double mean, double deviation) {
+        static Summary of(List<ColonyStats> runs, ToDoubleFunction<ColonyStats> statistic) {
+            double sum = 0;
+            double sumSquares = 0;
+            for (ColonyStats run : runs) {
+                double value = statistic.applyAsDouble(run);
+                sum += value;
+                sumSquares += value * value;
+            }
+            double mean = sum / runs.size();
+            return new Summary(mean, Math.sqrt(Math.max(0, sumSquares / runs.size() - mean * mean)));
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%7.2f ±%-6.2f", mean, deviation);
+        }
+    }
+
+    public static void main(String[] args) {
+        int bacteria = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        double seconds = args.length > 1 ? Double.parseDouble(args[1]) : 10;
+        int repeats = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+
+        /*
+        Warm up the JIT so the first configuration is not timed cold
+         */
+        grow(new VerletIntegrator(), SimEngine.TIME_STEP, bacteria, Math.min(seconds, 3), 1L);
+
+        System.out.printf("%d bacteria, %.1f simulated seconds, %d repeats, mean ± standard deviation%n",
+                bacteria, seconds, repeats);
+        System.out.printf("%-20s %6s %7s %7s %-15s %-15s %-15s %-15s %-15s %-15s%n", "integrator", "steps", "wall s",
+                "speedup", "bacteria", "eps", "bonded EPS", "length", "Rg", "speed");
+
+        List<ColonyStats> reference = growAll(new VerletIntegrator(), SimEngine.TIME_STEP, bacteria, seconds, repeats);
+        double referenceSeconds = Summary.of(reference, run -> run.seconds).mean();
+        print("verlet", SimEngine.TIME_STEP, reference, referenceSeconds);
+        for (String integrator : new String[]{"verlet", "brownian"}) {
+            for (int multiple : STEP_MULTIPLES) {
+                if (integrator.equals("verlet") && multiple == 1) {
+                    continue;
+                }
+                double dt = multiple * SimEngine.TIME_STEP;
+                print(integrator, dt, growAll(Integrator.named(integrator), dt, bacteria, seconds, repeats), referenceSeconds);
+            }
+        }
+    }
+
+    private static List<ColonyStats> growAll(Integrator integrator, double dt, int bacteria, double seconds, int repeats) {
+        List<ColonyStats> runs = new ArrayList<>();
+        for (int r = 0; r < repeats; r++) {
+            runs.add(grow(integrator, dt, bacteria, seconds, 1000L + r));
+        }
+        return runs;
+    }
+
+    /**
+     * Grows one colony from a seeded start
+     */
+    private static ColonyStats grow(Integrator integrator, double dt, int count, double seconds, long seed) {
+        SimEngine engine = new SimEngine(0, WIDTH, 0, HEIGHT);
+        engine.setIntegrator(integrator);
+        engine.setTimeStep(dt);
+        EPS.BOND_CHECK_TIME = 0;
+        ColonySeeder seeder = new ColonySeeder(0, 0, WIDTH, HEIGHT);
+        seeder.setSeed(seed);
+        seeder.seed(count, "StrainA", true, 0.0, engine.getBacteria());
+
+        /*
+        Run, remembering where every bacterium was one second before the end to measure speeds
+         */
+        ColonyStats stats = new ColonyStats();
+        Map<Integer, double[]> earlier = new HashMap<>();
+        long steps = Math.round(seconds / dt);
+        long markStep = steps - Math.round(1 / dt);
+        double time = 0;
+        long start = System.nanoTime();
+        for (long step = 1; step <= steps; step++) {
+            engine.step(time);
+            time += dt;
+            if (step == markStep) {
+                for (Bacterium bacterium : engine.getBacteria()) {
+                    earlier.put(bacterium.getId(), centre(bacterium));
+                }
+            }
+        }
+        stats.seconds = (System.nanoTime() - start) / 1e9;
+        stats.steps = steps;
+
+        /*
+        Colony statistics
+         */
+        List<Double> lengths = new ArrayList<>();
+        double sumX = 0;
+        double sumY = 0;
+        double speedSum = 0;
+        int speedCount = 0;
+        for (Bacterium bacterium : engine.getBacteria()) {
+            List<Particle> particles = bacterium.getParticles();
+            double length = PVector.sub(particles.get(particles.size() - 1).getPosition(), particles.get(0).getPosition()).magnitude();
+            if (!Double.isFinite(length) || length > 4 * Bacterium.TRANSVERSE_WIDTH * particles.size()) {
+                stats.unstable++;
+                continue;
+            }
+            lengths.add(length);
+            double[] c = centre(bacterium);
+            sumX += c[0];
+            sumY += c[1];
+            double[] before = earlier.get(bacterium.getId());
+            if (before != null) {
+                speedSum += Math.hypot(c[0] - before[0], c[1] - before[1]);
+                speedCount++;
+            }
+        }
+        int n = lengths.size();
+        stats.bacteria = engine.getBacteria().size();
+        stats.eps = engine.getEPS().size();
+        for (EPS eps : engine.getEPS()) {
+            if (eps.isBonded()) {
+                stats.bondedEps++;
+            }
+        }
+        stats.bondedEps = stats.eps == 0 ? 0 : stats.bondedEps / stats.eps;
+        if (n > 0) {
+            double meanX = sumX / n;
+            double meanY = sumY / n;
+            double lengthSum = 0;
+            for (double length : lengths) {
+                lengthSum += length;
+            }
+            stats.meanLength = lengthSum / n;
+            double gyration = 0;
+            for (Bacterium bacterium : engine.getBacteria()) {
+                double[] c = centre(bacterium);
+                if (Double.isFinite(c[0]) && Double.isFinite(c[1])) {
+                    gyration += (c[0] - meanX) * (c[0] - meanX) + (c[1] - meanY) * (c[1] - meanY);
+                }
+            }
+            stats.gyrationRadius = Math.sqrt(gyration / n);
+        }
+        stats.meanSpeed = speedCount == 0 ? 0 : speedSum / speedCount;
+        engine.clear();
+        return stats;
+    }
+
+    private static double[] centre(Bacterium bacterium) {
+        PVector position = bacterium.getParticles().get(3).getPosition();
+        return new double[]{position.getX(), position.getY()};
+    }
+
+    private static void print(String name, double dt, List<ColonyStats> runs, double referenceSeconds) {
+        double seconds = Summary.of(runs, run -> run.seconds).mean();
+        int unstable = 0;
+        for (ColonyStats run : runs) {
+            unstable += run.unstable;
+        }
+        System.out.printf("%-20s %6d %7.2f %7.2f %s %s %s %s %s %s%s%n", String.format("%s dt=%.3f", name, dt),
+                runs.get(0).steps, seconds, referenceSeconds / seconds,
+                Summary.of(runs, run -> run.bacteria), Summary.of(runs, run -> run.eps),
+                Summary.of(runs, run -> run.bondedEps), Summary.of(runs, run -> run.meanLength),
+                Summary.of(runs, run -> run.gyrationRadius), Summary.of(runs, run -> run.meanSpeed),
+                unstable > 0 ? "  (" + unstable + " unstable bacteria)" : "");
+    }
+}
@@ -0,0 +1,183 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Puts groups of {@link EPS} particles that have come to rest to sleep. A sleeping particle is not moved, and
+ * the pairs between sleeping particles are skipped by the {@link ForceField}; as soon as an awake particle comes
+ * within range of one, the force field wakes its whole island.
+ * <p>
+ * Every {@link #CHECK_EVALUATIONS} evaluations of the pair forces, the awake EPS particles are split into islands:
+ * the connected groups of the pairs the force field found in range. An island falls asleep when
+ * <ul>
+ *     <li>none of its particles moved more than {@link #MAX_DRIFT} since the last check,</li>
+ *     <li>no bacterium particle is in range of it, and</li>
+ *     <li>every two of its particles in range have already bonded with each other both ways,</li>
+ * </ul>
+ * so that a sleeping island has no bond left to form and feels no force from outside. Bacteria grow every step
+ * and divide a few seconds after birth, so they always stay awake.
+ * <p>
+ * Sleeping is switched off with {@code -Dbiofilm.sleep=false}.
+ *
+ * @author Brian Mbawa, Seth McNevin, Gladwin Ngobeni
+ */
+public class IslandSleeper {
+
+    /**
+     * True if resting EPS islands are put to sleep, switched off with -Dbiofilm.sleep=false
+     */
+    public static final boolean ENABLED = !"false".equalsIgnoreCase(System.getProperty("biofilm.sleep"));
+
+    /**
+     * Pair force evaluations between checks -- a quarter of a second at the original step
+     */
+    static final int CHECK_EVALUATIONS = 50;
+
+    /**
+     * Largest distance a particle of a resting island moves between checks
+     */
+    static final double MAX_DRIFT = 0.01;
+
+    /**
+     * A group of EPS particles that sleep and wake together
+     */
+    static final class Island {
+        private final List<EPS> members = new ArrayList<>();
+        private boolean asleep = true;
+
+        boolean isAsleep() {
+            return asleep;
+        }
+
+        /**
+         * Wakes every particle of the island -- they are checked again at the next check
+         */
+        void wake() {
+            if (asleep) {
+                asleep = false;
+                for (EPS member : members) {
+                    member.setIsland(null);
+                }
+            }
+        }
+    }
+
+    private int evaluationsSinceCheck;
+
+    /*
+    Union-find over the awake particles of a check, and what keeps each of them awake
+     */
+    private int[] parent = new int[256];
+    private boolean[] restless = new boolean[256];
+
+    private int sleeping;
+
+    /**
+     * @return true if the pairs of the evaluation about to be made are visited by a check, so they must all be
+     * found by one force field
+     */
+    public boolean needsPairs() {
+        return evaluationsSinceCheck + 1 >= CHECK_EVALUATIONS;
+    }
+
+    /**
+     * Counts a pair force evaluation, and every {@link #CHECK_EVALUATIONS} evaluations puts the islands at rest
+     * to sleep
+     *
+     * @param eps EPS particles of the simulation
+     * @param field the force field that has just found the pairs in range
+     */
+    public void afterPairs(List<EPS> eps, ForceField field) {
+        if (++evaluationsSinceCheck < CHECK_EVALUATIONS) {
+            return;
+        }
+        evaluationsSinceCheck = 0;
+
+        /*
+        Number the awake particles and note which moved since the last check
+         */
+        int n = eps.size();
+        if (parent.length < n) {
+            parent = new int[Math.max(n, parent.length * 2)];
+            restless = new boolean[parent.length];
+        }
+        sleeping = 0;
+        for (int i = 0; i < n; i++) {
+            EPS particle = eps.get(i);
+            particle.sleepIndex = i;
+            parent[i] = i;
+            if (particle.isAsleep()) {
+                sleeping++;
+                restless[i] = true;
+            } else {
+                restless[i] = particle.reanchor() > MAX_DRIFT || particle.isRigid();
+            }
+        }
+
+        /*
+        Join the particles in range of each other, and keep awake those near a bacterium or with a bond to form
+         */
+        field.visitPairs((first, second) -> {
+            boolean firstEps = first instanceof EPS;
+            boolean secondEps = second instanceof EPS;
+            if (firstEps && secondEps) {
+                EPS a = (EPS) first;
+                EPS b = (EPS) second;
+                union(a.sleepIndex, b.sleepIndex);
+                if (!a.getBondedParticles().contains(b) || !b.getBondedParticles().contains(a)) {
+                    restless[a.sleepIndex] = true;
+                }
+            } else if (firstEps) {
+                restless[((EPS) first).sleepIndex] = true;
+            } else if (secondEps) {
+                restless[((EPS) second).sleepIndex] = true;
+            }
+        });
+
+        /*
+        An island rests if none of its particles is restless
+         */
+        for (int i = 0; i < n; i++) {
+            if (restless[i]) {
+                restless[find(i)] = true;
+            }
+        }
+        Island[] islands = new Island[n];
+        for (int i = 0; i < n; i++) {
+            EPS particle = eps.get(i);
+            int root = find(i);
+            if (particle.isAsleep() || restless[root]) {
+                continue;
+            }
+            if (islands[root] == null) {
+                islands[root] = new Island();
+            }
+            islands[root].members.add(particle);
+            particle.setIsland(islands[root]);
+            particle.settle();
+            sleeping++;
+        }
+    }
+
+    private int find(int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    private void union(int i, int j) {
+        int rootI = find(i);
+        int rootJ = find(j);
+        if (rootI != rootJ) {
+            parent[rootI] = rootJ;
+        }
+    }
+
+    /**
+     * @return EPS particles asleep after the last check
+     */
+    public int getSleeping() {
+        return sleeping;
+    }
+}
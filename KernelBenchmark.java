@@ -0,0 +1,179 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Times the {@link ForceKernel}s against each other and checks that they agree, then times the
+ * {@link ForceTable}s against their analytic laws.
+ * Run with the Vector API kernel compiled to compare it with the scalar loops:
+ *
+ * <pre>
+ * java --add-modules jdk.incubator.vector KernelBenchmark [pairs] [seconds]
+ * </pre>
+ *
+ * @author Brian Mbawa, Seth McNevin, Gladwin Ngobeni
+ */
+public class KernelBenchmark {
+
+    /**
+     * Separations are drawn in a cube of this width
+     */
+    private static final double SPREAD = 30;
+
+    private static final double REST_LENGTH = 3.333333;
+    private static final double STIFFNESS = 2.5;
+
+    public static void main(String[] args) {
+        int pairs = args.length > 0 ? Integer.parseInt(args[0]) : 49;
+        double seconds = args.length > 1 ? Double.parseDouble(args[1]) : 2;
+
+        ForcePairs buffer = new ForcePairs(pairs);
+        Random random = new Random(42);
+        for (int i = 0; i < pairs; i++) {
+            buffer.dx[i] = (random.nextDouble() - 0.5) * SPREAD;
+            buffer.dy[i] = (random.nextDouble() - 0.5) * SPREAD;
+            buffer.dz[i] = (random.nextDouble() - 0.5);
+            buffer.restLength[i] = REST_LENGTH;
+        }
+        buffer.count = pairs;
+
+        reportTables(seconds);
+
+        ForceKernel scalar = new ScalarForceKernel();
+        ForceKernel vector = ForceKernel.vector();
+        System.out.printf("%d pairs per call, active kernel: %s%n", pairs, ForceKernel.get().name());
+
+        double scalarDistances = time(scalar, buffer, true, seconds);
+        double scalarSprings = time(scalar, buffer, false, seconds);
+        report(scalar, scalarDistances, scalarSprings, 1, 1);
+        if (vector == null) {
+            System.out.println("Vector API kernel not available -- compile vector/VectorForceKernel.java and run with --add-modules jdk.incubator.vector");
+            return;
+        }
+        double vectorDistances = time(vector, buffer, true, seconds);
+        double vectorSprings = time(vector, buffer, false, seconds);
+        report(vector, vectorDistances, vectorSprings, scalarDistances / vectorDistances, scalarSprings / vectorSprings);
+        System.out.printf("largest difference: distances %.3g, springs %.3g%n",
+                distanceDifference(scalar, vector, buffer), springDifference(scalar, vector, buffer));
+    }
+
+    /**
+     * Prints the error of every force table and the cost of a lookup against the analytic law
+     */
+    private static void reportTables(double seconds) {
+        List<ForceTable> tables = new ArrayList<>(EPS.getForceTables());
+        tables.add(Bacterium.getBendingTable());
+        double[] arguments = new double[1024];
+        Random random = new Random(7);
+        for (ForceTable table : tables) {
+            /*
+            Arguments spread over the range the simulation sees -- small bends, or bond lengths up to the cut-off
+             */
+            boolean bending = table == Bacterium.getBendingTable();
+            for (int i = 0; i < arguments.length; i++) {
+                arguments[i] = bending ? random.nextDouble() * 0.3 : 1 + random.nextDouble() * 125;
+            }
+            double tabulated = timeTable(table, arguments, false, seconds / 2);
+            double analytic = timeTable(table, arguments, true, seconds / 2);
+            System.out.println(table + (table.inUse() ? ", in use" : ", not in use"));
+            System.out.printf("    lookup %.2f ns, analytic %.2f ns (x%.2f)%n", tabulated, analytic, analytic / tabulated);
+        }
+    }
+
+    /**
+     * @return nanoseconds per evaluation of a table or its analytic law
+     */
+    private static double timeTable(ForceTable table, double[] arguments, boolean analytic, double seconds) {
+        double sink = 0;
+        long calls = 0;
+        long start = 0;
+        long warmUpEnd = System.nanoTime() + (long) (seconds * 0.5e9);
+        long end = warmUpEnd + (long) (seconds * 0.5e9);
+        while (true) {
+            long now = System.nanoTime();
+            if (now >= end) {
+                break;
+            }
+            if (start == 0 && now >= warmUpEnd) {
+                start = now;
+                calls = 0;
+            }
+            for (double x : arguments) {
+                sink += analytic ? table.exactAt(x) : table.valueAt(x);
+            }
+            calls += arguments.length;
+        }
+        if (sink == Double.MIN_VALUE) {
+            System.out.println(sink);
+        }
+        return (System.nanoTime() - start) / (double) calls;
+    }
+
+    /**
+     * Calls a kernel repeatedly, discarding the first half of the time as warm up
+     *
+     * @return nanoseconds per pair
+     */
+    private static double time(ForceKernel kernel, ForcePairs buffer, boolean distances, double seconds) {
+        long warmUpEnd = System.nanoTime() + (long) (seconds * 0.5e9);
+        while (System.nanoTime() < warmUpEnd) {
+            run(kernel, buffer, distances, 1000);
+        }
+        long calls = 0;
+        long start = System.nanoTime();
+        long end = start + (long) (seconds * 0.5e9);
+        double sink = 0;
+        while (System.nanoTime() < end) {
+            sink += run(kernel, buffer, distances, 1000);
+            calls += 1000;
+        }
+        if (sink == Double.MIN_VALUE) {
+            System.out.println(sink);
+        }
+        return (System.nanoTime() - start) / (double) (calls * buffer.count);
+    }
+
+    private static double run(ForceKernel kernel, ForcePairs buffer, boolean distances, int calls) {
+        double sink = 0;
+        for (int c = 0; c < calls; c++) {
+            if (distances) {
+                kernel.distances(buffer.dx, buffer.dy, buffer.dz, buffer.count, buffer.fx);
+                sink += buffer.fx[0];
+            } else {
+                kernel.springForces(buffer.dx, buffer.dy, buffer.dz, buffer.count, buffer.restLength, STIFFNESS,
+                        buffer.fx, buffer.fy, buffer.fz);
+                sink += buffer.fx[0];
+            }
+        }
+        return sink;
+    }
+
+    private static void report(ForceKernel kernel, double distances, double springs, double distanceSpeedUp, double springSpeedUp) {
+        System.out.printf("%-16s distances %6.2f ns/pair (x%.2f)   springs %6.2f ns/pair (x%.2f)%n",
+                kernel.name(), distances, distanceSpeedUp, springs, springSpeedUp);
+    }
+
+    private static double distanceDifference(ForceKernel a, ForceKernel b, ForcePairs buffer) {
+        ForcePairs expected = new ForcePairs(buffer.count);
+        a.distances(buffer.dx, buffer.dy, buffer.dz, buffer.count, expected.fx);
+        b.distances(buffer.dx, buffer.dy, buffer.dz, buffer.count, buffer.fx);
+        double difference = 0;
+        for (int i = 0; i < buffer.count; i++) {
+            difference = Math.max(difference, Math.abs(expected.fx[i] - buffer.fx[i]));
+        }
+        return difference;
+    }
+
+    private static double springDifference(ForceKernel a, ForceKernel b, ForcePairs buffer) {
+        ForcePairs expected = new ForcePairs(buffer.count);
+        a.springForces(buffer.dx, buffer.dy, buffer.dz, buffer.count, buffer.restLength, STIFFNESS, expected.fx, expected.fy, expected.fz);
+        b.springForces(buffer.dx, buffer.dy, buffer.dz, buffer.count, buffer.restLength, STIFFNESS, buffer.fx, buffer.fy, buffer.fz);
+        double difference = 0;
+        for (int i = 0; i < buffer.count; i++) {
+            difference = Math.max(difference, Math.abs(expected.fx[i] - buffer.fx[i]));
+            difference = Math.max(difference, Math.abs(expected.fy[i] - buffer.fy[i]));
+            difference = Math.max(difference, Math.abs(expected.fz[i] - buffer.fz[i]));
+        }
+        return difference;
+    }
+}
@@ -0,0 +1,99 @@
+import java.awt.Color;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks that loading a delta checkpoint or an older {@code .txt} save keeps the lineage of what it loads. A founder
+ * divides, its daughters are saved both ways, and each save is loaded the way {@link SimPanelFrame} loads it: the
+ * lineage is cleared first, then the save is read. The daughters must still know their father and birth time.
+ * Exits with status 1 if they do not.
+ *
+ * <pre>
+ * java LineageCheck
+ * </pre>
+ *
+ * @author Brian Mbawa, Seth McNevin, Gladwin Ngobeni
+ */
+public class LineageCheck {
+
+    private static final double DIVISION_TIME = 7200;
+
+    public static void main(String[] args) throws IOException, ClassNotFoundException {
+        File directory = Files.createTempDirectory("lineage").toFile();
+        LineageStore lineage = Bacterium.getLineage();
+        lineage.clear();
+
+        /*
+        A founder at time zero, and its two daughters once it has grown to full length
+         */
+        List<Bacterium> founders = new ArrayList<>();
+        Bacterium father = new Bacterium("PAO1", Color.GREEN, true, 200, 200, 0);
+        founders.add(father);
+        Grid grid = new Grid(1);
+        SimSnapshot before = new SimSnapshot(founders, new ArrayList<>(), grid, 0);
+        father.tryReproduce(DIVISION_TIME);
+        if (!father.isReproduced()) {
+            System.out.println("FAILED: the founder did not divide");
+            System.exit(1);
+        }
+        ArrayList<Bacterium> daughters = new ArrayList<>(father.getDaughters());
+
+        /*
+        A full checkpoint of the founder followed by a delta holding the daughters, and a serialized save
+         */
+        File full = new File(directory, "checkpoint-000000.snap");
+        File delta = new File(directory, "checkpoint-000001.delta");
+        SnapshotFile.write(before, full);
+        CheckpointDelta.write(before, new SimSnapshot(daughters, new ArrayList<>(), grid, DIVISION_TIME), 1, delta);
+        File legacy = new File(directory, "simSave.txt");
+        ArrayList<Object> savedata = new ArrayList<>();
+        savedata.add(daughters);
+        savedata.add(grid);
+        savedata.add(new ArrayList<EPS>());
+        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(legacy))) {
+            oos.writeObject(savedata);
+        }
+
+        lineage.clear();
+        Autosaver.restore(delta);
+        boolean failed = !check("delta checkpoint", lineage, father.getId(), daughters, true);
+
+        lineage.clear();
+        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(legacy))) {
+            ois.readObject();
+        }
+        failed |= !check(".txt save", lineage, father.getId(), daughters, false);
+
+        for (File file : new File[]{full, delta, legacy, directory}) {
+            file.delete();
+        }
+        System.out.println(failed ? "FAILED: a load lost the lineage" : "ok");
+        if (failed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Prints what the lineage holds for the daughters after a load
+     *
+     * @param divided whether the load is expected to know when the father divided
+     * @return true if every daughter has its father and birth time
+     */
+    private static boolean check(String load, LineageStore lineage, int fatherId, List<Bacterium> daughters, boolean divided) {
+        boolean ok = !divided || lineage.getDivisionTime(fatherId) == DIVISION_TIME;
+        for (Bacterium daughter : daughters) {
+            int parent = lineage.getParent(daughter.getId());
+            double born = lineage.getBirthTime(daughter.getId());
+            System.out.printf("%s: bacterium %d, father %d, born at %.0f%n", load, daughter.getId(), parent, born);
+            ok &= parent == fatherId && born == DIVISION_TIME;
+        }
+        return ok;
+    }
+}
@@ -0,0 +1,255 @@
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Compact record of every {@link Bacterium} that ever lived, indexed by bacterium id.
+ * Only the parent id, birth time and division time are kept, in primitive arrays, so dead
+ * ancestors do not stay on the heap once they are removed from the simulation. The {@link Autosaver} has the
+ * store note which entries change, so that a checkpoint copies only those.
+ *
+ * @author Brian Mbawa, Seth McNevin, Gladwin Ngobeni
+ */
+public class LineageStore {
+
+    /**
+     * Parent id of a founding bacterium, or of an id the store knows nothing about
+     */
+    public static final int NO_PARENT = -1;
+
+    private int[] parent = new int[0];
+    private double[] birthTime = new double[0];
+    private double[] divisionTime = new double[0];
+
+    /**
+     * One past the highest id recorded
+     */
+    private int size = 0;
+
+    /**
+     * Ids whose entry changed since the changes were last drained, null when changes are not tracked
+     */
+    private BitSet changed;
+
+    /**
+     * Records the birth of a bacterium
+     *
+     * @param id id of the new bacterium
+     * @param parentId id of its father, {@link #NO_PARENT} for a founding bacterium
+     * @param time simulation time of birth
+     */
+    public void recordBirth(int id, int parentId, double time) {
+        ensureCapacity(id + 1);
+        parent[id] = parentId;
+        birthTime[id] = time;
+        divisionTime[id] = Double.NaN;
+        if (changed != null) {
+            changed.set(id);
+        }
+    }
+
+    /**
+     * Records the division of a bacterium into its two daughters
+     *
+     * @param id id of the dividing bacterium
+     * @param time simulation time of division
+     */
+    public void recordDivision(int id, double time) {
+        ensureCapacity(id + 1);
+        divisionTime[id] = time;
+        if (changed != null) {
+            changed.set(id);
+        }
+    }
+
+    /**
+     * @param id bacterium id
+     * @return id of its father, {@link #NO_PARENT} for a founder or an unknown id
+     */
+    public int getParent(int id) {
+        return id >= 0 && id < size ? parent[id] : NO_PARENT;
+    }
+
+    /**
+     * @param id bacterium id
+     * @return birth time, NaN for an unknown id
+     */
+    public double getBirthTime(int id) {
+        return id >= 0 && id < size ? birthTime[id] : Double.NaN;
+    }
+
+    /**
+     * @param id bacterium id
+     * @return division time, NaN if the bacterium has not divided
+     */
+    public double getDivisionTime(int id) {
+        return id >= 0 && id < size ? divisionTime[id] : Double.NaN;
+    }
+
+    /**
+     * Lists the ancestors of a bacterium from its father up to the founder
+     *
+     * @param id bacterium id
+     * @return ancestor ids, nearest first
+     */
+    public int[] ancestors(int id) {
+        int[] ancestors = new int[8];
+        int count = 0;
+        for (int current = getParent(id); current != NO_PARENT; current = getParent(current)) {
+            if (count == ancestors.length) {
+                ancestors = Arrays.copyOf(ancestors, count * 2);
+            }
+            ancestors[count++] = current;
+        }
+        return Arrays.copyOf(ancestors, count);
+    }
+
+    /**
+     * Lists every descendant of a bacterium. Daughters always get higher ids than their father,
+     * so a single pass over the ids above the ancestor finds the whole subtree.
+     *
+     * @param id bacterium id
+     * @return descendant ids in order of birth
+     */
+    public int[] descendants(int id) {
+        if (id < 0 || id >= size) {
+            return new int[0];
+        }
+        boolean[] inTree = new boolean[size - id];
+        inTree[0] = true;
+        int[] descendants = new int[8];
+        int count = 0;
+        for (int current = id + 1; current < size; current++) {
+            int father = parent[current];
+            if (father >= id && inTree[father - id]) {
+                inTree[current - id] = true;
+                if (count == descendants.length) {
+                    descendants = Arrays.copyOf(descendants, count * 2);
+                }
+                descendants[count++] = current;
+            }
+        }
+        return Arrays.copyOf(descendants, count);
+    }
+
+    /**
+     * @param id bacterium id
+     * @return ids of the daughters of the bacterium, empty if it has not divided
+     */
+    public int[] daughters(int id) {
+        int[] daughters = new int[2];
+        int count = 0;
+        for (int current = id + 1; current < size && count < 2; current++) {
+            if (parent[current] == id) {
+                daughters[count++] = current;
+            }
+        }
+        return Arrays.copyOf(daughters, count);
+    }
+
+    /**
+     * @return one past the highest id recorded
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Forgets every recorded bacterium
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Replaces the contents of this store, used when a saved lineage is loaded
+     *
+     * @param parent parent id per bacterium id
+     * @param birthTime birth time per bacterium id
+     * @param divisionTime division time per bacterium id
+     */
+    public void restore(int[] parent, double[] birthTime, double[] divisionTime) {
+        this.parent = parent.clone();
+        this.birthTime = birthTime.clone();
+        this.divisionTime = divisionTime.clone();
+        this.size = parent.length;
+    }
+
+    /**
+     * Adds what another store knows and this one does not: births this one never saw and divisions it never
+     * recorded. The regions of a distributed run each record the bacteria born and divided in them, and their
+     * stores are merged when the run is restored.
+     *
+     * @param parent parent id per bacterium id
+     * @param birthTime birth time per bacterium id, NaN for ids the other store knows nothing about
+     * @param divisionTime division time per bacterium id
+     */
+    public void merge(int[] parent, double[] birthTime, double[] divisionTime) {
+        for (int id = 0; id < parent.length; id++) {
+            if (!Double.isNaN(birthTime[id]) && (Double.isNaN(getBirthTime(id)) || getParent(id) == NO_PARENT)) {
+                double divided = getDivisionTime(id);
+                recordBirth(id, parent[id], birthTime[id]);
+                recordDivision(id, divided);
+            }
+            if (!Double.isNaN(divisionTime[id])) {
+                recordDivision(id, divisionTime[id]);
+            }
+        }
+    }
+
+    /**
+     * Starts or stops noting which entries are recorded
+     *
+     * @param track true to note the entries that change from now on
+     */
+    void trackChanges(boolean track) {
+        if (track && changed == null) {
+            changed = new BitSet();
+        } else if (!track) {
+            changed = null;
+        }
+    }
+
+    /**
+     * Hands over the ids of the entries recorded since the last call, and starts noting afresh
+     *
+     * @return the changed ids in increasing order, empty when changes are not tracked
+     */
+    int[] drainChanges() {
+        if (changed == null) {
+            return new int[0];
+        }
+        int[] ids = changed.stream().toArray();
+        changed.clear();
+        return ids;
+    }
+
+    int[] copyParents() {
+        return Arrays.copyOf(parent, size);
+    }
+
+    double[] copyBirthTimes() {
+        return Arrays.copyOf(birthTime, size);
+    }
+
+    double[] copyDivisionTimes() {
+        return Arrays.copyOf(divisionTime, size);
+    }
+
+    /**
+     * Grows the arrays to hold the given number of ids, marking new entries as unknown
+     */
+    private void ensureCapacity(int required) {
+        if (required > parent.length) {
+            int capacity = Math.max(required, Math.max(16, parent.length * 2));
+            parent = Arrays.copyOf(parent, capacity);
+            birthTime = Arrays.copyOf(birthTime, capacity);
+            divisionTime = Arrays.copyOf(divisionTime, capacity);
+        }
+        if (required > size) {
+            Arrays.fill(parent, size, required, NO_PARENT);
+            Arrays.fill(birthTime, size, required, Double.NaN);
+            Arrays.fill(divisionTime, size, required, Double.NaN);
+            size = required;
+        }
+    }
+}
@@ -0,0 +1,375 @@
+import java.awt.*;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A memory mapped {@link SnapshotFile}. Particle columns are read straight from the mapping and
+ * {@link Bacterium} and {@link EPS} objects are only built the first time they are requested. Offsets are
+ * long and the file is mapped in {@link MappedWindows}, so snapshots beyond 2 GB read like any other.
+ *
+ * @author Brian Mbawa, Seth McNevin, Gladwin Ngobeni
+ */
+public class MappedSnapshot {
+
+    private static final int N = SimSnapshot.PARTICLES_PER_BACTERIUM;
+
+    private final MappedWindows buffer;
+
+    /**
+     * Counts read from the header
+     */
+    private final int bacteriaCount;
+    private final int epsCount;
+    private final int particleCount;
+    private final int bondCount;
+    private final int pslCount;
+    private final int lineageCount;
+
+    /**
+     * Strain names referenced by the strain column
+     */
+    private final List<String> strains;
+
+    /**
+     * Byte offsets of the first entry of each column
+     */
+    private final long bacteriumIntBase;
+    private final long bacteriumDoubleBase;
+    private final long particleBase;
+    private final long epsIdBase;
+    private final long bondStartBase;
+    private final long bondTargetBase;
+    private final long pslIntBase;
+    private final long pslDoubleBase;
+    private final long lineageIntBase;
+    private final long lineageDoubleBase;
+
+    /**
+     * Objects built so far -- null until first touched
+     */
+    private final Bacterium[] bacteria;
+    private final EPS[] eps;
+    private final boolean[] bondsResolved;
+
+    /**
+     * Creates a view over a mapped snapshot
+     *
+     * @param buffer little endian mapping of the whole snapshot file
+     */
+    MappedSnapshot(MappedWindows buffer) {
+        this.buffer = buffer;
+        bacteriaCount = buffer.getInt(SnapshotFile.BACTERIA_COUNT_OFFSET);
+        epsCount = buffer.getInt(SnapshotFile.EPS_COUNT_OFFSET);
+        bondCount = buffer.getInt(SnapshotFile.BOND_COUNT_OFFSET);
+        pslCount = buffer.getInt(SnapshotFile.PSL_COUNT_OFFSET);
+        lineageCount = buffer.getInt(SnapshotFile.LINEAGE_COUNT_OFFSET);
+        particleCount = bacteriaCount * N + epsCount;
+
+        /*
+        Read the strain table
+         */
+        int strainCount = buffer.getInt(SnapshotFile.STRAIN_COUNT_OFFSET);
+        strains = new ArrayList<>(strainCount);
+        long offset = SnapshotFile.HEADER_SIZE;
+        for (int i = 0; i < strainCount; i++) {
+            int length = buffer.getInt(offset);
+            byte[] bytes = new byte[length];
+            buffer.get(offset + Integer.BYTES, bytes);
+            strains.add(new String(bytes, StandardCharsets.UTF_8));
+            offset += Integer.BYTES + length;
+        }
+
+        /*
+        Locate the columns
+         */
+        bacteriumIntBase = SnapshotFile.HEADER_SIZE + buffer.getInt(SnapshotFile.STRAIN_BYTES_OFFSET);
+        bacteriumDoubleBase = SnapshotFile.align(bacteriumIntBase
+                + (long) SnapshotFile.BACTERIUM_INT_COLUMNS * Integer.BYTES * bacteriaCount);
+        particleBase = bacteriumDoubleBase + (long) SnapshotFile.BACTERIUM_DOUBLE_COLUMNS * Double.BYTES * bacteriaCount;
+        epsIdBase = particleBase + (long) SnapshotFile.PARTICLE_DOUBLE_COLUMNS * Double.BYTES * particleCount;
+        bondStartBase = epsIdBase + (long) Integer.BYTES * epsCount;
+        bondTargetBase = bondStartBase + (long) Integer.BYTES * (epsCount + 1);
+        pslIntBase = SnapshotFile.align(bondTargetBase + (long) Integer.BYTES * bondCount);
+        pslDoubleBase = SnapshotFile.align(pslIntBase + (long) SnapshotFile.PSL_INT_COLUMNS * Integer.BYTES * pslCount);
+        lineageIntBase = pslDoubleBase + (long) SnapshotFile.PSL_DOUBLE_COLUMNS * Double.BYTES * pslCount;
+        lineageDoubleBase = SnapshotFile.align(lineageIntBase
+                + (long) SnapshotFile.LINEAGE_INT_COLUMNS * Integer.BYTES * lineageCount);
+
+        bacteria = new Bacterium[bacteriaCount];
+        eps = new EPS[epsCount];
+        bondsResolved = new boolean[epsCount];
+    }
+
+    public double getTime() {
+        return buffer.getDouble(SnapshotFile.TIME_OFFSET);
+    }
+
+    public double getBondCheckTime() {
+        return buffer.getDouble(SnapshotFile.BOND_CHECK_OFFSET);
+    }
+
+    public int getBacteriaCount() {
+        return bacteriaCount;
+    }
+
+    public int getEpsCount() {
+        return epsCount;
+    }
+
+    public int getParticleCount() {
+        return particleCount;
+    }
+
+    public int getPslCount() {
+        return pslCount;
+    }
+
+    /*
+    Column readers -- column c of record i
+     */
+    private int bacteriumInt(int column, int i) {
+        return buffer.getInt(bacteriumIntBase + ((long) column * bacteriaCount + i) * Integer.BYTES);
+    }
+
+    private double bacteriumDouble(int column, int i) {
+        return buffer.getDouble(bacteriumDoubleBase + ((long) column * bacteriaCount + i) * Double.BYTES);
+    }
+
+    private double particleDouble(int column, int i) {
+        return buffer.getDouble(particleBase + ((long) column * particleCount + i) * Double.BYTES);
+    }
+
+    private int pslInt(int column, int i) {
+        return buffer.getInt(pslIntBase + ((long) column * pslCount + i) * Integer.BYTES);
+    }
+
+    private double pslDouble(int column, int i) {
+        return buffer.getDouble(pslDoubleBase + ((long) column * pslCount + i) * Double.BYTES);
+    }
+
+    /**
+     * Reads the x coordinate of a particle directly from the mapping.
+     * Bacterium particles come first, seven per bacterium, followed by EPS particles.
+     *
+     * @param particle particle index
+     * @return x coordinate
+     */
+    public double getParticleX(int particle) {
+        return particleDouble(0, particle);
+    }
+
+    /**
+     * Reads the y coordinate of a particle directly from the mapping
+     *
+     * @param particle particle index
+     * @return y coordinate
+     */
+    public double getParticleY(int particle) {
+        return particleDouble(1, particle);
+    }
+
+    /**
+     * Reads the colour of a bacterium directly from the mapping
+     *
+     * @param bacterium bacterium index
+     * @return packed RGB colour
+     */
+    public int getBacteriumRGB(int bacterium) {
+        return bacteriumInt(0, bacterium);
+    }
+
+    public int getPslX(int psl) {
+        return pslInt(0, psl);
+    }
+
+    public int getPslY(int psl) {
+        return pslInt(1, psl);
+    }
+
+    /**
+     * Builds a particle from the particle columns
+     *
+     * @param p particle index
+     * @return the restored particle
+     */
+    private Particle readParticle(int p) {
+        Particle particle = new Particle(particleDouble(0, p), particleDouble(1, p), readVelocity(p), PVector.ZERO);
+        particle.getPosition().setZ(particleDouble(2, p));
+        particle.setAcceleration(readAcceleration(p));
+        return particle;
+    }
+
+    private PVector readVelocity(int p) {
+        return new PVector(particleDouble(3, p), particleDouble(4, p), particleDouble(5, p));
+    }
+
+    private PVector readAcceleration(int p) {
+        return new PVector(particleDouble(6, p), particleDouble(7, p), particleDouble(8, p));
+    }
+
+    /**
+     * Obtains a bacterium, building it from the mapping on first touch
+     *
+     * @param b bacterium index
+     * @return the restored {@link Bacterium}
+     */
+    public Bacterium getBacterium(int b) {
+        Bacterium bacterium = bacteria[b];
+        if (bacterium == null) {
+            List<Particle> particles = new ArrayList<>(N);
+            for (int k = 0; k < N; k++) {
+                particles.add(readParticle(b * N + k));
+            }
+            bacterium = new Bacterium(bacteriumInt(3, b), strains.get(bacteriumInt(1, b)), new Color(bacteriumInt(0, b)),
+                    particles, bacteriumDouble(2, b), bacteriumDouble(3, b));
+
+            int flags = bacteriumInt(2, b);
+            bacterium.restoreState(
+                    (flags & SimSnapshot.FLAG_RUNNING) != 0, bacteriumDouble(0, b),
+                    (flags & SimSnapshot.FLAG_TUMBLING) != 0, bacteriumDouble(1, b),
+                    (flags & SimSnapshot.FLAG_CLOCKWISE) != 0,
+                    (flags & SimSnapshot.FLAG_PSL_CLOCKWISE) != 0,
+                    (flags & SimSnapshot.FLAG_REPRODUCED) != 0,
+                    bacteriumDouble(4, b), bacteriumDouble(5, b), bacteriumDouble(6, b),
+                    new PVector(bacteriumDouble(7, b), bacteriumDouble(8, b), bacteriumDouble(9, b)),
+                    new PVector(bacteriumDouble(10, b), bacteriumDouble(11, b), bacteriumDouble(12, b)));
+            bacteria[b] = bacterium;
+        }
+        return bacterium;
+    }
+
+    /**
+     * Obtains an EPS particle together with its bonds, building it from the mapping on first touch
+     *
+     * @param e EPS index
+     * @return the restored {@link EPS} particle
+     */
+    public EPS getEPS(int e) {
+        EPS epsParticle = epsShell(e);
+        if (!bondsResolved[e]) {
+            /*
+            Bond partners are only built as shells, their own bonds are resolved when they are touched
+             */
+            bondsResolved[e] = true;
+            int start = buffer.getInt(bondStartBase + (long) e * Integer.BYTES);
+            int end = buffer.getInt(bondStartBase + (e + 1L) * Integer.BYTES);
+            for (int i = start; i < end; i++) {
+                epsParticle.bond(particle(buffer.getInt(bondTargetBase + (long) i * Integer.BYTES)));
+            }
+        }
+        return epsParticle;
+    }
+
+    /**
+     * Obtains an EPS particle without resolving its bonds
+     */
+    private EPS epsShell(int e) {
+        EPS epsParticle = eps[e];
+        if (epsParticle == null) {
+            int p = bacteriaCount * N + e;
+            epsParticle = new EPS(particleDouble(0, p), particleDouble(1, p), readVelocity(p), PVector.ZERO);
+            epsParticle.getPosition().setZ(particleDouble(2, p));
+            epsParticle.setAcceleration(readAcceleration(p));
+            epsParticle.restoreId(buffer.getInt(epsIdBase + (long) e * Integer.BYTES));
+            eps[e] = epsParticle;
+        }
+        return epsParticle;
+    }
+
+    /**
+     * Resolves a particle index to the particle object that owns it
+     */
+    private Particle particle(int p) {
+        if (p < bacteriaCount * N) {
+            return getBacterium(p / N).getParticles().get(p % N);
+        }
+        return epsShell(p - bacteriaCount * N);
+    }
+
+    /**
+     * @return lazy list view of the bacteria -- elements are built as they are accessed
+     */
+    public List<Bacterium> bacteria() {
+        return new AbstractList<>() {
+            @Override
+            public Bacterium get(int index) {
+                return getBacterium(index);
+            }
+
+            @Override
+            public int size() {
+                return bacteriaCount;
+            }
+        };
+    }
+
+    /**
+     * @return lazy list view of the EPS particles -- elements are built as they are accessed
+     */
+    public List<EPS> eps() {
+        return new AbstractList<>() {
+            @Override
+            public EPS get(int index) {
+                return getEPS(index);
+            }
+
+            @Override
+            public int size() {
+                return epsCount;
+            }
+        };
+    }
+
+    /**
+     * Builds the PSL {@link Grid} from the PSL columns
+     *
+     * @return the restored grid
+     */
+    public Grid grid() {
+        Grid grid = new Grid(1);
+        for (int i = 0; i < pslCount; i++) {
+            Psl psl = new Psl(pslInt(0, i), pslInt(1, i), new PVector(pslDouble(0, i), pslDouble(1, i)));
+            psl.setCount(pslInt(2, i));
+            grid.getVisitCount().put(new PVector(pslInt(0, i), pslInt(1, i)), psl);
+        }
+        return grid;
+    }
+
+    /**
+     * Loads the saved lineage into the lineage store of {@link Bacterium}. Must be called before any
+     * bacterium is built so restored bacteria pick up their fathers. Snapshots without lineage
+     * columns leave the store empty and every restored bacterium becomes a founder.
+     */
+    public void restoreLineage() {
+        Bacterium.getLineage().restore(lineageParents(), lineageDoubles(0), lineageDoubles(1));
+    }
+
+    /**
+     * Adds the saved lineage to what the lineage store of {@link Bacterium} already holds, for snapshots of the
+     * regions of a distributed run, each holding the births and divisions seen in its region
+     */
+    public void mergeLineage() {
+        Bacterium.getLineage().merge(lineageParents(), lineageDoubles(0), lineageDoubles(1));
+    }
+
+    private int[] lineageParents() {
+        int[] parent = new int[lineageCount];
+        for (int i = 0; i < lineageCount; i++) {
+            parent[i] = buffer.getInt(lineageIntBase + (long) i * Integer.BYTES);
+        }
+        return parent;
+    }
+
+    /**
+     * @param column 0 for birth times, 1 for division times
+     */
+    private double[] lineageDoubles(int column) {
+        double[] values = new double[lineageCount];
+        for (int i = 0; i < lineageCount; i++) {
+            values[i] = buffer.getDouble(lineageDoubleBase + ((long) column * lineageCount + i) * Double.BYTES);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,87 @@
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A read-only file mapped as a row of windows, so that files larger than the 2 GB one {@link MappedByteBuffer}
+ * can hold are still read in place at long offsets. Every window reaches eight bytes into the next, so an int or
+ * a double never straddles two windows.
+ *
+ * @author Brian Mbawa, Seth McNevin, Gladwin Ngobeni
+ */
+final class MappedWindows {
+
+    /**
+     * Bytes starting in each window
+     */
+    static final long WINDOW = 1L << 30;
+
+    /**
+     * Bytes each window reaches into the next
+     */
+    private static final int OVERLAP = Long.BYTES;
+
+    private final MappedByteBuffer[] windows;
+    private final long window;
+    private final long size;
+
+    /**
+     * Maps a whole file in windows of {@link #WINDOW} bytes
+     *
+     * @param channel open channel of the file
+     * @param order byte order of the values in the file
+     * @throws IOException if the file cannot be mapped
+     */
+    MappedWindows(FileChannel channel, ByteOrder order) throws IOException {
+        this(channel, order, WINDOW);
+    }
+
+    /**
+     * @param window bytes starting in each window
+     */
+    MappedWindows(FileChannel channel, ByteOrder order, long window) throws IOException {
+        this.window = window;
+        this.size = channel.size();
+        windows = new MappedByteBuffer[(int) Math.max(1, (size + window - 1) / window)];
+        for (int w = 0; w < windows.length; w++) {
+            long start = w * window;
+            windows[w] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(window + OVERLAP, size - start));
+            windows[w].order(order);
+        }
+    }
+
+    long size() {
+        return size;
+    }
+
+    int getInt(long offset) {
+        return windows[(int) (offset / window)].getInt((int) (offset % window));
+    }
+
+    long getLong(long offset) {
+        return windows[(int) (offset / window)].getLong((int) (offset % window));
+    }
+
+    double getDouble(long offset) {
+        return windows[(int) (offset / window)].getDouble((int) (offset % window));
+    }
+
+    /**
+     * Copies bytes out of the file, across as many windows as they span
+     *
+     * @param offset file offset of the first byte
+     * @param bytes filled from the file
+     */
+    void get(long offset, byte[] bytes) {
+        int copied = 0;
+        while (copied < bytes.length) {
+            int w = (int) (offset / window);
+            int start = (int) (offset % window);
+            int length = (int) Math.min(bytes.length - copied, window - start);
+            windows[w].get(start, bytes, copied, length);
+            copied += length;
+            offset += length;
+        }
+    }
+}
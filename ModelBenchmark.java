@@ -0,0 +1,87 @@
+/**
+ * Times the same seeded colony as seven-particle {@link Bacterium}s in a {@link SimEngine} and as coarse-grained
+ * {@link Spherocylinder}s in a {@link RodEngine}:
+ *
+ * <pre>
+ * java ModelBenchmark [bacteria] [seconds] [--immotile]
+ * </pre>
+ *
+ * Division is switched off so both colonies keep their size and every step costs the same; EPS is inserted and
+ * bonds as usual. The cost of a step is printed per bacterium, together with the number of EPS particles each
+ * colony ends with. Immotile colonies neither swim nor deposit PSL, which leaves only the mechanics of the two
+ * models to compare.
+ *
+ * @author Brian Mbawa, Seth McNevin, Gladwin Ngobeni
+ */
+public class ModelBenchmark {
+
+    public static void main(String[] args) {
+        int bacteria = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        double seconds = args.length > 1 ? Double.parseDouble(args[1]) : 5;
+        double side = Math.sqrt(bacteria) * 2 * Bacterium.SPAWN_SPACING;
+        boolean motile = !(args.length > 2 && args[2].equals("--immotile"));
+        Bacterium.setReproduction(false);
+        Bacterium.setMotility(motile);
+
+        /*
+        Warm up the JIT so neither model is timed cold
+         */
+        runParticles(Math.min(bacteria, 200), 1, side);
+        runRods(Math.min(bacteria, 200), 1, side);
+
+        System.out.printf("%d %s bacteria on %.0f x %.0f, %.1f simulated seconds, no division%n", bacteria,
+                motile ? "motile" : "immotile", side, side, seconds);
+        double particles = runParticles(bacteria, seconds, side);
+        double rods = runRods(bacteria, seconds, side);
+        System.out.printf("speedup %.1fx%n", particles / rods);
+    }
+
+    /**
+     * @return wall seconds of the run
+     */
+    private static double runParticles(int count, double seconds, double side) {
+        SimEngine engine = new SimEngine(0, side, 0, side);
+        ColonySeeder seeder = new ColonySeeder(0, 0, side, side);
+        seeder.setSeed(42);
+        int seeded = seeder.seed(count, "StrainA", Bacterium.getMotility(), 0.0, engine.getBacteria());
+        EPS.BOND_CHECK_TIME = 0;
+        long steps = Math.round(seconds / engine.getTimeStep());
+        double time = 0;
+        long start = System.nanoTime();
+        for (long step = 0; step < steps; step++) {
+            engine.step(time);
+            time += engine.getTimeStep();
+        }
+        double wall = (System.nanoTime() - start) / 1e9;
+        print("particles", seeded, steps, wall, engine.getEPS().size());
+        engine.clear();
+        return wall;
+    }
+
+    /**
+     * @return wall seconds of the run
+     */
+    private static double runRods(int count, double seconds, double side) {
+        RodEngine engine = new RodEngine(0, side, 0, side);
+        ColonySeeder seeder = new ColonySeeder(0, 0, side, side);
+        seeder.setSeed(42);
+        int seeded = engine.seed(seeder, count, "StrainA", 0.0);
+        EPS.BOND_CHECK_TIME = 0;
+        long steps = Math.round(seconds / engine.getTimeStep());
+        double time = 0;
+        long start = System.nanoTime();
+        for (long step = 0; step < steps; step++) {
+            engine.step(time);
+            time += engine.getTimeStep();
+        }
+        double wall = (System.nanoTime() - start) / 1e9;
+        print("spherocylinders", seeded, steps, wall, engine.getEPS().size());
+        engine.clear();
+        return wall;
+    }
+
+    private static void print(String model, int count, long steps, double wall, int eps) {
+        System.out.printf("%-16s %6d steps %8.2f s %9.3f us per bacterium-step %7d EPS%n", model, steps, wall,
+                wall * 1e6 / steps / count, eps);
+    }
+}
@@ -0,0 +1,131 @@
+import java.util.ArrayDeque;
+
+/**
+ * Free lists of the objects the simulation creates and discards most often. Dividing bacteria are
+ * replaced by two daughters every generation, so fathers, their seven-particle bodies and EPS particles
+ * are handed back here when they leave the simulation and handed out again instead of being allocated.
+ * Pools are capped so a colony that shrinks does not pin its peak population in memory.
+ * Only the simulation thread uses the pools.
+ *
+ * @author Brian Mbawa, Seth McNevin, Gladwin Ngobeni
+ */
+public class ObjectPool {
+
+    /**
+     * Most idle objects kept in each pool
+     */
+    private static final int MAX_IDLE_BACTERIA = 4096;
+    private static final int MAX_IDLE_PARTICLES = 7 * MAX_IDLE_BACTERIA;
+    private static final int MAX_IDLE_EPS = 4096;
+
+    /**
+     * Idle objects waiting to be reused
+     */
+    private static final ArrayDeque<Bacterium> BACTERIA = new ArrayDeque<>();
+    private static final ArrayDeque<Particle> PARTICLES = new ArrayDeque<>();
+    private static final ArrayDeque<EPS> EPS_PARTICLES = new ArrayDeque<>();
+
+    /**
+     * Number of objects handed out again instead of being allocated
+     */
+    private static long reused = 0;
+
+    private ObjectPool() {
+    }
+
+    /**
+     * @return an idle bacterium to be re-initialised, or null when the caller must create one
+     */
+    static Bacterium obtainBacterium() {
+        Bacterium bacterium = BACTERIA.poll();
+        if (bacterium != null) {
+            reused++;
+        }
+        return bacterium;
+    }
+
+    /**
+     * Obtains a body particle of a {@link Bacterium}
+     *
+     * @param x the x coordinate of the particle
+     * @param y the y coordinate of the particle
+     * @param velocity the speed of the particle
+     * @param direction the direction of the particle
+     * @return a recycled particle, or a new one if none is idle
+     */
+    static Particle obtainParticle(double x, double y, PVector velocity, PVector direction) {
+        Particle particle = PARTICLES.poll();
+        if (particle == null) {
+            return new Particle(x, y, velocity, direction);
+        }
+        reused++;
+        particle.reset(x, y, velocity, direction);
+        return particle;
+    }
+
+    /**
+     * Obtains an EPS particle at rest with no bonds and a fresh identifier
+     *
+     * @param x the x coordinate of the particle
+     * @param y the y coordinate of the particle
+     * @return a recycled EPS particle, or a new one if none is idle
+     */
+    static EPS obtainEPS(double x, double y) {
+        EPS epsParticle = EPS_PARTICLES.poll();
+        if (epsParticle == null) {
+            PVector zero = new PVector(0, 0, 0);
+            return new EPS(x, y, zero, zero);
+        }
+        reused++;
+        epsParticle.recycle(x, y);
+        return epsParticle;
+    }
+
+    /**
+     * Returns a bacterium that has left the simulation. Its particles are recycled unless an
+     * {@link EPS} particle is still bonded to them.
+     *
+     * @param bacterium the removed bacterium, no longer referenced by the simulation
+     */
+    static void release(Bacterium bacterium) {
+        for (Particle particle : bacterium.getParticles()) {
+            if (!particle.isBonded() && PARTICLES.size() < MAX_IDLE_PARTICLES) {
+                PARTICLES.push(particle);
+            }
+        }
+        bacterium.getParticles().clear();
+        bacterium.getDaughters().clear();
+        bacterium.cancelEvents();
+        if (BACTERIA.size() < MAX_IDLE_BACTERIA) {
+            BACTERIA.push(bacterium);
+        }
+    }
+
+    /**
+     * Returns an EPS particle that has left the simulation, dropping its bonds
+     *
+     * @param epsParticle the removed EPS particle, no longer referenced by the simulation
+     */
+    static void release(EPS epsParticle) {
+        epsParticle.clearBonds();
+        if (EPS_PARTICLES.size() < MAX_IDLE_EPS) {
+            EPS_PARTICLES.push(epsParticle);
+        }
+    }
+
+    /**
+     * @return number of objects handed out again instead of being allocated
+     */
+    public static long getReused() {
+        return reused;
+    }
+
+    /**
+     * Drops every idle object
+     */
+    public static void clear() {
+        BACTERIA.clear();
+        PARTICLES.clear();
+        EPS_PARTICLES.clear();
+    }
+}
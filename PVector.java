@@ -1,5 +1,4 @@
 import java.io.Serializable;
-import java.util.Objects;
 
 /**
  * A Vector
@@ -8,6 +7,8 @@ import java.util.Objects;
  */
 
 public class PVector implements Serializable {
+
+    private static final long serialVersionUID = 5702442875736005853L;
     private double x;
     private double y;
     private double z;
@@ -61,6 +62,19 @@ public class PVector implements Serializable {
         this.z += v.z;
     }
 
+    /**
+     * Adds the entries of another vector to this vector without creating one
+     *
+     * @param x the first entry to be added
+     * @param y the second entry to be added
+     * @param z the third entry to be added
+     */
+    public void add(double x, double y, double z) {
+        this.x += x;
+        this.y += y;
+        this.z += z;
+    }
+
     /**
      * Adds another vector to this vector
      *
@@ -213,6 +227,19 @@ public class PVector implements Serializable {
         this.z = z;
     }
 
+    /**
+     * Overwrites every entry of this vector
+     *
+     * @param x the first entry of this vector
+     * @param y the second entry of this vector
+     * @param z the third entry of this vector
+     */
+    public void set(double x, double y, double z) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (this == obj) return true; // Check if both references point to the same object
@@ -223,9 +250,16 @@ public class PVector implements Serializable {
                 Double.compare(pVector.z, z) == 0; // Compare the coordinates
     }
 
+    /**
+     * Mixes the bits of every coordinate. Whole-number coordinates, such as the PSL grid cells, keep their
+     * differences in the high bits of a double, which a plain combination of Double hashes leaves clustered.
+     */
     @Override
     public int hashCode() {
-        return Objects.hash(x, y, z); // Use Objects.hash() to generate a hash code based on coordinates
+        long h = Double.doubleToLongBits(x) * 0x9E3779B97F4A7C15L;
+        h = (h ^ (h >>> 29) ^ Double.doubleToLongBits(y)) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 32) ^ Double.doubleToLongBits(z)) * 0x94D049BB133111EBL;
+        return (int) (h ^ (h >>> 31) ^ (h >>> 47));
     }
 
     @Override
@@ -8,6 +8,8 @@ import java.io.Serializable;
 
 public class Particle extends SimulationObject implements Serializable {
 
+    private static final long serialVersionUID = 8633869058241726909L;
+
     /**
      * The speed of this particle
      */
@@ -30,6 +32,18 @@ public class Particle extends SimulationObject implements Serializable {
      */
     private static final double MASS = 1;
 
+    /**
+     * Number of {@link EPS} particles bonded with this particle -- rebuilt by the EPS when it is loaded
+     */
+    private transient int bondCount;
+
+    /**
+     * Slow force held between evaluations under multiple time stepping, see {@link SimEngine#setRespaFactor(int)}
+     */
+    private transient double slowForceX;
+    private transient double slowForceY;
+    private transient double slowForceZ;
+
     /**
      * Creates a Particle
      *
@@ -46,36 +60,107 @@ public class Particle extends SimulationObject implements Serializable {
 
     /**
      * Solution to the kinematic equation for the motion of the bacteria
-     * aka Velocity Verlet algorithm
+     * aka Velocity Verlet algorithm -- vectors are updated in place so a step allocates nothing
      *
      * @param dt time-step
      */
     public void update (double dt) {
-        /*
-         Preserve the current position in case it is needed in future
-         */
-        PVector oldPosition = position.copy(); // debug
-
         /*
         Update the position - obtain x(t + dt)
          */
-        position.add((velocity.multiply(dt)).addVector(acceleration.multiply(0.5f * dt * dt)));
+        double halfDtSquared = 0.5f * dt * dt;
+        position.set(position.getX() + (velocity.getX() * dt + acceleration.getX() * halfDtSquared),
+                position.getY() + (velocity.getY() * dt + acceleration.getY() * halfDtSquared),
+                position.getZ() + (velocity.getZ() * dt + acceleration.getZ() * halfDtSquared));
 
         /*
         Compute forces based on the updated position
          */
-        PVector newAcceleration = netForce.multiply(1.0f / MASS);
+        double inverseMass = 1.0f / MASS;
+        double newAccelerationX = netForce.getX() * inverseMass;
+        double newAccelerationY = netForce.getY() * inverseMass;
+        double newAccelerationZ = netForce.getZ() * inverseMass;
 
         /*
         Update the velocity using the average of the old and new acceleration
          */
-        velocity.add((acceleration.addVector(newAcceleration)).multiply(0.5f * dt));
+        double halfDt = 0.5f * dt;
+        velocity.set(velocity.getX() + (acceleration.getX() + newAccelerationX) * halfDt,
+                velocity.getY() + (acceleration.getY() + newAccelerationY) * halfDt,
+                velocity.getZ() + (acceleration.getZ() + newAccelerationZ) * halfDt);
 
         /*
         Update the acceleration for future calculations and set netForce to ZERO
          */
-        acceleration = newAcceleration;
-        netForce = new PVector(0,0,0);
+        acceleration.set(newAccelerationX, newAccelerationY, newAccelerationZ);
+        netForce.set(0, 0, 0);
+    }
+
+    /**
+     * Places a recycled particle as if it had just been created
+     *
+     * @param x the x coordinate of this particle on the screen
+     * @param y the y coordinate of this particle on the screen
+     * @param velocity the speed of this particle
+     * @param direction the direction of this particle
+     */
+    void reset(double x, double y, PVector velocity, PVector direction) {
+        position.set(x, y, 0);
+        this.velocity = velocity;
+        this.direction = direction;
+        acceleration.set(0, 0, 0);
+        netForce.set(0, 0, 0);
+        slowForceX = 0;
+        slowForceY = 0;
+        slowForceZ = 0;
+    }
+
+    /**
+     * Clears the acceleration and forces of a particle put to sleep, so that it wakes at rest
+     */
+    void settle() {
+        acceleration.set(0, 0, 0);
+        netForce.set(0, 0, 0);
+        slowForceX = 0;
+        slowForceY = 0;
+        slowForceZ = 0;
+    }
+
+    /**
+     * Remembers the net force accumulated so far as the slow force of the coming substeps
+     */
+    void holdSlowForce() {
+        slowForceX = netForce.getX();
+        slowForceY = netForce.getY();
+        slowForceZ = netForce.getZ();
+    }
+
+    /**
+     * Adds the held slow force to the net force
+     */
+    void applySlowForce() {
+        netForce.add(slowForceX, slowForceY, slowForceZ);
+    }
+
+    /**
+     * Records that an {@link EPS} particle has bonded with this particle
+     */
+    void addBond() {
+        bondCount++;
+    }
+
+    /**
+     * Records that an {@link EPS} particle has dropped its bond with this particle
+     */
+    void removeBond() {
+        bondCount--;
+    }
+
+    /**
+     * @return true if an {@link EPS} particle still holds a bond to this particle, so it must not be recycled
+     */
+    boolean isBonded() {
+        return bondCount > 0;
     }
 
     public void setDirection() {
@@ -0,0 +1,138 @@
+/**
+ * Periodic boundaries of the rectangular environment. Whatever leaves through one edge comes back through the
+ * opposite edge, and two particles interact through the nearest of their periodic images -- the minimum image
+ * convention -- so a patch of the environment behaves as a piece of a colony with no edge at all, instead of one
+ * whose edge cells are teleported and crowded.
+ * <p>
+ * EPS particles are wrapped one by one. A {@link Bacterium} is wrapped as a whole when its centre particle crosses
+ * an edge, so its particles may reach beyond the box but always stay next to each other and its springs never
+ * see the jump. Every distance between particles of different bodies is taken as a minimum image, and the
+ * {@link Grid} of PSL deposits wraps the points it is asked about.
+ * <p>
+ * Periodic boundaries are switched on with {@code -Dbiofilm.periodic=true}.
+ *
+ * @author Brian Mbawa, Seth McNevin, Gladwin Ngobeni
+ */
+public class PeriodicBox {
+
+    /**
+     * True if the environment wraps around, switched on with -Dbiofilm.periodic=true
+     */
+    public static final boolean ENABLED = Boolean.getBoolean("biofilm.periodic");
+
+    /**
+     * Fewest cells a cell list may have across a periodic box. With fewer, a cell would be its own neighbour on
+     * both sides and pairs would be found twice.
+     */
+    static final int MIN_CELLS = 3;
+
+    private final double xMin;
+    private final double yMin;
+    private final double width;
+    private final double height;
+
+    /**
+     * @param xMin minimum environment x value
+     * @param xMax maximum environment x value
+     * @param yMin minimum environment y value
+     * @param yMax maximum environment y value
+     */
+    public PeriodicBox(double xMin, double xMax, double yMin, double yMax) {
+        if (!(xMax > xMin) || !(yMax > yMin)) {
+            throw new IllegalArgumentException("Periodic box must have a positive width and height");
+        }
+        this.xMin = xMin;
+        this.yMin = yMin;
+        this.width = xMax - xMin;
+        this.height = yMax - yMin;
+    }
+
+    /**
+     * @param x an x coordinate
+     * @return the same x coordinate brought into the box
+     */
+    public double wrapX(double x) {
+        return wrap(x, xMin, width);
+    }
+
+    /**
+     * @param y a y coordinate
+     * @return the same y coordinate brought into the box
+     */
+    public double wrapY(double y) {
+        return wrap(y, yMin, height);
+    }
+
+    /**
+     * Brings a position into the box
+     *
+     * @param position the position, changed in place
+     */
+    public void wrap(PVector position) {
+        position.set(wrapX(position.getX()), wrapY(position.getY()), position.getZ());
+    }
+
+    /**
+     * @param dx difference of two x coordinates
+     * @return the shortest x separation of their periodic images
+     */
+    public double imageX(double dx) {
+        return dx - width * Math.rint(dx / width);
+    }
+
+    /**
+     * @param dy difference of two y coordinates
+     * @return the shortest y separation of their periodic images
+     */
+    public double imageY(double dy) {
+        return dy - height * Math.rint(dy / height);
+    }
+
+    /**
+     * @param minWidth narrowest cell allowed
+     * @return number of equal cells across the box at least that wide
+     * @throws IllegalStateException if fewer than {@link #MIN_CELLS} fit
+     */
+    int cellsAcross(double minWidth) {
+        return cells(width, minWidth);
+    }
+
+    /**
+     * @param minHeight lowest cell allowed
+     * @return number of equal cells down the box at least that high
+     * @throws IllegalStateException if fewer than {@link #MIN_CELLS} fit
+     */
+    int cellsDown(double minHeight) {
+        return cells(height, minHeight);
+    }
+
+    private static int cells(double length, double minLength) {
+        int cells = (int) Math.floor(length / minLength);
+        if (cells < MIN_CELLS) {
+            throw new IllegalStateException(String.format("Periodic box of %.1f is too small for cells of %.1f",
+                    length, minLength));
+        }
+        return cells;
+    }
+
+    private static double wrap(double value, double min, double length) {
+        double wrapped = value - length * Math.floor((value - min) / length);
+        return wrapped >= min + length ? min : wrapped;
+    }
+
+    public double getXMin() {
+        return xMin;
+    }
+
+    public double getYMin() {
+        return yMin;
+    }
+
+    public double getWidth() {
+        return width;
+    }
+
+    public double getHeight() {
+        return height;
+    }
+}
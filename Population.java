@@ -0,0 +1,209 @@
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * Array backed list of the members of the simulation, such as its {@link Bacterium}s.
+ * Structural changes made while a step is running are queued with {@link #queueAdd} and
+ * {@link #queueRemove} and only applied by {@link #flush()}, so indices stay stable for the whole step.
+ * Flushing gives the slot of each removed member to a queued addition, and closes any slot left over
+ * by moving the last member into it, so every change costs O(1) regardless of the population size.
+ * Member order is therefore not preserved across a flush.
+ *
+ * @param <T> type of the members
+ * @author Brian Mbawa, Seth McNevin, Gladwin Ngobeni
+ */
+public class Population<T> extends AbstractList<T> implements RandomAccess {
+
+    private Object[] members;
+    private int size = 0;
+
+    /**
+     * Command buffer -- indices to remove and members to add at the next flush
+     */
+    private int[] pendingRemovals = new int[8];
+    private int pendingRemovalCount = 0;
+    private Object[] pendingAdditions = new Object[8];
+    private int pendingAdditionCount = 0;
+
+    public Population() {
+        this(16);
+    }
+
+    /**
+     * @param capacity initial number of members that can be held without growing
+     */
+    public Population(int capacity) {
+        members = new Object[Math.max(capacity, 1)];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        checkIndex(index);
+        return (T) members[index];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T set(int index, T member) {
+        checkIndex(index);
+        T previous = (T) members[index];
+        members[index] = member;
+        return previous;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Appends a member immediately
+     *
+     * @param member the member to add
+     * @return true
+     */
+    @Override
+    public boolean add(T member) {
+        if (size == members.length) {
+            members = Arrays.copyOf(members, size * 2);
+        }
+        members[size++] = member;
+        modCount++;
+        return true;
+    }
+
+    /**
+     * Removes a member immediately, shifting the members after it so order is kept. Use
+     * {@link #swapRemove(int)} or {@link #queueRemove(int)} where order does not matter.
+     *
+     * @param index index of the member
+     * @return the removed member
+     */
+    @Override
+    public T remove(int index) {
+        T removed = get(index);
+        System.arraycopy(members, index + 1, members, index, size - index - 1);
+        members[--size] = null;
+        modCount++;
+        return removed;
+    }
+
+    /**
+     * Removes a member immediately in O(1) by moving the last member into its slot
+     *
+     * @param index index of the member
+     * @return the removed member
+     */
+    public T swapRemove(int index) {
+        T removed = get(index);
+        members[index] = members[size - 1];
+        members[--size] = null;
+        modCount++;
+        return removed;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(members, 0, size, null);
+        size = 0;
+        Arrays.fill(pendingAdditions, 0, pendingAdditionCount, null);
+        pendingAdditionCount = 0;
+        pendingRemovalCount = 0;
+        modCount++;
+    }
+
+    /**
+     * Queues a member to be added at the next flush
+     *
+     * @param member the member to add
+     */
+    public void queueAdd(T member) {
+        if (pendingAdditionCount == pendingAdditions.length) {
+            pendingAdditions = Arrays.copyOf(pendingAdditions, pendingAdditionCount * 2);
+        }
+        pendingAdditions[pendingAdditionCount++] = member;
+    }
+
+    /**
+     * Queues the member at an index to be removed at the next flush. Queuing an index twice removes it once.
+     *
+     * @param index index of the member
+     */
+    public void queueRemove(int index) {
+        checkIndex(index);
+        if (pendingRemovalCount == pendingRemovals.length) {
+            pendingRemovals = Arrays.copyOf(pendingRemovals, pendingRemovalCount * 2);
+        }
+        pendingRemovals[pendingRemovalCount++] = index;
+    }
+
+    /**
+     * @return number of structural changes so far, so that owners can notice members added or removed by others
+     */
+    public int getModCount() {
+        return modCount;
+    }
+
+    /**
+     * @return true if changes are queued
+     */
+    public boolean hasPendingChanges() {
+        return pendingRemovalCount > 0 || pendingAdditionCount > 0;
+    }
+
+    /**
+     * Applies the queued changes. Additions first take over the slots of removed members;
+     * leftover slots are closed from the highest index down by swap-remove, and leftover additions are appended.
+     */
+    public void flush() {
+        if (!hasPendingChanges()) {
+            return;
+        }
+        Arrays.sort(pendingRemovals, 0, pendingRemovalCount);
+        int removals = 0;
+        for (int i = 0; i < pendingRemovalCount; i++) {
+            if (i == 0 || pendingRemovals[i] != pendingRemovals[i - 1]) {
+                pendingRemovals[removals++] = pendingRemovals[i];
+            }
+        }
+
+        /*
+        Reuse released slots for new members
+         */
+        int reused = Math.min(removals, pendingAdditionCount);
+        for (int i = 0; i < reused; i++) {
+            members[pendingRemovals[i]] = pendingAdditions[i];
+        }
+
+        /*
+        Close the remaining slots from the top down so the member moved in is never one still to be removed
+         */
+        for (int i = removals - 1; i >= reused; i--) {
+            int index = pendingRemovals[i];
+            members[index] = members[size - 1];
+            members[--size] = null;
+        }
+
+        for (int i = reused; i < pendingAdditionCount; i++) {
+            add(castPending(i));
+        }
+
+        Arrays.fill(pendingAdditions, 0, pendingAdditionCount, null);
+        pendingAdditionCount = 0;
+        pendingRemovalCount = 0;
+        modCount++;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T castPending(int i) {
+        return (T) pendingAdditions[i];
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " of " + size);
+        }
+    }
+}
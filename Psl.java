@@ -8,8 +8,15 @@ import java.util.Objects;
  */
 public class Psl extends SimulationObject implements Serializable {
 
+    private static final long serialVersionUID = -867617010950935900L;
+
     private int visitCount;
 
+    /*
+    True while the cell waits in the changes its grid tracks for the next checkpoint
+     */
+    private transient boolean changed;
+
     /**
      *  Creates a psl particle at given position on the screen
      *
@@ -22,7 +29,7 @@ public class Psl extends SimulationObject implements Serializable {
         this.visitCount = 1;
     }
 
-    public void incrementCount () {
+    public synchronized void incrementCount () {
         this.visitCount++;
     }
 
@@ -30,6 +37,25 @@ public class Psl extends SimulationObject implements Serializable {
         return this.visitCount;
     }
 
+    void setCount(int visitCount) {
+        this.visitCount = visitCount;
+    }
+
+    /**
+     * Marks the cell as changed since the last checkpoint
+     *
+     * @return false if it was already marked
+     */
+    synchronized boolean markChanged() {
+        boolean first = !changed;
+        changed = true;
+        return first;
+    }
+
+    synchronized void clearChanged() {
+        changed = false;
+    }
+
 
     @Override
     public boolean equals(Object o) {
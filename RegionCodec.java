@@ -0,0 +1,190 @@
+import java.awt.*;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records of the bodies a {@link DistributedRegion} sends its neighbours: the bacteria and EPS particles
+ * migrating into them and the ghosts of their halos. A bacterium is sent whole, with the state a
+ * {@link CheckpointDelta} keeps of it and the id of its father; an EPS particle with its kinematic state and the
+ * keys of the particles it has bonded with.
+ * <p>
+ * Particles are named across processes by the stable keys of a {@link CheckpointDelta}: {@code id << 3 | k} for
+ * particle k of a bacterium and {@code id << 3 | 7} for an EPS particle.
+ *
+ * @author Brian Mbawa, Seth McNevin, Gladwin Ngobeni
+ */
+final class RegionCodec {
+
+    private static final int N = SimSnapshot.PARTICLES_PER_BACTERIUM;
+
+    /**
+     * Key slot of EPS particles
+     */
+    static final int EPS_SLOT = 7;
+
+    private RegionCodec() {
+    }
+
+    /**
+     * @return key of particle k of a bacterium
+     */
+    static long key(Bacterium bacterium, int k) {
+        return ((long) bacterium.getId() << 3) | k;
+    }
+
+    /**
+     * @return key of an EPS particle
+     */
+    static long key(EPS epsParticle) {
+        return ((long) epsParticle.getId() << 3) | EPS_SLOT;
+    }
+
+    static int id(long key) {
+        return (int) (key >>> 3);
+    }
+
+    static int slot(long key) {
+        return (int) (key & 7);
+    }
+
+    static void writeBacterium(DataOutputStream out, Bacterium bacterium) throws IOException {
+        out.writeInt(bacterium.getId());
+        out.writeInt(bacterium.getFatherId());
+        out.writeInt(bacterium.getColor().getRGB());
+        out.writeUTF(bacterium.getStrain());
+        out.writeInt((bacterium.isRunning() ? SimSnapshot.FLAG_RUNNING : 0)
+                | (bacterium.isTumbling() ? SimSnapshot.FLAG_TUMBLING : 0)
+                | (bacterium.isClockwise() ? SimSnapshot.FLAG_CLOCKWISE : 0)
+                | (bacterium.isPslClockwise() ? SimSnapshot.FLAG_PSL_CLOCKWISE : 0)
+                | (bacterium.isReproduced() ? SimSnapshot.FLAG_REPRODUCED : 0));
+        out.writeDouble(bacterium.getRunEndTime());
+        out.writeDouble(bacterium.getTumbleEndTime());
+        out.writeDouble(bacterium.getBirthTime());
+        out.writeDouble(bacterium.getGrowthRate());
+        out.writeDouble(bacterium.getInsertionRate());
+        out.writeDouble(bacterium.getNextInsertionTime());
+        out.writeDouble(bacterium.getFrictionCoeffecient());
+        writeVector(out, bacterium.getBacteriaVelocity());
+        writeVector(out, bacterium.getBacteriaDirection());
+        for (Particle particle : bacterium.getParticles()) {
+            writeParticle(out, particle);
+        }
+    }
+
+    /**
+     * Reads a bacterium record, updating the bacterium already known by its id in place so that bonds to its
+     * particles hold, or building and registering a new one
+     *
+     * @param in the record
+     * @param known bacteria known to this process by id
+     * @return the bacterium read
+     */
+    static Bacterium readBacterium(DataInputStream in, Map<Integer, Bacterium> known) throws IOException {
+        int id = in.readInt();
+        int fatherId = in.readInt();
+        Color color = new Color(in.readInt());
+        String strain = in.readUTF();
+        int flags = in.readInt();
+        double runEndTime = in.readDouble();
+        double tumbleEndTime = in.readDouble();
+        double birthTime = in.readDouble();
+        double growthRate = in.readDouble();
+        double insertionRate = in.readDouble();
+        double nextInsertionTime = in.readDouble();
+        double friction = in.readDouble();
+        PVector velocity = readVector(in);
+        PVector direction = readVector(in);
+
+        Bacterium bacterium = known.get(id);
+        if (bacterium == null) {
+            /*
+            Record the birth first, so the new bacterium picks up its father
+             */
+            LineageStore lineage = Bacterium.getLineage();
+            if (Double.isNaN(lineage.getBirthTime(id))) {
+                lineage.recordBirth(id, fatherId, birthTime);
+            }
+            List<Particle> particles = new ArrayList<>(N);
+            for (int k = 0; k < N; k++) {
+                particles.add(new Particle(0, 0, PVector.ZERO, PVector.ZERO));
+            }
+            bacterium = new Bacterium(id, strain, color, particles, birthTime, growthRate);
+            known.put(id, bacterium);
+        }
+        for (Particle particle : bacterium.getParticles()) {
+            readParticle(in, particle);
+        }
+        bacterium.restoreState(
+                (flags & SimSnapshot.FLAG_RUNNING) != 0, runEndTime,
+                (flags & SimSnapshot.FLAG_TUMBLING) != 0, tumbleEndTime,
+                (flags & SimSnapshot.FLAG_CLOCKWISE) != 0,
+                (flags & SimSnapshot.FLAG_PSL_CLOCKWISE) != 0,
+                (flags & SimSnapshot.FLAG_REPRODUCED) != 0,
+                insertionRate, nextInsertionTime, friction, velocity, direction);
+        return bacterium;
+    }
+
+    /**
+     * @param bondKeys keys of the particles the EPS particle has bonded with
+     */
+    static void writeEps(DataOutputStream out, EPS epsParticle, long[] bondKeys) throws IOException {
+        out.writeInt(epsParticle.getId());
+        writeParticle(out, epsParticle);
+        out.writeInt(bondKeys.length);
+        for (long key : bondKeys) {
+            out.writeLong(key);
+        }
+    }
+
+    /**
+     * Reads an EPS record, updating the particle already known by its id in place or building and registering a
+     * new one. Its bonds are left for the caller to resolve once every record is in.
+     *
+     * @param in the record
+     * @param known EPS particles known to this process by id
+     * @param bonds filled with the bond keys of the particle read
+     * @return the EPS particle read
+     */
+    static EPS readEps(DataInputStream in, Map<Integer, EPS> known, Map<EPS, long[]> bonds) throws IOException {
+        int id = in.readInt();
+        EPS epsParticle = known.get(id);
+        if (epsParticle == null) {
+            epsParticle = new EPS(0, 0, PVector.ZERO, PVector.ZERO);
+            epsParticle.restoreId(id);
+            known.put(id, epsParticle);
+        }
+        readParticle(in, epsParticle);
+        long[] keys = new long[in.readInt()];
+        for (int k = 0; k < keys.length; k++) {
+            keys[k] = in.readLong();
+        }
+        bonds.put(epsParticle, keys);
+        return epsParticle;
+    }
+
+    private static void writeParticle(DataOutputStream out, Particle particle) throws IOException {
+        writeVector(out, particle.getPosition());
+        writeVector(out, particle.getVelocity());
+        writeVector(out, particle.getAcceleration());
+    }
+
+    private static void readParticle(DataInputStream in, Particle particle) throws IOException {
+        particle.setPosition(readVector(in));
+        particle.setVelocity(readVector(in));
+        particle.setAcceleration(readVector(in));
+    }
+
+    private static void writeVector(DataOutputStream out, PVector vector) throws IOException {
+        out.writeDouble(vector.getX());
+        out.writeDouble(vector.getY());
+        out.writeDouble(vector.getZ());
+    }
+
+    private static PVector readVector(DataInputStream in) throws IOException {
+        return new PVector(in.readDouble(), in.readDouble(), in.readDouble());
+    }
+}
@@ -0,0 +1,304 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * The sockets between the processes of a distributed run, one per pair of {@link DistributedRegion}s that talk
+ * to each other. Every process listens on the port of its own address, connects to the peers of lower rank and
+ * accepts the peers of higher rank, each of which introduces itself with its rank.
+ * <p>
+ * Messages are framed as their length followed by their bytes. {@link #exchange} writes a frame to every peer
+ * it is given and reads one frame from every peer it waits for, on non-blocking channels under one
+ * {@link Selector}, so two processes sending each other large frames never wait on each other's full buffers.
+ * <p>
+ * A peer silent for longer than {@code -Dbiofilm.netTimeout} milliseconds, 60 s by default, or one that closes its
+ * connection fails the exchange with an {@link IOException}.
+ *
+ * @author Brian Mbawa, Seth McNevin, Gladwin Ngobeni
+ */
+public final class RegionNetwork implements Closeable {
+
+    /**
+     * Milliseconds to wait for a peer to connect or to send before giving up on it
+     */
+    static final long TIMEOUT = Long.getLong("biofilm.netTimeout", 60_000);
+
+    /**
+     * Milliseconds between attempts to connect to a peer that is not listening yet
+     */
+    private static final long RETRY_INTERVAL = 100;
+
+    private final int rank;
+    private final Selector selector;
+    private final Map<Integer, Peer> peers = new TreeMap<>();
+
+    /**
+     * Traffic and the time spent waiting on it since the network was opened
+     */
+    private long bytesSent;
+    private long bytesReceived;
+    private long waitNanos;
+
+    /**
+     * The connection to one peer and the frames in flight on it
+     */
+    private static final class Peer {
+        private final int rank;
+        private final SocketChannel channel;
+        private final SelectionKey key;
+
+        /*
+        Frame being written, null when there is none
+         */
+        private ByteBuffer out;
+
+        /*
+        Length of the frame being read, then its bytes -- reading is false when no frame is awaited
+         */
+        private final ByteBuffer header = ByteBuffer.allocate(Integer.BYTES);
+        private ByteBuffer in;
+        private boolean reading;
+
+        private Peer(int rank, SocketChannel channel, Selector selector) throws IOException {
+            this.rank = rank;
+            this.channel = channel;
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            this.key = channel.register(selector, 0, this);
+        }
+    }
+
+    /**
+     * Connects a process to its peers, waiting up to {@link #TIMEOUT} for all of them
+     *
+     * @param rank rank of this process
+     * @param addresses address of every process by rank
+     * @param peerRanks ranks of the processes this one talks to
+     * @throws IOException if a peer cannot be reached in time
+     */
+    public RegionNetwork(int rank, List<InetSocketAddress> addresses, Set<Integer> peerRanks) throws IOException {
+        this.rank = rank;
+        this.selector = Selector.open();
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        try (ServerSocketChannel server = ServerSocketChannel.open()) {
+            server.bind(new InetSocketAddress(addresses.get(rank).getPort()), peerRanks.size());
+
+            /*
+            Connect to the lower ranks, which may still be starting up
+             */
+            for (int peer : peerRanks) {
+                if (peer < rank) {
+                    SocketChannel channel = connect(addresses.get(peer), deadline);
+                    ByteBuffer hello = ByteBuffer.allocate(Integer.BYTES).putInt(rank).flip();
+                    while (hello.hasRemaining()) {
+                        channel.write(hello);
+                    }
+                    peers.put(peer, new Peer(peer, channel, selector));
+                }
+            }
+
+            /*
+            Accept the higher ranks, each telling us its rank first
+             */
+            long expected = peerRanks.stream().filter(peer -> peer > rank).count();
+            server.configureBlocking(false);
+            try (Selector accepting = Selector.open()) {
+                server.register(accepting, SelectionKey.OP_ACCEPT);
+                while (expected > 0) {
+                    long left = deadline - System.currentTimeMillis();
+                    if (left <= 0 || accepting.select(left) == 0) {
+                        throw new IOException(String.format("Region %d: %d peers never connected", rank, expected));
+                    }
+                    accepting.selectedKeys().clear();
+                    SocketChannel channel;
+                    while ((channel = server.accept()) != null) {
+                        channel.configureBlocking(true);
+                        ByteBuffer hello = ByteBuffer.allocate(Integer.BYTES);
+                        while (hello.hasRemaining()) {
+                            if (channel.read(hello) < 0) {
+                                throw new IOException("Region " + rank + ": a peer hung up before saying who it was");
+                            }
+                        }
+                        int peer = hello.flip().getInt();
+                        if (!peerRanks.contains(peer) || peer < rank || peers.containsKey(peer)) {
+                            channel.close();
+                            throw new IOException("Region " + rank + ": unexpected connection from region " + peer);
+                        }
+                        peers.put(peer, new Peer(peer, channel, selector));
+                        expected--;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens a connection, retrying while nobody listens at the address yet
+     */
+    private SocketChannel connect(InetSocketAddress address, long deadline) throws IOException {
+        while (true) {
+            try {
+                return SocketChannel.open(new InetSocketAddress(address.getHostString(), address.getPort()));
+            } catch (ConnectException e) {
+                if (System.currentTimeMillis() + RETRY_INTERVAL > deadline) {
+                    throw new IOException("Region " + rank + ": nobody listening at " + address, e);
+                }
+                try {
+                    Thread.sleep(RETRY_INTERVAL);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while connecting to " + address, interrupted);
+                }
+            }
+        }
+    }
+
+    /**
+     * Sends a frame to each of some peers and receives one frame from each of others, all at once
+     *
+     * @param outgoing frame for every peer to send to
+     * @param incoming peers to receive a frame from
+     * @param received filled with the frame received from every peer waited for
+     * @throws IOException if a peer closes its connection or stays silent for longer than {@link #TIMEOUT}
+     */
+    public void exchange(Map<Integer, byte[]> outgoing, Collection<Integer> incoming, Map<Integer, byte[]> received)
+            throws IOException {
+        int pending = 0;
+        for (Map.Entry<Integer, byte[]> entry : outgoing.entrySet()) {
+            Peer peer = peer(entry.getKey());
+            byte[] frame = entry.getValue();
+            peer.out = ByteBuffer.allocate(Integer.BYTES + frame.length).putInt(frame.length).put(frame).flip();
+            bytesSent += peer.out.remaining();
+            pending++;
+        }
+        for (int rank : incoming) {
+            Peer peer = peer(rank);
+            peer.header.clear();
+            peer.in = null;
+            peer.reading = true;
+            pending++;
+        }
+
+        while (pending > 0) {
+            for (Peer peer : peers.values()) {
+                peer.key.interestOps((peer.out != null ? SelectionKey.OP_WRITE : 0)
+                        | (peer.reading ? SelectionKey.OP_READ : 0));
+            }
+            long start = System.nanoTime();
+            int ready = selector.select(TIMEOUT);
+            waitNanos += System.nanoTime() - start;
+            if (ready == 0) {
+                throw new IOException("Region " + rank + ": no word from " + silentPeers() + " for " + TIMEOUT + " ms");
+            }
+            for (SelectionKey key : selector.selectedKeys()) {
+                Peer peer = (Peer) key.attachment();
+                if (key.isWritable() && peer.out != null) {
+                    peer.channel.write(peer.out);
+                    if (!peer.out.hasRemaining()) {
+                        peer.out = null;
+                        pending--;
+                    }
+                }
+                if (key.isReadable() && peer.reading && read(peer)) {
+                    byte[] frame = peer.in.array();
+                    bytesReceived += Integer.BYTES + frame.length;
+                    received.put(peer.rank, frame);
+                    peer.reading = false;
+                    pending--;
+                }
+            }
+            selector.selectedKeys().clear();
+        }
+    }
+
+    /**
+     * Reads what has arrived of the frame a peer is sending, never past its end
+     *
+     * @return true once the whole frame is in
+     */
+    private boolean read(Peer peer) throws IOException {
+        if (peer.in == null) {
+            if (peer.channel.read(peer.header) < 0) {
+                throw new IOException("Region " + rank + ": region " + peer.rank + " closed its connection");
+            }
+            if (peer.header.hasRemaining()) {
+                return false;
+            }
+            peer.in = ByteBuffer.allocate(peer.header.flip().getInt());
+        }
+        if (peer.in.hasRemaining() && peer.channel.read(peer.in) < 0) {
+            throw new IOException("Region " + rank + ": region " + peer.rank + " closed its connection");
+        }
+        return !peer.in.hasRemaining();
+    }
+
+    private Peer peer(int rank) {
+        Peer peer = peers.get(rank);
+        if (peer == null) {
+            throw new IllegalArgumentException("Region " + this.rank + " has no connection to region " + rank);
+        }
+        return peer;
+    }
+
+    /**
+     * @return the peers still owing or owed a frame, for error messages
+     */
+    private String silentPeers() {
+        StringBuilder silent = new StringBuilder();
+        for (Peer peer : peers.values()) {
+            if (peer.out != null || peer.reading) {
+                silent.append(silent.length() == 0 ? "region " : ", ").append(peer.rank);
+            }
+        }
+        return silent.toString();
+    }
+
+    public int getRank() {
+        return rank;
+    }
+
+    /**
+     * @return ranks of the peers this process is connected to
+     */
+    public Set<Integer> getPeers() {
+        return peers.keySet();
+    }
+
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    public long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    /**
+     * @return nanoseconds spent waiting for peers to take or send frames
+     */
+    public long getWaitNanos() {
+        return waitNanos;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Peer peer : peers.values()) {
+            peer.channel.close();
+        }
+        selector.close();
+    }
+}
@@ -0,0 +1,118 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Grows the same seeded colonies with the pair forces evaluated every step and every k steps
+ * ({@link SimEngine#setRespaFactor(int)}), and reports the run time and the drift of the potential energy for
+ * each k:
+ *
+ * <pre>
+ * java RespaBenchmark [bacteria] [seconds] [repeats]
+ * </pre>
+ *
+ * The colonies are driven by their run and tumble motion, so their energy is not conserved even with k = 1.
+ * The drift of every k -- the least squares slope of the potential energy per particle against time -- is
+ * therefore printed next to its difference from the drift with k = 1.
+ *
+ * @author Brian Mbawa, Seth McNevin, Gladwin Ngobeni
+ */
+public class RespaBenchmark {
+
+    private static final double WIDTH = 1200;
+    private static final double HEIGHT = 900;
+
+    /**
+     * Substeps per evaluation of the pair forces
+     */
+    private static final int[] FACTORS = {1, 2, 4, 8};
+
+    /**
+     * Simulated seconds between energy samples
+     */
+    private static final double SAMPLE_INTERVAL = 0.05;
+
+    public static void main(String[] args) {
+        int bacteria = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        double seconds = args.length > 1 ? Double.parseDouble(args[1]) : 3;
+        int repeats = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+
+        /*
+        Warm up the JIT so the first factor is not timed cold
+         */
+        run(1, bacteria, Math.min(seconds, 2), 1);
+
+        System.out.printf("%d bacteria, %.1f simulated seconds, %d repeats%n", bacteria, seconds, repeats);
+        System.out.printf("%-4s %10s %8s %14s %16s %16s%n", "k", "wall s", "speedup", "energy/part", "drift /s", "drift - k=1");
+        double referenceSeconds = 0;
+        double referenceDrift = 0;
+        for (int k : FACTORS) {
+            double wall = 0;
+            double energy = 0;
+            double drift = 0;
+            for (int r = 0; r < repeats; r++) {
+                double[] result = run(k, bacteria, seconds, 1000L + r);
+                wall += result[0] / repeats;
+                energy += result[1] / repeats;
+                drift += result[2] / repeats;
+            }
+            if (k == 1) {
+                referenceSeconds = wall;
+                referenceDrift = drift;
+            }
+            System.out.printf("%-4d %10.2f %8.2f %14.3f %16.3f %16.3f%n", k, wall, referenceSeconds / wall, energy,
+                    drift, drift - referenceDrift);
+        }
+    }
+
+    /**
+     * Grows one colony
+     *
+     * @return wall seconds spent stepping, mean potential energy per particle, and its drift per second
+     */
+    private static double[] run(int factor, int count, double seconds, long seed) {
+        SimEngine engine = new SimEngine(0, WIDTH, 0, HEIGHT);
+        engine.setRespaFactor(factor);
+        EPS.BOND_CHECK_TIME = 0;
+        ColonySeeder seeder = new ColonySeeder(0, 0, WIDTH, HEIGHT);
+        seeder.setSeed(seed);
+        seeder.seed(count, "StrainA", true, 0.0, engine.getBacteria());
+
+        double dt = engine.getTimeStep();
+        long steps = Math.round(seconds / dt);
+        long sampleEvery = Math.max(1, Math.round(SAMPLE_INTERVAL / dt));
+        List<double[]> samples = new ArrayList<>();
+        double time = 0;
+        long wall = 0;
+        for (long step = 1; step <= steps; step++) {
+            long start = System.nanoTime();
+            engine.step(time);
+            wall += System.nanoTime() - start;
+            time += dt;
+            if (step % sampleEvery == 0) {
+                int particles = engine.getEPS().size();
+                for (Bacterium bacterium : engine.getBacteria()) {
+                    particles += bacterium.getParticles().size();
+                }
+                samples.add(new double[]{time, engine.getPotentialEnergy(time) / particles});
+            }
+        }
+        engine.clear();
+
+        /*
+        Mean and least squares slope of the energy samples
+         */
+        double meanTime = 0;
+        double meanEnergy = 0;
+        for (double[] sample : samples) {
+            meanTime += sample[0] / samples.size();
+            meanEnergy += sample[1] / samples.size();
+        }
+        double covariance = 0;
+        double variance = 0;
+        for (double[] sample : samples) {
+            covariance += (sample[0] - meanTime) * (sample[1] - meanEnergy);
+            variance += (sample[0] - meanTime) * (sample[0] - meanTime);
+        }
+        return new double[]{wall / 1e9, meanEnergy, variance == 0 ? 0 : covariance / variance};
+    }
+}
@@ -0,0 +1,431 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Replaces stiff bonded networks of {@link EPS} particles with rigid bodies. A cluster moves as a whole: the
+ * forces on its particles from outside the cluster are summed into a force on its centre and a torque about it,
+ * the centre and the orientation are advanced by the run's {@link Integrator}, and the particles are placed
+ * back at their fixed offsets. The bonds inside a cluster are not evaluated, and neither are its particles
+ * moved one by one.
+ * <p>
+ * The EPS bond pushes particles apart beyond its rest length and pulls them together below it, so bonded
+ * particles either drift out of range or collapse onto each other into tight clumps, held there by the full
+ * pull of their bonds. Every {@link #CHECK_EVALUATIONS} evaluations of the pair forces the clusters are
+ * dissolved and found again: particles bonded both ways and collapsed to within {@link #COLLAPSED_LENGTH} of
+ * each other belong to the same cluster, as do the members of a cluster that held together, and a group of at
+ * least {@link #MIN_SIZE} particles becomes a cluster unless two of its particles are in range without such a
+ * bond -- a bond that could still form or a pair still collapsing. Between checks a cluster splits back into
+ * particles as soon as holding it rigid would take a force above {@link #MAX_CONSTRAINT_FORCE} on one of its
+ * particles, more than its bonds pull with.
+ * <p>
+ * Both the centre and the orientation are advanced as unit-mass particles, the centre by the mean force and
+ * the orientation by the torque over the moment of inertia. Velocity Verlet, whose EPS velocities are reset
+ * every step, then moves a cluster as its particles would move on average, and the overdamped integrator gives
+ * the mobilities of a rigid body of free-draining particles.
+ * <p>
+ * In a {@link PeriodicBox} distances and offsets are taken between nearest images, so a cluster may straddle an
+ * edge, and its centre and members are wrapped back into the box after every step.
+ * <p>
+ * Clusters are switched on with {@code -Dbiofilm.rigidClusters=true}.
+ *
+ * @author Brian Mbawa, Seth McNevin, Gladwin Ngobeni
+ */
+public class RigidClusters {
+
+    /**
+     * True if stiff EPS networks are moved as rigid bodies, switched on with -Dbiofilm.rigidClusters=true
+     */
+    public static final boolean ENABLED = Boolean.getBoolean("biofilm.rigidClusters");
+
+    /**
+     * Pair force evaluations between checks -- a quarter of a second at the original step
+     */
+    static final int CHECK_EVALUATIONS = 50;
+
+    /**
+     * Fewest particles worth treating as a body -- a collapsed pair already saves its bonds and a particle
+     */
+    static final int MIN_SIZE = 2;
+
+    /**
+     * Longest bond of a collapsed pair
+     */
+    static final double COLLAPSED_LENGTH = 1;
+
+    /**
+     * Largest force holding a particle in its place in the cluster -- the pull of a bond collapsed to
+     * {@link #COLLAPSED_LENGTH}
+     */
+    static final double MAX_CONSTRAINT_FORCE = EPS.BOND_STIFFNESS * (EPS.BOND_LENGTH - COLLAPSED_LENGTH);
+
+    /**
+     * A rigid body of EPS particles
+     */
+    static final class Cluster {
+        final int id;
+        private final EPS[] members;
+
+        /*
+        Offsets of the members from the centre at orientation 0
+         */
+        private final double[] offsetX;
+        private final double[] offsetY;
+
+        /*
+        Offsets of the members at the current orientation
+         */
+        private final double[] armX;
+        private final double[] armY;
+
+        private final double momentOfInertia;
+
+        /**
+         * The centre of the cluster, and its orientation as the x coordinate of a second particle
+         */
+        private final Particle centre;
+        private final Particle orientation;
+
+        /*
+        Periodic boundaries the cluster is wrapped across, null for none
+         */
+        private final PeriodicBox box;
+
+        private Cluster(int id, List<EPS> particles, PeriodicBox box) {
+            this.id = id;
+            this.box = box;
+            members = particles.toArray(new EPS[0]);
+            int n = members.length;
+
+            /*
+            Centre as the mean of the members' nearest images to the first member
+             */
+            double firstX = members[0].getPosition().getX();
+            double firstY = members[0].getPosition().getY();
+            double cx = 0;
+            double cy = 0;
+            for (EPS member : members) {
+                cx += imageX(member.getPosition().getX() - firstX);
+                cy += imageY(member.getPosition().getY() - firstY);
+            }
+            cx = firstX + cx / n;
+            cy = firstY + cy / n;
+            offsetX = new double[n];
+            offsetY = new double[n];
+            armX = new double[n];
+            armY = new double[n];
+            double inertia = 0;
+            for (int i = 0; i < n; i++) {
+                offsetX[i] = imageX(members[i].getPosition().getX() - cx);
+                offsetY[i] = imageY(members[i].getPosition().getY() - cy);
+                armX[i] = offsetX[i];
+                armY[i] = offsetY[i];
+                inertia += offsetX[i] * offsetX[i] + offsetY[i] * offsetY[i];
+            }
+            momentOfInertia = inertia;
+            centre = new Particle(cx, cy, new PVector(0, 0, 0), new PVector(0, 0, 0));
+            orientation = new Particle(0, 0, new PVector(0, 0, 0), new PVector(0, 0, 0));
+            if (box != null) {
+                box.wrap(centre.getPosition());
+            }
+        }
+
+        private double imageX(double dx) {
+            return box == null ? dx : box.imageX(dx);
+        }
+
+        private double imageY(double dy) {
+            return box == null ? dy : box.imageY(dy);
+        }
+
+        /**
+         * Moves the cluster under the forces on its members, or dissolves it if holding it rigid takes too much
+         *
+         * @return false if the cluster was dissolved, its members left to move on their own
+         */
+        private boolean advance(Integrator integrator, double dt) {
+            /*
+            Total force and torque about the centre
+             */
+            double fx = 0;
+            double fy = 0;
+            double torque = 0;
+            for (int i = 0; i < members.length; i++) {
+                if (members[i].getCluster() != this) {
+                    dissolve();
+                    return false;
+                }
+                PVector force = members[i].getNetForce();
+                fx += force.getX();
+                fy += force.getY();
+                torque += armX[i] * force.getY() - armY[i] * force.getX();
+            }
+            double ax = fx / members.length;
+            double ay = fy / members.length;
+
+            /*
+            Members that all coincide have no orientation to turn
+             */
+            double angularAcceleration = momentOfInertia > 0 ? torque / momentOfInertia : 0;
+
+            /*
+            The force the bonds would need to keep each member in place -- too much and the cluster splits
+             */
+            double limit = MAX_CONSTRAINT_FORCE * MAX_CONSTRAINT_FORCE;
+            for (int i = 0; i < members.length; i++) {
+                PVector force = members[i].getNetForce();
+                double cx = ax - angularAcceleration * armY[i] - force.getX();
+                double cy = ay + angularAcceleration * armX[i] - force.getY();
+                if (cx * cx + cy * cy > limit) {
+                    dissolve();
+                    return false;
+                }
+            }
+
+            /*
+            Advance the centre and the orientation, at rest at the start of the step like every EPS particle
+             */
+            centre.getVelocity().set(0, 0, 0);
+            centre.getNetForce().set(ax, ay, 0);
+            integrator.advance(centre, dt);
+            if (box != null) {
+                box.wrap(centre.getPosition());
+            }
+            orientation.getVelocity().set(0, 0, 0);
+            orientation.getNetForce().set(angularAcceleration, 0, 0);
+            integrator.advance(orientation, dt);
+
+            /*
+            Place the members
+             */
+            double angle = orientation.getPosition().getX();
+            double cos = Math.cos(angle);
+            double sin = Math.sin(angle);
+            double x = centre.getPosition().getX();
+            double y = centre.getPosition().getY();
+            for (int i = 0; i < members.length; i++) {
+                armX[i] = offsetX[i] * cos - offsetY[i] * sin;
+                armY[i] = offsetX[i] * sin + offsetY[i] * cos;
+                PVector position = members[i].getPosition();
+                position.set(x + armX[i], y + armY[i], position.getZ());
+                if (box != null) {
+                    box.wrap(position);
+                }
+                members[i].getNetForce().set(0, 0, 0);
+            }
+            return true;
+        }
+
+        /**
+         * Hands the members back to the simulation as free particles
+         */
+        private void dissolve() {
+            for (EPS member : members) {
+                if (member.getCluster() == this) {
+                    member.setCluster(null);
+                    member.getAcceleration().set(0, 0, 0);
+                }
+            }
+        }
+    }
+
+    private final List<Cluster> clusters = new ArrayList<>();
+    private int nextId = 1;
+    private int evaluationsSinceCheck;
+    private long splits;
+
+    /*
+    Periodic boundaries of the simulation, null for none
+     */
+    private PeriodicBox box;
+
+    /*
+    Union-find over the EPS particles of a check, and the groups that cannot be rigid
+     */
+    private int[] parent = new int[256];
+    private boolean[] flexible = new boolean[256];
+
+    /**
+     * Counts a pair force evaluation about to be made, and every {@link #CHECK_EVALUATIONS} evaluations finds the
+     * clusters again from the pairs of the last one -- before the forces, so none of them is evaluated inside a
+     * new cluster
+     *
+     * @param eps EPS particles of the simulation
+     * @param field the force field, holding the pairs it found last
+     */
+    public void beforePairs(List<EPS> eps, ForceField field) {
+        if (++evaluationsSinceCheck < CHECK_EVALUATIONS) {
+            return;
+        }
+        evaluationsSinceCheck = 0;
+        int n = eps.size();
+        if (parent.length < n) {
+            parent = new int[Math.max(n, parent.length * 2)];
+            flexible = new boolean[parent.length];
+        }
+        for (int i = 0; i < n; i++) {
+            EPS particle = eps.get(i);
+            particle.sleepIndex = i;
+            parent[i] = i;
+            flexible[i] = particle.isAsleep();
+        }
+
+        /*
+        Keep the clusters that held together -- the evaluation left out the pairs inside them -- then dissolve them
+         */
+        for (Cluster cluster : clusters) {
+            int first = -1;
+            for (EPS member : cluster.members) {
+                int i = member.sleepIndex;
+                if (member.getCluster() != cluster || i >= n || eps.get(i) != member) {
+                    continue;
+                }
+                if (first < 0) {
+                    first = i;
+                } else {
+                    union(first, i);
+                }
+            }
+            cluster.dissolve();
+        }
+        clusters.clear();
+
+        /*
+        Join the collapsed pairs bonded both ways
+         */
+        field.visitPairs((first, second) -> {
+            if (first instanceof EPS a && second instanceof EPS b && isStiff(a, b)) {
+                union(a.sleepIndex, b.sleepIndex);
+            }
+        });
+
+        /*
+        A group is flexible if a pair in range inside it is not such a pair
+         */
+        field.visitPairs((first, second) -> {
+            if (first instanceof EPS a && second instanceof EPS b && !isStiff(a, b)) {
+                int root = find(a.sleepIndex);
+                if (root == find(b.sleepIndex)) {
+                    flexible[root] = true;
+                }
+            }
+        });
+
+        List<List<EPS>> groups = new ArrayList<>(Collections.nCopies(n, null));
+        for (int i = 0; i < n; i++) {
+            if (flexible[i]) {
+                flexible[find(i)] = true;
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            int root = find(i);
+            if (flexible[root]) {
+                continue;
+            }
+            if (groups.get(root) == null) {
+                groups.set(root, new ArrayList<>());
+            }
+            groups.get(root).add(eps.get(i));
+        }
+        for (List<EPS> members : groups) {
+            if (members == null) {
+                continue;
+            }
+            if (members.size() >= MIN_SIZE) {
+                Cluster cluster = new Cluster(nextId++, members, box);
+                for (EPS member : members) {
+                    member.setCluster(cluster);
+                    member.getAcceleration().set(0, 0, 0);
+                }
+                clusters.add(cluster);
+            }
+        }
+    }
+
+    /**
+     * @return true if the pairs of the evaluation about to be made are visited by the next check, so they must
+     * all be found by one force field
+     */
+    public boolean needsPairs() {
+        return evaluationsSinceCheck + 1 >= CHECK_EVALUATIONS;
+    }
+
+    /**
+     * Moves every cluster, splitting those under too much stress
+     *
+     * @param integrator the run's integrator
+     * @param dt time step
+     */
+    public void advance(Integrator integrator, double dt) {
+        for (int c = clusters.size() - 1; c >= 0; c--) {
+            if (!clusters.get(c).advance(integrator, dt)) {
+                clusters.set(c, clusters.get(clusters.size() - 1));
+                clusters.remove(clusters.size() - 1);
+                splits++;
+            }
+        }
+    }
+
+    /**
+     * @param box periodic boundaries clusters are measured and wrapped across, null for none
+     */
+    public void setBox(PeriodicBox box) {
+        this.box = box;
+    }
+
+    /**
+     * @return true if two particles have collapsed onto each other and are bonded both ways
+     */
+    private boolean isStiff(EPS a, EPS b) {
+        double dx = a.getPosition().getX() - b.getPosition().getX();
+        double dy = a.getPosition().getY() - b.getPosition().getY();
+        double dz = a.getPosition().getZ() - b.getPosition().getZ();
+        if (box != null) {
+            dx = box.imageX(dx);
+            dy = box.imageY(dy);
+        }
+        return dx * dx + dy * dy + dz * dz <= COLLAPSED_LENGTH * COLLAPSED_LENGTH
+                && a.getBondedParticles().contains(b) && b.getBondedParticles().contains(a);
+    }
+
+    private int find(int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    private void union(int i, int j) {
+        int rootI = find(i);
+        int rootJ = find(j);
+        if (rootI != rootJ) {
+            parent[rootI] = rootJ;
+        }
+    }
+
+    /**
+     * @return number of rigid clusters
+     */
+    public int getClusterCount() {
+        return clusters.size();
+    }
+
+    /**
+     * @return EPS particles held in rigid clusters
+     */
+    public int getRigidCount() {
+        int count = 0;
+        for (Cluster cluster : clusters) {
+            count += cluster.members.length;
+        }
+        return count;
+    }
+
+    /**
+     * @return clusters split back into particles between checks since the simulation started
+     */
+    public long getSplits() {
+        return splits;
+    }
+}
@@ -0,0 +1,421 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * A world of coarse-grained bacteria, each one {@link Spherocylinder} in place of the seven particles of a
+ * {@link Bacterium}. Large colonies whose bacteria need not bend run here with one body per bacterium and no
+ * springs to resolve; the {@link SimEngine} keeps the flexible model. Chosen with {@code -Dbiofilm.model=rods} or
+ * {@code HeadlessRunner --model rods}.
+ * <p>
+ * Every step the contacts between spherocylinders are found on a cell list over their centres. Two
+ * spherocylinders touch when the closest points of their axes are nearer than the contact distance of two
+ * bacterium particles, and are then pushed apart at those points along the line between them, which both moves
+ * and turns them. EPS particles bond with each other through a {@link ForceField} holding only the EPS bond
+ * term; they do not bond with spherocylinders. In a {@link PeriodicBox} the contact search wraps around the box
+ * and each spherocylinder touches the nearest image of another.
+ *
+ * @author Brian Mbawa, Seth McNevin, Gladwin Ngobeni
+ */
+public final class RodEngine {
+
+    /**
+     * Distance between two axes at which spherocylinders touch, the cut-off of the repulsion between particles
+     */
+    static final double CONTACT_DISTANCE = Bacterium.CUT_OFF;
+
+    /**
+     * Push of one contact on each spherocylinder -- what one pair of touching particles gives each of two
+     * bacteria, counted from both sides of the pair
+     */
+    static final double CONTACT_FORCE = 11 * Bacterium.WCA_REPULSION;
+
+    /**
+     * Width of a cell of the contact search: centres further apart than this never touch
+     */
+    private static final double CELL_SIZE = Spherocylinder.DIVISION_LENGTH + CONTACT_DISTANCE;
+
+    /**
+     * Cells searched from each cell -- itself first, then half of its neighbours
+     */
+    private static final int[] NEIGHBOUR_X = {0, 1, 1, 1, 0};
+    private static final int[] NEIGHBOUR_Y = {0, -1, 0, 1, 1};
+
+    /**
+     * Spherocylinders in the simulation
+     */
+    private final Population<Spherocylinder> rods = new Population<>();
+
+    /**
+     * {@link EPS} particles in the simulation
+     */
+    private final ArrayList<EPS> eps = new ArrayList<>();
+
+    /**
+     * Grid tracking {@link Psl} deposits
+     */
+    private final Grid grid = new Grid(1);
+
+    /**
+     * Bonds between EPS particles
+     */
+    private final ForceField epsField = new ForceField();
+
+    /**
+     * Boundaries of the simulation environment
+     */
+    private final double xMin;
+    private final double xMax;
+    private final double yMin;
+    private final double yMax;
+
+    /**
+     * Periodic boundaries of the environment -- null to move spherocylinders leaving it to the opposite edge,
+     * set with -Dbiofilm.periodic=true
+     */
+    private PeriodicBox box;
+
+    /*
+    Cells of the contact search in a periodic box -- how many fit across and down, and their size
+     */
+    private int cellsAcross;
+    private int cellsDown;
+    private double cellWidth;
+    private double cellHeight;
+
+    /**
+     * Moves the centres and orientations every step -- velocity Verlet unless -Dbiofilm.integrator=brownian is given
+     */
+    private Integrator integrator = Integrator.named(System.getProperty("biofilm.integrator", "verlet"));
+
+    /**
+     * Time step in seconds, the integrator's own unless -Dbiofilm.timeStep is given
+     */
+    private double timeStep = Double.parseDouble(System.getProperty("biofilm.timeStep",
+            String.valueOf(integrator.defaultTimeStep())));
+
+    /*
+    Axis columns of the contact search -- centre, unit axis and half length -- and the spherocylinders sorted by
+    hashed cell
+     */
+    private double[] cx = new double[256];
+    private double[] cy = new double[256];
+    private double[] ux = new double[256];
+    private double[] uy = new double[256];
+    private double[] half = new double[256];
+    private int[] cellX = new int[256];
+    private int[] cellY = new int[256];
+    private int[] sorted = new int[256];
+    private int[] bucketStart = new int[513];
+    private int bucketMask;
+
+    private long contacts;
+
+    /**
+     * Creates an empty world
+     *
+     * @param xMin minimum environment x value
+     * @param xMax maximum environment x value
+     * @param yMin minimum environment y value
+     * @param yMax maximum environment y value
+     */
+    public RodEngine(double xMin, double xMax, double yMin, double yMax) {
+        this.xMin = xMin;
+        this.xMax = xMax;
+        this.yMin = yMin;
+        this.yMax = yMax;
+        epsField.register(ForceField.Species.EPS, ForceField.Species.EPS, EPS.EPS_BOND_TERM);
+        setPeriodic(PeriodicBox.ENABLED);
+    }
+
+    /**
+     * Switches between periodic boundaries and the original edges, where a spherocylinder leaving the environment
+     * is moved to the opposite edge
+     *
+     * @param periodic true for periodic boundaries
+     */
+    public void setPeriodic(boolean periodic) {
+        box = periodic ? new PeriodicBox(xMin, xMax, yMin, yMax) : null;
+        epsField.setBox(box);
+        grid.setBox(box);
+        if (box != null) {
+            cellsAcross = box.cellsAcross(CELL_SIZE);
+            cellsDown = box.cellsDown(CELL_SIZE);
+            cellWidth = box.getWidth() / cellsAcross;
+            cellHeight = box.getHeight() / cellsDown;
+        }
+    }
+
+    /**
+     * Seeds spherocylinders centred on the samples of a seeder, each facing a random way
+     *
+     * @param seeder the seeder
+     * @param count number of spherocylinders wanted
+     * @param strain strain of the new spherocylinders
+     * @param currentTime simulation time of birth
+     * @return number of spherocylinders seeded
+     */
+    public int seed(ColonySeeder seeder, int count, String strain, double currentTime) {
+        int seeded = 0;
+        for (PVector centre : seeder.sample(count)) {
+            rods.add(new Spherocylinder(strain, centre.getX(), centre.getY(), Math.random() * 2 * Math.PI, currentTime,
+                    LineageStore.NO_PARENT));
+            seeded++;
+        }
+        return seeded;
+    }
+
+    /**
+     * Advances the simulation by one time step: the contact forces and EPS bonds are evaluated on the positions
+     * at the start of the step, then every spherocylinder and EPS particle is moved and dividing spherocylinders
+     * are replaced with their daughters
+     *
+     * @param currentTime simulation time at the start of the step
+     */
+    public void step(double currentTime) {
+        /*
+        Contacts between spherocylinders, and EPS bonds
+         */
+        applyContacts(currentTime);
+        epsField.evaluatePairs(Collections.emptyList(), eps, currentTime, timeStep);
+
+        /*
+        Iterate through the spherocylinders -- divisions are queued so indices stay stable for the whole step
+         */
+        for (int i = 0; i < rods.size(); i++) {
+            Spherocylinder rod = rods.get(i);
+            rod.move(currentTime, timeStep, integrator, grid, eps, xMin, xMax, yMin, yMax, box);
+            if (rod.isReproduced() && !rod.getDaughters().isEmpty()) {
+                for (Spherocylinder daughter : rod.getDaughters()) {
+                    rods.queueAdd(daughter);
+                }
+                rods.queueRemove(i);
+            }
+        }
+
+        /*
+        Iterate through the EPS particles
+         */
+        for (EPS epsParticle : eps) {
+            epsParticle.move(integrator, timeStep);
+            if (box != null) {
+                box.wrap(epsParticle.getPosition());
+            }
+        }
+        if (currentTime > EPS.BOND_CHECK_TIME) {
+            EPS.checkForBond(currentTime);
+        }
+
+        /*
+        Add daughters and remove fathers
+         */
+        rods.flush();
+    }
+
+    /**
+     * Finds every pair of touching spherocylinders with a cell list over their centres, and pushes them apart
+     */
+    private void applyContacts(double currentTime) {
+        int n = rods.size();
+        if (cx.length < n) {
+            int capacity = Math.max(n, cx.length * 2);
+            cx = new double[capacity];
+            cy = new double[capacity];
+            ux = new double[capacity];
+            uy = new double[capacity];
+            half = new double[capacity];
+            cellX = new int[capacity];
+            cellY = new int[capacity];
+            sorted = new int[capacity];
+        }
+        for (int i = 0; i < n; i++) {
+            Spherocylinder rod = rods.get(i);
+            PVector centre = rod.getCentre();
+            cx[i] = centre.getX();
+            cy[i] = centre.getY();
+            ux[i] = rod.getAxisX();
+            uy[i] = rod.getAxisY();
+            half[i] = rod.getLength(currentTime) / 2;
+            if (box == null) {
+                cellX[i] = (int) Math.floor(cx[i] / CELL_SIZE);
+                cellY[i] = (int) Math.floor(cy[i] / CELL_SIZE);
+            } else {
+                cellX[i] = Math.floorMod((int) Math.floor((cx[i] - box.getXMin()) / cellWidth), cellsAcross);
+                cellY[i] = Math.floorMod((int) Math.floor((cy[i] - box.getYMin()) / cellHeight), cellsDown);
+            }
+        }
+
+        /*
+        Counting sort of the centres by hashed cell
+         */
+        int buckets = Integer.highestOneBit(Math.max(1, n) * 2 - 1) << 1;
+        if (bucketStart.length < buckets + 1) {
+            bucketStart = new int[buckets + 1];
+        }
+        bucketMask = buckets - 1;
+        Arrays.fill(bucketStart, 0, buckets + 1, 0);
+        for (int i = 0; i < n; i++) {
+            bucketStart[bucket(cellX[i], cellY[i]) + 1]++;
+        }
+        for (int h = 0; h < buckets; h++) {
+            bucketStart[h + 1] += bucketStart[h];
+        }
+        for (int i = 0; i < n; i++) {
+            sorted[bucketStart[bucket(cellX[i], cellY[i])]++] = i;
+        }
+        for (int h = buckets; h > 0; h--) {
+            bucketStart[h] = bucketStart[h - 1];
+        }
+        bucketStart[0] = 0;
+
+        /*
+        Pairs within the centre's own cell and the cells to its right and above
+         */
+        for (int i = 0; i < n; i++) {
+            for (int neighbour = 0; neighbour < NEIGHBOUR_X.length; neighbour++) {
+                int x = cellX[i] + NEIGHBOUR_X[neighbour];
+                int y = cellY[i] + NEIGHBOUR_Y[neighbour];
+                if (box != null) {
+                    x = Math.floorMod(x, cellsAcross);
+                    y = Math.floorMod(y, cellsDown);
+                }
+                int h = bucket(x, y);
+                for (int s = bucketStart[h]; s < bucketStart[h + 1]; s++) {
+                    int j = sorted[s];
+                    if (cellX[j] != x || cellY[j] != y || (neighbour == 0 && j <= i)) {
+                        continue;
+                    }
+                    double dx = cx[j] - cx[i];
+                    double dy = cy[j] - cy[i];
+                    if (box != null) {
+                        dx = box.imageX(dx);
+                        dy = box.imageY(dy);
+                    }
+                    double reach = half[i] + half[j] + CONTACT_DISTANCE;
+                    if (dx * dx + dy * dy < reach * reach) {
+                        contact(i, j);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Pushes two spherocylinders apart at the closest points of their axes if those are within the contact
+     * distance
+     */
+    private void contact(int a, int b) {
+        double halfA = half[a];
+        double halfB = half[b];
+        double ax = ux[a];
+        double ay = uy[a];
+        double bx = ux[b];
+        double by = uy[b];
+        double rx = cx[a] - cx[b];
+        double ry = cy[a] - cy[b];
+        if (box != null) {
+            rx = box.imageX(rx);
+            ry = box.imageY(ry);
+        }
+
+        /*
+        Closest points a.centre + s * a.axis and b.centre + t * b.axis, each clamped to its segment. Parallel
+        axes touch along a stretch, whose middle is taken.
+         */
+        double cosine = ax * bx + ay * by;
+        double alongA = ax * rx + ay * ry;
+        double alongB = bx * rx + by * ry;
+        double denominator = 1 - cosine * cosine;
+        double s;
+        if (denominator > 1e-9) {
+            s = clamp((cosine * alongB - alongA) / denominator, halfA);
+        } else {
+            double first = cosine * -halfB - alongA;
+            double second = cosine * halfB - alongA;
+            double low = Math.max(-halfA, Math.min(first, second));
+            double high = Math.min(halfA, Math.max(first, second));
+            s = clamp((low + high) / 2, halfA);
+        }
+        double t = clamp(cosine * s + alongB, halfB);
+        s = clamp(cosine * t - alongA, halfA);
+
+        double nx = rx + s * ax - t * bx;
+        double ny = ry + s * ay - t * by;
+        double distanceSquared = nx * nx + ny * ny;
+        if (distanceSquared < CONTACT_DISTANCE * CONTACT_DISTANCE && distanceSquared > 0) {
+            double distance = Math.sqrt(distanceSquared);
+            double fx = nx / distance * CONTACT_FORCE;
+            double fy = ny / distance * CONTACT_FORCE;
+            rods.get(a).addContactForce(fx, fy, s);
+            rods.get(b).addContactForce(-fx, -fy, t);
+            contacts++;
+        }
+    }
+
+    private static double clamp(double value, double half) {
+        return Math.max(-half, Math.min(half, value));
+    }
+
+    private int bucket(int x, int y) {
+        return (x * 73856093 ^ y * 19349663) & bucketMask;
+    }
+
+    /**
+     * Removes every spherocylinder, EPS particle and PSL deposit
+     */
+    public void clear() {
+        for (EPS epsParticle : eps) {
+            ObjectPool.release(epsParticle);
+        }
+        eps.clear();
+        rods.clear();
+        grid.clear();
+    }
+
+    public Population<Spherocylinder> getRods() {
+        return rods;
+    }
+
+    public ArrayList<EPS> getEPS() {
+        return eps;
+    }
+
+    public Grid getGrid() {
+        return grid;
+    }
+
+    /**
+     * @return contacts pushed apart since the simulation started
+     */
+    public long getContacts() {
+        return contacts;
+    }
+
+    public Integrator getIntegrator() {
+        return integrator;
+    }
+
+    /**
+     * Switches integrator and adopts its time step
+     *
+     * @param integrator the integrator moving the centres and orientations
+     */
+    public void setIntegrator(Integrator integrator) {
+        this.integrator = integrator;
+        this.timeStep = integrator.defaultTimeStep();
+    }
+
+    public double getTimeStep() {
+        return timeStep;
+    }
+
+    /**
+     * @param timeStep time step in seconds
+     */
+    public void setTimeStep(double timeStep) {
+        if (!(timeStep > 0)) {
+            throw new IllegalArgumentException("Time step must be positive");
+        }
+        this.timeStep = timeStep;
+    }
+}
@@ -0,0 +1,52 @@
+/**
+ * Plain loop implementation of the {@link ForceKernel}s, used wherever the Vector API is not available
+ *
+ * @author Brian Mbawa, Seth McNevin, Gladwin Ngobeni
+ */
+public class ScalarForceKernel implements ForceKernel {
+
+    /**
+     * Kernel chosen once at start up
+     */
+    static final ForceKernel ACTIVE = choose();
+
+    @Override
+    public void springForces(double[] dx, double[] dy, double[] dz, int count, double[] restLength, double stiffness,
+                             double[] fx, double[] fy, double[] fz) {
+        for (int i = 0; i < count; i++) {
+            double distance = Math.sqrt(dx[i] * dx[i] + dy[i] * dy[i] + dz[i] * dz[i]);
+            if (distance == 0) {
+                fx[i] = 0;
+                fy[i] = 0;
+                fz[i] = 0;
+                continue;
+            }
+            double forceMagnitude = -(stiffness * (distance - restLength[i]));
+            fx[i] = dx[i] / distance * forceMagnitude;
+            fy[i] = dy[i] / distance * forceMagnitude;
+            fz[i] = dz[i] / distance * forceMagnitude;
+        }
+    }
+
+    @Override
+    public void distances(double[] dx, double[] dy, double[] dz, int count, double[] distance) {
+        for (int i = 0; i < count; i++) {
+            distance[i] = Math.sqrt(dx[i] * dx[i] + dy[i] * dy[i] + dz[i] * dz[i]);
+        }
+    }
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+
+    private static ForceKernel choose() {
+        if (!"scalar".equals(System.getProperty("biofilm.kernel"))) {
+            ForceKernel vector = ForceKernel.vector();
+            if (vector != null) {
+                return vector;
+            }
+        }
+        return new ScalarForceKernel();
+    }
+}
@@ -0,0 +1,598 @@
+import java.util.ArrayList;
+import java.util.function.Consumer;
+
+/**
+ * The simulated world and its step loop, independent of any display. A {@link SimPanel} drives an
+ * engine from its animation timer, and a {@link HeadlessRunner} drives one from the command line.
+ *
+ * @author Brian Mbawa, Seth McNevin, Gladwin Ngobeni
+ */
+public final class SimEngine {
+
+    /**
+     * Time step in seconds of the velocity Verlet integration
+     */
+    public static final double TIME_STEP = 0.005;
+
+    /**
+     * {@link Bacterium}s in the simulation
+     */
+    private final Population<Bacterium> bacteria = new Population<>();
+
+    /**
+     * {@link EPS} particles in the simulation
+     */
+    private final ArrayList<EPS> eps = new ArrayList<>();
+
+    /**
+     * Grid tracking {@link Psl} deposits
+     */
+    private Grid grid = new Grid(1);
+
+    /**
+     * Boundaries of the simulation environment
+     */
+    private final double xMin;
+    private final double xMax;
+    private final double yMin;
+    private final double yMax;
+
+    /**
+     * Periodic boundaries of the environment -- null to move bacteria leaving it to the opposite edge, set with
+     * -Dbiofilm.periodic=true
+     */
+    private PeriodicBox box;
+
+    /**
+     * Trajectory recording of the run -- null when not recording
+     */
+    private TrajectoryRecorder recorder;
+
+    /**
+     * Interactions between the particles of the simulation
+     */
+    private ForceField forceField = ForceField.standard();
+
+    /**
+     * Moves the particles every step -- velocity Verlet unless -Dbiofilm.integrator=brownian is given
+     */
+    private Integrator integrator = Integrator.named(System.getProperty("biofilm.integrator", "verlet"));
+
+    /**
+     * Time step in seconds, the integrator's own unless -Dbiofilm.timeStep is given
+     */
+    private double timeStep = Double.parseDouble(System.getProperty("biofilm.timeStep",
+            String.valueOf(integrator.defaultTimeStep())));
+
+    /**
+     * Puts resting EPS islands to sleep -- null if started with -Dbiofilm.sleep=false
+     */
+    private IslandSleeper sleeper = IslandSleeper.ENABLED ? new IslandSleeper() : null;
+
+    /**
+     * Moves stiff EPS networks as rigid bodies -- null unless started with -Dbiofilm.rigidClusters=true
+     */
+    private RigidClusters clusters = RigidClusters.ENABLED ? new RigidClusters() : null;
+
+    /**
+     * Run/tumble switches, EPS insertions and divisions of the bacteria
+     */
+    private final EventScheduler events = new EventScheduler();
+
+    /**
+     * Structural change count of the bacteria when their events were last brought up to date
+     */
+    private int scheduledModCount = -1;
+
+    /**
+     * Chooses the time step of every step -- null for a fixed step, set with -Dbiofilm.adaptiveStep=min,max
+     */
+    private AdaptiveStepper adaptiveStepper = AdaptiveStepper.fromProperties();
+
+    /**
+     * Substeps per evaluation of the pair terms under multiple time stepping, 1 to evaluate every term every step
+     */
+    private int respaFactor = Integer.getInteger("biofilm.respa", 1);
+
+    /**
+     * Substeps taken since the pair terms were last evaluated
+     */
+    private int respaPhase = 0;
+
+    /**
+     * Tiles stepped on several threads -- null to step the whole world on one, set with -Dbiofilm.tiles=CxR
+     */
+    private DomainDecomposition domains;
+
+    /**
+     * Strip of a simulation spread over several processes -- null when this engine steps the whole world
+     */
+    private DistributedRegion region;
+
+    /**
+     * Fathers replaced by their daughters this step, handed back to the {@link ObjectPool} once removed
+     */
+    private final ArrayList<Bacterium> divided = new ArrayList<>();
+
+    /**
+     * Creates an empty world
+     *
+     * @param xMin minimum environment x value
+     * @param xMax maximum environment x value
+     * @param yMin minimum environment y value
+     * @param yMax maximum environment y value
+     */
+    public SimEngine(double xMin, double xMax, double yMin, double yMax) {
+        this.xMin = xMin;
+        this.xMax = xMax;
+        this.yMin = yMin;
+        this.yMax = yMax;
+        setPeriodic(PeriodicBox.ENABLED);
+        setDomains(DomainDecomposition.fromProperties(xMin, xMax, yMin, yMax));
+    }
+
+    /**
+     * Advances the simulation by one time step. The {@link ForceField} is evaluated on the positions at the
+     * start of the step, the run/tumble switches, EPS insertions and divisions due are dispatched by the
+     * {@link EventScheduler}, then every {@link Bacterium} and {@link EPS} particle is moved by the {@link Integrator},
+     * and dividing bacteria are replaced with their daughters. Callers advance their clock by {@link #getTimeStep()}
+     * afterwards, which under adaptive stepping is the step just chosen.
+     * <p>
+     * With a RESPA factor k above 1 the steps are substeps of a longer step: the stiff bonded terms are evaluated
+     * every substep, while the pair terms -- repulsion, EPS bonds and bond formation -- are evaluated on the first
+     * substep of every k and their force held for the rest. Velocities here are reset every step by the run and
+     * tumble rules, so the slow force is held over the substeps rather than given as the velocity kicks of
+     * velocity Verlet RESPA; both move a particle equally far.
+     * <p>
+     * With a {@link DomainDecomposition} the pair forces and the moves are shared out between its tiles.
+     * With a {@link DistributedRegion} the step is agreed with the other regions first and the pair forces take in
+     * the ghosts of its halo.
+     *
+     * @param currentTime simulation time at the start of the step
+     */
+    public void step(double currentTime) {
+        /*
+        Choose the step, and let the stepper watch the particles move
+         */
+        Integrator mover = integrator;
+        if (adaptiveStepper != null) {
+            timeStep = adaptiveStepper.beginStep(integrator, timeStep);
+            mover = adaptiveStepper;
+        }
+
+        /*
+        Agree on the step with the other regions and trade the bodies crossing their edges
+         */
+        if (region != null) {
+            timeStep = region.beginStep(currentTime, timeStep, bacteria, eps);
+        }
+
+        /*
+        Bring the tiles up to date with bacteria and EPS added or removed since the last step
+         */
+        if (domains != null) {
+            domains.sync(bacteria, bacteria.getModCount() != scheduledModCount, eps);
+        }
+
+        /*
+        Springs, bending, repulsion and EPS bonds
+         */
+        boolean slowStep = respaPhase == 0;
+        if (slowStep && clusters != null) {
+            clusters.beforePairs(eps, forceField);
+        }
+        if (respaFactor == 1) {
+            forceField.evaluateBonded(bacteria, currentTime);
+            evaluatePairs(currentTime, timeStep);
+            if (sleeper != null) {
+                sleeper.afterPairs(eps, forceField);
+            }
+        } else {
+            if (slowStep) {
+                evaluatePairs(currentTime, timeStep * respaFactor);
+                if (sleeper != null) {
+                    sleeper.afterPairs(eps, forceField);
+                }
+                forEachParticle(Particle::holdSlowForce);
+            } else {
+                forEachParticle(Particle::applySlowForce);
+            }
+            forceField.evaluateBonded(bacteria, currentTime);
+        }
+        respaPhase = (respaPhase + 1) % respaFactor;
+
+        /*
+        Discrete events due -- queued afresh if bacteria were added or removed since the last step
+         */
+        if (bacteria.getModCount() != scheduledModCount) {
+            events.rebuild(bacteria, currentTime);
+        }
+        events.dispatch(currentTime, eps, recorder);
+
+        /*
+        Move the bacteria and the EPS particles, leaving the sleeping ones where they rest and moving the rigid
+        ones with their clusters. The adaptive stepper watches every particle move, so it moves them on one thread.
+         */
+        if (clusters != null) {
+            clusters.advance(mover, timeStep);
+        }
+        if (domains != null && mover == integrator) {
+            domains.sync(bacteria, false, eps);
+            domains.move(integrator, (bacterium, tileIntegrator) -> bacterium.move(currentTime, timeStep,
+                    tileIntegrator, xMin, xMax, yMin, yMax, box, grid), this::moveEPS);
+        } else {
+            for (Bacterium bacterium : bacteria) {
+                bacterium.move(currentTime, timeStep, mover, xMin, xMax, yMin, yMax, box, grid);
+            }
+            for (EPS epsParticle : eps) {
+                moveEPS(epsParticle, mover);
+            }
+            if (domains != null) {
+                domains.migrate();
+            }
+        }
+
+        /*
+        Queue the daughters of divided bacteria -- indices stay stable until the population is flushed
+         */
+        for (int i = 0; i < bacteria.size(); i++) {
+            handleReproduction(i);
+        }
+
+        /*
+        Bonds only form while the pair terms are evaluated, so the next bond check is drawn on those steps
+         */
+        if (slowStep && currentTime > EPS.BOND_CHECK_TIME) {
+            EPS.checkForBond(currentTime);
+        }
+
+        /*
+        Add daughters and remove fathers
+         */
+        bacteria.flush();
+        scheduledModCount = bacteria.getModCount();
+        for (Bacterium father : divided) {
+            if (region != null) {
+                region.release(father);
+            }
+            ObjectPool.release(father);
+        }
+        divided.clear();
+
+        if (adaptiveStepper != null) {
+            adaptiveStepper.endStep(currentTime, timeStep);
+        }
+    }
+
+    /**
+     * Adds the pair forces to the particles, on the tiles unless the evaluation forms bonds or a sleep or
+     * cluster check visits its pairs, which touch particles of several tiles at once
+     */
+    private void evaluatePairs(double currentTime, double timeStep) {
+        if (region != null) {
+            forceField.evaluatePairs(region.getLocalBacteria(), bacteria.size(), region.getLocalEps(), eps.size(),
+                    currentTime, timeStep);
+        } else if (domains != null && !EPS.bondsForm(currentTime) && (sleeper == null || !sleeper.needsPairs())
+                && (clusters == null || !clusters.needsPairs())) {
+            domains.evaluatePairs(currentTime, timeStep);
+        } else {
+            forceField.evaluatePairs(bacteria, eps, currentTime, timeStep);
+        }
+    }
+
+    /**
+     * Moves an EPS particle unless it sleeps or moves with a rigid cluster
+     */
+    private void moveEPS(EPS epsParticle, Integrator mover) {
+        if (!epsParticle.isAsleep() && !epsParticle.isRigid()) {
+            epsParticle.move(mover, timeStep);
+            if (box != null) {
+                box.wrap(epsParticle.getPosition());
+            }
+        }
+    }
+
+    /**
+     * Applies an action to every particle of the bacteria and every EPS particle
+     */
+    private void forEachParticle(Consumer<Particle> action) {
+        for (Bacterium bacterium : bacteria) {
+            for (Particle particle : bacterium.getParticles()) {
+                action.accept(particle);
+            }
+        }
+        for (EPS epsParticle : eps) {
+            action.accept(epsParticle);
+        }
+    }
+
+    /**
+     * @param currentTime simulation time, which sets the rest length of growing bacteria
+     * @return potential energy of the force field in the current configuration
+     */
+    public double getPotentialEnergy(double currentTime) {
+        return forceField.potentialEnergy(bacteria, eps, currentTime);
+    }
+
+    /**
+     * @return substeps per evaluation of the pair terms
+     */
+    public int getRespaFactor() {
+        return respaFactor;
+    }
+
+    /**
+     * Sets the number of substeps per evaluation of the pair terms. The pair terms are evaluated on the next step.
+     *
+     * @param respaFactor substeps per evaluation, 1 to evaluate every term every step
+     */
+    public void setRespaFactor(int respaFactor) {
+        if (respaFactor < 1) {
+            throw new IllegalArgumentException("RESPA factor must be at least 1");
+        }
+        this.respaFactor = respaFactor;
+        this.respaPhase = 0;
+    }
+
+    /**
+     * @return the integrator moving the particles
+     */
+    public Integrator getIntegrator() {
+        return integrator;
+    }
+
+    /**
+     * Switches integrator and adopts its time step
+     *
+     * @param integrator the integrator moving the particles
+     */
+    public void setIntegrator(Integrator integrator) {
+        this.integrator = integrator;
+        this.timeStep = integrator.defaultTimeStep();
+    }
+
+    /**
+     * @return the sleeper of resting EPS islands, or null if sleeping is switched off
+     */
+    public IslandSleeper getSleeper() {
+        return sleeper;
+    }
+
+    /**
+     * @return the rigid EPS clusters, or null if they are switched off
+     */
+    public RigidClusters getClusters() {
+        return clusters;
+    }
+
+    /**
+     * @return the stepper choosing every time step, or null for a fixed step
+     */
+    public AdaptiveStepper getAdaptiveStepper() {
+        return adaptiveStepper;
+    }
+
+    /**
+     * @param adaptiveStepper stepper choosing every time step, or null for a fixed step
+     */
+    public void setAdaptiveStepper(AdaptiveStepper adaptiveStepper) {
+        this.adaptiveStepper = adaptiveStepper;
+    }
+
+    /**
+     * @return time step in seconds -- under adaptive stepping, the step of the last step taken
+     */
+    public double getTimeStep() {
+        return timeStep;
+    }
+
+    /**
+     * @param timeStep time step in seconds
+     */
+    public void setTimeStep(double timeStep) {
+        if (!(timeStep > 0)) {
+            throw new IllegalArgumentException("Time step must be positive");
+        }
+        this.timeStep = timeStep;
+    }
+
+    /**
+     * @return the interactions evaluated every step
+     */
+    public ForceField getForceField() {
+        return forceField;
+    }
+
+    /**
+     * @param forceField the interactions to evaluate every step
+     */
+    public void setForceField(ForceField forceField) {
+        this.forceField = forceField;
+        forceField.setBox(box);
+        if (domains != null) {
+            domains.configure(forceField, box);
+        }
+        if (region != null) {
+            region.configure(forceField, box, grid);
+        }
+    }
+
+    /**
+     * @return the periodic boundaries of the environment, or null if bacteria leaving it are moved to the
+     * opposite edge
+     */
+    public PeriodicBox getBox() {
+        return box;
+    }
+
+    /**
+     * Switches between periodic boundaries, across which particles interact through their nearest images, and
+     * the original edges, where a bacterium leaving the environment is rebuilt at the opposite edge
+     *
+     * @param periodic true for periodic boundaries
+     */
+    public void setPeriodic(boolean periodic) {
+        box = periodic ? new PeriodicBox(xMin, xMax, yMin, yMax) : null;
+        forceField.setBox(box);
+        grid.setBox(box);
+        if (clusters != null) {
+            clusters.setBox(box);
+        }
+        if (domains != null) {
+            domains.configure(forceField, box);
+        }
+        if (region != null) {
+            region.configure(forceField, box, grid);
+        }
+    }
+
+    /**
+     * @return the tiles stepped on several threads, or null if the world is stepped on one
+     */
+    public DomainDecomposition getDomains() {
+        return domains;
+    }
+
+    /**
+     * Shares the pair forces and the moves of every step out between tiles stepped on several threads
+     *
+     * @param domains the tiles, null to step the whole world on one thread
+     */
+    public void setDomains(DomainDecomposition domains) {
+        if (this.domains != null) {
+            this.domains.shutdown();
+        }
+        this.domains = domains;
+        if (domains != null) {
+            domains.configure(forceField, box);
+        }
+    }
+
+    /**
+     * @return the strip this engine steps of a simulation spread over several processes, or null if it steps the
+     * whole world
+     */
+    public DistributedRegion getRegion() {
+        return region;
+    }
+
+    /**
+     * Steps only the bacteria and EPS particles of one strip of a simulation spread over several processes, which
+     * trade bodies and halos with each other at the start of every step. Tiles, island sleeping and rigid clusters
+     * are switched off, as they would reach across the edges of the strip.
+     *
+     * @param region the strip, null to step the whole world again
+     * @throws IllegalArgumentException if the strip is too narrow for its halo
+     */
+    public void setRegion(DistributedRegion region) {
+        if (region != null) {
+            setDomains(null);
+            sleeper = null;
+            clusters = null;
+            region.configure(forceField, box, grid);
+        }
+        this.region = region;
+    }
+
+    /**
+     * Queues the removal of a father bacterium and the addition of its daughters
+     *
+     * @param index index of the possibly reproducing {@link Bacterium}
+     */
+    private void handleReproduction(int index) {
+        Bacterium bacterium = bacteria.get(index);
+        if (bacterium.isReproduced() && !bacterium.getDaughters().isEmpty()) {
+            if (recorder != null) {
+                recorder.recordDivision(bacterium, bacterium.getDaughters());
+            }
+            for (Bacterium daughter : bacterium.getDaughters()) {
+                bacteria.queueAdd(daughter);
+                events.admit(daughter);
+            }
+            if (domains != null) {
+                domains.replace(bacterium, bacterium.getDaughters());
+            }
+            bacteria.queueRemove(index);
+            divided.add(bacterium);
+        }
+    }
+
+    /**
+     * Removes every bacterium, EPS particle and PSL deposit
+     */
+    public void clear() {
+        clearEPS();
+        clearBacteria();
+        grid.clear();
+    }
+
+    /**
+     * Removes every bacterium, handing them back to the {@link ObjectPool}
+     */
+    public void clearBacteria() {
+        for (Bacterium bacterium : bacteria) {
+            if (region != null) {
+                region.release(bacterium);
+            }
+            ObjectPool.release(bacterium);
+        }
+        bacteria.clear();
+    }
+
+    /**
+     * Removes every EPS particle, handing them back to the {@link ObjectPool}.
+     * Clearing EPS before bacteria frees the bacterium particles they were bonded with.
+     */
+    public void clearEPS() {
+        for (EPS epsParticle : eps) {
+            ObjectPool.release(epsParticle);
+        }
+        eps.clear();
+        if (domains != null) {
+            domains.invalidate();
+        }
+    }
+
+    public Population<Bacterium> getBacteria() {
+        return bacteria;
+    }
+
+    public ArrayList<EPS> getEPS() {
+        return eps;
+    }
+
+    public Grid getGrid() {
+        return grid;
+    }
+
+    public void setGrid(Grid grid) {
+        this.grid = grid;
+        grid.setBox(box);
+        if (region != null) {
+            region.configure(forceField, box, grid);
+        }
+    }
+
+    public double getXMin() {
+        return xMin;
+    }
+
+    public double getXMax() {
+        return xMax;
+    }
+
+    public double getYMin() {
+        return yMin;
+    }
+
+    public double getYMax() {
+        return yMax;
+    }
+
+    /**
+     * @param recorder recording that divisions and EPS insertions are reported to, null for none
+     */
+    public void setRecorder(TrajectoryRecorder recorder) {
+        this.recorder = recorder;
+    }
+}
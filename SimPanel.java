@@ -1,6 +1,8 @@
 import javax.swing.*;
 import java.awt.*;
 import java.awt.geom.Ellipse2D;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 
 /**
@@ -37,24 +39,41 @@ public class SimPanel extends JPanel implements Runnable{
     protected static double currentTime = 0.0;
 
     /**
-    Time step in seconds
+     * The simulated world, stepped by the animation timer
      */
-    private static final double TIME_STEP = 0.005;
+    private final transient SimEngine engine;
 
     /**
-     * {@link Bacterium}s in the simulation
+     * {@link Bacterium}s and {@link EPS} particles of the engine
      */
-    private final ArrayList<Bacterium> bacteria;
+    private final transient Population<Bacterium> bacteria;
+    private final ArrayList<EPS> eps;
 
     /**
-     * {@link EPS} particles in the simulation
+     * Snapshot loaded but not yet materialised into simulation objects -- drawn straight from its mapping
      */
-    private final ArrayList<EPS> eps;
+    private transient MappedSnapshot pendingSnapshot;
 
     /**
-     * Grid tracking {@link Psl} deposits
+     * Background checkpointing of the simulation state
      */
-    private Grid grid;
+    private final transient Autosaver autosaver = new Autosaver(new File("./SimSaveData/autosave"), 30, 5);
+
+    /**
+     * Trajectory recording of the run -- null when not recording
+     */
+    private transient TrajectoryRecorder recorder;
+
+    /**
+     * Number of steps simulated since the simulation was started
+     */
+    private long stepCount = 0;
+
+    /**
+     * Recording being replayed -- null when showing the live simulation
+     */
+    private transient TrajectoryPlayer player;
+    private long lastReplayTick;
 
     /**
      * Boolean for keeping tracking of the {@link Simulation}'s running state
@@ -66,9 +85,9 @@ public class SimPanel extends JPanel implements Runnable{
      */
     public SimPanel(){
         setBackground(Color.WHITE);
-        bacteria = new ArrayList<>();
-        grid = new Grid(1);
-        eps = new ArrayList<>();
+        engine = new SimEngine(50, DISPlAY_WIDTH - 200, 50, DISPLAY_HEIGHT - 100);
+        bacteria = engine.getBacteria();
+        eps = engine.getEPS();
 
         setLayout(new BorderLayout());
         startAni();
@@ -79,71 +98,35 @@ public class SimPanel extends JPanel implements Runnable{
      */
     public void startAni() {
         Timer aniTime = new Timer(0, e -> {
-            if (paused.equals(false)) {
+            if (player != null) {
+                /*
+                Replays only advance the playback clock, the physics is not run
+                 */
+                long now = System.nanoTime();
+                player.advance((now - lastReplayTick) / 1e9);
+                lastReplayTick = now;
+            } else if (paused.equals(false)) {
                 updateSim();
-                currentTime += TIME_STEP;
+                currentTime += engine.getTimeStep();
+                stepCount++;
+                autosaver.onStepBoundary(bacteria, eps, engine.getGrid(), currentTime);
+                if (recorder != null) {
+                    recorder.onStep(stepCount, currentTime, bacteria, eps);
+                }
             }
         });
         aniTime.start();
     }
 
     /**
-     * Updates the BIOFILM {@link Simulation} by calling the move method of {@link Bacterium}s
+     * Updates the BIOFILM {@link Simulation} by stepping the {@link SimEngine}
      */
     private void updateSim(){
         /*
-        Lists to track changes
-         */
-        ArrayList<Bacterium> toRemove = new ArrayList<>();
-        ArrayList<Bacterium> toAdd = new ArrayList<>();
-
-        /*
-        Iterate through the bacteria
+        Build the simulation objects of a freshly loaded snapshot on the first step
          */
-        for (Bacterium bacterium : bacteria) {
-            /*
-            Updates the position of the bacteria in the simulation
-             */
-            bacterium.move(currentTime,50, (int) DISPlAY_WIDTH-200, 50, (int) DISPLAY_HEIGHT-100 , bacteria, grid, eps);
-            /*
-            Checks for father bacteria that have reproduced
-             */
-            handleReproduction(bacterium, toAdd, toRemove);
-        }
-
-        /*
-        Iterate through the bacteria
-         */
-        for (EPS epsParticle : eps) {
-            /*
-            Updates the position of the bacteria in the simulation
-             */
-            epsParticle.move(currentTime, eps, bacteria);
-        }
-
-        if (currentTime > EPS.BOND_CHECK_TIME) {
-            EPS.checkForBond(currentTime);
-        }
-
-        /*
-        Add daughters and remove fathers
-         */
-        bacteria.addAll(toAdd);
-        bacteria.removeAll(toRemove);
-    }
-
-    /**
-     * Removes father bacterium and adds daughter bacterias
-     *
-     * @param bacterium the reproducing {@link Bacterium}
-     * @param toAdd list to add the daughters of the reproducing bacterium
-     * @param toRemove list to add the reproducing bacterium to be removed
-     */
-    private void handleReproduction(Bacterium bacterium, ArrayList<Bacterium> toAdd, ArrayList<Bacterium> toRemove) {
-        if (bacterium.isReproduced() && !bacterium.getDaughters().isEmpty()) {
-            toAdd.addAll(bacterium.getDaughters());
-            toRemove.add(bacterium);
-        }
+        materializeSnapshot();
+        engine.step(currentTime);
     }
 
     @Override
@@ -179,9 +162,16 @@ public class SimPanel extends JPanel implements Runnable{
         /*
         Draw PSL particles and bacteria within teh boundary
          */
-        drawPSL(g2d);
-        drawEPS(g2d);
-        drawBacteria(g2d);
+        MappedSnapshot snapshot = pendingSnapshot;
+        if (player != null) {
+            drawReplay(g2d);
+        } else if (snapshot != null) {
+            drawSnapshot(g2d, snapshot);
+        } else {
+            drawPSL(g2d);
+            drawEPS(g2d);
+            drawBacteria(g2d);
+        }
 
         /*
         Restore the old clipping area
@@ -220,6 +210,7 @@ public class SimPanel extends JPanel implements Runnable{
     private void drawPSL (Graphics2D g2d) {
         g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 
+        Grid grid = engine.getGrid();
         double cellSize = grid.getCellSize();
 
         for (PVector particle : grid.getVisitCount().keySet()) {
@@ -289,6 +280,127 @@ public class SimPanel extends JPanel implements Runnable{
         }
     }
 
+    /**
+     * draws a loaded snapshot straight from the particle columns of its mapping
+     *
+     * @param g2d Graphics2D object used for rendering
+     * @param snapshot the mapped snapshot
+     */
+    private void drawSnapshot(Graphics2D g2d, MappedSnapshot snapshot) {
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+        g2d.setColor(new Color(255,0,0, 100));
+        for (int i = 0; i < snapshot.getPslCount(); i++) {
+            g2d.fill(new Ellipse2D.Double(snapshot.getPslX(i), snapshot.getPslY(i), 2, 2));
+        }
+
+        int bacteriumParticles = snapshot.getBacteriaCount() * SimSnapshot.PARTICLES_PER_BACTERIUM;
+        double dotSize = (Bacterium.TRANSVERSE_WIDTH) / 2;
+        g2d.setColor(Color.BLUE);
+        for (int p = bacteriumParticles; p < snapshot.getParticleCount(); p++) {
+            g2d.fill(new Ellipse2D.Double(snapshot.getParticleX(p) - dotSize / 2, snapshot.getParticleY(p) - dotSize / 2, dotSize, dotSize));
+        }
+
+        dotSize = Bacterium.TRANSVERSE_WIDTH;
+        for (int p = 0; p < bacteriumParticles; p++) {
+            if (p % SimSnapshot.PARTICLES_PER_BACTERIUM == 0) {
+                g2d.setColor(new Color(snapshot.getBacteriumRGB(p / SimSnapshot.PARTICLES_PER_BACTERIUM)));
+            }
+            g2d.fill(new Ellipse2D.Double(snapshot.getParticleX(p) - dotSize / 2, snapshot.getParticleY(p) - dotSize / 2, dotSize, dotSize));
+        }
+    }
+
+    /**
+     * draws the current frame of the replayed recording straight from its position columns
+     *
+     * @param g2d Graphics2D object used for rendering
+     */
+    private void drawReplay(Graphics2D g2d) {
+        TrajectoryFrame frame;
+        try {
+            frame = player.currentFrame();
+        } catch (IOException e) {
+            player.setPlaying(false);
+            return;
+        }
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+        double dotSize = (Bacterium.TRANSVERSE_WIDTH) / 2;
+        g2d.setColor(Color.BLUE);
+        for (int e = 0; e < frame.getEpsCount(); e++) {
+            g2d.fill(new Ellipse2D.Double(frame.getEpsX(e) - dotSize / 2, frame.getEpsY(e) - dotSize / 2, dotSize, dotSize));
+        }
+
+        /*
+        Recordings do not keep colours, so each bacterium gets a colour derived from its id
+         */
+        dotSize = Bacterium.TRANSVERSE_WIDTH;
+        for (int b = 0; b < frame.getBacteriaCount(); b++) {
+            float hue = (float) ((frame.getBacteriumId(b) * 0.618033988749895) % 1.0);
+            boolean tumbling = (frame.getState(b) & TrajectoryFrame.TUMBLING) != 0;
+            g2d.setColor(Color.getHSBColor(hue, 0.8f, tumbling ? 0.6f : 0.95f));
+            for (int p = b * SimSnapshot.PARTICLES_PER_BACTERIUM; p < (b + 1) * SimSnapshot.PARTICLES_PER_BACTERIUM; p++) {
+                g2d.fill(new Ellipse2D.Double(frame.getParticleX(p) - dotSize / 2, frame.getParticleY(p) - dotSize / 2, dotSize, dotSize));
+            }
+        }
+    }
+
+    /**
+     * Shows a recording instead of the live simulation
+     *
+     * @param player the recording to replay
+     */
+    public void startReplay(TrajectoryPlayer player) {
+        stopReplay();
+        this.player = player;
+        lastReplayTick = System.nanoTime();
+    }
+
+    /**
+     * Returns to the live simulation
+     */
+    public void stopReplay() {
+        TrajectoryPlayer finished = player;
+        player = null;
+        if (finished != null) {
+            try {
+                finished.close();
+            } catch (IOException e) {
+                JOptionPane.showMessageDialog(null, "Error closing recording: " + e.getMessage(), "Replay Error", JOptionPane.ERROR_MESSAGE);
+            }
+        }
+    }
+
+    public TrajectoryPlayer getPlayer() {
+        return player;
+    }
+
+    /**
+     * Installs a memory mapped snapshot. Until the simulation is stepped it is drawn straight from the mapping;
+     * the first step builds every bacterium and EPS particle at once, as the step moves them all.
+     *
+     * @param snapshot the mapped snapshot
+     */
+    public void loadSnapshot(MappedSnapshot snapshot) {
+        pendingSnapshot = snapshot;
+        snapshot.restoreLineage();
+        setTime(snapshot.getTime());
+        EPS.BOND_CHECK_TIME = snapshot.getBondCheckTime();
+    }
+
+    /**
+     * Builds every simulation object of a pending snapshot
+     */
+    private void materializeSnapshot() {
+        MappedSnapshot snapshot = pendingSnapshot;
+        if (snapshot != null) {
+            bacteria.addAll(snapshot.bacteria());
+            eps.addAll(snapshot.eps());
+            engine.setGrid(snapshot.grid());
+            pendingSnapshot = null;
+        }
+    }
+
     public void loadBacteria(ArrayList<Bacterium> loadedBac){
         bacteria.addAll(loadedBac);
     }
@@ -298,36 +410,83 @@ public class SimPanel extends JPanel implements Runnable{
     }
 
     public void loadGrid(Grid loadGrid){
-        grid = loadGrid;
+        engine.setGrid(loadGrid);
     }
 
     public void clearBacteria(){
-        bacteria.clear();
+        pendingSnapshot = null;
+        engine.clearBacteria();
     }
 
     public void clearEps () {
-        eps.clear();
+        engine.clearEPS();
     }
 
     public void clearPsl () {
-        grid.getVisitCount().clear();
+        engine.getGrid().clear();
     }
 
     public void setBacteria(ArrayList<Bacterium> newBac ){
         bacteria.addAll(newBac);
     }
 
-    public ArrayList<Bacterium> getBacteria(){
+    public Population<Bacterium> getBacteria(){
+        materializeSnapshot();
         return bacteria;
     }
 
+    /**
+     * @return number of bacteria, without building the objects of a pending snapshot
+     */
+    public int getBacteriaCount() {
+        MappedSnapshot snapshot = pendingSnapshot;
+        return snapshot != null ? snapshot.getBacteriaCount() : bacteria.size();
+    }
+
     public Grid getGrid(){
-        return grid;
+        materializeSnapshot();
+        return engine.getGrid();
     }
     public ArrayList<EPS> getEPS(){
+        materializeSnapshot();
         return eps;
     }
 
+    /**
+     * Starts streaming the trajectory of the run to a file
+     *
+     * @param file destination file
+     * @param recordEvery a frame is recorded every recordEvery steps
+     * @throws IOException if the file cannot be created
+     */
+    public void startRecording(File file, int recordEvery) throws IOException {
+        stopRecording();
+        recorder = new TrajectoryRecorder(file, recordEvery, 64, 8);
+        engine.setRecorder(recorder);
+    }
+
+    /**
+     * Stops the current recording and writes its index
+     *
+     * @throws IOException if writing the recording failed
+     */
+    public void stopRecording() throws IOException {
+        TrajectoryRecorder finished = recorder;
+        recorder = null;
+        engine.setRecorder(null);
+        if (finished != null) {
+            finished.close();
+        }
+    }
+
+    public boolean isRecording() {
+        return recorder != null;
+    }
+
+    public Autosaver getAutosaver() {
+        return autosaver;
+    }
+
     public static void setPause(Boolean pause){
         paused = pause;
     }
@@ -26,6 +26,11 @@ public class SimPanelFrame extends JFrame implements Serializable {
     private double newTumbleTime;
     private boolean motile = true;
 
+    /**
+     * Seed new colonies as a central inoculation spot instead of a uniform lawn
+     */
+    private boolean spotInoculation = false;
+
 
     /**
      * Initialise different sections of the panel
@@ -59,13 +64,35 @@ public class SimPanelFrame extends JFrame implements Serializable {
     }
 
     public void resetSimulationStructures () {
-        simPanel.clearBacteria();
         simPanel.clearEps();
+        simPanel.clearBacteria();
         simPanel.clearPsl();
         bacteria.clear();
         eps.clear();
-        grid.getVisitCount().clear();
+        grid.clear();
         SimPanel.setTime(0.0);
+        Bacterium.getLineage().clear();
+        simPanel.getAutosaver().restart(0.0);
+    }
+
+    /**
+     * Seeds the bacteria of a new colony inside the boundary box
+     *
+     * @param count number of bacteria wanted
+     */
+    private void seedColony(int count) {
+        double minX = SimPanel.offsetX;
+        double minY = 50;
+        double maxX = minX + screenSize.width - 250;
+        double maxY = minY + screenSize.height - 150;
+        ColonySeeder seeder = new ColonySeeder(minX, minY, maxX, maxY);
+        if (spotInoculation) {
+            seeder.setDensityMap(DensityMap.spot((minX + maxX) / 2, (minY + maxY) / 2, Math.min(maxX - minX, maxY - minY) / 6));
+        }
+        int seeded = seeder.seed(count, "StrainA", motile, 0.0, this.bacteria);
+        if (seeded < count) {
+            JOptionPane.showMessageDialog(null, "Only " + seeded + " bacteria fit without overlapping", "Seeding", JOptionPane.WARNING_MESSAGE);
+        }
     }
 
     /**
@@ -91,6 +118,8 @@ public class SimPanelFrame extends JFrame implements Serializable {
         bacNumField.setPreferredSize(textFieldSize);
         final JButton save = new JButton("Save");
         final JButton load = new JButton("Load");
+        final JButton record = new JButton("Record");
+        final JButton replay = new JButton("Replay");
         final JButton reset = new JButton("Reset sim");
         final JButton quit = new JButton("Quit");
         final JLabel bacteriaCount = new JLabel("Bacteria Count: " + bacteria.size());
@@ -113,6 +142,11 @@ public class SimPanelFrame extends JFrame implements Serializable {
         final JLabel motilityLabel = new JLabel("Motility");     //Motility toggle
         final JButton motility = new JButton(" Motile ");
 
+        final JLabel autosaveLabel = new JLabel("  Autosave");     //Autosave toggle
+        final JButton autosave = new JButton("OFF");
+        final JLabel inoculationLabel = new JLabel("  Inoculation");  //Seeding density toggle
+        final JButton inoculation = new JButton(" Lawn ");
+
 
         settings.setAlignmentX(Component.LEFT_ALIGNMENT);
         bacNumtextfield.setAlignmentX(Component.LEFT_ALIGNMENT);
@@ -121,6 +155,8 @@ public class SimPanelFrame extends JFrame implements Serializable {
         pauseB.setAlignmentX(Component.LEFT_ALIGNMENT);
         save.setAlignmentX(Component.LEFT_ALIGNMENT);
         load.setAlignmentX(Component.LEFT_ALIGNMENT);
+        record.setAlignmentX(Component.LEFT_ALIGNMENT);
+        replay.setAlignmentX(Component.LEFT_ALIGNMENT);
         quit.setAlignmentX(Component.LEFT_ALIGNMENT);
         Trun.setAlignmentX(Component.LEFT_ALIGNMENT);
         runTime.setAlignmentX(Component.LEFT_ALIGNMENT);
@@ -128,6 +164,8 @@ public class SimPanelFrame extends JFrame implements Serializable {
         tumbleTime.setAlignmentX(Component.LEFT_ALIGNMENT);
         reproduction.setAlignmentX(Component.LEFT_ALIGNMENT);
         motility.setAlignmentX(Component.LEFT_ALIGNMENT);
+        autosave.setAlignmentX(Component.LEFT_ALIGNMENT);
+        inoculation.setAlignmentX(Component.LEFT_ALIGNMENT);
 
         /*
           ######################################
@@ -144,16 +182,11 @@ public class SimPanelFrame extends JFrame implements Serializable {
                     resetSimulationStructures();
                     pauseB.setText("Start Sim");
                     SimPanel.setPause(true);
-                    Color bacColor;
-
-                    for (int i = 0; i < bacNum; i++) {
-                        bacColor = new Color((int) (Math.random() * 255), (int) (Math.random() * 255), (int) (Math.random() * 255));
-                        this.bacteria.add(new Bacterium("StrainA", bacColor, motile,(float) SimPanel.offsetX + (Math.random() * (screenSize.width - 250)), 50 + (float) (Math.random() * (screenSize.height - 150)), 0.0, this.bacteria));
+                    seedColony(bacNum);
 
-                        //USED FOR TESTING MOTILE AND IMMOTILE TOGETHER
-                        //this.bacteria.add(new Bacterium("StrainA", new Color(0,0,150), false,(float) 400, 320, 0.0, this.bacteria));
-                        //this.bacteria.add(new Bacterium("StrainA", new Color(200,0,0), true,(float) 600, 320, 0.0, this.bacteria));
-                    }
+                    //USED FOR TESTING MOTILE AND IMMOTILE TOGETHER
+                    //this.bacteria.add(new Bacterium("StrainA", new Color(0,0,150), false,(float) 400, 320, 0.0, this.bacteria));
+                    //this.bacteria.add(new Bacterium("StrainA", new Color(200,0,0), true,(float) 600, 320, 0.0, this.bacteria));
 
                     setBac(bacteria);
                     simPanel.setBacteria(bacteria);
@@ -174,7 +207,7 @@ public class SimPanelFrame extends JFrame implements Serializable {
          */
         //action listener and functionality for the pause function. pauses the simulation.
         pauseB.addActionListener(_ -> {
-            if(!simPanel.getBacteria().isEmpty()) {
+            if(simPanel.getBacteriaCount() > 0) {
                 if (SimPanel.getPause()) {
                     SimPanel.setPause(false);
                     pauseB.setText("Pause"); // added some functionality to see the state and to change Pause to Resume
@@ -195,31 +228,17 @@ public class SimPanelFrame extends JFrame implements Serializable {
           ######################################
          */
         /*
-        functionality for the Save button. Pauses the simulation and saves the state as "Bacteria.txt" into a project folder
+        functionality for the Save button. Pauses the simulation and saves the state as a memory mappable snapshot into a project folder
          */
         save.addActionListener(_ -> {
-            if(!simPanel.getBacteria().isEmpty()) {
+            if(simPanel.getBacteriaCount() > 0) {
                 SimPanel.setPause(true);
                 pauseB.setText("Resume");
-                ArrayList<Bacterium> bacSave;
-                Grid gridSave;
-                ArrayList<EPS> epsSave;
-                bacSave = simPanel.getBacteria();
-                gridSave = simPanel.getGrid();
-                epsSave = simPanel.getEPS();
-                ArrayList<Object> simSave = new ArrayList<>();
-                simSave.add(bacSave);
-                simSave.add(gridSave);
-                simSave.add(epsSave);
-                String filePath = "./SimSaveData\\simSave" + count + ".txt";
-                File file = new File(filePath);
-                file.getParentFile().mkdirs();
-
-                try (
-                        FileOutputStream fos = new FileOutputStream(filePath);
-                        ObjectOutputStream oos = new ObjectOutputStream(fos);
-                ) {
-                    oos.writeObject(simSave);
+                SimSnapshot simSave = new SimSnapshot(simPanel.getBacteria(), simPanel.getEPS(), simPanel.getGrid(), SimPanel.currentTime);
+                String filePath = "./SimSaveData\\simSave" + count + ".snap";
+
+                try {
+                    SnapshotFile.write(simSave, new File(filePath));
                     count++;
 
                 } catch (IOException ex) {
@@ -247,14 +266,47 @@ public class SimPanelFrame extends JFrame implements Serializable {
             int userSelection = fileChooser.showOpenDialog(null);
             if (userSelection == JFileChooser.APPROVE_OPTION) {
                 File loadFile = fileChooser.getSelectedFile();
+                /*
+                Snapshots are memory mapped and built on the first step, older saves are deserialized
+                 */
+                if (SnapshotFile.isSnapshot(loadFile)) {
+                    try {
+                        MappedSnapshot snapshot = SnapshotFile.open(loadFile);
+                        resetSimulationStructures();
+                        simPanel.loadSnapshot(snapshot);
+                        simPanel.getAutosaver().restart(snapshot.getTime());
+                    } catch (IOException ex) {
+                        JOptionPane.showMessageDialog(null, "Error loading data: " + ex.getMessage(), "Load Error", JOptionPane.ERROR_MESSAGE);
+                    }
+                    return;
+                }
+                /*
+                Delta checkpoints are restored on top of the full checkpoint they descend from. Restoring fills in
+                the lineage, so the simulation is reset first.
+                 */
+                if (CheckpointDelta.isDelta(loadFile)) {
+                    try {
+                        resetSimulationStructures();
+                        Autosaver.RestoredState state = Autosaver.restore(loadFile);
+                        simPanel.loadBacteria(state.getBacteria());
+                        simPanel.loadEPS(state.getEPS());
+                        simPanel.loadGrid(state.getGrid());
+                        SimPanel.setTime(state.getTime());
+                        EPS.BOND_CHECK_TIME = state.getBondCheckTime();
+                        simPanel.getAutosaver().restart(state.getTime());
+                    } catch (IOException ex) {
+                        JOptionPane.showMessageDialog(null, "Error loading data: " + ex.getMessage(), "Load Error", JOptionPane.ERROR_MESSAGE);
+                    }
+                    return;
+                }
                 try (FileInputStream fis = new FileInputStream(loadFile);
                      ObjectInputStream ois = new ObjectInputStream(fis);
                 ) {
+                    resetSimulationStructures();
                     ArrayList<Object> savedata = (ArrayList<Object>) ois.readObject();
                     ArrayList<Bacterium> loadBac = (ArrayList<Bacterium>) savedata.get(0);
                     Grid loadGrid = (Grid) savedata.get(1);
                     ArrayList<EPS> loadEPS = (ArrayList<EPS>) savedata.get(2);
-                    resetSimulationStructures();
                     simPanel.loadBacteria(loadBac);
                     simPanel.loadEPS(loadEPS);
                     simPanel.loadGrid(loadGrid);
@@ -268,6 +320,63 @@ public class SimPanelFrame extends JFrame implements Serializable {
 
         });
 
+        /*
+          ######################################
+                       RECORD BUTTON
+          ######################################
+         */
+        /*
+        Starts or stops streaming the trajectory of the run into the project folder
+         */
+        record.addActionListener(_ -> {
+            try {
+                if (simPanel.isRecording()) {
+                    simPanel.stopRecording();
+                    record.setText("Record");
+                } else {
+                    simPanel.startRecording(new File("./SimSaveData/trajectories/run" + System.currentTimeMillis() + ".traj"), 10);
+                    record.setText("Stop recording");
+                }
+            } catch (IOException ex) {
+                record.setText("Record");
+                JOptionPane.showMessageDialog(null, "Error recording trajectory: " + ex.getMessage(), "Record Error", JOptionPane.ERROR_MESSAGE);
+            }
+        });
+
+        /*
+          ######################################
+                       REPLAY BUTTON
+          ######################################
+         */
+        /*
+        Opens a recorded trajectory and shows it with the replay controls instead of the live simulation
+         */
+        final JPanel replayControls = replayControls();
+        replayControls.setVisible(false);
+        add(replayControls, BorderLayout.SOUTH);
+
+        replay.addActionListener(_ -> {
+            if (simPanel.getPlayer() != null) {
+                simPanel.stopReplay();
+                replayControls.setVisible(false);
+                replay.setText("Replay");
+                return;
+            }
+            fileChooser.setDialogTitle("Select the recording:");
+            if (fileChooser.showOpenDialog(null) == JFileChooser.APPROVE_OPTION) {
+                try {
+                    SimPanel.setPause(true);
+                    pauseB.setText("Resume");
+                    simPanel.startReplay(new TrajectoryPlayer(fileChooser.getSelectedFile()));
+                    replayControls.setVisible(true);
+                    replay.setText("Exit replay");
+                } catch (IOException ex) {
+                    JOptionPane.showMessageDialog(null, "Error loading recording: " + ex.getMessage(), "Replay Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+            revalidate();
+        });
+
         /*
           ######################################
                        RESET BUTTON
@@ -300,6 +409,11 @@ public class SimPanelFrame extends JFrame implements Serializable {
         Functionality for the quit button, exits the simulation.
          */
         quit.addActionListener(_ -> {
+            try {
+                simPanel.stopRecording();
+            } catch (IOException ex) {
+                JOptionPane.showMessageDialog(null, "Error recording trajectory: " + ex.getMessage(), "Record Error", JOptionPane.ERROR_MESSAGE);
+            }
             System.exit(0);
         });
 
@@ -312,7 +426,7 @@ public class SimPanelFrame extends JFrame implements Serializable {
         // Timer to update the bacteria count every millisecond
 
         new Timer(1, _ ->
-                bacteriaCount.setText("Bacteria Count: " + simPanel.getBacteria().size())).start();
+                bacteriaCount.setText("Bacteria Count: " + simPanel.getBacteriaCount())).start();
 
         /*
           ######################################
@@ -373,6 +487,31 @@ public class SimPanelFrame extends JFrame implements Serializable {
             }
         });
 
+        /*
+          ######################################
+                    INOCULATION TOGGLE
+          ######################################
+         */
+        inoculation.addActionListener(_ -> {
+            spotInoculation = !spotInoculation;
+            inoculation.setText(spotInoculation ? " Spot " : " Lawn ");
+        });
+
+        /*
+          ######################################
+                    AUTOSAVE TOGGLE
+          ######################################
+         */
+        autosave.addActionListener(_ -> {
+            if (simPanel.getAutosaver().isEnabled()) {
+                simPanel.getAutosaver().setEnabled(false);
+                autosave.setText("OFF");
+            } else {
+                simPanel.getAutosaver().setEnabled(true);
+                autosave.setText("ON");
+            }
+        });
+
         /*
         adds the buttons and spacing to the JPanel
          */
@@ -389,6 +528,10 @@ public class SimPanelFrame extends JFrame implements Serializable {
         buttons.add(Box.createVerticalStrut(10));
         buttons.add(load);
         buttons.add(Box.createVerticalStrut(10));
+        buttons.add(record);
+        buttons.add(Box.createVerticalStrut(10));
+        buttons.add(replay);
+        buttons.add(Box.createVerticalStrut(10));
         buttons.add(reset);
         buttons.add(Box.createVerticalStrut(10));
         buttons.add(quit);
@@ -412,10 +555,89 @@ public class SimPanelFrame extends JFrame implements Serializable {
         buttons.add(Box.createVerticalStrut(15));
         buttons.add(motilityLabel);
         buttons.add(motility);
+        buttons.add(Box.createVerticalStrut(15));
+        buttons.add(inoculationLabel);
+        buttons.add(inoculation);
+        buttons.add(Box.createVerticalStrut(15));
+        buttons.add(autosaveLabel);
+        buttons.add(autosave);
 
         add(buttons, BorderLayout.EAST);
     }
 
+    /**
+     * Creates the replay controls: play/pause, reverse, playback speed and a time slider for scrubbing
+     *
+     * @return panel holding the replay controls
+     */
+    private JPanel replayControls() {
+        JPanel controls = new JPanel();
+        final JButton play = new JButton("Play");
+        final JButton reverse = new JButton("Forward");
+        final JComboBox<String> speed = new JComboBox<>(new String[] {"x0.25", "x0.5", "x1", "x2", "x4", "x8", "x16", "x64"});
+        final JSlider scrub = new JSlider(0, 1000, 0);
+        final JLabel time = new JLabel("0.0 s");
+        scrub.setPreferredSize(new Dimension(screenSize.width / 2, scrub.getPreferredSize().height));
+        speed.setSelectedItem("x1");
+
+        /*
+        Applies the selected speed and direction to the player
+         */
+        Runnable applyRate = () -> {
+            TrajectoryPlayer player = simPanel.getPlayer();
+            if (player != null) {
+                double rate = Double.parseDouble(((String) speed.getSelectedItem()).substring(1));
+                player.setRate(reverse.getText().equals("Reverse") ? -rate : rate);
+            }
+        };
+
+        play.addActionListener(_ -> {
+            TrajectoryPlayer player = simPanel.getPlayer();
+            if (player != null) {
+                applyRate.run();
+                player.setPlaying(!player.isPlaying());
+            }
+        });
+        reverse.addActionListener(_ -> {
+            reverse.setText(reverse.getText().equals("Forward") ? "Reverse" : "Forward");
+            applyRate.run();
+        });
+        speed.addActionListener(_ -> applyRate.run());
+
+        /*
+        Dragging the slider moves the playback to the matching simulated time
+         */
+        scrub.addChangeListener(_ -> {
+            TrajectoryPlayer player = simPanel.getPlayer();
+            if (player != null && scrub.getValueIsAdjusting()) {
+                player.setPlaying(false);
+                player.seek(player.getStartTime() + (player.getEndTime() - player.getStartTime()) * scrub.getValue() / 1000.0);
+            }
+        });
+
+        /*
+        Keeps the slider, time and play button in step with the playback
+         */
+        new Timer(50, _ -> {
+            TrajectoryPlayer player = simPanel.getPlayer();
+            if (player != null) {
+                double span = player.getEndTime() - player.getStartTime();
+                if (!scrub.getValueIsAdjusting() && span > 0) {
+                    scrub.setValue((int) Math.round(1000 * (player.getPlaybackTime() - player.getStartTime()) / span));
+                }
+                time.setText(String.format("%.1f s", player.getPlaybackTime()));
+                play.setText(player.isPlaying() ? "Pause" : "Play");
+            }
+        }).start();
+
+        controls.add(play);
+        controls.add(reverse);
+        controls.add(speed);
+        controls.add(scrub);
+        controls.add(time);
+        return controls;
+    }
+
     public void setBac(ArrayList<Bacterium> bacteria) {
         this.bacteria = bacteria;
     }
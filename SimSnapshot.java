@@ -0,0 +1,480 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A column oriented copy of the simulation state taken at a step boundary.
+ * Every value is held in primitive arrays so that it can be written to a {@link SnapshotFile}
+ * without touching the live {@link Bacterium}, {@link EPS} and {@link Grid} objects again.
+ * <p>
+ * The {@link Autosaver} copies only the PSL cells and lineage entries that changed since its last checkpoint, as
+ * those outgrow the living bodies over a long run and few of them change between checkpoints. Its writer thread
+ * then lays such a snapshot of changes over the previous one with {@link #update}.
+ *
+ * @author Brian Mbawa, Seth McNevin, Gladwin Ngobeni
+ */
+public class SimSnapshot {
+
+    /**
+     * Number of particles making up a {@link Bacterium}
+     */
+    static final int PARTICLES_PER_BACTERIUM = 7;
+
+    /**
+     * Bit flags packed into the per bacterium flag column
+     */
+    static final int FLAG_RUNNING = 1;
+    static final int FLAG_TUMBLING = 1 << 1;
+    static final int FLAG_CLOCKWISE = 1 << 2;
+    static final int FLAG_PSL_CLOCKWISE = 1 << 3;
+    static final int FLAG_REPRODUCED = 1 << 4;
+
+    /**
+     * Simulation clocks
+     */
+    final double time;
+    final double bondCheckTime;
+
+    /**
+     * Strain names referenced by index from the strain column
+     */
+    final List<String> strains = new ArrayList<>();
+
+    /**
+     * Per bacterium columns
+     */
+    final int bacteriaCount;
+    final int[] bacteriumId;
+    final int[] color;
+    final int[] strain;
+    final int[] flags;
+    final double[] runEndTime;
+    final double[] tumbleEndTime;
+    final double[] birthTime;
+    final double[] growthRate;
+    final double[] insertionRate;
+    final double[] nextInsertionTime;
+    final double[] friction;
+    final double[] velocityX;
+    final double[] velocityY;
+    final double[] velocityZ;
+    final double[] directionX;
+    final double[] directionY;
+    final double[] directionZ;
+
+    /**
+     * Per particle columns -- bacterium particles first, followed by EPS particles
+     */
+    final int particleCount;
+    final double[] px;
+    final double[] py;
+    final double[] pz;
+    final double[] vx;
+    final double[] vy;
+    final double[] vz;
+    final double[] ax;
+    final double[] ay;
+    final double[] az;
+
+    /**
+     * EPS bonds stored as compressed rows: the bonds of EPS i are
+     * bondTarget[bondStart[i]] .. bondTarget[bondStart[i + 1] - 1], given as particle indices
+     */
+    final int epsCount;
+    final int[] epsId;
+    final int[] bondStart;
+    final int[] bondTarget;
+
+    /**
+     * PSL deposits
+     */
+    final int pslCount;
+    final int[] pslX;
+    final int[] pslY;
+    final int[] pslVisits;
+    final double[] pslDirectionX;
+    final double[] pslDirectionY;
+
+    /**
+     * Keys of the PSL cells removed since the previous snapshot, by {@link CheckpointDelta#cellKey} -- empty
+     * unless this is a snapshot of changes
+     */
+    final long[] pslRemoved;
+
+    /**
+     * Lineage of every bacterium of the run, indexed by bacterium id -- or in a snapshot of changes, of the
+     * bacteria given by lineageId only
+     */
+    final int lineageCount;
+    final int[] lineageId;
+    final int[] lineageParent;
+    final double[] lineageBirthTime;
+    final double[] lineageDivisionTime;
+
+    /**
+     * Column index of each PSL cell by {@link CheckpointDelta#cellKey}, built when the snapshot is first updated
+     * and handed on to the snapshot that replaces it
+     */
+    private Map<Long, Integer> pslIndex;
+
+    /**
+     * Copies the state of the simulation into columns
+     *
+     * @param bacteria {@link Bacterium}s in the simulation
+     * @param eps {@link EPS} particles in the simulation
+     * @param grid PSL {@link Grid}
+     * @param time current simulation time
+     */
+    public SimSnapshot(List<Bacterium> bacteria, List<EPS> eps, Grid grid, double time) {
+        this(bacteria, eps, List.of(), grid.getVisitCount().values(), null, time);
+    }
+
+    /**
+     * Copies the bacteria and EPS particles, but only the PSL cells and lineage entries that changed, and the
+     * positions of the cells removed, since the changes noted by the grid and the lineage store were last drained
+     *
+     * @param bacteria {@link Bacterium}s in the simulation
+     * @param eps {@link EPS} particles in the simulation
+     * @param grid PSL {@link Grid}, noting its changes
+     * @param time current simulation time
+     * @return a snapshot of changes, to be laid over the previous snapshot with {@link #update}
+     */
+    static SimSnapshot changes(List<Bacterium> bacteria, List<EPS> eps, Grid grid, double time) {
+        return new SimSnapshot(bacteria, eps, grid.drainRemoved(), grid.drainChanges(),
+                Bacterium.getLineage().drainChanges(), time);
+    }
+
+    /**
+     * @param removedCells positions of the PSL cells removed
+     * @param cells PSL cells to copy
+     * @param lineageIds ids of the lineage entries to copy, null for every entry
+     */
+    private SimSnapshot(List<Bacterium> bacteria, List<EPS> eps, List<PVector> removedCells, Collection<Psl> cells,
+                        int[] lineageIds, double time) {
+        this.time = time;
+        this.bondCheckTime = EPS.BOND_CHECK_TIME;
+
+        bacteriaCount = bacteria.size();
+        epsCount = eps.size();
+        particleCount = bacteriaCount * PARTICLES_PER_BACTERIUM + epsCount;
+
+        bacteriumId = new int[bacteriaCount];
+        color = new int[bacteriaCount];
+        strain = new int[bacteriaCount];
+        flags = new int[bacteriaCount];
+        runEndTime = new double[bacteriaCount];
+        tumbleEndTime = new double[bacteriaCount];
+        birthTime = new double[bacteriaCount];
+        growthRate = new double[bacteriaCount];
+        insertionRate = new double[bacteriaCount];
+        nextInsertionTime = new double[bacteriaCount];
+        friction = new double[bacteriaCount];
+        velocityX = new double[bacteriaCount];
+        velocityY = new double[bacteriaCount];
+        velocityZ = new double[bacteriaCount];
+        directionX = new double[bacteriaCount];
+        directionY = new double[bacteriaCount];
+        directionZ = new double[bacteriaCount];
+
+        px = new double[particleCount];
+        py = new double[particleCount];
+        pz = new double[particleCount];
+        vx = new double[particleCount];
+        vy = new double[particleCount];
+        vz = new double[particleCount];
+        ax = new double[particleCount];
+        ay = new double[particleCount];
+        az = new double[particleCount];
+
+        /*
+        Particle index of every bond partner, found as the particles are copied below
+         */
+        Map<Particle, Integer> partnerIndex = new IdentityHashMap<>();
+        int bondCount = 0;
+        for (EPS epsParticle : eps) {
+            for (Particle bonded : epsParticle.getBondedParticles()) {
+                partnerIndex.put(bonded, -1);
+                bondCount++;
+            }
+        }
+        Map<String, Integer> strainIndex = new HashMap<>();
+
+        int p = 0;
+        for (int b = 0; b < bacteriaCount; b++) {
+            Bacterium bacterium = bacteria.get(b);
+            bacteriumId[b] = bacterium.getId();
+            color[b] = bacterium.getColor().getRGB();
+            strain[b] = strainIndex.computeIfAbsent(bacterium.getStrain(), s -> {
+                strains.add(s);
+                return strains.size() - 1;
+            });
+            flags[b] = (bacterium.isRunning() ? FLAG_RUNNING : 0)
+                    | (bacterium.isTumbling() ? FLAG_TUMBLING : 0)
+                    | (bacterium.isClockwise() ? FLAG_CLOCKWISE : 0)
+                    | (bacterium.isPslClockwise() ? FLAG_PSL_CLOCKWISE : 0)
+                    | (bacterium.isReproduced() ? FLAG_REPRODUCED : 0);
+            runEndTime[b] = bacterium.getRunEndTime();
+            tumbleEndTime[b] = bacterium.getTumbleEndTime();
+            birthTime[b] = bacterium.getBirthTime();
+            growthRate[b] = bacterium.getGrowthRate();
+            insertionRate[b] = bacterium.getInsertionRate();
+            nextInsertionTime[b] = bacterium.getNextInsertionTime();
+            friction[b] = bacterium.getFrictionCoeffecient();
+            velocityX[b] = bacterium.getBacteriaVelocity().getX();
+            velocityY[b] = bacterium.getBacteriaVelocity().getY();
+            velocityZ[b] = bacterium.getBacteriaVelocity().getZ();
+            directionX[b] = bacterium.getBacteriaDirection().getX();
+            directionY[b] = bacterium.getBacteriaDirection().getY();
+            directionZ[b] = bacterium.getBacteriaDirection().getZ();
+
+            for (Particle particle : bacterium.getParticles()) {
+                copyParticle(particle, p);
+                partnerIndex.replace(particle, p++);
+            }
+        }
+        epsId = new int[epsCount];
+        for (EPS epsParticle : eps) {
+            epsId[p - bacteriaCount * PARTICLES_PER_BACTERIUM] = epsParticle.getId();
+            copyParticle(epsParticle, p);
+            partnerIndex.replace(epsParticle, p++);
+        }
+
+        /*
+        Encode bonds, dropping any bond whose partner is no longer part of the simulation
+         */
+        bondStart = new int[epsCount + 1];
+        int[] targets = new int[bondCount];
+        int bonds = 0;
+        for (int e = 0; e < epsCount; e++) {
+            bondStart[e] = bonds;
+            for (Particle bonded : eps.get(e).getBondedParticles()) {
+                int target = partnerIndex.get(bonded);
+                if (target >= 0) {
+                    targets[bonds++] = target;
+                }
+            }
+        }
+        bondStart[epsCount] = bonds;
+        bondTarget = bonds == bondCount ? targets : Arrays.copyOf(targets, bonds);
+
+        /*
+        PSL cells, each held at the position of its grid cell
+         */
+        pslRemoved = new long[removedCells.size()];
+        for (int r = 0; r < pslRemoved.length; r++) {
+            PVector cell = removedCells.get(r);
+            pslRemoved[r] = CheckpointDelta.cellKey((int) cell.getX(), (int) cell.getY());
+        }
+        pslCount = cells.size();
+        pslX = new int[pslCount];
+        pslY = new int[pslCount];
+        pslVisits = new int[pslCount];
+        pslDirectionX = new double[pslCount];
+        pslDirectionY = new double[pslCount];
+        int i = 0;
+        for (Psl psl : cells) {
+            pslX[i] = (int) psl.getPosition().getX();
+            pslY[i] = (int) psl.getPosition().getY();
+            pslVisits[i] = psl.getCount();
+            pslDirectionX[i] = psl.getDirection().getX();
+            pslDirectionY[i] = psl.getDirection().getY();
+            i++;
+        }
+
+        LineageStore lineage = Bacterium.getLineage();
+        lineageId = lineageIds;
+        if (lineageIds == null) {
+            lineageParent = lineage.copyParents();
+            lineageBirthTime = lineage.copyBirthTimes();
+            lineageDivisionTime = lineage.copyDivisionTimes();
+        } else {
+            lineageParent = new int[lineageIds.length];
+            lineageBirthTime = new double[lineageIds.length];
+            lineageDivisionTime = new double[lineageIds.length];
+            for (int l = 0; l < lineageIds.length; l++) {
+                lineageParent[l] = lineage.getParent(lineageIds[l]);
+                lineageBirthTime[l] = lineage.getBirthTime(lineageIds[l]);
+                lineageDivisionTime[l] = lineage.getDivisionTime(lineageIds[l]);
+            }
+        }
+        lineageCount = lineageParent.length;
+    }
+
+    /**
+     * Lays a snapshot of changes over this one, the PSL cells it removes dropped, the PSL cells and lineage
+     * entries it holds replacing those of this snapshot and its bacteria and EPS particles replacing all of them. This snapshot is left as it was,
+     * but should not be updated again.
+     *
+     * @param changes snapshot of the changes since this one was taken, from {@link #changes}
+     * @return a complete snapshot of the simulation at the time of the changes
+     */
+    SimSnapshot update(SimSnapshot changes) {
+        return new SimSnapshot(this, changes);
+    }
+
+    private SimSnapshot(SimSnapshot previous, SimSnapshot changes) {
+        time = changes.time;
+        bondCheckTime = changes.bondCheckTime;
+        strains.addAll(changes.strains);
+
+        bacteriaCount = changes.bacteriaCount;
+        bacteriumId = changes.bacteriumId;
+        color = changes.color;
+        strain = changes.strain;
+        flags = changes.flags;
+        runEndTime = changes.runEndTime;
+        tumbleEndTime = changes.tumbleEndTime;
+        birthTime = changes.birthTime;
+        growthRate = changes.growthRate;
+        insertionRate = changes.insertionRate;
+        nextInsertionTime = changes.nextInsertionTime;
+        friction = changes.friction;
+        velocityX = changes.velocityX;
+        velocityY = changes.velocityY;
+        velocityZ = changes.velocityZ;
+        directionX = changes.directionX;
+        directionY = changes.directionY;
+        directionZ = changes.directionZ;
+
+        particleCount = changes.particleCount;
+        px = changes.px;
+        py = changes.py;
+        pz = changes.pz;
+        vx = changes.vx;
+        vy = changes.vy;
+        vz = changes.vz;
+        ax = changes.ax;
+        ay = changes.ay;
+        az = changes.az;
+
+        epsCount = changes.epsCount;
+        epsId = changes.epsId;
+        bondStart = changes.bondStart;
+        bondTarget = changes.bondTarget;
+
+        /*
+        PSL cells -- removed ones dropped, changed ones overwritten in place, new ones appended
+         */
+        pslRemoved = new long[0];
+        pslIndex = previous.pslIndex;
+        previous.pslIndex = null;
+        if (pslIndex == null) {
+            pslIndex = new HashMap<>(previous.pslCount * 2);
+            for (int i = 0; i < previous.pslCount; i++) {
+                pslIndex.put(CheckpointDelta.cellKey(previous.pslX[i], previous.pslY[i]), i);
+            }
+        }
+        int[] kept = null;
+        int keptCount = previous.pslCount;
+        if (changes.pslRemoved.length > 0) {
+            for (long key : changes.pslRemoved) {
+                pslIndex.remove(key);
+            }
+            kept = new int[pslIndex.size()];
+            keptCount = 0;
+            for (int i = 0; i < previous.pslCount; i++) {
+                long key = CheckpointDelta.cellKey(previous.pslX[i], previous.pslY[i]);
+                if (pslIndex.containsKey(key)) {
+                    pslIndex.put(key, keptCount);
+                    kept[keptCount++] = i;
+                }
+            }
+        }
+        int added = 0;
+        for (int i = 0; i < changes.pslCount; i++) {
+            if (!pslIndex.containsKey(CheckpointDelta.cellKey(changes.pslX[i], changes.pslY[i]))) {
+                added++;
+            }
+        }
+        pslCount = keptCount + added;
+        pslX = gather(previous.pslX, kept, pslCount);
+        pslY = gather(previous.pslY, kept, pslCount);
+        pslVisits = gather(previous.pslVisits, kept, pslCount);
+        pslDirectionX = gather(previous.pslDirectionX, kept, pslCount);
+        pslDirectionY = gather(previous.pslDirectionY, kept, pslCount);
+        int next = keptCount;
+        for (int i = 0; i < changes.pslCount; i++) {
+            long key = CheckpointDelta.cellKey(changes.pslX[i], changes.pslY[i]);
+            Integer cell = pslIndex.get(key);
+            if (cell == null) {
+                cell = next++;
+                pslIndex.put(key, cell);
+            }
+            pslX[cell] = changes.pslX[i];
+            pslY[cell] = changes.pslY[i];
+            pslVisits[cell] = changes.pslVisits[i];
+            pslDirectionX[cell] = changes.pslDirectionX[i];
+            pslDirectionY[cell] = changes.pslDirectionY[i];
+        }
+
+        /*
+        Lineage -- changed ids past the end grow the columns, any ids skipped on the way being unknown
+         */
+        int count = previous.lineageCount;
+        for (int id : changes.lineageId) {
+            count = Math.max(count, id + 1);
+        }
+        lineageId = null;
+        lineageCount = count;
+        lineageParent = Arrays.copyOf(previous.lineageParent, count);
+        lineageBirthTime = Arrays.copyOf(previous.lineageBirthTime, count);
+        lineageDivisionTime = Arrays.copyOf(previous.lineageDivisionTime, count);
+        Arrays.fill(lineageParent, previous.lineageCount, count, LineageStore.NO_PARENT);
+        Arrays.fill(lineageBirthTime, previous.lineageCount, count, Double.NaN);
+        Arrays.fill(lineageDivisionTime, previous.lineageCount, count, Double.NaN);
+        for (int l = 0; l < changes.lineageCount; l++) {
+            int id = changes.lineageId[l];
+            lineageParent[id] = changes.lineageParent[l];
+            lineageBirthTime[id] = changes.lineageBirthTime[l];
+            lineageDivisionTime[id] = changes.lineageDivisionTime[l];
+        }
+    }
+
+    /**
+     * Copies the entries of a column at the given indices, or all of them when indices is null, into a column of
+     * the given length
+     */
+    private static int[] gather(int[] column, int[] indices, int length) {
+        if (indices == null) {
+            return Arrays.copyOf(column, length);
+        }
+        int[] gathered = new int[length];
+        for (int i = 0; i < indices.length; i++) {
+            gathered[i] = column[indices[i]];
+        }
+        return gathered;
+    }
+
+    private static double[] gather(double[] column, int[] indices, int length) {
+        if (indices == null) {
+            return Arrays.copyOf(column, length);
+        }
+        double[] gathered = new double[length];
+        for (int i = 0; i < indices.length; i++) {
+            gathered[i] = column[indices[i]];
+        }
+        return gathered;
+    }
+
+    /**
+     * Copies the kinematic state of a particle into the particle columns
+     *
+     * @param particle the particle to copy
+     * @param index column index of the particle
+     */
+    private void copyParticle(Particle particle, int index) {
+        px[index] = particle.getPosition().getX();
+        py[index] = particle.getPosition().getY();
+        pz[index] = particle.getPosition().getZ();
+        vx[index] = particle.getVelocity().getX();
+        vy[index] = particle.getVelocity().getY();
+        vz[index] = particle.getVelocity().getZ();
+        ax[index] = particle.getAcceleration().getX();
+        ay[index] = particle.getAcceleration().getY();
+        az[index] = particle.getAcceleration().getZ();
+    }
+}
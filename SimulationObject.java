@@ -2,6 +2,8 @@ import java.io.Serializable;
 
 public abstract class SimulationObject implements Serializable {
 
+    private static final long serialVersionUID = -1757588391050313595L;
+
     /**
      * The x and y coordinates of this object
      */
@@ -0,0 +1,331 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Binary snapshot format for the simulation state. The file holds a fixed header followed by the
+ * columns of a {@link SimSnapshot}, so a saved state can be memory mapped and read in place by a
+ * {@link MappedSnapshot} instead of being deserialized object by object.
+ *
+ * <pre>
+ * header   magic, version, time, bond check time, counts, strain table size
+ * strains  length prefixed UTF-8 strain names
+ * columns  bacterium columns, particle columns, EPS ids and bond rows, PSL columns, lineage columns
+ * </pre>
+ *
+ * @author Brian Mbawa, Seth McNevin, Gladwin Ngobeni
+ */
+public final class SnapshotFile {
+
+    /**
+     * Identifies a snapshot file -- "BSNP"
+     */
+    static final int MAGIC = 0x42534E50;
+    static final int VERSION = 3;
+
+    /**
+     * Oldest version that can still be read -- version 2 files have no lineage columns
+     */
+    static final int MIN_VERSION = 2;
+
+    /**
+     * Size of the fixed header in bytes
+     */
+    static final int HEADER_SIZE = 64;
+
+    /**
+     * Header field offsets
+     */
+    static final int TIME_OFFSET = 8;
+    static final int BOND_CHECK_OFFSET = 16;
+    static final int BACTERIA_COUNT_OFFSET = 24;
+    static final int EPS_COUNT_OFFSET = 28;
+    static final int BOND_COUNT_OFFSET = 32;
+    static final int PSL_COUNT_OFFSET = 36;
+    static final int STRAIN_COUNT_OFFSET = 40;
+    static final int STRAIN_BYTES_OFFSET = 44;
+    static final int LINEAGE_COUNT_OFFSET = 48;
+
+    /**
+     * Column counts per record
+     */
+    static final int BACTERIUM_INT_COLUMNS = 4;
+    static final int BACTERIUM_DOUBLE_COLUMNS = 13;
+    static final int PARTICLE_DOUBLE_COLUMNS = 9;
+    static final int PSL_INT_COLUMNS = 3;
+    static final int PSL_DOUBLE_COLUMNS = 2;
+    static final int LINEAGE_INT_COLUMNS = 1;
+    static final int LINEAGE_DOUBLE_COLUMNS = 2;
+
+    private SnapshotFile() {
+    }
+
+    /**
+     * Writes a snapshot to disk
+     *
+     * @param snapshot the captured simulation state
+     * @param file destination file
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(SimSnapshot snapshot, File file) throws IOException {
+        byte[][] strainBytes = new byte[snapshot.strains.size()][];
+        int strainTableSize = 0;
+        for (int i = 0; i < strainBytes.length; i++) {
+            strainBytes[i] = snapshot.strains.get(i).getBytes(StandardCharsets.UTF_8);
+            strainTableSize += Integer.BYTES + strainBytes[i].length;
+        }
+        strainTableSize = align(strainTableSize);
+        int bondCount = snapshot.bondTarget.length;
+
+        if (file.getParentFile() != null) {
+            file.getParentFile().mkdirs();
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+             FileChannel channel = raf.getChannel()) {
+            raf.setLength(0);
+            ColumnWriter out = new ColumnWriter(channel);
+
+            /*
+            Header
+             */
+            out.putInt(MAGIC);
+            out.putInt(VERSION);
+            out.putDouble(snapshot.time);
+            out.putDouble(snapshot.bondCheckTime);
+            out.putInt(snapshot.bacteriaCount);
+            out.putInt(snapshot.epsCount);
+            out.putInt(bondCount);
+            out.putInt(snapshot.pslCount);
+            out.putInt(strainBytes.length);
+            out.putInt(strainTableSize);
+            out.putInt(snapshot.lineageCount);
+            out.padTo(HEADER_SIZE);
+
+            /*
+            Strain table
+             */
+            for (byte[] bytes : strainBytes) {
+                out.putInt(bytes.length);
+                out.put(bytes);
+            }
+            out.padTo(HEADER_SIZE + strainTableSize);
+
+            /*
+            Bacterium columns
+             */
+            out.putInts(snapshot.color);
+            out.putInts(snapshot.strain);
+            out.putInts(snapshot.flags);
+            out.putInts(snapshot.bacteriumId);
+            out.align();
+            out.putDoubles(snapshot.runEndTime);
+            out.putDoubles(snapshot.tumbleEndTime);
+            out.putDoubles(snapshot.birthTime);
+            out.putDoubles(snapshot.growthRate);
+            out.putDoubles(snapshot.insertionRate);
+            out.putDoubles(snapshot.nextInsertionTime);
+            out.putDoubles(snapshot.friction);
+            out.putDoubles(snapshot.velocityX);
+            out.putDoubles(snapshot.velocityY);
+            out.putDoubles(snapshot.velocityZ);
+            out.putDoubles(snapshot.directionX);
+            out.putDoubles(snapshot.directionY);
+            out.putDoubles(snapshot.directionZ);
+
+            /*
+            Particle columns
+             */
+            out.putDoubles(snapshot.px);
+            out.putDoubles(snapshot.py);
+            out.putDoubles(snapshot.pz);
+            out.putDoubles(snapshot.vx);
+            out.putDoubles(snapshot.vy);
+            out.putDoubles(snapshot.vz);
+            out.putDoubles(snapshot.ax);
+            out.putDoubles(snapshot.ay);
+            out.putDoubles(snapshot.az);
+
+            /*
+            EPS ids and bond rows
+             */
+            out.putInts(snapshot.epsId);
+            out.putInts(snapshot.bondStart);
+            out.putInts(snapshot.bondTarget);
+            out.align();
+
+            /*
+            PSL columns
+             */
+            out.putInts(snapshot.pslX);
+            out.putInts(snapshot.pslY);
+            out.putInts(snapshot.pslVisits);
+            out.align();
+            out.putDoubles(snapshot.pslDirectionX);
+            out.putDoubles(snapshot.pslDirectionY);
+
+            /*
+            Lineage columns
+             */
+            out.putInts(snapshot.lineageParent);
+            out.align();
+            out.putDoubles(snapshot.lineageBirthTime);
+            out.putDoubles(snapshot.lineageDivisionTime);
+            out.flush();
+        }
+    }
+
+    /**
+     * Memory maps a snapshot file
+     *
+     * @param file the snapshot file
+     * @return a view reading the snapshot columns in place
+     * @throws IOException if the file cannot be read or is not a snapshot
+     */
+    public static MappedSnapshot open(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            MappedWindows buffer = new MappedWindows(channel, ByteOrder.LITTLE_ENDIAN);
+            if (channel.size() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+                throw new IOException("Not a snapshot file: " + file.getName());
+            }
+            if (buffer.getInt(4) < MIN_VERSION || buffer.getInt(4) > VERSION) {
+                throw new IOException("Unsupported snapshot version " + buffer.getInt(4));
+            }
+            return new MappedSnapshot(buffer);
+        }
+    }
+
+    /**
+     * Checks whether a file starts with the snapshot header
+     *
+     * @param file the file to check
+     * @return true if the file is a snapshot file
+     */
+    public static boolean isSnapshot(File file) {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            return raf.length() >= HEADER_SIZE && Integer.reverseBytes(raf.readInt()) == MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Size of all columns following the strain table
+     */
+    static long columnsSize(int bacteriaCount, int particleCount, int epsCount, int bondCount, int pslCount, int lineageCount) {
+        long size = align((long) BACTERIUM_INT_COLUMNS * Integer.BYTES * bacteriaCount);
+        size += (long) BACTERIUM_DOUBLE_COLUMNS * Double.BYTES * bacteriaCount;
+        size += (long) PARTICLE_DOUBLE_COLUMNS * Double.BYTES * particleCount;
+        size += align((long) Integer.BYTES * (2 * epsCount + 1 + bondCount));
+        size += align((long) PSL_INT_COLUMNS * Integer.BYTES * pslCount);
+        size += (long) PSL_DOUBLE_COLUMNS * Double.BYTES * pslCount;
+        size += align((long) LINEAGE_INT_COLUMNS * Integer.BYTES * lineageCount);
+        size += (long) LINEAGE_DOUBLE_COLUMNS * Double.BYTES * lineageCount;
+        return size;
+    }
+
+    /**
+     * Rounds a byte offset up to the next multiple of eight so double columns stay aligned
+     */
+    static int align(int offset) {
+        return (offset + 7) & ~7;
+    }
+
+    static long align(long offset) {
+        return (offset + 7) & ~7L;
+    }
+
+    /**
+     * Streams the header and columns to a file through a small buffer, so a snapshot is never staged whole in
+     * memory and may grow beyond 2 GB
+     */
+    private static final class ColumnWriter {
+
+        /**
+         * Bytes gathered before they are written out
+         */
+        private static final int CHUNK = 1 << 20;
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK).order(ByteOrder.LITTLE_ENDIAN);
+
+        /**
+         * Bytes written to the file so far
+         */
+        private long written;
+
+        private ColumnWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        private long position() {
+            return written + buffer.position();
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                written += channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        private void putInt(int value) throws IOException {
+            ensure(Integer.BYTES);
+            buffer.putInt(value);
+        }
+
+        private void putDouble(double value) throws IOException {
+            ensure(Double.BYTES);
+            buffer.putDouble(value);
+        }
+
+        private void put(byte[] bytes) throws IOException {
+            for (int done = 0; done < bytes.length; ) {
+                ensure(1);
+                int length = Math.min(bytes.length - done, buffer.remaining());
+                buffer.put(bytes, done, length);
+                done += length;
+            }
+        }
+
+        private void putInts(int[] column) throws IOException {
+            for (int value : column) {
+                putInt(value);
+            }
+        }
+
+        private void putDoubles(double[] column) throws IOException {
+            for (double value : column) {
+                putDouble(value);
+            }
+        }
+
+        /**
+         * Pads with zeros up to a file offset
+         */
+        private void padTo(long offset) throws IOException {
+            while (position() < offset) {
+                ensure(1);
+                buffer.put((byte) 0);
+            }
+        }
+
+        /**
+         * Pads with zeros to the next multiple of eight so double columns stay aligned
+         */
+        private void align() throws IOException {
+            padTo(SnapshotFile.align(position()));
+        }
+    }
+}
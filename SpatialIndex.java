@@ -0,0 +1,150 @@
+import java.util.HashMap;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Uniform grid over particle positions used to answer "is anything within this distance" queries
+ * without scanning every particle of the simulation. Each entry remembers the id of the
+ * {@link Bacterium} it belongs to so a query can ignore a given bacterium, such as a daughter's father.
+ * Entries of a cell are chained through arrays rather than held in per cell lists.
+ *
+ * @author Brian Mbawa, Seth McNevin, Gladwin Ngobeni
+ */
+public class SpatialIndex {
+
+    /**
+     * Owner of entries that do not belong to a bacterium
+     */
+    public static final int NO_OWNER = -1;
+
+    private final double cellSize;
+
+    /**
+     * First entry of each occupied cell
+     */
+    private final Map<Long, Integer> cellHeads = new HashMap<>();
+
+    /**
+     * Entry columns -- position, owning bacterium id and the next entry of the same cell
+     */
+    private double[] x = new double[64];
+    private double[] y = new double[64];
+    private int[] owner = new int[64];
+    private int[] next = new int[64];
+    private int size = 0;
+
+    /**
+     * @param cellSize width of a grid cell, ideally close to the distances that will be queried
+     */
+    public SpatialIndex(double cellSize) {
+        if (cellSize <= 0) {
+            throw new IllegalArgumentException("Cell size must be positive");
+        }
+        this.cellSize = cellSize;
+    }
+
+    /**
+     * Builds an index over the particles of a list of bacteria
+     *
+     * @param bacteria bacteria to index
+     * @param cellSize width of a grid cell
+     * @return the index
+     */
+    public static SpatialIndex of(List<Bacterium> bacteria, double cellSize) {
+        SpatialIndex index = new SpatialIndex(cellSize);
+        for (Bacterium bacterium : bacteria) {
+            index.insert(bacterium);
+        }
+        return index;
+    }
+
+    /**
+     * Adds every particle of a bacterium
+     *
+     * @param bacterium the bacterium to add
+     */
+    public void insert(Bacterium bacterium) {
+        for (Particle particle : bacterium.getParticles()) {
+            insert(particle.getPosition().getX(), particle.getPosition().getY(), bacterium.getId());
+        }
+    }
+
+    /**
+     * Adds a single position
+     *
+     * @param px x coordinate
+     * @param py y coordinate
+     * @param ownerId id of the owning bacterium, {@link #NO_OWNER} if none
+     */
+    public void insert(double px, double py, int ownerId) {
+        if (size == x.length) {
+            x = Arrays.copyOf(x, size * 2);
+            y = Arrays.copyOf(y, size * 2);
+            owner = Arrays.copyOf(owner, size * 2);
+            next = Arrays.copyOf(next, size * 2);
+        }
+        long key = cellKey(cell(px), cell(py));
+        Integer head = cellHeads.put(key, size);
+        x[size] = px;
+        y[size] = py;
+        owner[size] = ownerId;
+        next[size] = head == null ? -1 : head;
+        size++;
+    }
+
+    /**
+     * Checks that no indexed position lies closer than a minimum distance to a point
+     *
+     * @param px x coordinate
+     * @param py y coordinate
+     * @param minDistance minimum allowed distance
+     * @param ignoredOwner id of a bacterium whose particles are not checked, {@link #NO_OWNER} to check all
+     * @return true if the point is clear
+     */
+    public boolean isClear(double px, double py, double minDistance, int ignoredOwner) {
+        int reach = (int) Math.ceil(minDistance / cellSize);
+        int cx = cell(px);
+        int cy = cell(py);
+        double minDistanceSquared = minDistance * minDistance;
+        for (int dx = -reach; dx <= reach; dx++) {
+            for (int dy = -reach; dy <= reach; dy++) {
+                Integer head = cellHeads.get(cellKey(cx + dx, cy + dy));
+                for (int i = head == null ? -1 : head; i >= 0; i = next[i]) {
+                    if (owner[i] == ignoredOwner && ignoredOwner != NO_OWNER) {
+                        continue;
+                    }
+                    double ex = x[i] - px;
+                    double ey = y[i] - py;
+                    if (ex * ex + ey * ey < minDistanceSquared) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return number of indexed positions
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes every indexed position
+     */
+    public void clear() {
+        cellHeads.clear();
+        size = 0;
+    }
+
+    private int cell(double coordinate) {
+        return (int) Math.floor(coordinate / cellSize);
+    }
+
+    private static long cellKey(int cx, int cy) {
+        return ((long) cx << 32) | (cy & 0xFFFFFFFFL);
+    }
+}
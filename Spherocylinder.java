@@ -0,0 +1,378 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A coarse-grained bacterium: one rigid spherocylinder instead of the seven particles, springs and bending
+ * angles of a {@link Bacterium}. Its state is the centre and orientation of its axis and the length of the axis,
+ * which grows with the same law as the rest length of a bacterium's springs. Bacteria of this kind live in a
+ * {@link RodEngine}, which pushes touching spherocylinders apart with a segment-segment contact force.
+ * <p>
+ * Run and tumble, PSL deposition and alignment, EPS insertion and division follow the rules of
+ * {@link Bacterium}: a run pushes the rod along its axis, a tumble spins it about its centre, a running motile
+ * rod deposits PSL under its centre and turns on PSL it finds under its rear end, and a rod divides into two
+ * newborn rods side by side at its rear end once its length has doubled. The rear end plays the part of the
+ * head particle, particle 0 of a bacterium, and the rod swims towards its front end as a bacterium swims towards
+ * particle 6.
+ * <p>
+ * The centre and the orientation are advanced by the run's {@link Integrator} as two unit-mass particles, the
+ * orientation as the x coordinate of the second; the velocity the run and tumble rules give them is set every
+ * step, as for the particles of a bacterium.
+ *
+ * @author Brian Mbawa, Seth McNevin, Gladwin Ngobeni
+ */
+public class Spherocylinder {
+
+    /**
+     * Axis length at birth and at division -- the six springs of a bacterium at their rest length
+     */
+    static final double BIRTH_LENGTH = 6 * Bacterium.LO;
+    static final double DIVISION_LENGTH = 6 * Bacterium.MAX_REST_LENGTH;
+
+    /**
+     * Angular speed of a tumble in radians per second, the spin a tumbling bacterium gives its particles
+     */
+    private static final double TUMBLE_SPIN = 10;
+
+    /**
+     * Angular speed per radian of PSL trail direction while aligning with a trail
+     */
+    private static final double PSL_SPIN = 5;
+
+    private static final Random RANDOM = new Random();
+
+    /**
+     * Parent ids, birth and division times of every spherocylinder of the run
+     */
+    private static final LineageStore LINEAGE = new LineageStore();
+
+    /**
+     * Identifier handed to the next spherocylinder created
+     */
+    private static int nextId = 1;
+
+    private final int id;
+    private final int fatherId;
+    private final String strain;
+
+    /**
+     * Centre of the axis, and its angle as the x coordinate of a second particle
+     */
+    private final Particle centre;
+    private final Particle orientation;
+
+    /**
+     * Unit vector along the axis towards the front end, kept up to date with the orientation
+     */
+    private double axisX;
+    private double axisY;
+
+    /**
+     * Torque about the centre summed over the contacts of the step
+     */
+    private double torque;
+
+    /**
+     * Growth parameters
+     */
+    private final double birthTime;
+    private final double growthRate;
+
+    /**
+     * Run and tumble parameters
+     */
+    private boolean isRunning;
+    private double runEndTime;
+    private boolean isTumbling;
+    private double tumbleEndTime;
+
+    /**
+     * Viscosity parameter -- EPS does not bond with spherocylinders, so it keeps its starting value
+     */
+    private final double frictionCoefficient = 0.1;
+
+    /**
+     * EPS parameters
+     */
+    private final double insertionRate;
+    private double nextInsertionTime = 0.0;
+
+    private boolean reproduced = false;
+    private final List<Spherocylinder> daughters = new ArrayList<>(2);
+
+    /**
+     * Creates a spherocylinder of birth length
+     *
+     * @param strain type of bacteria
+     * @param x x coordinate of the centre
+     * @param y y coordinate of the centre
+     * @param angle direction of the axis in radians
+     * @param currentTime simulation time of birth
+     * @param fatherId id of the dividing spherocylinder, or {@link LineageStore#NO_PARENT}
+     */
+    public Spherocylinder(String strain, double x, double y, double angle, double currentTime, int fatherId) {
+        this.strain = strain;
+        this.fatherId = fatherId;
+        this.id = nextId++;
+        this.birthTime = currentTime;
+        this.growthRate = -Bacterium.MEAN_TR * Math.log(1.0 - RANDOM.nextDouble());
+        this.insertionRate = (1.0 / 60.0) * growthRate;
+        LINEAGE.recordBirth(id, fatherId, currentTime);
+        centre = new Particle(x, y, new PVector(0, 0, 0), new PVector(0, 0, 0));
+        orientation = new Particle(angle, 0, new PVector(0, 0, 0), new PVector(0, 0, 0));
+        axisX = Math.cos(angle);
+        axisY = Math.sin(angle);
+        startRunning(currentTime);
+    }
+
+    /**
+     * Advances this spherocylinder by one step under the contact forces of the step: switches between run and
+     * tumble when due, inserts EPS, divides, moves, deposits PSL and wraps around the environment boundaries
+     *
+     * @param currentTime simulation time at the start of the step
+     * @param dt time step
+     * @param integrator moves the centre and the orientation
+     * @param grid PSL {@link Grid} shared by all bacteria
+     * @param eps EPS particles of the simulation, to which insertions are added
+     * @param xMin minimum environment x value
+     * @param xMax maximum environment x value
+     * @param yMin minimum environment y value
+     * @param yMax maximum environment y value
+     * @param box periodic boundaries of the environment, or null to move spherocylinders leaving it to the
+     *            opposite edge
+     */
+    public void move(double currentTime, double dt, Integrator integrator, Grid grid, List<EPS> eps,
+                     double xMin, double xMax, double yMin, double yMax, PeriodicBox box) {
+        /*
+        Discrete events due -- the same clocks an EventScheduler keeps for a bacterium
+         */
+        if (isRunning && currentTime > runEndTime) {
+            isRunning = false;
+            startTumbling(currentTime);
+        } else if (isTumbling && currentTime > tumbleEndTime) {
+            isTumbling = false;
+            startRunning(currentTime);
+        }
+        boolean motile = Bacterium.getMotility();
+        if (isRunning && motile) {
+            insertEPS(currentTime, eps);
+        }
+        if (!reproduced && Bacterium.getReproduction() && currentTime >= birthTime + Bacterium.LO
+                && getLength(currentTime) >= DIVISION_LENGTH) {
+            divide(currentTime);
+        }
+
+        /*
+        Run along the axis, or spin about the centre while tumbling or aligning with a PSL trail
+         */
+        double dx = axisX;
+        double dy = axisY;
+        double vx = 0;
+        double vy = 0;
+        double spin = 0;
+        if (isTumbling) {
+            spin = RANDOM.nextBoolean() ? -TUMBLE_SPIN : TUMBLE_SPIN;
+        }
+        if (isRunning) {
+            double speed = Bacterium.V_RUN / frictionCoefficient;
+            vx = dx * speed;
+            vy = dy * speed;
+        }
+        double half = getLength(currentTime) / 2;
+        double rearX = centre.getPosition().getX() - dx * half;
+        double rearY = centre.getPosition().getY() - dy * half;
+        Psl psl = isRunning ? grid.getPslParticle(rearX, rearY) : null;
+        if (psl != null) {
+            double trail = psl.getDirection().direction() * PSL_SPIN;
+            spin = RANDOM.nextBoolean() ? -trail : trail;
+            vx = 0;
+            vy = 0;
+        }
+        if (!motile) {
+            vx = 0;
+            vy = 0;
+            spin = 0;
+        }
+
+        /*
+        Viscous damping against the swimming direction, then integrate the centre and the orientation
+         */
+        centre.getNetForce().add(-dx * Bacterium.V_RUN, -dy * Bacterium.V_RUN, 0);
+        centre.getVelocity().set(vx, vy, 0);
+        integrator.advance(centre, dt);
+        orientation.getVelocity().set(spin, 0, 0);
+        orientation.getNetForce().set(torque / momentOfInertia(currentTime), 0, 0);
+        integrator.advance(orientation, dt);
+        axisX = Math.cos(orientation.getPosition().getX());
+        axisY = Math.sin(orientation.getPosition().getX());
+        torque = 0;
+
+        /*
+        Record visit of the centre
+         */
+        if (isRunning && motile) {
+            grid.recordVisit(centre.getPosition().getX(), centre.getPosition().getY(), new PVector(vx, vy).normalize());
+        }
+
+        if (box != null) {
+            box.wrap(centre.getPosition());
+        } else {
+            checkBoundaries(currentTime, xMin, xMax, yMin, yMax);
+        }
+    }
+
+    /**
+     * Adds a contact force acting at a point on the axis
+     *
+     * @param fx x component of the force
+     * @param fy y component of the force
+     * @param arm signed distance of the point along the axis from the centre
+     */
+    void addContactForce(double fx, double fy, double arm) {
+        centre.getNetForce().add(fx, fy, 0);
+        torque += arm * (axisX * fy - axisY * fx);
+    }
+
+    /**
+     * Inserts an EPS particle under the centre when one is due
+     */
+    private void insertEPS(double currentTime, List<EPS> eps) {
+        if (currentTime > nextInsertionTime && currentTime > 1) {
+            EPS inserted = ObjectPool.obtainEPS(centre.getPosition().getX(), centre.getPosition().getY());
+            if (eps.contains(inserted)) {
+                ObjectPool.release(inserted);
+                return;
+            }
+            eps.add(inserted);
+            nextInsertionTime = currentTime + insertionRate;
+        }
+    }
+
+    /**
+     * Replaces this spherocylinder with two of birth length side by side at its rear end, facing its way
+     */
+    private void divide(double currentTime) {
+        reproduced = true;
+        LINEAGE.recordDivision(id, currentTime);
+        double dx = axisX;
+        double dy = axisY;
+        double half = getLength(currentTime) / 2;
+        double rearX = centre.getPosition().getX() - dx * half;
+        double rearY = centre.getPosition().getY() - dy * half;
+        double offset = Bacterium.TRANSVERSE_WIDTH / 2;
+        for (int side = -1; side <= 1; side += 2) {
+            double x = rearX - dy * offset * side + dx * BIRTH_LENGTH / 2;
+            double y = rearY + dx * offset * side + dy * BIRTH_LENGTH / 2;
+            daughters.add(new Spherocylinder(strain, x, y, getAngle(), currentTime, id));
+        }
+    }
+
+    /**
+     * Moves a spherocylinder whose rear end left the environment so that its rear end enters from the
+     * opposite side, as a bacterium is moved
+     */
+    private void checkBoundaries(double currentTime, double xMin, double xMax, double yMin, double yMax) {
+        double half = getLength(currentTime) / 2;
+        double offsetX = axisX * half;
+        double offsetY = axisY * half;
+        PVector position = centre.getPosition();
+        double rearX = position.getX() - offsetX;
+        double rearY = position.getY() - offsetY;
+        if (rearX > xMax) {
+            rearX = xMin;
+        } else if (rearX < xMin) {
+            rearX = xMax;
+        }
+        if (rearY > yMax) {
+            rearY = yMin;
+        } else if (rearY < yMin) {
+            rearY = yMax;
+        }
+        position.set(rearX + offsetX, rearY + offsetY, 0);
+    }
+
+    private void startRunning(double currentTime) {
+        isRunning = true;
+        runEndTime = currentTime + -Bacterium.getRunTime() * Math.log(1.0 - RANDOM.nextDouble());
+    }
+
+    private void startTumbling(double currentTime) {
+        isTumbling = true;
+        tumbleEndTime = currentTime + -Bacterium.getTumbleTime() * Math.log(1.0 - RANDOM.nextDouble());
+    }
+
+    /**
+     * @param currentTime simulation time
+     * @return length of the axis, growing from {@link #BIRTH_LENGTH} to {@link #DIVISION_LENGTH} as the springs
+     * of a bacterium do
+     */
+    public double getLength(double currentTime) {
+        double growth = Math.min(currentTime - birthTime, 1.2 * growthRate);
+        return 6 * Math.min(Bacterium.LO + growth, Bacterium.MAX_REST_LENGTH);
+    }
+
+    /**
+     * Moment of inertia per unit mass of a thin rod about its centre
+     */
+    private double momentOfInertia(double currentTime) {
+        double length = getLength(currentTime);
+        return length * length / 12;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public int getFatherId() {
+        return fatherId;
+    }
+
+    public String getStrain() {
+        return strain;
+    }
+
+    public PVector getCentre() {
+        return centre.getPosition();
+    }
+
+    /**
+     * @return direction of the axis in radians, towards the front end
+     */
+    public double getAngle() {
+        return orientation.getPosition().getX();
+    }
+
+    /**
+     * @return x component of the unit vector along the axis towards the front end
+     */
+    public double getAxisX() {
+        return axisX;
+    }
+
+    /**
+     * @return y component of the unit vector along the axis towards the front end
+     */
+    public double getAxisY() {
+        return axisY;
+    }
+
+    public boolean isRunning() {
+        return isRunning;
+    }
+
+    public boolean isTumbling() {
+        return isTumbling;
+    }
+
+    public boolean isReproduced() {
+        return reproduced;
+    }
+
+    public List<Spherocylinder> getDaughters() {
+        return daughters;
+    }
+
+    public static LineageStore getLineage() {
+        return LINEAGE;
+    }
+}
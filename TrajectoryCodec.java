@@ -0,0 +1,223 @@
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Encoding shared by the {@link TrajectoryRecorder} and {@link TrajectoryReader}.
+ * Positions are quantized to 1/256 of a pixel and written as zig-zag varints. Within a chunk a
+ * bacterium or EPS particle that sits at the same index with the same id as in the previous frame
+ * is written as the difference to its previous position, which is mostly a single byte.
+ * The first frame of every chunk is a key frame so chunks can be decoded independently.
+ *
+ * <pre>
+ * file     header, chunks, index, footer
+ * header   magic, version, quantization scale, record interval, frames per chunk
+ * chunk    first frame, frame count, raw length, compressed length, deflated frames
+ * index    per chunk: offset, first frame, frame count -- per frame: step, time
+ * footer   index offset, chunk count, frame count, magic
+ * </pre>
+ *
+ * @author Brian Mbawa, Seth McNevin, Gladwin Ngobeni
+ */
+final class TrajectoryCodec {
+
+    /**
+     * Identifies a trajectory file -- "BTRJ"
+     */
+    static final int MAGIC = 0x42544A52;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    static final int CHUNK_HEADER_SIZE = 16;
+    static final int FOOTER_SIZE = 20;
+
+    /**
+     * Quantization steps per pixel -- a power of two so quantized values round trip exactly
+     */
+    static final double SCALE = 256;
+
+    private static final int N = TrajectoryFrame.N;
+
+    private TrajectoryCodec() {
+    }
+
+    static int quantize(double value) {
+        return (int) Math.round(value * SCALE);
+    }
+
+    static double dequantize(int value) {
+        return value / SCALE;
+    }
+
+    /**
+     * Encodes a frame
+     *
+     * @param frame the frame to encode
+     * @param previous the previous frame of the same chunk, null for a key frame
+     * @param out destination
+     */
+    static void encode(TrajectoryFrame frame, TrajectoryFrame previous, Sink out) {
+        out.putVarLong(frame.step);
+        out.putDouble(frame.time);
+
+        out.putVarInt(frame.bacteriaCount);
+        int previousId = 0;
+        for (int b = 0; b < frame.bacteriaCount; b++) {
+            int id = frame.bacteriumIds[b];
+            out.putVarInt(zigzag(id - previousId));
+            previousId = id;
+            out.put(frame.states[b]);
+            boolean delta = previous != null && b < previous.bacteriaCount && previous.bacteriumIds[b] == id;
+            for (int p = b * N; p < b * N + N; p++) {
+                out.putVarInt(zigzag(quantize(frame.particleX[p]) - (delta ? quantize(previous.particleX[p]) : 0)));
+                out.putVarInt(zigzag(quantize(frame.particleY[p]) - (delta ? quantize(previous.particleY[p]) : 0)));
+            }
+        }
+
+        out.putVarInt(frame.epsCount);
+        previousId = 0;
+        for (int e = 0; e < frame.epsCount; e++) {
+            int id = frame.epsIds[e];
+            out.putVarInt(zigzag(id - previousId));
+            previousId = id;
+            boolean delta = previous != null && e < previous.epsCount && previous.epsIds[e] == id;
+            out.putVarInt(zigzag(quantize(frame.epsX[e]) - (delta ? quantize(previous.epsX[e]) : 0)));
+            out.putVarInt(zigzag(quantize(frame.epsY[e]) - (delta ? quantize(previous.epsY[e]) : 0)));
+        }
+
+        out.putVarInt(frame.divisionCount);
+        for (int i = 0; i < frame.divisionCount * 3; i++) {
+            out.putVarInt(frame.divisions[i]);
+        }
+        out.putVarInt(frame.insertionCount);
+        for (int i = 0; i < frame.insertionCount * 2; i++) {
+            out.putVarInt(frame.insertions[i]);
+        }
+    }
+
+    /**
+     * Decodes a frame
+     *
+     * @param in source positioned at the start of the frame
+     * @param previous the previous decoded frame of the same chunk, null for a key frame
+     * @param frame destination
+     */
+    static void decode(ByteBuffer in, TrajectoryFrame previous, TrajectoryFrame frame) {
+        frame.step = getVarLong(in);
+        frame.time = in.getDouble();
+
+        frame.resizeBacteria(getVarInt(in));
+        int previousId = 0;
+        for (int b = 0; b < frame.bacteriaCount; b++) {
+            int id = previousId + unzigzag(getVarInt(in));
+            previousId = id;
+            frame.bacteriumIds[b] = id;
+            frame.states[b] = in.get();
+            boolean delta = previous != null && b < previous.bacteriaCount && previous.bacteriumIds[b] == id;
+            for (int p = b * N; p < b * N + N; p++) {
+                frame.particleX[p] = dequantize(unzigzag(getVarInt(in)) + (delta ? quantize(previous.particleX[p]) : 0));
+                frame.particleY[p] = dequantize(unzigzag(getVarInt(in)) + (delta ? quantize(previous.particleY[p]) : 0));
+            }
+        }
+
+        frame.resizeEps(getVarInt(in));
+        previousId = 0;
+        for (int e = 0; e < frame.epsCount; e++) {
+            int id = previousId + unzigzag(getVarInt(in));
+            previousId = id;
+            frame.epsIds[e] = id;
+            boolean delta = previous != null && e < previous.epsCount && previous.epsIds[e] == id;
+            frame.epsX[e] = dequantize(unzigzag(getVarInt(in)) + (delta ? quantize(previous.epsX[e]) : 0));
+            frame.epsY[e] = dequantize(unzigzag(getVarInt(in)) + (delta ? quantize(previous.epsY[e]) : 0));
+        }
+
+        frame.clearEvents();
+        int divisions = getVarInt(in);
+        for (int i = 0; i < divisions; i++) {
+            frame.addDivision(getVarInt(in), getVarInt(in), getVarInt(in));
+        }
+        int insertions = getVarInt(in);
+        for (int i = 0; i < insertions; i++) {
+            frame.addInsertion(getVarInt(in), getVarInt(in));
+        }
+    }
+
+    static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static int getVarInt(ByteBuffer in) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    static long getVarLong(ByteBuffer in) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    /**
+     * Growable byte buffer frames are encoded into before a chunk is compressed
+     */
+    static final class Sink {
+        byte[] bytes = new byte[1 << 16];
+        int length;
+
+        void reset() {
+            length = 0;
+        }
+
+        private void ensure(int extra) {
+            if (length + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+            }
+        }
+
+        void put(byte value) {
+            ensure(1);
+            bytes[length++] = value;
+        }
+
+        void putVarInt(int value) {
+            ensure(5);
+            while ((value & ~0x7F) != 0) {
+                bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[length++] = (byte) value;
+        }
+
+        void putVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[length++] = (byte) value;
+        }
+
+        void putDouble(double value) {
+            ensure(8);
+            long bits = Double.doubleToRawLongBits(value);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                bytes[length++] = (byte) (bits >>> shift);
+            }
+        }
+    }
+}
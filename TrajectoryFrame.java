@@ -0,0 +1,205 @@
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * One recorded step of a trajectory: bacterium and EPS positions, run/tumble state and the
+ * divisions and EPS insertions that happened during the step. Arrays are reused between steps
+ * and only grow, so a frame can be recycled by the {@link TrajectoryRecorder} ring buffer.
+ *
+ * @author Brian Mbawa, Seth McNevin, Gladwin Ngobeni
+ */
+public class TrajectoryFrame {
+
+    /**
+     * Run/tumble state flags
+     */
+    public static final byte RUNNING = 1;
+    public static final byte TUMBLING = 2;
+
+    static final int N = SimSnapshot.PARTICLES_PER_BACTERIUM;
+
+    long step;
+    double time;
+
+    /**
+     * Bacteria -- the particles of bacterium b are b * 7 .. b * 7 + 6
+     */
+    int bacteriaCount;
+    int[] bacteriumIds = new int[0];
+    byte[] states = new byte[0];
+    double[] particleX = new double[0];
+    double[] particleY = new double[0];
+
+    /**
+     * EPS particles
+     */
+    int epsCount;
+    int[] epsIds = new int[0];
+    double[] epsX = new double[0];
+    double[] epsY = new double[0];
+
+    /**
+     * Divisions as (father, daughter, daughter) id triples
+     */
+    int divisionCount;
+    int[] divisions = new int[0];
+
+    /**
+     * EPS insertions as (EPS id, bacterium id) pairs
+     */
+    int insertionCount;
+    int[] insertions = new int[0];
+
+    /**
+     * Copies the state of the simulation into this frame
+     *
+     * @param step simulation step
+     * @param time simulation time
+     * @param bacteria {@link Bacterium}s in the simulation
+     * @param eps {@link EPS} particles in the simulation
+     */
+    void capture(long step, double time, List<Bacterium> bacteria, List<EPS> eps) {
+        this.step = step;
+        this.time = time;
+        resizeBacteria(bacteria.size());
+        for (int b = 0; b < bacteriaCount; b++) {
+            Bacterium bacterium = bacteria.get(b);
+            bacteriumIds[b] = bacterium.getId();
+            states[b] = (byte) ((bacterium.isRunning() ? RUNNING : 0) | (bacterium.isTumbling() ? TUMBLING : 0));
+            List<Particle> particles = bacterium.getParticles();
+            for (int k = 0; k < N; k++) {
+                PVector position = particles.get(k).getPosition();
+                particleX[b * N + k] = position.getX();
+                particleY[b * N + k] = position.getY();
+            }
+        }
+        resizeEps(eps.size());
+        for (int e = 0; e < epsCount; e++) {
+            EPS epsParticle = eps.get(e);
+            epsIds[e] = epsParticle.getId();
+            epsX[e] = epsParticle.getPosition().getX();
+            epsY[e] = epsParticle.getPosition().getY();
+        }
+    }
+
+    void resizeBacteria(int count) {
+        bacteriaCount = count;
+        if (bacteriumIds.length < count) {
+            int capacity = Math.max(count, bacteriumIds.length * 2);
+            bacteriumIds = Arrays.copyOf(bacteriumIds, capacity);
+            states = Arrays.copyOf(states, capacity);
+            particleX = Arrays.copyOf(particleX, capacity * N);
+            particleY = Arrays.copyOf(particleY, capacity * N);
+        }
+    }
+
+    void resizeEps(int count) {
+        epsCount = count;
+        if (epsIds.length < count) {
+            int capacity = Math.max(count, epsIds.length * 2);
+            epsIds = Arrays.copyOf(epsIds, capacity);
+            epsX = Arrays.copyOf(epsX, capacity);
+            epsY = Arrays.copyOf(epsY, capacity);
+        }
+    }
+
+    void addDivision(int father, int daughter1, int daughter2) {
+        if (divisions.length < (divisionCount + 1) * 3) {
+            divisions = Arrays.copyOf(divisions, Math.max(12, divisions.length * 2));
+        }
+        divisions[divisionCount * 3] = father;
+        divisions[divisionCount * 3 + 1] = daughter1;
+        divisions[divisionCount * 3 + 2] = daughter2;
+        divisionCount++;
+    }
+
+    void addInsertion(int epsId, int bacteriumId) {
+        if (insertions.length < (insertionCount + 1) * 2) {
+            insertions = Arrays.copyOf(insertions, Math.max(8, insertions.length * 2));
+        }
+        insertions[insertionCount * 2] = epsId;
+        insertions[insertionCount * 2 + 1] = bacteriumId;
+        insertionCount++;
+    }
+
+    void clearEvents() {
+        divisionCount = 0;
+        insertionCount = 0;
+    }
+
+    public long getStep() {
+        return step;
+    }
+
+    public double getTime() {
+        return time;
+    }
+
+    public int getBacteriaCount() {
+        return bacteriaCount;
+    }
+
+    public int getBacteriumId(int b) {
+        return bacteriumIds[b];
+    }
+
+    public byte getState(int b) {
+        return states[b];
+    }
+
+    /**
+     * @param particle particle index, particle k of bacterium b is b * 7 + k
+     * @return x coordinate of the particle
+     */
+    public double getParticleX(int particle) {
+        return particleX[particle];
+    }
+
+    /**
+     * @param particle particle index, particle k of bacterium b is b * 7 + k
+     * @return y coordinate of the particle
+     */
+    public double getParticleY(int particle) {
+        return particleY[particle];
+    }
+
+    public int getEpsCount() {
+        return epsCount;
+    }
+
+    public int getEpsId(int e) {
+        return epsIds[e];
+    }
+
+    public double getEpsX(int e) {
+        return epsX[e];
+    }
+
+    public double getEpsY(int e) {
+        return epsY[e];
+    }
+
+    public int getDivisionCount() {
+        return divisionCount;
+    }
+
+    /**
+     * @param i division index
+     * @return (father, daughter, daughter) ids of the division
+     */
+    public int[] getDivision(int i) {
+        return Arrays.copyOfRange(divisions, i * 3, i * 3 + 3);
+    }
+
+    public int getInsertionCount() {
+        return insertionCount;
+    }
+
+    /**
+     * @param i insertion index
+     * @return (EPS id, bacterium id) of the insertion
+     */
+    public int[] getInsertion(int i) {
+        return Arrays.copyOfRange(insertions, i * 2, i * 2 + 2);
+    }
+}
@@ -0,0 +1,121 @@
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Plays back a recorded trajectory. Playback follows a simulated time cursor that advances at a
+ * chosen rate, which may be negative for reverse play, and can be moved to any time for scrubbing.
+ * Frames come straight from the {@link TrajectoryReader}, so no {@link Bacterium}s are built.
+ *
+ * @author Brian Mbawa, Seth McNevin, Gladwin Ngobeni
+ */
+public class TrajectoryPlayer implements Closeable {
+
+    private final TrajectoryReader reader;
+
+    /**
+     * Simulated time currently shown
+     */
+    private double playbackTime;
+
+    /**
+     * Simulated seconds played per real second, negative when playing in reverse
+     */
+    private double rate = 1.0;
+
+    private boolean playing = false;
+
+    /**
+     * Opens a recording for playback, positioned at its first frame
+     *
+     * @param file the trajectory file
+     * @throws IOException if the file cannot be read
+     */
+    public TrajectoryPlayer(File file) throws IOException {
+        reader = new TrajectoryReader(file);
+        if (reader.getFrameCount() == 0) {
+            reader.close();
+            throw new IOException("Recording has no frames: " + file.getName());
+        }
+        playbackTime = reader.getFrameTime(0);
+    }
+
+    /**
+     * Advances the playback time by the real time that passed, stopping at either end of the recording
+     *
+     * @param elapsedSeconds real seconds since the last advance
+     */
+    public void advance(double elapsedSeconds) {
+        if (!playing) {
+            return;
+        }
+        playbackTime += rate * elapsedSeconds;
+        if (playbackTime >= getEndTime() || playbackTime <= getStartTime()) {
+            playbackTime = Math.max(getStartTime(), Math.min(playbackTime, getEndTime()));
+            playing = false;
+        }
+    }
+
+    /**
+     * Moves the playback to a simulated time
+     *
+     * @param time simulated time, clamped to the recording
+     */
+    public void seek(double time) {
+        playbackTime = Math.max(getStartTime(), Math.min(time, getEndTime()));
+    }
+
+    /**
+     * @return the frame recorded at or just before the playback time
+     * @throws IOException if the frame cannot be decoded
+     */
+    public TrajectoryFrame currentFrame() throws IOException {
+        return reader.readFrame(reader.frameAt(playbackTime));
+    }
+
+    public double getStartTime() {
+        return reader.getFrameTime(0);
+    }
+
+    public double getEndTime() {
+        return reader.getFrameTime(reader.getFrameCount() - 1);
+    }
+
+    public double getPlaybackTime() {
+        return playbackTime;
+    }
+
+    public double getRate() {
+        return rate;
+    }
+
+    /**
+     * @param rate simulated seconds per real second, negative to play in reverse
+     */
+    public void setRate(double rate) {
+        this.rate = rate;
+    }
+
+    public boolean isPlaying() {
+        return playing;
+    }
+
+    /**
+     * Starts or stops playback. Starting at the end the playback is heading to restarts from the other end.
+     *
+     * @param playing true to play
+     */
+    public void setPlaying(boolean playing) {
+        if (playing && rate > 0 && playbackTime >= getEndTime()) {
+            playbackTime = getStartTime();
+        } else if (playing && rate < 0 && playbackTime <= getStartTime()) {
+            playbackTime = getEndTime();
+        }
+        this.playing = playing;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
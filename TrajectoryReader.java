@@ -0,0 +1,243 @@
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Random access reader for trajectory files written by a {@link TrajectoryRecorder}.
+ * Seeking to a frame maps the chunk holding it at its offset in the file, however far in that is, then inflates it
+ * and decodes its frames, which are kept so that neighbouring frames can be read without decoding again.
+ *
+ * @author Brian Mbawa, Seth McNevin, Gladwin Ngobeni
+ */
+public class TrajectoryReader implements Closeable {
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final int recordEvery;
+
+    /**
+     * Chunk index -- file offset, first frame and frame count of every chunk
+     */
+    private final long[] chunkOffsets;
+    private final int[] chunkFirstFrames;
+    private final int[] chunkFrameCounts;
+
+    /**
+     * Step and simulation time of every frame
+     */
+    private final long[] frameSteps;
+    private final double[] frameTimes;
+
+    /**
+     * Decoded frames of the most recently read chunk
+     */
+    private int cachedChunk = -1;
+    private final List<TrajectoryFrame> cachedFrames = new ArrayList<>();
+    private final Inflater inflater = new Inflater();
+    private byte[] raw = new byte[1 << 16];
+
+    /**
+     * Opens a trajectory file
+     *
+     * @param path the trajectory file
+     * @throws IOException if the file cannot be read or is not a trajectory
+     */
+    public TrajectoryReader(File path) throws IOException {
+        file = new RandomAccessFile(path, "r");
+        channel = file.getChannel();
+        long size = channel.size();
+        ByteBuffer header = size < TrajectoryCodec.HEADER_SIZE ? null : read(0, TrajectoryCodec.HEADER_SIZE);
+        if (header == null || header.getInt(0) != TrajectoryCodec.MAGIC) {
+            file.close();
+            throw new IOException("Not a trajectory file: " + path.getName());
+        }
+        if (header.getInt(4) != TrajectoryCodec.VERSION) {
+            file.close();
+            throw new IOException("Unsupported trajectory version " + header.getInt(4));
+        }
+        recordEvery = header.getInt(16);
+
+        ByteBuffer footer = size < TrajectoryCodec.HEADER_SIZE + TrajectoryCodec.FOOTER_SIZE ? null
+                : read(size - TrajectoryCodec.FOOTER_SIZE, TrajectoryCodec.FOOTER_SIZE);
+        boolean indexed = footer != null && footer.getInt(TrajectoryCodec.FOOTER_SIZE - 4) == TrajectoryCodec.MAGIC;
+        if (indexed) {
+            /*
+            Read the index written when the recording was closed
+             */
+            int chunks = footer.getInt(8);
+            int frames = footer.getInt(12);
+            ByteBuffer index = read(footer.getLong(0), (chunks + frames) * 16);
+            chunkOffsets = new long[chunks];
+            chunkFirstFrames = new int[chunks];
+            chunkFrameCounts = new int[chunks];
+            for (int c = 0; c < chunks; c++) {
+                chunkOffsets[c] = index.getLong();
+                chunkFirstFrames[c] = index.getInt();
+                chunkFrameCounts[c] = index.getInt();
+            }
+            frameSteps = new long[frames];
+            frameTimes = new double[frames];
+            for (int f = 0; f < frames; f++) {
+                frameSteps[f] = index.getLong();
+                frameTimes[f] = index.getDouble();
+            }
+        } else {
+            /*
+            The recording was not closed -- rebuild the index from the complete chunks
+             */
+            List<long[]> chunks = new ArrayList<>();
+            long position = TrajectoryCodec.HEADER_SIZE;
+            while (position + TrajectoryCodec.CHUNK_HEADER_SIZE <= size) {
+                ByteBuffer chunkHeader = read(position, TrajectoryCodec.CHUNK_HEADER_SIZE);
+                int compressedLength = chunkHeader.getInt(12);
+                if (position + TrajectoryCodec.CHUNK_HEADER_SIZE + compressedLength > size) {
+                    break;
+                }
+                chunks.add(new long[] {position, chunkHeader.getInt(0), chunkHeader.getInt(4)});
+                position += TrajectoryCodec.CHUNK_HEADER_SIZE + compressedLength;
+            }
+            chunkOffsets = new long[chunks.size()];
+            chunkFirstFrames = new int[chunks.size()];
+            chunkFrameCounts = new int[chunks.size()];
+            int frames = 0;
+            for (int c = 0; c < chunks.size(); c++) {
+                chunkOffsets[c] = chunks.get(c)[0];
+                chunkFirstFrames[c] = (int) chunks.get(c)[1];
+                chunkFrameCounts[c] = (int) chunks.get(c)[2];
+                frames += chunkFrameCounts[c];
+            }
+            frameSteps = new long[frames];
+            frameTimes = new double[frames];
+            for (int c = 0; c < chunks.size(); c++) {
+                loadChunk(c);
+                for (int f = 0; f < chunkFrameCounts[c]; f++) {
+                    frameSteps[chunkFirstFrames[c] + f] = cachedFrames.get(f).step;
+                    frameTimes[chunkFirstFrames[c] + f] = cachedFrames.get(f).time;
+                }
+            }
+        }
+    }
+
+    public int getFrameCount() {
+        return frameTimes.length;
+    }
+
+    public int getRecordEvery() {
+        return recordEvery;
+    }
+
+    public double getFrameTime(int frame) {
+        return frameTimes[frame];
+    }
+
+    public long getFrameStep(int frame) {
+        return frameSteps[frame];
+    }
+
+    /**
+     * Finds the last frame recorded at or before a simulation time
+     *
+     * @param time simulation time
+     * @return frame index, 0 if the time precedes the recording
+     */
+    public int frameAt(double time) {
+        int index = Arrays.binarySearch(frameTimes, time);
+        if (index < 0) {
+            index = -index - 2;
+        }
+        return Math.max(0, Math.min(index, frameTimes.length - 1));
+    }
+
+    /**
+     * Reads a frame. The returned frame is shared with the reader's chunk cache and is only valid
+     * until a frame of another chunk is read.
+     *
+     * @param frame frame index
+     * @return the decoded frame
+     * @throws IOException if the chunk holding the frame is corrupt
+     */
+    public TrajectoryFrame readFrame(int frame) throws IOException {
+        if (frame < 0 || frame >= frameTimes.length) {
+            throw new IndexOutOfBoundsException("Frame " + frame + " of " + frameTimes.length);
+        }
+        int chunk = Arrays.binarySearch(chunkFirstFrames, frame);
+        if (chunk < 0) {
+            chunk = -chunk - 2;
+        }
+        loadChunk(chunk);
+        return cachedFrames.get(frame - chunkFirstFrames[chunk]);
+    }
+
+    /**
+     * Inflates a chunk and decodes all of its frames into the cache
+     */
+    private void loadChunk(int chunk) throws IOException {
+        if (chunk == cachedChunk) {
+            return;
+        }
+        long position = chunkOffsets[chunk];
+        ByteBuffer chunkHeader = read(position, TrajectoryCodec.CHUNK_HEADER_SIZE);
+        int frames = chunkHeader.getInt(4);
+        int rawLength = chunkHeader.getInt(8);
+        int compressedLength = chunkHeader.getInt(12);
+        if (raw.length < rawLength) {
+            raw = new byte[rawLength];
+        }
+
+        ByteBuffer compressed = channel.map(FileChannel.MapMode.READ_ONLY,
+                position + TrajectoryCodec.CHUNK_HEADER_SIZE, compressedLength);
+        inflater.reset();
+        inflater.setInput(compressed);
+        try {
+            int length = 0;
+            while (length < rawLength && !inflater.finished()) {
+                length += inflater.inflate(raw, length, rawLength - length);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt trajectory chunk " + chunk, e);
+        }
+
+        ByteBuffer in = ByteBuffer.wrap(raw, 0, rawLength);
+        while (cachedFrames.size() < frames) {
+            cachedFrames.add(new TrajectoryFrame());
+        }
+        cachedChunk = -1;
+        for (int f = 0; f < frames; f++) {
+            TrajectoryCodec.decode(in, f == 0 ? null : cachedFrames.get(f - 1), cachedFrames.get(f));
+        }
+        cachedChunk = chunk;
+    }
+
+    /**
+     * Reads bytes of the file at any offset
+     *
+     * @param position file offset of the first byte
+     * @param length number of bytes
+     * @return the bytes, ready to be read
+     * @throws IOException if the file ends first
+     */
+    private ByteBuffer read(long position, int length) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(length);
+        while (bytes.hasRemaining()) {
+            if (channel.read(bytes, position + bytes.position()) < 0) {
+                throw new EOFException("Trajectory file ends at " + (position + bytes.position()));
+            }
+        }
+        return bytes.flip();
+    }
+
+    @Override
+    public void close() throws IOException {
+        inflater.end();
+        file.close();
+    }
+}
@@ -0,0 +1,281 @@
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.Deflater;
+
+/**
+ * Streams the trajectory of a run to a chunked, delta encoded and compressed binary file.
+ * The simulation thread only copies positions into a recycled {@link TrajectoryFrame} taken from a
+ * bounded ring; encoding, compression and file output happen on a separate writer thread.
+ * When the ring is full the simulation waits for the writer rather than dropping frames.
+ * Recorded files are read back with a {@link TrajectoryReader}.
+ *
+ * @author Brian Mbawa, Seth McNevin, Gladwin Ngobeni
+ */
+public class TrajectoryRecorder implements Closeable {
+
+    /**
+     * A step is recorded every recordEvery steps
+     */
+    private final int recordEvery;
+
+    /**
+     * Frames per compressed chunk
+     */
+    private final int chunkFrames;
+
+    /**
+     * Ring buffer -- empty frames wait in free, captured frames wait in filled for the writer
+     */
+    private final BlockingQueue<TrajectoryFrame> free;
+    private final BlockingQueue<TrajectoryFrame> filled;
+
+    /**
+     * Divisions and EPS insertions seen since the last recorded frame
+     */
+    private final TrajectoryFrame pendingEvents = new TrajectoryFrame();
+
+    /**
+     * Marks the end of the recording for the writer thread
+     */
+    private final TrajectoryFrame endOfRecording = new TrajectoryFrame();
+
+    private final Thread writerThread;
+    private final DataOutputStream out;
+    private IOException failure;
+    private boolean closed = false;
+
+    /*
+    Writer thread state
+     */
+    private final TrajectoryCodec.Sink chunk = new TrajectoryCodec.Sink();
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    private byte[] compressed = new byte[1 << 16];
+    private TrajectoryFrame previous = new TrajectoryFrame();
+    private boolean hasPrevious = false;
+    private int framesInChunk = 0;
+    private int frameCount = 0;
+    private long offset = 0;
+    private final List<long[]> chunkIndex = new ArrayList<>();
+    private final List<Double> frameTimes = new ArrayList<>();
+    private final List<Long> frameSteps = new ArrayList<>();
+
+    /**
+     * Starts a recording
+     *
+     * @param file destination file
+     * @param recordEvery a frame is recorded every recordEvery steps
+     * @param chunkFrames frames per compressed chunk
+     * @param ringSize number of frames that can be waiting for the writer
+     * @throws IOException if the file cannot be created
+     */
+    public TrajectoryRecorder(File file, int recordEvery, int chunkFrames, int ringSize) throws IOException {
+        if (recordEvery < 1 || chunkFrames < 1 || ringSize < 1) {
+            throw new IllegalArgumentException("Recording intervals and sizes must be positive");
+        }
+        this.recordEvery = recordEvery;
+        this.chunkFrames = chunkFrames;
+        this.free = new ArrayBlockingQueue<>(ringSize);
+        this.filled = new ArrayBlockingQueue<>(ringSize + 1);
+        for (int i = 0; i < ringSize; i++) {
+            free.add(new TrajectoryFrame());
+        }
+
+        if (file.getParentFile() != null) {
+            file.getParentFile().mkdirs();
+        }
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+        out.writeInt(TrajectoryCodec.MAGIC);
+        out.writeInt(TrajectoryCodec.VERSION);
+        out.writeDouble(TrajectoryCodec.SCALE);
+        out.writeInt(recordEvery);
+        out.writeInt(chunkFrames);
+        out.write(new byte[TrajectoryCodec.HEADER_SIZE - 24]);
+        offset = TrajectoryCodec.HEADER_SIZE;
+
+        writerThread = new Thread(this::writeLoop, "trajectory-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Records a division, reported in the next recorded frame
+     *
+     * @param father the dividing {@link Bacterium}
+     * @param daughters its two daughters
+     */
+    public void recordDivision(Bacterium father, List<Bacterium> daughters) {
+        pendingEvents.addDivision(father.getId(), daughters.get(0).getId(), daughters.get(1).getId());
+    }
+
+    /**
+     * Records an EPS insertion, reported in the next recorded frame
+     *
+     * @param eps the inserted {@link EPS} particle
+     * @param bacterium the bacterium that secreted it
+     */
+    public void recordInsertion(EPS eps, Bacterium bacterium) {
+        pendingEvents.addInsertion(eps.getId(), bacterium.getId());
+    }
+
+    /**
+     * Called at the end of every step. Captures a frame on every recordEvery-th step.
+     *
+     * @param step simulation step
+     * @param time simulation time
+     * @param bacteria {@link Bacterium}s in the simulation
+     * @param eps {@link EPS} particles in the simulation
+     */
+    public void onStep(long step, double time, List<Bacterium> bacteria, List<EPS> eps) {
+        if (closed || step % recordEvery != 0) {
+            return;
+        }
+        try {
+            TrajectoryFrame frame = free.take();
+            frame.capture(step, time, bacteria, eps);
+            frame.clearEvents();
+            for (int i = 0; i < pendingEvents.divisionCount; i++) {
+                frame.addDivision(pendingEvents.divisions[i * 3], pendingEvents.divisions[i * 3 + 1], pendingEvents.divisions[i * 3 + 2]);
+            }
+            for (int i = 0; i < pendingEvents.insertionCount; i++) {
+                frame.addInsertion(pendingEvents.insertions[i * 2], pendingEvents.insertions[i * 2 + 1]);
+            }
+            pendingEvents.clearEvents();
+            filled.put(frame);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Flushes the remaining frames, writes the index and closes the file
+     *
+     * @throws IOException if the writer failed at any point of the recording
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            filled.put(endOfRecording);
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * Writer thread -- encodes frames into chunks until the end of the recording
+     */
+    private void writeLoop() {
+        try {
+            while (true) {
+                TrajectoryFrame frame = filled.take();
+                if (frame == endOfRecording) {
+                    break;
+                }
+                if (failure == null) {
+                    try {
+                        writeFrame(frame);
+                    } catch (IOException e) {
+                        failure = e;
+                    }
+                }
+                /*
+                The encoded frame becomes the delta base and the old base goes back into the ring
+                 */
+                TrajectoryFrame recycled = previous;
+                previous = frame;
+                hasPrevious = true;
+                free.put(recycled);
+            }
+            if (failure == null) {
+                flushChunk();
+                writeIndex();
+            }
+        } catch (IOException e) {
+            failure = e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            deflater.end();
+            try {
+                out.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+    }
+
+    private void writeFrame(TrajectoryFrame frame) throws IOException {
+        TrajectoryCodec.encode(frame, framesInChunk > 0 && hasPrevious ? previous : null, chunk);
+        frameTimes.add(frame.time);
+        frameSteps.add(frame.step);
+        framesInChunk++;
+        frameCount++;
+        if (framesInChunk == chunkFrames) {
+            flushChunk();
+        }
+    }
+
+    /**
+     * Compresses the frames encoded so far and writes them as one chunk
+     */
+    private void flushChunk() throws IOException {
+        if (framesInChunk == 0) {
+            return;
+        }
+        deflater.reset();
+        deflater.setInput(chunk.bytes, 0, chunk.length);
+        deflater.finish();
+        int compressedLength = 0;
+        while (!deflater.finished()) {
+            if (compressedLength == compressed.length) {
+                compressed = java.util.Arrays.copyOf(compressed, compressed.length * 2);
+            }
+            compressedLength += deflater.deflate(compressed, compressedLength, compressed.length - compressedLength);
+        }
+
+        int firstFrame = frameCount - framesInChunk;
+        chunkIndex.add(new long[] {offset, firstFrame, framesInChunk});
+        out.writeInt(firstFrame);
+        out.writeInt(framesInChunk);
+        out.writeInt(chunk.length);
+        out.writeInt(compressedLength);
+        out.write(compressed, 0, compressedLength);
+        offset += TrajectoryCodec.CHUNK_HEADER_SIZE + compressedLength;
+
+        chunk.reset();
+        framesInChunk = 0;
+    }
+
+    private void writeIndex() throws IOException {
+        long indexOffset = offset;
+        for (long[] entry : chunkIndex) {
+            out.writeLong(entry[0]);
+            out.writeInt((int) entry[1]);
+            out.writeInt((int) entry[2]);
+        }
+        for (int i = 0; i < frameCount; i++) {
+            out.writeLong(frameSteps.get(i));
+            out.writeDouble(frameTimes.get(i));
+        }
+        out.writeLong(indexOffset);
+        out.writeInt(chunkIndex.size());
+        out.writeInt(frameCount);
+        out.writeInt(TrajectoryCodec.MAGIC);
+    }
+}
@@ -0,0 +1,30 @@
+/**
+ * The velocity Verlet integration the simulation has always used, see {@link Particle#update(double)}
+ *
+ * @author Brian Mbawa, Seth McNevin, Gladwin Ngobeni
+ */
+public class VerletIntegrator implements Integrator {
+
+    @Override
+    public void advance(Particle particle, double dt) {
+        particle.update(dt);
+    }
+
+    /**
+     * A particle is moved by half its acceleration times the step squared, and its mass is 1
+     */
+    @Override
+    public double stepForDisplacement(double force, double displacement) {
+        return force > 0 ? Math.sqrt(2 * displacement / force) : Double.POSITIVE_INFINITY;
+    }
+
+    @Override
+    public double defaultTimeStep() {
+        return SimEngine.TIME_STEP;
+    }
+
+    @Override
+    public String name() {
+        return "verlet";
+    }
+}
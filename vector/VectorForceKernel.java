@@ -0,0 +1,68 @@
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link ForceKernel}s built on the incubating Vector API, evaluating as many pairs per instruction as the
+ * preferred vector width allows (four doubles on AVX2, eight on AVX-512). Lanes left over at the end of
+ * the arrays are handled by one masked pass.
+ * <p>
+ * Kept apart from the other sources because it needs the incubator module. Compile and run with
+ * <pre>
+ * javac --add-modules jdk.incubator.vector -cp . -d . vector/VectorForceKernel.java
+ * java --add-modules jdk.incubator.vector Simulation
+ * </pre>
+ *
+ * @author Brian Mbawa, Seth McNevin, Gladwin Ngobeni
+ */
+public class VectorForceKernel implements ForceKernel {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    public void springForces(double[] dx, double[] dy, double[] dz, int count, double[] restLength, double stiffness,
+                             double[] fx, double[] fy, double[] fz) {
+        int bound = SPECIES.loopBound(count);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector x = DoubleVector.fromArray(SPECIES, dx, i);
+            DoubleVector y = DoubleVector.fromArray(SPECIES, dy, i);
+            DoubleVector z = DoubleVector.fromArray(SPECIES, dz, i);
+            DoubleVector rest = DoubleVector.fromArray(SPECIES, restLength, i);
+            DoubleVector distance = x.mul(x).add(y.mul(y)).add(z.mul(z)).lanewise(VectorOperators.SQRT);
+            DoubleVector scale = distance.sub(rest).mul(stiffness).neg().div(distance).blend(0, distance.eq(0));
+            x.mul(scale).intoArray(fx, i);
+            y.mul(scale).intoArray(fy, i);
+            z.mul(scale).intoArray(fz, i);
+        }
+        if (i < count) {
+            VectorMask<Double> lanes = SPECIES.indexInRange(i, count);
+            DoubleVector x = DoubleVector.fromArray(SPECIES, dx, i, lanes);
+            DoubleVector y = DoubleVector.fromArray(SPECIES, dy, i, lanes);
+            DoubleVector z = DoubleVector.fromArray(SPECIES, dz, i, lanes);
+            DoubleVector rest = DoubleVector.fromArray(SPECIES, restLength, i, lanes);
+            DoubleVector distance = x.mul(x).add(y.mul(y)).add(z.mul(z)).lanewise(VectorOperators.SQRT);
+            DoubleVector scale = distance.sub(rest).mul(stiffness).neg().div(distance).blend(0, distance.eq(0));
+            x.mul(scale).intoArray(fx, i, lanes);
+            y.mul(scale).intoArray(fy, i, lanes);
+            z.mul(scale).intoArray(fz, i, lanes);
+        }
+    }
+
+    @Override
+    public void distances(double[] dx, double[] dy, double[] dz, int count, double[] distance) {
+        for (int i = 0; i < count; i += SPECIES.length()) {
+            VectorMask<Double> lanes = SPECIES.indexInRange(i, count);
+            DoubleVector x = DoubleVector.fromArray(SPECIES, dx, i, lanes);
+            DoubleVector y = DoubleVector.fromArray(SPECIES, dy, i, lanes);
+            DoubleVector z = DoubleVector.fromArray(SPECIES, dz, i, lanes);
+            x.mul(x).add(y.mul(y)).add(z.mul(z)).lanewise(VectorOperators.SQRT).intoArray(distance, i, lanes);
+        }
+    }
+
+    @Override
+    public String name() {
+        return "vector " + SPECIES.vectorBitSize() + "-bit";
+    }
+}